@@ -10,6 +10,7 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import javax.annotation.Nullable;
 
 public class BatfishLogger {
 
@@ -17,13 +18,36 @@ public class BatfishLogger {
     /** */
     private static final long serialVersionUID = 1L;
 
+    private int _droppedItems;
+
+    private boolean _streamed;
+
+    /** Returns the number of messages not kept because the history was full */
+    public int getDroppedItems() {
+      return _droppedItems;
+    }
+
+    /**
+     * Returns whether every message was already forwarded to another logger when it was logged, so
+     * that this history only holds the latest ones, e.g. for reporting a failure
+     */
+    public boolean isStreamed() {
+      return _streamed;
+    }
+
     public String toString(int logLevel) {
       StringBuilder sb = new StringBuilder();
+      if (_streamed && _droppedItems > 0) {
+        sb.append(String.format("...%d earlier log messages are in the task log\n", _droppedItems));
+      }
       for (HistoryItem item : this) {
         if (item.getLevel() <= logLevel) {
           sb.append(item.getMessage());
         }
       }
+      if (!_streamed && _droppedItems > 0) {
+        sb.append(getDroppedItemsMessage(_droppedItems));
+      }
       return sb.toString();
     }
   }
@@ -87,6 +111,10 @@ public class BatfishLogger {
 
   private static final int LOG_ROTATION_THRESHOLD = 10000;
 
+  private static String getDroppedItemsMessage(int droppedItems) {
+    return String.format("...%d further log messages were dropped\n", droppedItems);
+  }
+
   public static int getLogLevel(String levelStr) {
     String canonicalLevelStr = levelStr.toLowerCase();
     return LOG_LEVELS.get(canonicalLevelStr);
@@ -144,8 +172,14 @@ public class BatfishLogger {
     return LOG_LEVELS.containsKey(levelStr);
   }
 
+  @Nullable private final BatfishLogger _delegate;
+
+  private final String _delegatePrefix;
+
   private final BatfishLoggerHistory _history;
 
+  private final int _historyMaxItems;
+
   private int _level;
 
   private String _logFile;
@@ -161,13 +195,47 @@ public class BatfishLogger {
   private boolean _timestamp;
 
   public BatfishLogger(String logLevel, boolean timestamp) {
+    this(logLevel, timestamp, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Creates a logger that forwards each message to {@code delegate} as soon as it is logged, after
+   * {@code delegatePrefix} so that messages from concurrent sources can be told apart. Its history
+   * only keeps the latest {@code historyMaxItems} messages, which are already in {@code delegate}.
+   */
+  public BatfishLogger(
+      String logLevel,
+      boolean timestamp,
+      BatfishLogger delegate,
+      String delegatePrefix,
+      int historyMaxItems) {
+    _delegate = delegate;
+    _delegatePrefix = delegatePrefix;
+    _timestamp = timestamp;
+    setLogLevel(logLevel);
+    _history = new BatfishLoggerHistory();
+    _history._streamed = true;
+    _historyMaxItems = historyMaxItems;
+  }
+
+  /**
+   * Creates a logger that keeps at most {@code historyMaxItems} messages in its history and counts
+   * the ones it drops
+   */
+  public BatfishLogger(String logLevel, boolean timestamp, int historyMaxItems) {
+    _delegate = null;
+    _delegatePrefix = "";
     _timestamp = timestamp;
     setLogLevel(logLevel);
     _history = new BatfishLoggerHistory();
+    _historyMaxItems = historyMaxItems;
   }
 
   public BatfishLogger(String logLevel, boolean timestamp, PrintStream stream) {
+    _delegate = null;
+    _delegatePrefix = "";
     _history = null;
+    _historyMaxItems = 0;
     _timestamp = timestamp;
     String levelStr = logLevel;
     setLogLevel(levelStr);
@@ -176,7 +244,10 @@ public class BatfishLogger {
 
   public BatfishLogger(
       String logLevel, boolean timestamp, String logFile, boolean logTee, boolean rotateLog) {
+    _delegate = null;
+    _delegatePrefix = "";
     _history = null;
+    _historyMaxItems = 0;
     _timestamp = timestamp;
     String levelStr = logLevel;
     setLogLevel(levelStr);
@@ -216,11 +287,18 @@ public class BatfishLogger {
   }
 
   public void append(BatfishLoggerHistory history, String prefix) {
+    if (history.isStreamed()) {
+      // its messages were written here as they were logged
+      return;
+    }
     for (HistoryItem item : history) {
       int level = item.getLevel();
       String msg = prefix + item.getMessage();
       write(level, msg);
     }
+    if (history.getDroppedItems() > 0) {
+      write(LEVEL_WARN, prefix + getDroppedItemsMessage(history.getDroppedItems()));
+    }
   }
 
   public void close() {
@@ -357,6 +435,16 @@ public class BatfishLogger {
 
   private synchronized void write(int level, String msg) {
     if (isActive(level)) {
+      if (_delegate != null) {
+        _delegate.write(level, _delegatePrefix + msg);
+        // keep only the latest messages
+        _history.add(new HistoryItem(level, msg));
+        if (_history.size() > _historyMaxItems) {
+          _history.remove(0);
+          _history._droppedItems++;
+        }
+        return;
+      }
       String outputMsg;
       if (_timestamp) {
         DateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
@@ -377,8 +465,10 @@ public class BatfishLogger {
             _numLinesSinceRotation = 0;
           }
         }
-      } else {
+      } else if (_history.size() < _historyMaxItems) {
         _history.add(new HistoryItem(level, msg));
+      } else {
+        _history._droppedItems++;
       }
     }
   }
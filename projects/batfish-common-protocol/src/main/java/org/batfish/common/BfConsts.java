@@ -30,12 +30,15 @@ public class BfConsts {
   public static final String ARG_ANALYSIS_NAME = "analysisname";
   public static final String ARG_ANSWER_JSON_PATH = "answerjsonpath";
   public static final String ARG_BDP_DETAIL = "bdpdetail";
+  public static final String ARG_BDP_INCREMENTAL_PROPAGATION = "bdpincrementalpropagation";
+  public static final String ARG_BDP_MAX_CHECKPOINTS = "bdpmaxcheckpoints";
   public static final String ARG_BDP_MAX_OSCILLATION_RECOVERY_ATTEMPTS =
       "bdpmaxoscillationrecoveryattempts";
   public static final String ARG_BDP_MAX_RECORDED_ITERATIONS = "bdpmaxrecordediterations";
   public static final String ARG_BDP_PRINT_ALL_ITERATIONS = "bdpprintalliterations";
   public static final String ARG_BDP_PRINT_OSCILLATING_ITERATIONS = "bdpprintoscillatingiterations";
   public static final String ARG_BDP_RECORD_ALL_ITERATIONS = "bdprecordalliterations";
+  public static final String ARG_BDP_THREADS = "bdpthreads";
   public static final String ARG_BLOCK_NAMES = "blocknames";
   public static final String ARG_CONTAINER_DIR = "containerdir";
   public static final String ARG_DELTA_ENVIRONMENT_NAME = "deltaenv";
@@ -142,6 +145,7 @@ public class BfConsts {
   public static final String RELPATH_ENVIRONMENTS_DIR = "environments";
   public static final String RELPATH_EXTERNAL_BGP_ANNOUNCEMENTS = "external_bgp_announcements.json";
   public static final String RELPATH_FAILURE_QUERY_PREFIX = "failure-query";
+  public static final String RELPATH_FILE_HASHES = "file_hashes.json";
   public static final String RELPATH_FLOWS_DUMP_DIR = "flowdump";
   public static final String RELPATH_HOST_CONFIGS_DIR = "hosts";
   public static final String RELPATH_INFERRED_NODE_ROLES_PATH = "node_roles_inferred.json";
@@ -161,6 +165,7 @@ public class BfConsts {
   public static final String RELPATH_TEST_RIG_DIR = "testrig";
   public static final String RELPATH_TESTRIG_TOPOLOGY_PATH = "testrig_topology";
   public static final String RELPATH_TESTRIGS_DIR = "testrigs";
+  public static final String RELPATH_UPLOADS_DIR = "uploads";
   public static final String RELPATH_VALIDATE_ENVIRONMENT_ANSWER = "venv_answer";
   public static final String RELPATH_VENDOR_INDEPENDENT_CONFIG_DIR = "indep";
   public static final String RELPATH_VENDOR_SPECIFIC_CONFIG_DIR = "vendor";
@@ -174,6 +179,7 @@ public class BfConsts {
   public static final String SVC_GET_STATUS_RSC = "getstatus";
   public static final String SVC_GET_TASKSTATUS_RSC = "gettaskstatus";
   public static final Integer SVC_PORT = 9999;
+  public static final String SVC_PREFETCH_RSC = "prefetch";
   public static final String SVC_RUN_TASK_RSC = "run";
   public static final String SVC_SUCCESS_KEY = "success";
   public static final String SVC_TASK_KEY = "task";
@@ -68,6 +68,8 @@ public class CoordConsts {
   public static final String SVC_KEY_TESTRIG_INFO = "testriginfo";
   public static final String SVC_KEY_TESTRIG_LIST = "testriglist";
   public static final String SVC_KEY_TESTRIG_NAME = "testrigname";
+  public static final String SVC_KEY_UPLOAD_COMPLETE = "uploadcomplete";
+  public static final String SVC_KEY_UPLOAD_OFFSET = "uploadoffset";
   public static final String SVC_KEY_VERSION = "version";
   public static final String SVC_KEY_WORKID = "workid";
   public static final String SVC_KEY_WORKITEM = "workitem";
@@ -98,8 +100,10 @@ public class CoordConsts {
   public static final String SVC_RSC_LIST_ENVIRONMENTS = "listenvironments";
   public static final String SVC_RSC_LIST_QUESTIONS = "listquestions";
   public static final String SVC_RSC_LIST_TESTRIGS = "listtestrigs";
+  public static final String SVC_RSC_POOL_GET_CONNECTION_STATS = "getconnectionstats";
   public static final String SVC_RSC_POOL_GET_QUESTION_TEMPLATES = "getquestiontemplates";
   public static final String SVC_RSC_POOL_GETSTATUS = "getstatus";
+  public static final String SVC_RSC_POOL_TASK_COMPLETED = "taskcompleted";
   public static final String SVC_RSC_POOL_UPDATE = "updatepool";
   public static final String SVC_RSC_PUT_OBJECT = "putobject";
   public static final String SVC_RSC_QUEUE_WORK = "queuework";
@@ -108,4 +112,5 @@ public class CoordConsts {
   public static final String SVC_RSC_UPLOAD_ENV = "uploadenvironment";
   public static final String SVC_RSC_UPLOAD_QUESTION = "uploadquestion";
   public static final String SVC_RSC_UPLOAD_TESTRIG = "uploadtestrig";
+  public static final String SVC_RSC_UPLOAD_TESTRIG_CHUNK = "uploadtestrigchunk";
 }
@@ -33,6 +33,8 @@ import org.apache.commons.io.IOUtils;
 import org.batfish.common.BatfishException;
 import org.batfish.common.CompositeBatfishException;
 import org.batfish.common.util.BatfishObjectInputStream;
+import org.batfish.common.util.CompactObjectInputStream;
+import org.batfish.common.util.CompactObjectOutputStream;
 
 public abstract class PluginConsumer implements IPluginConsumer {
 
@@ -46,11 +48,23 @@ public abstract class PluginConsumer implements IPluginConsumer {
 
   private ClassLoader _currentClassLoader;
 
+  private final boolean _serializeCompact;
+
   private final boolean _serializeToText;
 
   public PluginConsumer(boolean serializeToText) {
+    this(serializeToText, false);
+  }
+
+  /**
+   * @param serializeToText Whether to serialize objects as XML text
+   * @param serializeCompact Whether to serialize objects in the compact binary format written by
+   *     {@link CompactObjectOutputStream}. Ignored if {@code serializeToText} is set.
+   */
+  public PluginConsumer(boolean serializeToText, boolean serializeCompact) {
     _currentClassLoader = Thread.currentThread().getContextClassLoader();
     _serializeToText = serializeToText;
+    _serializeCompact = serializeCompact;
   }
 
   protected <S extends Serializable> S deserializeObject(byte[] data, Class<S> outputClass) {
@@ -64,14 +78,16 @@ public abstract class PluginConsumer implements IPluginConsumer {
       // downstream consumers to read.
       PushbackInputStream pbstream =
           new PushbackInputStream(stream, JAVA_SERIALIZED_OBJECT_HEADER.length);
-      boolean isJavaSerializationData = isJavaSerializationData(pbstream);
+      byte[] header = peekHeader(pbstream);
       ObjectInputStream ois;
-      if (!isJavaSerializationData) {
+      if (isCompactSerializationData(header)) {
+        ois = new CompactObjectInputStream(pbstream, _currentClassLoader);
+      } else if (Arrays.equals(header, JAVA_SERIALIZED_OBJECT_HEADER)) {
+        ois = new BatfishObjectInputStream(pbstream, _currentClassLoader);
+      } else {
         XStream xstream = new XStream(new DomDriver("UTF-8"));
         xstream.setClassLoader(_currentClassLoader);
         ois = xstream.createObjectInputStream(pbstream);
-      } else {
-        ois = new BatfishObjectInputStream(pbstream, _currentClassLoader);
       }
       Object o = ois.readObject();
       return outputClass.cast(o);
@@ -119,16 +135,23 @@ public abstract class PluginConsumer implements IPluginConsumer {
 
   public abstract PluginClientType getType();
 
+  /** Determines whether the given stream header starts with the compact serialization magic. */
+  private static boolean isCompactSerializationData(byte[] header) {
+    return Arrays.equals(
+        Arrays.copyOf(header, CompactObjectOutputStream.MAGIC.length),
+        CompactObjectOutputStream.MAGIC);
+  }
+
   /**
-   * Determines whether the data in the stream is Java serialized bytes. Requires a {@link
-   * PushbackInputStream} so that the inspected bytes can be put back into the stream after reading.
+   * Returns the first bytes of the stream, used to determine the serialization format of the data.
+   * Requires a {@link PushbackInputStream} so that the inspected bytes can be put back into the
+   * stream after reading.
    */
-  private boolean isJavaSerializationData(PushbackInputStream stream) throws IOException {
+  private static byte[] peekHeader(PushbackInputStream stream) throws IOException {
     byte[] header = new byte[JAVA_SERIALIZED_OBJECT_HEADER.length];
     ByteStreams.readFully(stream, header);
-    boolean ret = Arrays.equals(header, JAVA_SERIALIZED_OBJECT_HEADER);
     stream.unread(header);
-    return ret;
+    return header;
   }
 
   protected final void loadPlugins() {
@@ -201,6 +224,8 @@ public abstract class PluginConsumer implements IPluginConsumer {
       if (_serializeToText) {
         XStream xstream = new XStream(new DomDriver("UTF-8"));
         oos = closer.register(xstream.createObjectOutputStream(gos));
+      } else if (_serializeCompact) {
+        oos = closer.register(new CompactObjectOutputStream(gos));
       } else {
         oos = closer.register(new ObjectOutputStream(gos));
       }
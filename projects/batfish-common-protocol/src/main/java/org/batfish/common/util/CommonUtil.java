@@ -17,6 +17,7 @@ import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.FileAttribute;
 import java.nio.file.attribute.FileTime;
 import java.security.KeyStore;
@@ -866,6 +867,29 @@ public class CommonUtil {
     }
   }
 
+  /**
+   * Writes {@code output} to a new file that then replaces {@code outputPath}, rather than
+   * overwriting {@code outputPath} in place. Files of uploaded testrigs may be hard links shared
+   * with other testrigs, so they must be replaced this way instead of modified.
+   */
+  public static void replaceFile(Path outputPath, String output) {
+    Path tmp = null;
+    try {
+      Path absolutePath = outputPath.toAbsolutePath();
+      tmp =
+          Files.createTempFile(
+              absolutePath.getParent(), absolutePath.getFileName().toString(), ".tmp");
+      Files.write(tmp, output.getBytes(StandardCharsets.UTF_8));
+      Files.move(
+          tmp, absolutePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      if (tmp != null) {
+        deleteIfExists(tmp);
+      }
+      throw new BatfishException("Failed to write file: " + outputPath, e);
+    }
+  }
+
   public static void writeStreamToFile(InputStream inputStream, Path outputFile) {
     try (OutputStream fileOutputStream = new FileOutputStream(outputFile.toFile())) {
       int read = 0;
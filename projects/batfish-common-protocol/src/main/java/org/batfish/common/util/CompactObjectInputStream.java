@@ -0,0 +1,66 @@
+package org.batfish.common.util;
+
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectStreamClass;
+import java.io.StreamCorruptedException;
+import java.util.Arrays;
+import org.batfish.common.BatfishException;
+
+/** Reads data written by {@link CompactObjectOutputStream}. */
+public class CompactObjectInputStream extends BatfishObjectInputStream {
+
+  private static InputStream readHeader(InputStream in) throws IOException {
+    byte[] magic = new byte[CompactObjectOutputStream.MAGIC.length];
+    ByteStreams.readFully(in, magic);
+    if (!Arrays.equals(magic, CompactObjectOutputStream.MAGIC)) {
+      throw new StreamCorruptedException("Missing compact serialization header");
+    }
+    int version = in.read();
+    if (version != CompactObjectOutputStream.FORMAT_VERSION) {
+      throw new BatfishException(
+          String.format(
+              "Unsupported compact serialization format version %d (expected %d)",
+              version, CompactObjectOutputStream.FORMAT_VERSION));
+    }
+    return in;
+  }
+
+  private final ClassLoader _loader;
+
+  public CompactObjectInputStream(InputStream in, ClassLoader loader) throws IOException {
+    super(readHeader(in), loader);
+    _loader = loader;
+  }
+
+  @Override
+  protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+    String name = readUTF();
+    long serialVersionUid = readLong();
+    long fieldsFingerprint = readLong();
+    Class<?> clazz;
+    try {
+      clazz = Class.forName(name, false, _loader);
+    } catch (ClassNotFoundException e) {
+      clazz = Class.forName(name, false, CompactObjectInputStream.class.getClassLoader());
+    }
+    ObjectStreamClass desc = ObjectStreamClass.lookupAny(clazz);
+    if (desc == null) {
+      throw new InvalidClassException(name, "No serialization descriptor for class");
+    }
+    if (desc.getSerialVersionUID() != serialVersionUid) {
+      throw new InvalidClassException(
+          name,
+          String.format(
+              "serialVersionUID of stream (%d) does not match that of local class (%d)",
+              serialVersionUid, desc.getSerialVersionUID()));
+    }
+    if (CompactObjectOutputStream.fieldsFingerprint(desc) != fieldsFingerprint) {
+      throw new InvalidClassException(
+          name, "Serializable fields of stream do not match those of local class");
+    }
+    return desc;
+  }
+}
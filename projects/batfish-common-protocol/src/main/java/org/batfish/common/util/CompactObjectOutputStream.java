@@ -0,0 +1,94 @@
+package org.batfish.common.util;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import org.batfish.datamodel.Ip;
+import org.batfish.datamodel.Ip6;
+import org.batfish.datamodel.Prefix;
+import org.batfish.datamodel.Prefix6;
+
+/**
+ * An {@link ObjectOutputStream} producing the compact Batfish serialization format. Compared to
+ * plain Java serialization:
+ *
+ * <ul>
+ *   <li>The stream begins with {@link #MAGIC} followed by {@link #FORMAT_VERSION}, so readers can
+ *       reject data written by an incompatible version of the format.
+ *   <li>Class descriptors are written as just the class name, serialVersionUID, and a 64-bit
+ *       fingerprint of the serializable fields rather than the full field schema. The reader
+ *       reconstructs them from the local classes, and rejects a class whose serialVersionUID or
+ *       fields differ from those it was written with.
+ *   <li>Equal {@link String}, {@link Ip}, {@link Ip6}, {@link Prefix}, and {@link Prefix6}
+ *       instances are interned, so each distinct value is written once and subsequent occurrences
+ *       become back-references. Deserialized graphs share those instances as well.
+ * </ul>
+ *
+ * <p>Data must be read back with {@link CompactObjectInputStream}.
+ */
+public class CompactObjectOutputStream extends ObjectOutputStream {
+
+  /** Version of the compact format; bump whenever the encoding changes incompatibly */
+  public static final byte FORMAT_VERSION = 2;
+
+  /** Bytes identifying the start of a stream in the compact format */
+  public static final byte[] MAGIC = {'B', 'F', 'C'};
+
+  private static OutputStream writeHeader(OutputStream out) throws IOException {
+    out.write(MAGIC);
+    out.write(FORMAT_VERSION);
+    return out;
+  }
+
+  /**
+   * Returns a fingerprint of the names and types of the serializable fields of {@code desc}, which
+   * changes whenever a field is added, removed, renamed, or retyped.
+   */
+  static long fieldsFingerprint(ObjectStreamClass desc) {
+    Hasher hasher = Hashing.murmur3_128().newHasher();
+    for (ObjectStreamField field : desc.getFields()) {
+      hasher.putChar(field.getTypeCode());
+      hasher.putString(field.getName(), StandardCharsets.UTF_8);
+      if (field.getTypeString() != null) {
+        hasher.putString(field.getTypeString(), StandardCharsets.UTF_8);
+      }
+      hasher.putChar(';');
+    }
+    return hasher.hash().asLong();
+  }
+
+  private final Map<Object, Object> _interned;
+
+  public CompactObjectOutputStream(OutputStream out) throws IOException {
+    super(writeHeader(out));
+    _interned = new HashMap<>();
+    enableReplaceObject(true);
+  }
+
+  @Override
+  protected Object replaceObject(Object obj) {
+    if (obj instanceof String
+        || obj instanceof Ip
+        || obj instanceof Prefix
+        || obj instanceof Ip6
+        || obj instanceof Prefix6) {
+      Object canonical = _interned.putIfAbsent(obj, obj);
+      return canonical != null ? canonical : obj;
+    }
+    return obj;
+  }
+
+  @Override
+  protected void writeClassDescriptor(ObjectStreamClass desc) throws IOException {
+    writeUTF(desc.getName());
+    writeLong(desc.getSerialVersionUID());
+    writeLong(fieldsFingerprint(desc));
+  }
+}
@@ -0,0 +1,55 @@
+package org.batfish.common.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An {@link InputStream} that accumulates the wall-clock time spent reading from the underlying
+ * stream into a (possibly shared) counter. Used to attribute time to the I/O and decompression
+ * stages of a pipeline whose consumer pulls from this stream.
+ */
+public class TimedInputStream extends FilterInputStream {
+
+  private final LongAdder _nanos;
+
+  /**
+   * @param in The stream to read from
+   * @param nanos Counter to which the nanoseconds spent in reads and skips are added
+   */
+  public TimedInputStream(InputStream in, LongAdder nanos) {
+    super(in);
+    _nanos = nanos;
+  }
+
+  @Override
+  public int read() throws IOException {
+    long start = System.nanoTime();
+    try {
+      return super.read();
+    } finally {
+      _nanos.add(System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    long start = System.nanoTime();
+    try {
+      return super.read(b, off, len);
+    } finally {
+      _nanos.add(System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    long start = System.nanoTime();
+    try {
+      return super.skip(n);
+    } finally {
+      _nanos.add(System.nanoTime() - start);
+    }
+  }
+}
@@ -1,16 +1,22 @@
 package org.batfish.common.util;
 
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
-import java.util.zip.ZipInputStream;
 import org.batfish.common.BatfishException;
 
 /**
@@ -22,41 +28,36 @@ public class UnzipUtility {
   /** Size of the buffer to read/write data */
   private static final int BUFFER_SIZE = 4096;
 
-  public static void unzip(Path zipFile, Path dstDir) {
-    new UnzipUtility().unzipHelper(zipFile, dstDir);
+  /**
+   * Extracts {@code zipFile} into {@code dstDir}, extracting files in parallel. Returns the SHA-256
+   * hash of each extracted file, computed while the file is written, keyed by the path of the file
+   * relative to {@code dstDir} with '/' as separator.
+   */
+  public static SortedMap<String, String> unzip(Path zipFile, Path dstDir) {
+    return new UnzipUtility().unzipHelper(zipFile, dstDir);
   }
 
   /**
    * Extracts a zip entry (file entry)
    *
-   * @param zipIn The zip input stream providing the file data
+   * @param zip The zip file containing the entry
+   * @param entry The entry to extract
    * @param filePath The path to write the output file
+   * @return The hex SHA-256 hash of the file content
    */
-  private void extractFile(ZipInputStream zipIn, String filePath) {
-    try (FileOutputStream fos = new FileOutputStream(filePath)) {
-      try (BufferedOutputStream bos = new BufferedOutputStream(fos)) {
-        byte[] bytesIn = new byte[BUFFER_SIZE];
-        int read = 0;
-        try {
-          while ((read = zipIn.read(bytesIn)) != -1) {
-            try {
-              bos.write(bytesIn, 0, read);
-            } catch (IOException e) {
-              throw new BatfishException(
-                  "Error writing to output file: '" + filePath + "' for current zipped file", e);
-            }
-          }
-        } catch (IOException e) {
-          throw new BatfishException("Error reading from zip stream", e);
-        }
+  private String extractFile(ZipFile zip, ZipEntry entry, Path filePath) {
+    try (HashingInputStream zipIn =
+            new HashingInputStream(Hashing.sha256(), zip.getInputStream(entry));
+        OutputStream bos = new BufferedOutputStream(Files.newOutputStream(filePath))) {
+      byte[] bytesIn = new byte[BUFFER_SIZE];
+      int read = 0;
+      while ((read = zipIn.read(bytesIn)) != -1) {
+        bos.write(bytesIn, 0, read);
       }
-    } catch (FileNotFoundException e) {
-      throw new BatfishException(
-          "Could not open output file in which to extract current zipped file: '" + filePath + "'",
-          e);
+      return zipIn.hash().toString();
     } catch (IOException e) {
       throw new BatfishException(
-          "Could not close output file for current zipped file: '" + filePath + "'", e);
+          "Could not extract zipped file: '" + entry.getName() + "' to: '" + filePath + "'", e);
     }
   }
 
@@ -66,39 +67,42 @@ public class UnzipUtility {
    *
    * @param zipFile The path to the input zip file
    * @param destDirectory The output directory in which to extract the zip
+   * @return The hashes of the extracted files, as returned by {@link #unzip}
    */
-  private void unzipHelper(Path zipFile, Path destDirectory) {
-    try {
-      // :ratul:
-      // this lets us check if the zip file is proper
-      // for bad zip files this will throw an exception
-      ZipFile zipTest = new ZipFile(zipFile.toFile());
-      zipTest.close();
+  private SortedMap<String, String> unzipHelper(Path zipFile, Path destDirectory) {
+    // opening the zip file checks that it is proper: for bad zip files this throws an exception
+    try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+      Path dstDir = destDirectory.toAbsolutePath().normalize();
+      Files.createDirectories(dstDir);
 
-      if (!Files.exists(destDirectory)) {
-        destDirectory.toFile().mkdirs();
-      }
-
-      try (FileInputStream fis = new FileInputStream(zipFile.toFile())) {
-        try (ZipInputStream zipIn = new ZipInputStream(fis)) {
-          ZipEntry entry = zipIn.getNextEntry();
-
-          // iterates over entries in the zip file
-          while (entry != null) {
-            String filePath = destDirectory + File.separator + entry.getName();
-            if (!entry.isDirectory()) {
-              // if the entry is a file, extracts it
-              extractFile(zipIn, filePath);
-            } else {
-              // if the entry is a directory, make the directory
-              File dir = new File(filePath);
-              dir.mkdir();
-            }
-            zipIn.closeEntry();
-            entry = zipIn.getNextEntry();
-          }
+      // create all directories first, keeping the last of any duplicate file entries
+      Map<String, ZipEntry> files = new LinkedHashMap<>();
+      for (ZipEntry entry : Collections.list(zip.entries())) {
+        Path path = dstDir.resolve(entry.getName()).normalize();
+        if (!path.startsWith(dstDir)) {
+          throw new BatfishException(
+              String.format(
+                  "Zipped file: '%s' would be extracted outside: '%s'", entry.getName(), dstDir));
+        }
+        if (entry.isDirectory()) {
+          Files.createDirectories(path);
+        } else {
+          Files.createDirectories(path.getParent());
+          files.put(dstDir.relativize(path).toString().replace(File.separatorChar, '/'), entry);
         }
       }
+
+      // then extract the files, which are independent of each other
+      ConcurrentMap<String, String> hashes = new ConcurrentSkipListMap<>();
+      files
+          .entrySet()
+          .parallelStream()
+          .forEach(
+              file ->
+                  hashes.put(
+                      file.getKey(),
+                      extractFile(zip, file.getValue(), dstDir.resolve(file.getKey()))));
+      return new TreeMap<>(hashes);
     } catch (IOException e) {
       throw new BatfishException(
           "Could not unzip: '" + zipFile + "' into: '" + destDirectory + "'", e);
@@ -1,19 +1,18 @@
 package org.batfish.datamodel;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.kjetland.jackson.jsonSchema.annotations.JsonSchemaDescription;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import org.batfish.common.util.ComparableStructure;
 
 @JsonSchemaDescription(
@@ -24,15 +23,15 @@ public final class AsPathAccessList extends ComparableStructure<String> implemen
 
   private static final long serialVersionUID = 1L;
 
-  private transient Set<AsPath> _deniedCache;
-
   private final List<AsPathAccessListLine> _lines;
 
-  private transient Set<AsPath> _permittedCache;
+  /** Bounded LRU cache of permit (true) / deny (false) decisions per AS-path */
+  private transient Cache<AsPath, Boolean> _permitsCache;
 
   public AsPathAccessList(String name) {
     super(name);
     _lines = new ArrayList<>();
+    _permitsCache = newPermitsCache();
   }
 
   @JsonCreator
@@ -41,6 +40,14 @@ public final class AsPathAccessList extends ComparableStructure<String> implemen
       @JsonProperty(PROP_LINES) List<AsPathAccessListLine> lines) {
     super(name);
     _lines = lines;
+    _permitsCache = newPermitsCache();
+  }
+
+  private static Cache<AsPath, Boolean> newPermitsCache() {
+    return CacheBuilder.newBuilder()
+        .maximumSize(RegexMatchingEngine.MAX_MATCH_RESULTS)
+        .recordStats()
+        .build();
   }
 
   @Override
@@ -54,6 +61,12 @@ public final class AsPathAccessList extends ComparableStructure<String> implemen
     return other._lines.equals(_lines);
   }
 
+  /** Returns hit/miss statistics of the cache of permit/deny decisions of this list */
+  @JsonIgnore
+  public CacheStats getCacheStats() {
+    return _permitsCache.stats();
+  }
+
   @JsonProperty(PROP_LINES)
   @JsonPropertyDescription(
       "The list of lines against which a route's AS-path will be checked in order.")
@@ -62,38 +75,26 @@ public final class AsPathAccessList extends ComparableStructure<String> implemen
   }
 
   private boolean newPermits(AsPath asPath) {
-    boolean accept = false;
+    String asPathString = asPath.getAsPathString();
     for (AsPathAccessListLine line : _lines) {
-      String regex = line.getRegex();
-      Pattern p = Pattern.compile(regex);
-      String asPathString = asPath.getAsPathString();
-      Matcher matcher = p.matcher(asPathString);
-      boolean match = matcher.find();
-      if (match) {
-        accept = line.getAction() == LineAction.ACCEPT;
-        break;
+      if (RegexMatchingEngine.find(line.getRegex(), asPathString)) {
+        return line.getAction() == LineAction.ACCEPT;
       }
     }
-    if (accept) {
-      _permittedCache.add(asPath);
-    } else {
-      _deniedCache.add(asPath);
-    }
-    return accept;
+    return false;
   }
 
   public boolean permits(AsPath asPath) {
-    if (_deniedCache.contains(asPath)) {
-      return false;
-    } else if (_permittedCache.contains(asPath)) {
-      return true;
+    Boolean accept = _permitsCache.getIfPresent(asPath);
+    if (accept == null) {
+      accept = newPermits(asPath);
+      _permitsCache.put(asPath, accept);
     }
-    return newPermits(asPath);
+    return accept;
   }
 
   private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
     in.defaultReadObject();
-    _deniedCache = Collections.newSetFromMap(new ConcurrentHashMap<>());
-    _permittedCache = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    _permitsCache = newPermitsCache();
   }
 }
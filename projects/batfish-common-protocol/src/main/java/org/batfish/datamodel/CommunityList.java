@@ -1,17 +1,16 @@
 package org.batfish.datamodel;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.kjetland.jackson.jsonSchema.annotations.JsonSchemaDescription;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.util.Collections;
 import java.util.List;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import org.batfish.common.util.CommonUtil;
 import org.batfish.common.util.ComparableStructure;
 
@@ -25,8 +24,6 @@ public class CommunityList extends ComparableStructure<String> {
   /** */
   private static final long serialVersionUID = 1L;
 
-  private transient Set<Long> _deniedCache;
-
   private boolean _invertMatch;
 
   /**
@@ -35,7 +32,8 @@ public class CommunityList extends ComparableStructure<String> {
    */
   private final List<CommunityListLine> _lines;
 
-  private transient Set<Long> _permittedCache;
+  /** Bounded LRU cache of permit (true) / deny (false) decisions per community */
+  private transient Cache<Long, Boolean> _permitsCache;
 
   /**
    * Constructs a CommunityList with the given name for {@link #_name}, and lines for {@link
@@ -50,6 +48,14 @@ public class CommunityList extends ComparableStructure<String> {
       @JsonProperty(PROP_LINES) List<CommunityListLine> lines) {
     super(name);
     _lines = lines;
+    _permitsCache = newPermitsCache();
+  }
+
+  private static Cache<Long, Boolean> newPermitsCache() {
+    return CacheBuilder.newBuilder()
+        .maximumSize(RegexMatchingEngine.MAX_MATCH_RESULTS)
+        .recordStats()
+        .build();
   }
 
   @Override
@@ -63,6 +69,12 @@ public class CommunityList extends ComparableStructure<String> {
     return other._lines.equals(_lines);
   }
 
+  /** Returns hit/miss statistics of the cache of permit/deny decisions of this list */
+  @JsonIgnore
+  public CacheStats getCacheStats() {
+    return _permitsCache.stats();
+  }
+
   @JsonPropertyDescription(
       "Specifies whether or not lines should match the complement of their criteria (does not "
           + "change whether a line permits or denies).")
@@ -82,11 +94,9 @@ public class CommunityList extends ComparableStructure<String> {
     boolean accept = false;
     boolean match = false;
     Boolean matchingLineAccepts = null;
+    String communityStr = CommonUtil.longToCommunity(community);
     for (CommunityListLine line : _lines) {
-      Pattern p = Pattern.compile(line.getRegex());
-      String communityStr = CommonUtil.longToCommunity(community);
-      Matcher matcher = p.matcher(communityStr);
-      if (matcher.find()) {
+      if (RegexMatchingEngine.find(line.getRegex(), communityStr)) {
         match = true;
         matchingLineAccepts = line.getAction() == LineAction.ACCEPT;
         break;
@@ -99,31 +109,25 @@ public class CommunityList extends ComparableStructure<String> {
         accept = matchingLineAccepts;
       }
     }
-    if (accept) {
-      _permittedCache.add(community);
-    } else {
-      _deniedCache.add(community);
-    }
     return accept;
   }
 
   public boolean permits(long community) {
-    // if (_permittedCache.contains(community)) {
-    // return true;
-    // }
-    // else if (_deniedCache.contains(community)) {
-    // return false;
-    // }
-    return newPermits(community);
+    Boolean accept = _permitsCache.getIfPresent(community);
+    if (accept == null) {
+      accept = newPermits(community);
+      _permitsCache.put(community, accept);
+    }
+    return accept;
   }
 
   private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
     in.defaultReadObject();
-    _deniedCache = Collections.newSetFromMap(new ConcurrentHashMap<>());
-    _permittedCache = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    _permitsCache = newPermitsCache();
   }
 
   public void setInvertMatch(boolean invertMatch) {
     _invertMatch = invertMatch;
+    _permitsCache.invalidateAll();
   }
 }
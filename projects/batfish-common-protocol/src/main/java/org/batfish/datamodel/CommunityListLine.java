@@ -56,7 +56,7 @@ public class CommunityListLine implements Serializable {
   }
 
   public Set<Long> getExactMatchingCommunities(Set<Long> allCommunities) {
-    Pattern p = Pattern.compile(_regex);
+    Pattern p = RegexMatchingEngine.getPattern(_regex);
     Set<Long> matchingCommunitites = new LinkedHashSet<>();
     for (long candidateCommunity : allCommunities) {
       String candidateCommunityStr = CommonUtil.longToCommunity(candidateCommunity);
@@ -69,7 +69,7 @@ public class CommunityListLine implements Serializable {
   }
 
   public Set<Long> getMatchingCommunities(Set<Long> allCommunities, boolean invertMatch) {
-    Pattern p = Pattern.compile(_regex);
+    Pattern p = RegexMatchingEngine.getPattern(_regex);
     Set<Long> matchingCommunitites = new LinkedHashSet<>();
     for (long candidateCommunity : allCommunities) {
       String candidateCommunityStr = CommonUtil.longToCommunity(candidateCommunity);
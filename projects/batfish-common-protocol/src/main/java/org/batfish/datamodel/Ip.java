@@ -3,17 +3,11 @@ package org.batfish.datamodel;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonValue;
 import java.io.Serializable;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.util.BitSet;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import org.batfish.common.BatfishException;
 
 public class Ip implements Comparable<Ip>, Serializable {
 
-  private static Map<Ip, BitSet> _addressBitsCache = new ConcurrentHashMap<>();
-
   public static final Ip AUTO = new Ip(-1L);
 
   public static final Ip FIRST_CLASS_A_PRIVATE_IP = new Ip("10.0.0.0");
@@ -28,12 +22,18 @@ public class Ip implements Comparable<Ip>, Serializable {
 
   public static final Ip MAX = new Ip(0xFFFFFFFFL);
 
-  private static final int NUM_BYTES = 4;
-
   private static final long serialVersionUID = 1L;
 
   public static final Ip ZERO = new Ip(0L);
 
+  /**
+   * Returns the bit of the IPv4 address {@code ipAsLong} at {@code position}, where position 0 is
+   * the most significant bit of the address.
+   */
+  public static boolean getBitAtPosition(long ipAsLong, int position) {
+    return ((ipAsLong >> (Prefix.MAX_PREFIX_LENGTH - 1 - position)) & 1L) != 0;
+  }
+
   private static long ipStrToLong(String addr) {
     String[] addrArray = addr.split("\\.");
     if (addrArray.length != 4) {
@@ -111,23 +111,22 @@ public class Ip implements Comparable<Ip>, Serializable {
     return _ip == rhs._ip;
   }
 
+  /**
+   * Converts this address into a {@link BitSet} useful for prefix matching. The highest bit of the
+   * address is the lowest bit of the bitset: the address 128.0.0.0 when converted to a {@link
+   * BitSet} has only the lowest bit set. A new {@link BitSet} is computed on each call; prefer
+   * {@link #getBit(int)} for individual bit access.
+   */
   public BitSet getAddressBits() {
-    BitSet bits = _addressBitsCache.get(this);
-    if (bits == null) {
-      int addressAsInt = (int) (_ip);
-      ByteBuffer b = ByteBuffer.allocate(NUM_BYTES);
-      b.order(ByteOrder.LITTLE_ENDIAN); // optional, the initial order of a
-      // byte
-      // buffer is always BIG_ENDIAN.
-      b.putInt(addressAsInt);
-      BitSet bitsWithHighestMostSignificant = BitSet.valueOf(b.array());
-      bits = new BitSet(Prefix.MAX_PREFIX_LENGTH);
-      for (int i = Prefix.MAX_PREFIX_LENGTH - 1, j = 0; i >= 0; i--, j++) {
-        bits.set(j, bitsWithHighestMostSignificant.get(i));
-      }
-      _addressBitsCache.put(this, bits);
-    }
-    return bits;
+    return BitSet.valueOf(new long[] {Integer.reverse((int) _ip) & 0xFFFFFFFFL});
+  }
+
+  /**
+   * Returns the bit of this address at {@code position}, where position 0 is the most significant
+   * bit.
+   */
+  public boolean getBit(int position) {
+    return getBitAtPosition(_ip, position);
   }
 
   public Ip getClassMask() {
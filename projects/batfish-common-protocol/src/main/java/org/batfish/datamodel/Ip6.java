@@ -5,23 +5,15 @@ import com.fasterxml.jackson.annotation.JsonValue;
 import com.google.common.net.InetAddresses;
 import java.io.Serializable;
 import java.math.BigInteger;
-import java.nio.ByteBuffer;
 import java.util.BitSet;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import org.apache.commons.lang.ArrayUtils;
 import org.batfish.common.BatfishException;
 
 public class Ip6 implements Comparable<Ip6>, Serializable {
 
-  private static Map<Ip6, BitSet> _addressBitsCache = new ConcurrentHashMap<>();
-
   public static final Ip6 AUTO = new Ip6(BigInteger.valueOf(-1L));
 
   public static final Ip6 MAX = new Ip6(new BigInteger("+FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFF", 16));
 
-  private static final int NUM_BYTES = 16;
-
   private static final long serialVersionUID = 1L;
 
   public static final Ip6 ZERO = new Ip6(BigInteger.ZERO);
@@ -96,19 +88,14 @@ public class Ip6 implements Comparable<Ip6>, Serializable {
     return _ip6.equals(rhs._ip6);
   }
 
+  /**
+   * Converts this address into a {@link BitSet} useful for prefix matching. The highest bit of the
+   * address is the lowest bit of the bitset. A new {@link BitSet} is computed on each call.
+   */
   public BitSet getAddressBits() {
-    BitSet bits = _addressBitsCache.get(this);
-    if (bits == null) {
-      ByteBuffer b = ByteBuffer.allocate(NUM_BYTES);
-      byte[] ip6Bytes = _ip6.toByteArray();
-      ArrayUtils.reverse(ip6Bytes);
-      b.put(ip6Bytes);
-      BitSet bitsWithHighestMostSignificant = BitSet.valueOf(b.array());
-      bits = new BitSet(Prefix6.MAX_PREFIX_LENGTH);
-      for (int i = Prefix6.MAX_PREFIX_LENGTH - 1, j = 0; i >= 0; i--, j++) {
-        bits.set(j, bitsWithHighestMostSignificant.get(i));
-      }
-      _addressBitsCache.put(this, bits);
+    BitSet bits = new BitSet(Prefix6.MAX_PREFIX_LENGTH);
+    for (int i = Prefix6.MAX_PREFIX_LENGTH - 1, j = 0; i >= 0; i--, j++) {
+      bits.set(j, _ip6.testBit(i));
     }
     return bits;
   }
@@ -182,7 +182,7 @@ public class PrefixSpace implements Serializable {
    */
   // visible for testing
   static BitSet getAddressBits(Ip address) {
-    return BitSet.valueOf(new long[] {Integer.reverse((int) address.asLong()) & 0xffffffffL});
+    return address.getAddressBits();
   }
 
   private transient ConcurrentMap<Prefix, Boolean> _cache;
@@ -0,0 +1,62 @@
+package org.batfish.datamodel;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.regex.Pattern;
+
+/**
+ * Shared engine for matching BGP attributes (AS-paths, communities) against the regexes used in
+ * AS-path access-lists and community-lists. Each distinct regex is compiled at most once while it
+ * remains in a bounded LRU cache, so repeated policy evaluation during data plane computation does
+ * not pay for recompilation.
+ */
+public final class RegexMatchingEngine {
+
+  /** Maximum number of per-list match results retained by an AS-path or community list */
+  public static final int MAX_MATCH_RESULTS = 4096;
+
+  /** Maximum number of distinct compiled regexes retained across all lists */
+  private static final int MAX_PATTERNS = 16384;
+
+  private static final LoadingCache<String, Pattern> PATTERNS =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_PATTERNS)
+          .recordStats()
+          .build(CacheLoader.from((String regex) -> Pattern.compile(regex)));
+
+  /**
+   * Returns true if some subsequence of {@code input} matches {@code regex}
+   *
+   * @param regex The Java regex to apply
+   * @param input The string to search
+   */
+  public static boolean find(String regex, String input) {
+    return getPattern(regex).matcher(input).find();
+  }
+
+  /**
+   * Returns the compiled form of {@code regex}, compiling it only if it is not already cached
+   *
+   * @param regex The Java regex to compile
+   */
+  public static Pattern getPattern(String regex) {
+    try {
+      return PATTERNS.getUnchecked(regex);
+    } catch (UncheckedExecutionException e) {
+      // Surface invalid regexes as the PatternSyntaxException thrown by Pattern.compile
+      Throwables.throwIfUnchecked(e.getCause());
+      throw e;
+    }
+  }
+
+  /** Returns hit/miss statistics of the shared compiled-regex cache */
+  public static CacheStats getPatternCacheStats() {
+    return PATTERNS.stats();
+  }
+
+  private RegexMatchingEngine() {}
+}
@@ -0,0 +1,61 @@
+package org.batfish.common;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import org.junit.Test;
+
+/** Tests for {@link BatfishLogger}. */
+public class BatfishLoggerTest {
+
+  @Test
+  public void testHistoryMaxItems() {
+    BatfishLogger logger = new BatfishLogger(BatfishLogger.LEVELSTR_INFO, false, 2);
+    logger.info("a\n");
+    logger.info("b\n");
+    logger.info("c\n");
+    logger.info("d\n");
+
+    assertThat(logger.getHistory().size(), equalTo(2));
+    assertThat(logger.getHistory().getDroppedItems(), equalTo(2));
+    assertThat(
+        logger.getHistory().toString(BatfishLogger.LEVEL_INFO),
+        equalTo("a\nb\n...2 further log messages were dropped\n"));
+  }
+
+  @Test
+  public void testForwardsToDelegate() {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BatfishLogger delegate =
+        new BatfishLogger(BatfishLogger.LEVELSTR_INFO, false, new PrintStream(out, true));
+    BatfishLogger logger =
+        new BatfishLogger(BatfishLogger.LEVELSTR_INFO, false, delegate, "job1: ", 10);
+    logger.info("a\n");
+    logger.debug("not active\n");
+
+    assertThat(out.toString(), equalTo("job1: a\n"));
+    assertThat(logger.getHistory().toString(BatfishLogger.LEVEL_INFO), equalTo("a\n"));
+
+    // the history was already streamed, so appending it does not repeat it
+    delegate.append(logger.getHistory());
+    assertThat(out.toString(), equalTo("job1: a\n"));
+  }
+
+  @Test
+  public void testForwardingKeepsLatestMessages() {
+    PrintStream out = new PrintStream(new ByteArrayOutputStream());
+    BatfishLogger delegate = new BatfishLogger(BatfishLogger.LEVELSTR_INFO, false, out);
+    BatfishLogger logger =
+        new BatfishLogger(BatfishLogger.LEVELSTR_INFO, false, delegate, "job1: ", 2);
+    logger.info("a\n");
+    logger.info("b\n");
+    logger.info("c\n");
+
+    assertThat(logger.getHistory().getDroppedItems(), equalTo(1));
+    assertThat(
+        logger.getHistory().toString(BatfishLogger.LEVEL_INFO),
+        equalTo("...1 earlier log messages are in the task log\nb\nc\n"));
+  }
+}
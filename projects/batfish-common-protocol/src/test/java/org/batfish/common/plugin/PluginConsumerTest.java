@@ -1,10 +1,17 @@
 package org.batfish.common.plugin;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
+import java.io.ByteArrayInputStream;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
 import org.batfish.common.BatfishLogger;
+import org.batfish.datamodel.Prefix;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
@@ -16,8 +23,8 @@ public class PluginConsumerTest {
   @Rule public TemporaryFolder _folder = new TemporaryFolder();
 
   private static class TestPluginConsumer extends PluginConsumer {
-    private TestPluginConsumer(boolean serializeToText) {
-      super(serializeToText);
+    private TestPluginConsumer(boolean serializeToText, boolean serializeCompact) {
+      super(serializeToText, serializeCompact);
     }
 
     @Override
@@ -31,9 +38,10 @@ public class PluginConsumerTest {
     }
   }
 
-  private void runSerializationTest(boolean serializeToText) throws Exception {
+  private void runSerializationTest(boolean serializeToText, boolean serializeCompact)
+      throws Exception {
     Path serializeFile = _folder.newFile().toPath();
-    TestPluginConsumer consumer = new TestPluginConsumer(serializeToText);
+    TestPluginConsumer consumer = new TestPluginConsumer(serializeToText, serializeCompact);
 
     int[] ints = new int[] {1, 2, 3};
     consumer.serializeObject(ints, serializeFile);
@@ -42,13 +50,39 @@ public class PluginConsumerTest {
     assertThat(value, equalTo(ints));
   }
 
+  @Test
+  public void testCompactInternsValues() throws Exception {
+    TestPluginConsumer javaConsumer = new TestPluginConsumer(false, false);
+    TestPluginConsumer compactConsumer = new TestPluginConsumer(false, true);
+    ArrayList<Prefix> prefixes = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      prefixes.add(new Prefix("10." + (i % 10) + ".0.0/16"));
+    }
+
+    byte[] javaData = javaConsumer.toGzipData(prefixes);
+    byte[] compactData = compactConsumer.toGzipData(prefixes);
+    assertThat(compactData.length, lessThan(javaData.length));
+
+    @SuppressWarnings("unchecked")
+    List<Prefix> value =
+        compactConsumer.deserializeObject(
+            new GZIPInputStream(new ByteArrayInputStream(compactData)), ArrayList.class);
+    assertThat(value, equalTo(prefixes));
+    assertThat(value.get(0), sameInstance(value.get(10)));
+  }
+
+  @Test
+  public void testSerializingAndDeserializingCompact() throws Exception {
+    runSerializationTest(false, true);
+  }
+
   @Test
   public void testSerializingAndDeserializingJava() throws Exception {
-    runSerializationTest(false);
+    runSerializationTest(false, false);
   }
 
   @Test
   public void testSerializingAndDeserializingText() throws Exception {
-    runSerializationTest(true);
+    runSerializationTest(true, false);
   }
 }
@@ -0,0 +1,30 @@
+package org.batfish.common.util;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Tests for {@link CommonUtil}. */
+public class CommonUtilTest {
+
+  @Rule public TemporaryFolder _folder = new TemporaryFolder();
+
+  @Test
+  public void testReplaceFileLeavesHardLinksUnchanged() throws Exception {
+    Path original = _folder.newFile("original").toPath();
+    CommonUtil.writeFile(original, "old");
+    Path link = _folder.getRoot().toPath().resolve("link");
+    Files.createLink(link, original);
+
+    CommonUtil.replaceFile(link, "new");
+
+    assertThat(CommonUtil.readFile(link), equalTo("new"));
+    assertThat(CommonUtil.readFile(original), equalTo("old"));
+    assertThat(_folder.getRoot().list().length, equalTo(2));
+  }
+}
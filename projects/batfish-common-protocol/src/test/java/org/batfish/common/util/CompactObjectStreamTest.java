@@ -0,0 +1,92 @@
+package org.batfish.common.util;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import org.batfish.datamodel.Prefix;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests of {@link CompactObjectOutputStream} and {@link CompactObjectInputStream}. */
+@RunWith(JUnit4.class)
+public class CompactObjectStreamTest {
+
+  /** Writes class descriptors as if the fields of every class had changed */
+  private static class ChangedFieldsOutputStream extends CompactObjectOutputStream {
+    private ChangedFieldsOutputStream(OutputStream out) throws IOException {
+      super(out);
+    }
+
+    @Override
+    protected void writeClassDescriptor(ObjectStreamClass desc) throws IOException {
+      writeUTF(desc.getName());
+      writeLong(desc.getSerialVersionUID());
+      writeLong(fieldsFingerprint(desc) + 1);
+    }
+  }
+
+  /** Writes class descriptors as if the serialVersionUID of every class had changed */
+  private static class ChangedUidOutputStream extends CompactObjectOutputStream {
+    private ChangedUidOutputStream(OutputStream out) throws IOException {
+      super(out);
+    }
+
+    @Override
+    protected void writeClassDescriptor(ObjectStreamClass desc) throws IOException {
+      writeUTF(desc.getName());
+      writeLong(desc.getSerialVersionUID() + 1);
+      writeLong(fieldsFingerprint(desc));
+    }
+  }
+
+  @Rule public ExpectedException _thrown = ExpectedException.none();
+
+  private static Object readBack(ByteArrayOutputStream data)
+      throws IOException, ClassNotFoundException {
+    try (CompactObjectInputStream in =
+        new CompactObjectInputStream(
+            new ByteArrayInputStream(data.toByteArray()),
+            CompactObjectStreamTest.class.getClassLoader())) {
+      return in.readObject();
+    }
+  }
+
+  private static void write(Object object, ObjectOutputStream out) throws IOException {
+    out.writeObject(object);
+    out.close();
+  }
+
+  @Test
+  public void testChangedFieldsRejected() throws Exception {
+    ByteArrayOutputStream data = new ByteArrayOutputStream();
+    write(new Prefix("10.0.0.0/8"), new ChangedFieldsOutputStream(data));
+    _thrown.expect(InvalidClassException.class);
+    readBack(data);
+  }
+
+  @Test
+  public void testChangedSerialVersionUidRejected() throws Exception {
+    ByteArrayOutputStream data = new ByteArrayOutputStream();
+    write(new Prefix("10.0.0.0/8"), new ChangedUidOutputStream(data));
+    _thrown.expect(InvalidClassException.class);
+    readBack(data);
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    ByteArrayOutputStream data = new ByteArrayOutputStream();
+    Prefix prefix = new Prefix("10.0.0.0/8");
+    write(prefix, new CompactObjectOutputStream(data));
+    assertThat(readBack(data), equalTo(prefix));
+  }
+}
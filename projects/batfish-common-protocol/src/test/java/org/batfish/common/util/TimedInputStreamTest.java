@@ -0,0 +1,99 @@
+package org.batfish.common.util;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests of {@link TimedInputStream}. */
+@RunWith(JUnit4.class)
+public class TimedInputStreamTest {
+
+  private static final long DELAY_MS = 5L;
+
+  private static final long DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(DELAY_MS);
+
+  /** A stream over {@code data} that takes at least {@link #DELAY_MS} for every operation */
+  private static InputStream slowStream(byte[] data) {
+    return new ByteArrayInputStream(data) {
+      private void delay() {
+        try {
+          Thread.sleep(DELAY_MS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+
+      @Override
+      public synchronized int read() {
+        delay();
+        return super.read();
+      }
+
+      @Override
+      public synchronized int read(byte[] b, int off, int len) {
+        delay();
+        return super.read(b, off, len);
+      }
+
+      @Override
+      public synchronized long skip(long n) {
+        delay();
+        return super.skip(n);
+      }
+    };
+  }
+
+  @Test
+  public void testEofCounted() throws IOException {
+    LongAdder nanos = new LongAdder();
+    try (InputStream in = new TimedInputStream(slowStream(new byte[0]), nanos)) {
+      assertThat(in.read(), equalTo(-1));
+      assertThat(in.read(new byte[4], 0, 4), equalTo(-1));
+    }
+    assertThat(nanos.sum(), greaterThanOrEqualTo(2 * DELAY_NANOS));
+  }
+
+  @Test
+  public void testReadCounted() throws IOException {
+    LongAdder nanos = new LongAdder();
+    try (InputStream in = new TimedInputStream(slowStream(new byte[] {1, 2, 3}), nanos)) {
+      assertThat(in.read(), equalTo(1));
+      assertThat(nanos.sum(), greaterThanOrEqualTo(DELAY_NANOS));
+      byte[] buffer = new byte[2];
+      assertThat(in.read(buffer), equalTo(2));
+      assertThat(buffer, equalTo(new byte[] {2, 3}));
+    }
+    assertThat(nanos.sum(), greaterThanOrEqualTo(2 * DELAY_NANOS));
+  }
+
+  @Test
+  public void testSharedCounter() throws IOException {
+    LongAdder nanos = new LongAdder();
+    try (InputStream in1 = new TimedInputStream(slowStream(new byte[] {1}), nanos);
+        InputStream in2 = new TimedInputStream(slowStream(new byte[] {2}), nanos)) {
+      in1.read();
+      in2.read();
+    }
+    assertThat(nanos.sum(), greaterThanOrEqualTo(2 * DELAY_NANOS));
+  }
+
+  @Test
+  public void testSkipCounted() throws IOException {
+    LongAdder nanos = new LongAdder();
+    try (InputStream in = new TimedInputStream(slowStream(new byte[] {1, 2, 3}), nanos)) {
+      assertThat(in.skip(2), equalTo(2L));
+      assertThat(nanos.sum(), greaterThanOrEqualTo(DELAY_NANOS));
+      assertThat(in.read(), equalTo(3));
+    }
+    assertThat(nanos.sum(), greaterThanOrEqualTo(2 * DELAY_NANOS));
+  }
+}
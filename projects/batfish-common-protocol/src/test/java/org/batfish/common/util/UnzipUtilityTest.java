@@ -0,0 +1,69 @@
+package org.batfish.common.util;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.batfish.common.BatfishException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+/** Tests for {@link UnzipUtility}. */
+public class UnzipUtilityTest {
+
+  @Rule public TemporaryFolder _folder = new TemporaryFolder();
+
+  @Rule public ExpectedException _thrown = ExpectedException.none();
+
+  private Path zip(String... namesAndContents) throws IOException {
+    Path zipFile = _folder.newFile().toPath();
+    try (OutputStream out = Files.newOutputStream(zipFile);
+        ZipOutputStream zipOut = new ZipOutputStream(out)) {
+      for (int i = 0; i < namesAndContents.length; i += 2) {
+        zipOut.putNextEntry(new ZipEntry(namesAndContents[i]));
+        zipOut.write(namesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+        zipOut.closeEntry();
+      }
+    }
+    return zipFile;
+  }
+
+  private static String sha256(String content) {
+    return Hashing.sha256().hashString(content, StandardCharsets.UTF_8).toString();
+  }
+
+  @Test
+  public void testUnzip() throws IOException {
+    Path zipFile = zip("tr/", "", "tr/configs/r1.cfg", "hostname r1", "tr/topology.json", "{}");
+    Path dstDir = _folder.newFolder().toPath();
+
+    assertThat(
+        UnzipUtility.unzip(zipFile, dstDir),
+        equalTo(
+            ImmutableSortedMap.of(
+                "tr/configs/r1.cfg", sha256("hostname r1"), "tr/topology.json", sha256("{}"))));
+    assertThat(
+        new String(
+            Files.readAllBytes(dstDir.resolve("tr/configs/r1.cfg")), StandardCharsets.UTF_8),
+        equalTo("hostname r1"));
+  }
+
+  @Test
+  public void testUnzipOutsideDestination() throws IOException {
+    Path zipFile = zip("../evil", "x");
+    Path dstDir = _folder.newFolder().toPath();
+
+    _thrown.expect(BatfishException.class);
+    UnzipUtility.unzip(zipFile, dstDir);
+  }
+}
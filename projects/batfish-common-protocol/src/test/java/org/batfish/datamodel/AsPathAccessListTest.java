@@ -0,0 +1,52 @@
+package org.batfish.datamodel;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.cache.CacheStats;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests of {@link AsPathAccessList}. */
+@RunWith(JUnit4.class)
+public class AsPathAccessListTest {
+
+  private static AsPathAccessListLine line(LineAction action, String regex) {
+    AsPathAccessListLine line = new AsPathAccessListLine();
+    line.setAction(action);
+    line.setRegex(regex);
+    return line;
+  }
+
+  @Test
+  public void permitsFirstMatchingLine() {
+    AsPathAccessList list = new AsPathAccessList("list");
+    list.getLines().add(line(LineAction.REJECT, "^65000 "));
+    list.getLines().add(line(LineAction.ACCEPT, "65000"));
+    assertThat(list.permits(AsPath.ofSingletonAsSets(65000, 1)), is(false));
+    assertThat(list.permits(AsPath.ofSingletonAsSets(1, 65000)), is(true));
+    assertThat(list.permits(AsPath.ofSingletonAsSets(2)), is(false));
+  }
+
+  @Test
+  public void permitsCachesDecisions() {
+    AsPathAccessList list = new AsPathAccessList("list");
+    list.getLines().add(line(LineAction.ACCEPT, "^1 "));
+    AsPath asPath = AsPath.ofSingletonAsSets(1, 2);
+    assertThat(list.permits(asPath), is(true));
+    assertThat(list.permits(AsPath.ofSingletonAsSets(1, 2)), is(true));
+    CacheStats stats = list.getCacheStats();
+    assertThat(stats.missCount(), equalTo(1L));
+    assertThat(stats.hitCount(), equalTo(1L));
+  }
+
+  @Test
+  public void patternCompiledOnce() {
+    String regex = "^(64512|64513)_unique_regex_for_test$";
+    long misses = RegexMatchingEngine.getPatternCacheStats().missCount();
+    assertThat(RegexMatchingEngine.getPattern(regex), is(RegexMatchingEngine.getPattern(regex)));
+    assertThat(RegexMatchingEngine.getPatternCacheStats().missCount(), equalTo(misses + 1));
+  }
+}
@@ -0,0 +1,43 @@
+package org.batfish.datamodel;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import org.batfish.common.util.CommonUtil;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests of {@link CommunityList}. */
+@RunWith(JUnit4.class)
+public class CommunityListTest {
+
+  @Test
+  public void permitsCachesDecisions() {
+    CommunityList list =
+        new CommunityList(
+            "list",
+            ImmutableList.of(
+                new CommunityListLine(LineAction.REJECT, "^65000:1$"),
+                new CommunityListLine(LineAction.ACCEPT, "^65000:")));
+    long rejected = CommonUtil.communityStringToLong("65000:1");
+    long accepted = CommonUtil.communityStringToLong("65000:2");
+    assertThat(list.permits(rejected), is(false));
+    assertThat(list.permits(accepted), is(true));
+    assertThat(list.permits(accepted), is(true));
+    assertThat(list.getCacheStats().missCount(), equalTo(2L));
+    assertThat(list.getCacheStats().hitCount(), equalTo(1L));
+  }
+
+  @Test
+  public void setInvertMatchInvalidatesCache() {
+    CommunityList list =
+        new CommunityList("list", ImmutableList.of(new CommunityListLine(LineAction.ACCEPT, ":")));
+    long community = CommonUtil.communityStringToLong("65000:1");
+    assertThat(list.permits(community), is(true));
+    list.setInvertMatch(true);
+    assertThat(list.permits(community), is(false));
+  }
+}
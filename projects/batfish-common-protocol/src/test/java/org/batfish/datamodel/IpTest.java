@@ -1,6 +1,7 @@
 package org.batfish.datamodel;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 
 import org.junit.Test;
@@ -10,6 +11,20 @@ import org.junit.runners.JUnit4;
 /** Tests of {@link Ip}. */
 @RunWith(JUnit4.class)
 public class IpTest {
+  @Test
+  public void getBit() {
+    Ip ip = new Ip("128.255.31.3");
+    assertThat(ip.getBit(0), is(true));
+    assertThat(ip.getBit(1), is(false));
+    assertThat(ip.getBit(8), is(true));
+    assertThat(ip.getBit(16), is(false));
+    assertThat(ip.getBit(30), is(true));
+    assertThat(ip.getBit(31), is(true));
+    for (int i = 0; i < Prefix.MAX_PREFIX_LENGTH; i++) {
+      assertThat(ip.getBit(i), equalTo(ip.getAddressBits().get(i)));
+    }
+  }
+
   @Test
   public void numSubnetBitsToSubnetLong() throws Exception {
     // Test the boundaries (0 and 32) as well as a representative sample of intermediate values.
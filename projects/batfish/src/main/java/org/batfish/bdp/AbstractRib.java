@@ -3,7 +3,7 @@ package org.batfish.bdp;
 import com.google.common.collect.ImmutableSet;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -36,6 +36,10 @@ public abstract class AbstractRib<R extends AbstractRoute> implements IRib<R> {
    * <p>This data structure is a more restrictive version of a ddNF (disjoint difference Normal
    * Form), where the wildcard symbols can appear only after (to-the-right-of) non wildcard symbols
    * in the bit vector. E.g., 101010**, but not 1*001***
+   *
+   * <p>The tree is path-compressed (Patricia-style): nodes exist only for prefixes that have routes
+   * and for branching points. Nodes are keyed on the raw {@code long} value of the network address
+   * and an {@code int} prefix length, so that traversal only requires bit arithmetic.
    */
   class RibTree implements Serializable {
 
@@ -44,19 +48,42 @@ public abstract class AbstractRib<R extends AbstractRoute> implements IRib<R> {
     private RibTreeNode _root;
 
     RibTree() {
-      _root = new RibTreeNode(Prefix.ZERO);
+      _root = new RibTreeNode(0L, 0);
     }
 
     boolean containsRoute(R route) {
       Prefix prefix = route.getNetwork();
       int prefixLength = prefix.getPrefixLength();
-      BitSet bits = prefix.getAddress().getAddressBits();
-      return _root.containsRoute(route, bits, prefixLength, 0);
+      long bits = prefix.getAddress().asLong();
+      return _root.containsRoute(route, bits, prefixLength);
     }
 
+    /**
+     * Returns the routes with the longest prefix match for a given IP address. Performs no
+     * allocation.
+     *
+     * @param address IP address
+     * @return an unmodifiable view of the matching routes
+     */
     Set<R> getLongestPrefixMatch(Ip address) {
-      BitSet addressBits = address.getAddressBits();
-      return _root.getLongestPrefixMatch(address, addressBits, 0);
+      long addressBits = address.asLong();
+      Set<R> longestPrefixMatches = ImmutableSet.of();
+      RibTreeNode node = _root;
+      /*
+       * All routes stored at a node have exactly the node's prefix, and children only get more
+       * specific. So walk down as long as the node's prefix contains the address, remembering the
+       * deepest node that has routes.
+       */
+      while (node != null && node.matches(addressBits)) {
+        if (!node._routes.isEmpty()) {
+          longestPrefixMatches = node._routesView;
+        }
+        if (node._prefixLength == Prefix.MAX_PREFIX_LENGTH) {
+          break;
+        }
+        node = Ip.getBitAtPosition(addressBits, node._prefixLength) ? node._right : node._left;
+      }
+      return longestPrefixMatches;
     }
 
     public Set<R> getRoutes() {
@@ -68,7 +95,7 @@ public abstract class AbstractRib<R extends AbstractRoute> implements IRib<R> {
     boolean mergeRoute(R route) {
       Prefix prefix = route.getNetwork();
       int prefixLength = prefix.getPrefixLength();
-      BitSet bits = prefix.getAddress().getAddressBits();
+      long bits = prefix.getAddress().asLong();
       return _root.mergeRoute(route, bits, prefixLength, 0);
     }
 
@@ -78,9 +105,10 @@ public abstract class AbstractRib<R extends AbstractRoute> implements IRib<R> {
   }
 
   /**
-   * RibTree is constructed from nodes of this type. A node has a prefix, a set of routes that match
-   * the prefix (and it's length) and two children. The children's prefixes must always be more
-   * specific (i.e., their prefix length is larger).
+   * RibTree is constructed from nodes of this type. A node has a prefix (represented by a network
+   * address and a prefix length), a set of routes that match the prefix (and it's length) and two
+   * children. The children's prefixes must always be more specific (i.e., their prefix length is
+   * larger).
    */
   class RibTreeNode implements Serializable {
 
@@ -88,15 +116,27 @@ public abstract class AbstractRib<R extends AbstractRoute> implements IRib<R> {
 
     private RibTreeNode _left;
 
-    private Prefix _prefix;
+    private final long _network;
+
+    private final int _prefixLength;
 
     private RibTreeNode _right;
 
     private final Set<R> _routes;
 
-    RibTreeNode(Prefix prefix) {
+    private final Set<R> _routesView;
+
+    RibTreeNode(long address, int prefixLength) {
       _routes = new HashSet<>();
-      _prefix = prefix;
+      _routesView = Collections.unmodifiableSet(_routes);
+      _network = address & getMask(prefixLength);
+      _prefixLength = prefixLength;
+    }
+
+    /** Adds {@code route} to the routes of this node, which must not contain it yet */
+    private void addRoute(R route) {
+      _routes.add(route);
+      _fingerprint += fingerprint(route);
     }
 
     void collectRoutes(Set<R> routes) {
@@ -113,17 +153,16 @@ public abstract class AbstractRib<R extends AbstractRoute> implements IRib<R> {
      * Check if the route exists in our subtree
      *
      * @param route route in question
-     * @param bits route's IP address represented as a BitSet
+     * @param bits route's IP address represented as a long
      * @param prefixLength route's prefix length
-     * @param firstUnmatchedBitIndex how far into the address have we matched
      * @return true if the route is in the subtree
      */
-    boolean containsRoute(R route, BitSet bits, int prefixLength, int firstUnmatchedBitIndex) {
+    boolean containsRoute(R route, long bits, int prefixLength) {
       // If prefix lengths match, this is the node where such route would be stored.
-      if (prefixLength == _prefix.getPrefixLength()) {
+      if (prefixLength == _prefixLength) {
         return _routes.contains(route);
       }
-      boolean currentBit = bits.get(firstUnmatchedBitIndex);
+      boolean currentBit = Ip.getBitAtPosition(bits, _prefixLength);
 
       /*
        * If prefixes don't match exactly, look at the current bit. That determines whether we look
@@ -133,72 +172,17 @@ public abstract class AbstractRib<R extends AbstractRoute> implements IRib<R> {
        * 1) routes are stored in the nodes where lengths of the node prefix and the route prefix
        *    match exactly; and
        * 2) prefix matches only get more specific (longer) the deeper we go in the tree
-       *
-       * Therefore, we can fast-forward the firstUnmatchedBitIndex to the prefix length of the
-       * child node
        */
       if (currentBit) {
-        return _right != null
-            && _right.containsRoute(route, bits, prefixLength, _right._prefix.getPrefixLength());
+        return _right != null && _right.containsRoute(route, bits, prefixLength);
       } else {
-        return _left != null
-            && _left.containsRoute(route, bits, prefixLength, _left._prefix.getPrefixLength());
-      }
-    }
-
-    private Set<R> getLongestPrefixMatch(Ip address) {
-      Set<R> longestPrefixMatches = new HashSet<>();
-      for (R route : _routes) {
-        Prefix prefix = route.getNetwork();
-        if (prefix.contains(address)) {
-          longestPrefixMatches.add(route);
-        }
+        return _left != null && _left.containsRoute(route, bits, prefixLength);
       }
-      return longestPrefixMatches;
     }
 
-    /**
-     * Returns a set of routes with the longest prefix match for a given IP address
-     *
-     * @param address IP address
-     * @param bits IP address represented as a set of bits
-     * @param index the position of the bit up to which the match has already been found
-     *     (tail-recursion way of keeping track how deep we are).
-     * @return a set of routes
-     */
-    Set<R> getLongestPrefixMatch(Ip address, BitSet bits, int index) {
-      // Get the list of routes stored in our node that contain the IP address
-      Set<R> longestPrefixMatches = getLongestPrefixMatch(address);
-      // If we reached the max prefix length (e.g., 32 for for IPv4) then return routes
-      // from the current node
-      if (index == Prefix.MAX_PREFIX_LENGTH) {
-        return longestPrefixMatches;
-      }
-
-      // Examine the bit at the given index
-      boolean currentBit = bits.get(index);
-      RibTreeNode child;
-
-      // the current bit is 1, go right recursively
-      if (currentBit) {
-        child = _right;
-      } else {
-        child = _left;
-      }
-      if (child == null) {
-        return longestPrefixMatches;
-      }
-
-      // Represents any potentially longer route matches (than ones stored at this node)
-      Set<R> longerMatches =
-          child.getLongestPrefixMatch(address, bits, child._prefix.getPrefixLength());
-
-      // If we found no better matches, return the ones from this node
-      if (longerMatches == null || longerMatches.isEmpty()) {
-        return longestPrefixMatches;
-      } else { // otherwise return longer matches
-        return longerMatches;
-      }
+    /** Returns true if this node's prefix contains the given address */
+    boolean matches(long addressBits) {
+      return (addressBits & getMask(_prefixLength)) == _network;
     }
 
     void assignChild(RibTreeNode parent, RibTreeNode child, boolean branchRight) {
@@ -214,7 +198,7 @@ public abstract class AbstractRib<R extends AbstractRoute> implements IRib<R> {
      *
      * @param parent node that we are trying to merge a route into
      * @param route the route to merge
-     * @param routeBits the bitSet representation of the route's IP address
+     * @param routeBits the route's IP address represented as a long
      * @param prefixLength the route's prefix length
      * @param firstUnmatchedBitIndex the index of the first bit in the route's prefix that we
      *     haven't checked yet
@@ -224,7 +208,7 @@ public abstract class AbstractRib<R extends AbstractRoute> implements IRib<R> {
     boolean mergeHelper(
         RibTreeNode parent,
         R route,
-        BitSet routeBits,
+        long routeBits,
         int prefixLength,
         int firstUnmatchedBitIndex,
         boolean rightBranch) {
@@ -240,18 +224,16 @@ public abstract class AbstractRib<R extends AbstractRoute> implements IRib<R> {
       // Node doesn't exist, so create one. By construction, it will be the best match
       // for the given route
       if (node == null) {
-        node = new RibTreeNode(route.getNetwork());
-        node._routes.add(route);
+        node = new RibTreeNode(routeBits, prefixLength);
+        node.addRoute(route);
         // don't forget to assign new node object to parent node
         assignChild(parent, node, rightBranch);
         return true;
       }
 
       // Node exists, get some helper data out of the current node we are examining
-      Prefix nodePrefix = node._prefix;
-      int nodePrefixLength = nodePrefix.getPrefixLength();
-      Ip nodeAddress = nodePrefix.getAddress();
-      BitSet nodeAddressBits = nodeAddress.getAddressBits();
+      int nodePrefixLength = node._prefixLength;
+      long nodeAddressBits = node._network;
       int nextUnmatchedBit;
       // Set up two "pointers" as we scan through the route's and the node's prefixes
       boolean currentAddressBit = false;
@@ -267,8 +249,8 @@ public abstract class AbstractRib<R extends AbstractRoute> implements IRib<R> {
       for (nextUnmatchedBit = firstUnmatchedBitIndex + 1;
           nextUnmatchedBit < nodePrefixLength && nextUnmatchedBit < prefixLength;
           nextUnmatchedBit++) {
-        currentAddressBit = routeBits.get(nextUnmatchedBit);
-        currentNodeAddressBit = nodeAddressBits.get(nextUnmatchedBit);
+        currentAddressBit = Ip.getBitAtPosition(routeBits, nextUnmatchedBit);
+        currentNodeAddressBit = Ip.getBitAtPosition(nodeAddressBits, nextUnmatchedBit);
         if (currentNodeAddressBit != currentAddressBit) {
           break;
         }
@@ -288,10 +270,10 @@ public abstract class AbstractRib<R extends AbstractRoute> implements IRib<R> {
        * the newly created node.
        */
       if (nextUnmatchedBit == prefixLength) {
-        currentNodeAddressBit = nodeAddressBits.get(nextUnmatchedBit);
+        currentNodeAddressBit = Ip.getBitAtPosition(nodeAddressBits, nextUnmatchedBit);
         RibTreeNode oldNode = node;
-        node = new RibTreeNode(route.getNetwork());
-        node._routes.add(route);
+        node = new RibTreeNode(routeBits, prefixLength);
+        node.addRoute(route);
         assignChild(parent, node, rightBranch);
         assignChild(node, oldNode, currentNodeAddressBit);
         return true;
@@ -307,12 +289,10 @@ public abstract class AbstractRib<R extends AbstractRoute> implements IRib<R> {
        */
       RibTreeNode oldNode = node;
 
-      // newNetwork has the max prefix match up to nextUnmatchedBit
-      Prefix newNetwork =
-          new Prefix(route.getNetwork().getAddress(), nextUnmatchedBit).getNetworkPrefix();
-      node = new RibTreeNode(newNetwork); // node is the node we are inserting in the middle
-      RibTreeNode child = new RibTreeNode(route.getNetwork());
-      child._routes.add(route);
+      // the new node has the max prefix match up to nextUnmatchedBit
+      node = new RibTreeNode(routeBits, nextUnmatchedBit);
+      RibTreeNode child = new RibTreeNode(routeBits, prefixLength);
+      child.addRoute(route);
       assignChild(parent, node, rightBranch);
       // child and old node become siblings, children of the newly inserted node
       assignChild(node, child, currentAddressBit);
@@ -320,18 +300,17 @@ public abstract class AbstractRib<R extends AbstractRoute> implements IRib<R> {
       return true;
     }
 
-    boolean mergeRoute(
-        R route, BitSet routeBits, int routePrefixLength, int firstUnmatchedBitIndex) {
+    boolean mergeRoute(R route, long routeBits, int routePrefixLength, int firstUnmatchedBitIndex) {
       /*
        * We have reached the node where a route should be inserted, because:
        * 1) the prefix length of this node matches the prefix length of the route exactly, and
        * 2) going deeper can only gets us longer matches
        */
-      if (routePrefixLength == _prefix.getPrefixLength()) {
+      if (routePrefixLength == _prefixLength) {
 
         // No routes with this prefix, so just add it. No comparison necessary
         if (_routes.isEmpty()) {
-          _routes.add(route);
+          addRoute(route);
           return true;
         }
 
@@ -352,7 +331,7 @@ public abstract class AbstractRib<R extends AbstractRoute> implements IRib<R> {
             return false;
           }
           // Otherwise add the route
-          _routes.add(route);
+          addRoute(route);
           return true;
         }
         // Last case, preferenceComparison > 0
@@ -360,22 +339,25 @@ public abstract class AbstractRib<R extends AbstractRoute> implements IRib<R> {
          * Better than all pre-existing routes for this prefix, so
          * replace them with this one.
          */
+        for (R oldRoute : _routes) {
+          _fingerprint -= fingerprint(oldRoute);
+        }
         _routes.clear();
-        _routes.add(route);
+        addRoute(route);
         return true;
       }
       /*
        * The prefix match is not exact, do some extra insertion logic.
        * Current bit determines which side of the tree to go down (1 = right, 0 = left)
        */
-      boolean currentBit = routeBits.get(firstUnmatchedBitIndex);
+      boolean currentBit = Ip.getBitAtPosition(routeBits, firstUnmatchedBitIndex);
       return mergeHelper(
           this, route, routeBits, routePrefixLength, firstUnmatchedBitIndex, currentBit);
     }
 
     @Override
     public String toString() {
-      return _prefix.toString();
+      return new Ip(_network).networkString(_prefixLength);
     }
 
     private boolean hasSameRoutes(@Nullable AbstractRib<?>.RibTreeNode other) {
@@ -391,6 +373,31 @@ public abstract class AbstractRib<R extends AbstractRoute> implements IRib<R> {
 
   private static final long serialVersionUID = 1L;
 
+  /**
+   * Returns the contribution of {@code route} to the fingerprint of a RIB containing it. The
+   * fingerprint of a RIB is the sum of those of its routes, so it does not depend on the order in
+   * which routes were merged.
+   */
+  static long fingerprint(AbstractRoute route) {
+    return mix(route.hashCode());
+  }
+
+  /** Spreads the bits of {@code value} over a 64-bit hash (the SplitMix64 finalizer) */
+  static long mix(long value) {
+    long z = value + 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  /** Returns the network mask for the given prefix length as a long */
+  private static long getMask(int prefixLength) {
+    return ~(0xFFFFFFFFL >>> prefixLength) & 0xFFFFFFFFL;
+  }
+
+  /** Sum of {@link #fingerprint} over the routes of this RIB, maintained as routes change */
+  private long _fingerprint;
+
   protected VirtualRouter _owner;
 
   private RibTree _tree;
@@ -407,6 +414,14 @@ public abstract class AbstractRib<R extends AbstractRoute> implements IRib<R> {
     return _tree.containsRoute(route);
   }
 
+  /**
+   * Returns an order-independent 64-bit hash of the routes in this RIB, in constant time. RIBs with
+   * the same routes have the same fingerprint; RIBs with different fingerprints differ.
+   */
+  final long getFingerprint() {
+    return _fingerprint;
+  }
+
   @Override
   public final MultiSet<Prefix> getPrefixCount() {
     MultiSet<Prefix> prefixCount = new TreeMultiSet<>();
@@ -485,7 +500,8 @@ public abstract class AbstractRib<R extends AbstractRoute> implements IRib<R> {
    * Check if two RIBs have exactly same sets of routes.
    *
    * <p>Designed to be faster (in an average case) than doing two calls to {@link #getRoutes} and
-   * then testing the sets for equality.
+   * then testing the sets for equality. RIBs with different fingerprints are told apart in constant
+   * time; the trees are only compared when the fingerprints match.
    *
    * @param other the other RIB
    * @return True if both ribs contain identical routes
@@ -494,6 +510,7 @@ public abstract class AbstractRib<R extends AbstractRoute> implements IRib<R> {
   public boolean equals(@Nullable Object other) {
     return other != null
         && (other instanceof AbstractRib<?>)
+        && _fingerprint == ((AbstractRib<?>) other)._fingerprint
         && _tree.hasSameRoutes(((AbstractRib<?>) other)._tree);
   }
 }
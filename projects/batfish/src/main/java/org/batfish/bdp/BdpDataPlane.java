@@ -1,6 +1,10 @@
 package org.batfish.bdp;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -15,6 +19,7 @@ import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import org.batfish.common.BatfishException;
+import org.batfish.common.util.CompactObjectOutputStream;
 import org.batfish.datamodel.AbstractRoute;
 import org.batfish.datamodel.Configuration;
 import org.batfish.datamodel.ConnectedRoute;
@@ -34,7 +39,7 @@ import org.batfish.datamodel.collections.NodeInterfacePair;
 public class BdpDataPlane implements Serializable, DataPlane {
 
   /** */
-  private static final long serialVersionUID = 1L;
+  private static final long serialVersionUID = 2L;
 
   Set<NodeInterfacePair> _flowSinks;
 
@@ -42,10 +47,38 @@ public class BdpDataPlane implements Serializable, DataPlane {
 
   private Map<Ip, String> _ipOwnersSimple;
 
-  Map<String, Node> _nodes;
+  /**
+   * Serialized separately, one segment per node, so that a deserialized data plane only
+   * materializes the nodes that are actually accessed (see {@link SerializedNodeMap}).
+   */
+  transient Map<String, Node> _nodes;
 
   Topology _topology;
 
+  /**
+   * Returns the interface route rows along which traffic is forwarded to the given next-hop
+   * interfaces, without the destination network
+   */
+  private static List<FibRow> collectInterfaceRouteRows(
+      Map<String, Map<Ip, Set<AbstractRoute>>> nextHopInterfaces,
+      Map<AbstractRoute, Set<FibRow>> interfaceRouteRows) {
+    List<FibRow> rows = new ArrayList<>();
+    nextHopInterfaces.forEach(
+        (nextHopInterface, nextHopInterfaceRoutesByFinalNextHopIp) -> {
+          if (nextHopInterfaceRoutesByFinalNextHopIp.size() > 1) {
+            throw new BatfishException("Did not expect this");
+          }
+          for (Entry<Ip, Set<AbstractRoute>> e2 :
+              nextHopInterfaceRoutesByFinalNextHopIp.entrySet()) {
+            Set<AbstractRoute> nextHopInterfaceRoutes = e2.getValue();
+            for (AbstractRoute nextHopInterfaceRoute : nextHopInterfaceRoutes) {
+              rows.addAll(interfaceRouteRows.get(nextHopInterfaceRoute));
+            }
+          }
+        });
+    return rows;
+  }
+
   @Override
   public HashMap<String, Map<String, SortedSet<FibRow>>> getFibs() {
     HashMap<String, Map<String, SortedSet<FibRow>>> fibs = new HashMap<>();
@@ -259,33 +292,28 @@ public class BdpDataPlane implements Serializable, DataPlane {
                       }
                     }
 
+                    /*
+                     * Routes with the same next-hop IP resolve to the same next-hop groups, so
+                     * collect the interface route rows they forward along once per next-hop IP
+                     */
+                    Map<Ip, List<FibRow>> interfaceRouteRowsByNextHopIp = new HashMap<>();
                     for (AbstractRoute route : remainingRoutes) {
-                      Ip currentNextHopIp = route.getNextHopIp();
-                      Map<String, Map<Ip, Set<AbstractRoute>>> nextHopInterfaces =
-                          vr._fib.getNextHopInterfaces(currentNextHopIp);
-                      nextHopInterfaces.forEach(
-                          (nextHopInterface, nextHopInterfaceRoutesByFinalNextHopIp) -> {
-                            if (nextHopInterfaceRoutesByFinalNextHopIp.size() > 1) {
-                              throw new BatfishException("Did not expect this");
-                            }
-                            for (Entry<Ip, Set<AbstractRoute>> e2 :
-                                nextHopInterfaceRoutesByFinalNextHopIp.entrySet()) {
-                              Set<AbstractRoute> nextHopInterfaceRoutes = e2.getValue();
-                              for (AbstractRoute nextHopInterfaceRoute : nextHopInterfaceRoutes) {
-                                Set<FibRow> currentInterfaceRouteRows =
-                                    interfaceRouteRows.get(nextHopInterfaceRoute);
-                                for (FibRow interfaceRouteRow : currentInterfaceRouteRows) {
-                                  FibRow row =
-                                      new FibRow(
-                                          route.getNetwork().getNetworkPrefix(),
-                                          interfaceRouteRow.getInterface(),
-                                          interfaceRouteRow.getNextHop(),
-                                          interfaceRouteRow.getNextHopInterface());
-                                  fibSet.add(row);
-                                }
-                              }
-                            }
-                          });
+                      List<FibRow> nextHopInterfaceRouteRows =
+                          interfaceRouteRowsByNextHopIp.computeIfAbsent(
+                              route.getNextHopIp(),
+                              nextHopIp ->
+                                  collectInterfaceRouteRows(
+                                      vr._fib.getNextHopInterfaces(nextHopIp),
+                                      interfaceRouteRows));
+                      for (FibRow interfaceRouteRow : nextHopInterfaceRouteRows) {
+                        FibRow row =
+                            new FibRow(
+                                route.getNetwork().getNetworkPrefix(),
+                                interfaceRouteRow.getInterface(),
+                                interfaceRouteRow.getNextHop(),
+                                interfaceRouteRow.getNextHopInterface());
+                        fibSet.add(row);
+                      }
                     }
                   });
             });
@@ -345,6 +373,13 @@ public class BdpDataPlane implements Serializable, DataPlane {
     setIpOwnersSimple(ipOwnersSimple);
   }
 
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    @SuppressWarnings("unchecked")
+    SortedMap<String, byte[]> segments = (SortedMap<String, byte[]>) in.readObject();
+    _nodes = new SerializedNodeMap(segments);
+  }
+
   public void setFlowSinks(Set<NodeInterfacePair> flowSinks) {
     _flowSinks = flowSinks;
   }
@@ -364,4 +399,11 @@ public class BdpDataPlane implements Serializable, DataPlane {
   public void setTopology(Topology topology) {
     _topology = topology;
   }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    out.defaultWriteObject();
+    // Segments follow the format chosen for the enclosing stream
+    out.writeObject(
+        SerializedNodeMap.toSegments(_nodes, out instanceof CompactObjectOutputStream));
+  }
 }
@@ -90,6 +90,9 @@ public class BdpEngine {
     return transformedFlowBuilder.build();
   }
 
+  /** Runs the per-VRF phases of the data plane computation in progress, if any */
+  private VirtualRouterExecutor _executor;
+
   private final BatfishLogger _logger;
 
   private int _maxRecordedIterations;
@@ -123,6 +126,18 @@ public class BdpEngine {
     }
   }
 
+  private void clearCheckpoints(Map<String, Node> nodes) {
+    nodes
+        .values()
+        .parallelStream()
+        .forEach(
+            n -> {
+              for (VirtualRouter vr : n._virtualRouters.values()) {
+                vr._checkpoints.clear();
+              }
+            });
+  }
+
   private void collectFlowTraces(
       BdpDataPlane dp,
       String currentNodeName,
@@ -378,19 +393,16 @@ public class BdpEngine {
   private void compareToPreviousIteration(
       Map<String, Node> nodes,
       AtomicBoolean dependentRoutesChanged,
-      AtomicInteger checkFixedPointCompleted) {
-    nodes
-        .values()
-        .parallelStream()
-        .forEach(
-            n -> {
-              for (VirtualRouter vr : n._virtualRouters.values()) {
-                if (vr.compareRibs()) {
-                  dependentRoutesChanged.set(true);
-                }
-              }
-              checkFixedPointCompleted.incrementAndGet();
-            });
+      int dependentRoutesIterations) {
+    _executor.forEach(
+        nodes,
+        "Check if fixed-point reached",
+        "Iteration " + dependentRoutesIterations + ": Check if fixed-point reached",
+        vr -> {
+          if (vr.compareRibs()) {
+            dependentRoutesChanged.set(true);
+          }
+        });
   }
 
   BdpDataPlane computeDataPlane(
@@ -408,12 +420,19 @@ public class BdpEngine {
     dp.initIpOwners(configurations, ipOwners, ipOwnersSimple);
     CommonUtil.initRemoteBgpNeighbors(configurations, dp.getIpOwners());
     SortedMap<String, Node> nodes = new TreeMap<>();
-    SortedMap<Integer, SortedMap<Integer, Integer>> recoveryIterationHashCodes = new TreeMap<>();
-    do {
-      configurations.values().forEach(c -> nodes.put(c.getHostname(), new Node(c)));
-    } while (computeFixedPoint(
-        nodes, topology, dp, externalAdverts, ae, recoveryIterationHashCodes));
-    computeFibs(nodes);
+    SortedMap<Integer, SortedMap<Integer, Long>> recoveryIterationHashCodes = new TreeMap<>();
+    _executor = new VirtualRouterExecutor(_settings.getBdpThreads(), _newBatch);
+    try {
+      do {
+        configurations.values().forEach(c -> nodes.put(c.getHostname(), new Node(c)));
+      } while (computeFixedPoint(
+          nodes, topology, dp, externalAdverts, ae, recoveryIterationHashCodes));
+      computeFibs(nodes);
+      _logger.info(_executor.getPhaseStatistics());
+    } finally {
+      _executor.close();
+      _executor = null;
+    }
     dp.setNodes(nodes);
     dp.setTopology(topology);
     dp.setFlowSinks(flowSinks);
@@ -429,187 +448,130 @@ public class BdpEngine {
       int dependentRoutesIterations,
       SortedSet<Prefix> oscillatingPrefixes) {
 
-    // (Re)initialization of dependent route calculation
-    AtomicInteger reinitializeDependentCompleted =
-        _newBatch.apply(
-            "Iteration " + dependentRoutesIterations + ": Reinitialize dependent routes",
-            nodes.size());
-    nodes
-        .values()
-        .parallelStream()
-        .forEach(
-            n -> {
-              for (VirtualRouter vr : n._virtualRouters.values()) {
+    /*
+     * Delta-driven BGP propagation is only sound when no lockstep propagation of oscillating
+     * prefixes is in effect, since the latter depends on the iteration number.
+     */
+    boolean incrementalBgp =
+        _settings.getBdpIncrementalPropagation() && oscillatingPrefixes.isEmpty();
 
-                /*
-                 * For RIBs that require comparision to previous version,
-                 * call a function that stores existing ribs
-                 * as previous RIBs, then re-initializes current RIBs
-                 */
-                vr.moveRibs();
+    // (Re)initialization of dependent route calculation
+    _executor.forEach(
+        nodes,
+        "Reinitialize dependent routes",
+        "Iteration " + dependentRoutesIterations + ": Reinitialize dependent routes",
+        vr -> {
+          /*
+           * For RIBs that require comparision to previous version,
+           * call a function that stores existing ribs
+           * as previous RIBs, then re-initializes current RIBs
+           */
+          vr.moveRibs();
 
-                /*
-                 * For RIBs that do not require comparison to previous version, just re-init
-                 */
-                vr.reinitRibsNewIteration();
-              }
-              reinitializeDependentCompleted.incrementAndGet();
-            });
+          /*
+           * For RIBs that do not require comparison to previous version, just re-init
+           */
+          vr.reinitRibsNewIteration();
+        });
 
     // Static nextHopIp routes
-    AtomicInteger recomputeStaticCompleted =
-        _newBatch.apply(
-            "Iteration " + dependentRoutesIterations + ": Recompute static routes with next-hop IP",
-            nodes.size());
-    nodes
-        .values()
-        .parallelStream()
-        .forEach(
-            n -> {
-              boolean staticChanged;
-              do {
-                staticChanged = false;
-                for (VirtualRouter vr : n._virtualRouters.values()) {
-                  staticChanged |= vr.activateStaticRoutes();
-                }
-              } while (staticChanged);
-              recomputeStaticCompleted.incrementAndGet();
-            });
+    _executor.forEach(
+        nodes,
+        "Recompute static routes with next-hop IP",
+        "Iteration " + dependentRoutesIterations + ": Recompute static routes with next-hop IP",
+        vr -> {
+          while (vr.activateStaticRoutes()) {}
+        });
 
     // Generated/aggregate routes
-    AtomicInteger recomputeAggregateCompleted =
-        _newBatch.apply(
-            "Iteration " + dependentRoutesIterations + ": Recompute aggregate/generated routes",
-            nodes.size());
-    nodes
-        .values()
-        .parallelStream()
-        .forEach(
-            n -> {
-              for (VirtualRouter vr : n._virtualRouters.values()) {
-                vr._generatedRib = new Rib(vr);
-                while (vr.activateGeneratedRoutes()) {}
-                vr.importRib(vr._mainRib, vr._generatedRib);
-              }
-              recomputeAggregateCompleted.incrementAndGet();
-            });
+    _executor.forEach(
+        nodes,
+        "Recompute aggregate/generated routes",
+        "Iteration " + dependentRoutesIterations + ": Recompute aggregate/generated routes",
+        vr -> {
+          vr._generatedRib = new Rib(vr);
+          while (vr.activateGeneratedRoutes()) {}
+          vr.importRib(vr._mainRib, vr._generatedRib);
+        });
 
     // OSPF external routes
     // recompute exports
-    nodes
-        .values()
-        .parallelStream()
-        .forEach(
-            n -> {
-              for (VirtualRouter vr : n._virtualRouters.values()) {
-                vr.initOspfExports();
-              }
-            });
+    _executor.forEach(
+        nodes,
+        "Recompute OSPF exports",
+        "Iteration " + dependentRoutesIterations + ": Recompute OSPF exports",
+        VirtualRouter::initOspfExports);
 
     // repropagate exports
     AtomicBoolean ospfExternalChanged = new AtomicBoolean(true);
     int ospfExternalSubIterations = 0;
     while (ospfExternalChanged.get()) {
       ospfExternalSubIterations++;
-      AtomicInteger propagateOspfExternalCompleted =
-          _newBatch.apply(
-              "Iteration "
-                  + dependentRoutesIterations
-                  + ": Propagate OSPF external routes: subIteration: "
-                  + ospfExternalSubIterations,
-              nodes.size());
       ospfExternalChanged.set(false);
-      nodes
-          .values()
-          .parallelStream()
-          .forEach(
-              n -> {
-                for (VirtualRouter vr : n._virtualRouters.values()) {
-                  if (vr.propagateOspfExternalRoutes(nodes, topology)) {
-                    ospfExternalChanged.set(true);
-                  }
-                }
-                propagateOspfExternalCompleted.incrementAndGet();
-              });
-      AtomicInteger unstageOspfExternalCompleted =
-          _newBatch.apply(
-              "Iteration "
-                  + dependentRoutesIterations
-                  + ": Unstage OSPF external routes: subIteration: "
-                  + ospfExternalSubIterations,
-              nodes.size());
-      nodes
-          .values()
-          .parallelStream()
-          .forEach(
-              n -> {
-                for (VirtualRouter vr : n._virtualRouters.values()) {
-                  vr.unstageOspfExternalRoutes();
-                }
-                unstageOspfExternalCompleted.incrementAndGet();
-              });
+      _executor.forEach(
+          nodes,
+          "Propagate OSPF external routes",
+          "Iteration "
+              + dependentRoutesIterations
+              + ": Propagate OSPF external routes: subIteration: "
+              + ospfExternalSubIterations,
+          vr -> {
+            if (vr.propagateOspfExternalRoutes(nodes, topology)) {
+              ospfExternalChanged.set(true);
+            }
+          });
+      _executor.forEach(
+          nodes,
+          "Unstage OSPF external routes",
+          "Iteration "
+              + dependentRoutesIterations
+              + ": Unstage OSPF external routes: subIteration: "
+              + ospfExternalSubIterations,
+          VirtualRouter::unstageOspfExternalRoutes);
     }
-    AtomicInteger importOspfExternalCompleted =
-        _newBatch.apply(
-            "Iteration " + dependentRoutesIterations + ": Unstage OSPF external routes",
-            nodes.size());
-    nodes
-        .values()
-        .parallelStream()
-        .forEach(
-            n -> {
-              for (VirtualRouter vr : n._virtualRouters.values()) {
-                vr.importRib(vr._ospfRib, vr._ospfExternalType1Rib);
-                vr.importRib(vr._ospfRib, vr._ospfExternalType2Rib);
-                vr.importRib(vr._mainRib, vr._ospfRib);
-              }
-              importOspfExternalCompleted.incrementAndGet();
-            });
+    _executor.forEach(
+        nodes,
+        "Import OSPF external routes",
+        "Iteration " + dependentRoutesIterations + ": Unstage OSPF external routes",
+        vr -> {
+          vr.importRib(vr._ospfRib, vr._ospfExternalType1Rib);
+          vr.importRib(vr._ospfRib, vr._ospfExternalType2Rib);
+          vr.importRib(vr._mainRib, vr._ospfRib);
+        });
 
     // BGP routes
     // first let's initialize nodes-level generated/aggregate routes
-    nodes
-        .values()
-        .parallelStream()
-        .forEach(
-            n -> {
-              for (VirtualRouter vr : n._virtualRouters.values()) {
-                if (vr._vrf.getBgpProcess() != null) {
-                  vr.initBgpAggregateRoutes();
-                }
-              }
-            });
-    AtomicInteger propagateBgpCompleted =
-        _newBatch.apply(
-            "Iteration " + dependentRoutesIterations + ": Propagate BGP routes", nodes.size());
-    nodes
-        .values()
-        .parallelStream()
-        .forEach(
-            n -> {
-              for (VirtualRouter vr : n._virtualRouters.values()) {
-                vr.propagateBgpRoutes(
-                    dp.getIpOwners(), dependentRoutesIterations, oscillatingPrefixes, nodes);
-              }
-              propagateBgpCompleted.incrementAndGet();
-            });
-    AtomicInteger importBgpCompleted =
-        _newBatch.apply(
-            "Iteration " + dependentRoutesIterations + ": Import BGP routes into respective RIBs",
-            nodes.size());
-    nodes
-        .values()
-        .parallelStream()
-        .forEach(
-            n -> {
-              for (VirtualRouter vr : n._virtualRouters.values()) {
-                BgpProcess proc = vr._vrf.getBgpProcess();
-                if (proc != null) {
-                  vr.finalizeBgpRoutes(proc.getMultipathEbgp(), proc.getMultipathIbgp());
-                }
-              }
-              importBgpCompleted.incrementAndGet();
-            });
+    _executor.forEach(
+        nodes,
+        "Initialize BGP aggregate routes",
+        "Iteration " + dependentRoutesIterations + ": Initialize BGP aggregate routes",
+        vr -> {
+          if (vr._vrf.getBgpProcess() != null) {
+            vr.initBgpAggregateRoutes();
+          }
+        });
+    _executor.forEach(
+        nodes,
+        "Propagate BGP routes",
+        "Iteration " + dependentRoutesIterations + ": Propagate BGP routes",
+        vr -> {
+          vr.propagateBgpRoutes(
+              dp.getIpOwners(),
+              dependentRoutesIterations,
+              oscillatingPrefixes,
+              nodes,
+              incrementalBgp);
+        });
+    _executor.forEach(
+        nodes,
+        "Import BGP routes",
+        "Iteration " + dependentRoutesIterations + ": Import BGP routes into respective RIBs",
+        vr -> {
+          BgpProcess proc = vr._vrf.getBgpProcess();
+          if (proc != null) {
+            vr.finalizeBgpRoutes(proc.getMultipathEbgp(), proc.getMultipathIbgp());
+          }
+        });
   }
 
   /**
@@ -618,17 +580,11 @@ public class BdpEngine {
    * @param nodes mapping of node names to node instances
    */
   private void computeFibs(Map<String, Node> nodes) {
-    AtomicInteger completed = _newBatch.apply("Computing FIBs", nodes.size());
-    nodes
-        .values()
-        .parallelStream()
-        .forEach(
-            n -> {
-              for (VirtualRouter vr : n._virtualRouters.values()) {
-                vr.computeFib();
-              }
-              completed.incrementAndGet();
-            });
+    _executor.forEach(
+        nodes,
+        "Compute FIBs",
+        "Computing FIBs",
+        VirtualRouter::computeFib);
   }
 
   /**
@@ -642,7 +598,7 @@ public class BdpEngine {
    *     contains the current recovery iteration.
    * @param recoveryIterationHashCodes Dependent-route computation iteration hash-code dictionaries,
    *     themselves keyed by outer recovery iteration.
-   * @return true iff the computation is oscillating
+   * @return true iff the computation is oscillating and must be restarted from scratch
    */
   private boolean computeFixedPoint(
       SortedMap<String, Node> nodes,
@@ -650,25 +606,17 @@ public class BdpEngine {
       BdpDataPlane dp,
       Set<BgpAdvertisement> externalAdverts,
       BdpAnswerElement ae,
-      SortedMap<Integer, SortedMap<Integer, Integer>> recoveryIterationHashCodes) {
+      SortedMap<Integer, SortedMap<Integer, Long>> recoveryIterationHashCodes) {
     SortedSet<Prefix> oscillatingPrefixes = ae.getOscillatingPrefixes();
 
     // BEGIN DONE ONCE (except main rib)
 
     // For each virtual router, setup the initial easy-to-do routes and init protocol-based RIBs:
-    AtomicInteger initialCompleted =
-        _newBatch.apply(
-            "Compute initial connected and static routes, ospf setup, bgp setup", nodes.size());
-    nodes
-        .values()
-        .parallelStream()
-        .forEach(
-            n -> {
-              for (VirtualRouter vr : n._virtualRouters.values()) {
-                vr.initRibsForBdp(dp.getIpOwners(), externalAdverts);
-              }
-              initialCompleted.incrementAndGet();
-            });
+    _executor.forEach(
+        nodes,
+        "Compute initial routes",
+        "Compute initial connected and static routes, ospf setup, bgp setup",
+        vr -> vr.initRibsForBdp(dp.getIpOwners(), externalAdverts));
 
     // OSPF internal routes
     int numOspfInternalIterations = initOspfInternalRoutes(nodes, topology);
@@ -688,108 +636,125 @@ public class BdpEngine {
      * oscillating prefixes in a given iteration.
      * E.g., lexicographically lower neighbor propagates routes during
      * odd iterations, and lex-higher neighbor during even iterations.
+     *
+     * If checkpoints are enabled, recovery resumes from the last iteration before the cycle rather
+     * than restarting the whole computation.
      */
 
-    Map<Integer, SortedSet<Integer>> iterationsByHashCode = new HashMap<>();
-    SortedMap<Integer, Integer> iterationHashCodes = new TreeMap<>();
-    Map<Integer, SortedSet<Route>> iterationRoutes = null;
-    Map<Integer, SortedMap<String, SortedMap<String, SortedSet<AbstractRoute>>>>
-        iterationAbstractRoutes = null;
-    if (_settings.getBdpRecordAllIterations()) {
-      if (_settings.getBdpDetail()) {
-        iterationAbstractRoutes = new TreeMap<>();
-      } else {
-        iterationRoutes = new TreeMap<>();
-      }
-    } else if (_maxRecordedIterations > 0) {
-      if (_settings.getBdpDetail()) {
-        iterationAbstractRoutes = new LRUMap<>(_maxRecordedIterations);
-      } else {
-        iterationRoutes = new LRUMap<>(_maxRecordedIterations);
-      }
-    }
-    AtomicBoolean dependentRoutesChanged = new AtomicBoolean(false);
-    AtomicBoolean evenDependentRoutesChanged = new AtomicBoolean(false);
-    AtomicBoolean oddDependentRoutesChanged = new AtomicBoolean(false);
+    int maxCheckpoints = _settings.getBdpMaxCheckpoints();
     int numDependentRoutesIterations = 0;
-
-    // Go into iteration mode, until the routes converge (or oscillation is detected)
+    if (maxCheckpoints > 0) {
+      saveCheckpoints(nodes, numDependentRoutesIterations, maxCheckpoints);
+    }
+    boolean resumed;
     do {
-      numDependentRoutesIterations++;
-      AtomicBoolean currentChangedMonitor;
-      if (oscillatingPrefixes.isEmpty()) {
-        currentChangedMonitor = dependentRoutesChanged;
-      } else if (numDependentRoutesIterations % 2 == 0) {
-        currentChangedMonitor = evenDependentRoutesChanged;
-      } else {
-        currentChangedMonitor = oddDependentRoutesChanged;
+      resumed = false;
+      Map<Long, SortedSet<Integer>> iterationsByHashCode = new HashMap<>();
+      SortedMap<Integer, Long> iterationHashCodes = new TreeMap<>();
+      Map<Integer, SortedSet<Route>> iterationRoutes = null;
+      Map<Integer, SortedMap<String, SortedMap<String, SortedSet<AbstractRoute>>>>
+          iterationAbstractRoutes = null;
+      if (_settings.getBdpRecordAllIterations()) {
+        if (_settings.getBdpDetail()) {
+          iterationAbstractRoutes = new TreeMap<>();
+        } else {
+          iterationRoutes = new TreeMap<>();
+        }
+      } else if (_maxRecordedIterations > 0) {
+        if (_settings.getBdpDetail()) {
+          iterationAbstractRoutes = new LRUMap<>(_maxRecordedIterations);
+        } else {
+          iterationRoutes = new LRUMap<>(_maxRecordedIterations);
+        }
       }
-      currentChangedMonitor.set(false);
-      computeDependentRoutesIteration(
-          nodes, topology, dp, numDependentRoutesIterations, oscillatingPrefixes);
+      AtomicBoolean dependentRoutesChanged = new AtomicBoolean(false);
+      /*
+       * Convergence under lockstep propagation requires an unchanged even and odd iteration.
+       * Neither has been observed yet when resuming from a checkpoint.
+       */
+      AtomicBoolean evenDependentRoutesChanged = new AtomicBoolean(true);
+      AtomicBoolean oddDependentRoutesChanged = new AtomicBoolean(true);
 
-      /* Collect sizes of certain RIBs this iteration */
-      computeIterationStatistics(nodes, ae, numDependentRoutesIterations);
+      // Go into iteration mode, until the routes converge (or oscillation is detected)
+      do {
+        numDependentRoutesIterations++;
+        AtomicBoolean currentChangedMonitor;
+        if (oscillatingPrefixes.isEmpty()) {
+          currentChangedMonitor = dependentRoutesChanged;
+        } else if (numDependentRoutesIterations % 2 == 0) {
+          currentChangedMonitor = evenDependentRoutesChanged;
+        } else {
+          currentChangedMonitor = oddDependentRoutesChanged;
+        }
+        currentChangedMonitor.set(false);
+        computeDependentRoutesIteration(
+            nodes, topology, dp, numDependentRoutesIterations, oscillatingPrefixes);
 
-      recordIterationDebugInfo(
-          nodes, dp, iterationRoutes, iterationAbstractRoutes, numDependentRoutesIterations);
+        /* Collect sizes of certain RIBs this iteration */
+        computeIterationStatistics(nodes, ae, numDependentRoutesIterations);
 
-      // Check to see if hash has changed
-      AtomicInteger checkFixedPointCompleted =
-          _newBatch.apply(
-              "Iteration " + numDependentRoutesIterations + ": Check if fixed-point reached",
-              nodes.size());
+        recordIterationDebugInfo(
+            nodes, dp, iterationRoutes, iterationAbstractRoutes, numDependentRoutesIterations);
 
-      // This hashcode uniquely identifies the iteration (i.e., network state)
-      int iterationHashCode = computeIterationHashCode(nodes);
-      SortedSet<Integer> iterationsWithThisHashCode =
-          iterationsByHashCode.computeIfAbsent(iterationHashCode, h -> new TreeSet<>());
-      iterationHashCodes.put(numDependentRoutesIterations, iterationHashCode);
-      int minNumberOfUnchangedIterationsForConvergence = oscillatingPrefixes.isEmpty() ? 1 : 2;
-      if (iterationsWithThisHashCode.isEmpty()
-          || (!oscillatingPrefixes.isEmpty()
-              && iterationsWithThisHashCode.equals(
-                  Collections.singleton(numDependentRoutesIterations - 1)))) {
-        iterationsWithThisHashCode.add(numDependentRoutesIterations);
-      } else if (!iterationsWithThisHashCode.contains(
-          numDependentRoutesIterations - minNumberOfUnchangedIterationsForConvergence)) {
-        int lowestIterationWithThisHashCode = iterationsWithThisHashCode.first();
-        int completedOscillationRecoveryAttempts = ae.getCompletedOscillationRecoveryAttempts();
-        if (!oscillatingPrefixes.isEmpty()) {
-          completedOscillationRecoveryAttempts++;
-          ae.setCompletedOscillationRecoveryAttempts(completedOscillationRecoveryAttempts);
+        // Check to see if hash has changed
+        // This hashcode uniquely identifies the iteration (i.e., network state)
+        long iterationHashCode = computeIterationHashCode(nodes);
+        SortedSet<Integer> iterationsWithThisHashCode =
+            iterationsByHashCode.computeIfAbsent(iterationHashCode, h -> new TreeSet<>());
+        iterationHashCodes.put(numDependentRoutesIterations, iterationHashCode);
+        int minNumberOfUnchangedIterationsForConvergence = oscillatingPrefixes.isEmpty() ? 1 : 2;
+        if (iterationsWithThisHashCode.isEmpty()
+            || (!oscillatingPrefixes.isEmpty()
+                && iterationsWithThisHashCode.equals(
+                    Collections.singleton(numDependentRoutesIterations - 1)))) {
+          iterationsWithThisHashCode.add(numDependentRoutesIterations);
+        } else if (!iterationsWithThisHashCode.contains(
+            numDependentRoutesIterations - minNumberOfUnchangedIterationsForConvergence)) {
+          int lowestIterationWithThisHashCode = iterationsWithThisHashCode.first();
+          int completedOscillationRecoveryAttempts = ae.getCompletedOscillationRecoveryAttempts();
+          if (!oscillatingPrefixes.isEmpty()) {
+            completedOscillationRecoveryAttempts++;
+            ae.setCompletedOscillationRecoveryAttempts(completedOscillationRecoveryAttempts);
+          }
+          recoveryIterationHashCodes.put(completedOscillationRecoveryAttempts, iterationHashCodes);
+          handleOscillation(
+              recoveryIterationHashCodes,
+              iterationRoutes,
+              iterationAbstractRoutes,
+              lowestIterationWithThisHashCode,
+              numDependentRoutesIterations,
+              oscillatingPrefixes,
+              ae.getCompletedOscillationRecoveryAttempts());
+          if (maxCheckpoints == 0) {
+            return true;
+          }
+          resumeFromCheckpoint(nodes, lowestIterationWithThisHashCode - 1);
+          resumed = true;
+          break;
         }
-        recoveryIterationHashCodes.put(completedOscillationRecoveryAttempts, iterationHashCodes);
-        handleOscillation(
-            recoveryIterationHashCodes,
-            iterationRoutes,
-            iterationAbstractRoutes,
-            lowestIterationWithThisHashCode,
-            numDependentRoutesIterations,
-            oscillatingPrefixes,
-            ae.getCompletedOscillationRecoveryAttempts());
-        return true;
-      }
-      compareToPreviousIteration(nodes, currentChangedMonitor, checkFixedPointCompleted);
-    } while (checkDependentRoutesChanged(
-        dependentRoutesChanged,
-        evenDependentRoutesChanged,
-        oddDependentRoutesChanged,
-        oscillatingPrefixes,
-        numDependentRoutesIterations));
+        compareToPreviousIteration(
+            nodes, currentChangedMonitor, numDependentRoutesIterations);
+        if (maxCheckpoints > 0) {
+          saveCheckpoints(nodes, numDependentRoutesIterations, maxCheckpoints);
+        }
+      } while (checkDependentRoutesChanged(
+          dependentRoutesChanged,
+          evenDependentRoutesChanged,
+          oddDependentRoutesChanged,
+          oscillatingPrefixes,
+          numDependentRoutesIterations));
+    } while (resumed);
 
-    AtomicInteger computeBgpAdvertisementsToOutsideCompleted =
-        _newBatch.apply("Compute BGP advertisements sent to outside", nodes.size());
-    nodes
-        .values()
-        .parallelStream()
-        .forEach(
-            n -> {
-              for (VirtualRouter vr : n._virtualRouters.values()) {
-                vr.computeBgpAdvertisementsToOutside(dp.getIpOwners());
-              }
-              computeBgpAdvertisementsToOutsideCompleted.incrementAndGet();
-            });
+    // Checkpoints are only needed while the fixed point is being computed
+    if (maxCheckpoints > 0) {
+      clearCheckpoints(nodes);
+    }
+
+    _executor.forEach(
+        nodes,
+        "Compute BGP advertisements to outside",
+        "Compute BGP advertisements sent to outside",
+        vr -> vr.computeBgpAdvertisementsToOutside(dp.getIpOwners()));
 
     // Set iteration stats in the answer
     ae.setOspfInternalIterations(numOspfInternalIterations);
@@ -797,45 +762,23 @@ public class BdpEngine {
     return false;
   }
 
-  private int computeIterationHashCode(Map<String, Node> nodes) {
-    int mainHash =
-        nodes
-            .values()
-            .parallelStream()
-            .mapToInt(
-                n ->
-                    n._virtualRouters
-                        .values()
-                        .stream()
-                        .mapToInt(vr -> vr._mainRib.getRoutes().hashCode())
-                        .sum())
-            .sum();
-    int ospfExternalType1Hash =
-        nodes
-            .values()
-            .parallelStream()
-            .mapToInt(
-                n ->
-                    n._virtualRouters
-                        .values()
-                        .stream()
-                        .mapToInt(vr -> vr._ospfExternalType1Rib.getRoutes().hashCode())
-                        .sum())
-            .sum();
-    int ospfExternalType2Hash =
-        nodes
-            .values()
-            .parallelStream()
-            .mapToInt(
-                n ->
-                    n._virtualRouters
-                        .values()
-                        .stream()
-                        .mapToInt(vr -> vr._ospfExternalType2Rib.getRoutes().hashCode())
-                        .sum())
-            .sum();
-    int hash = mainHash + ospfExternalType1Hash + ospfExternalType2Hash;
-    return hash;
+  /**
+   * Returns a hash of the main and OSPF-external RIBs of all nodes. It is computed from the
+   * fingerprints the RIBs maintain as routes are merged, so it takes time proportional to the
+   * number of virtual routers rather than of routes.
+   */
+  private long computeIterationHashCode(Map<String, Node> nodes) {
+    return nodes
+        .values()
+        .stream()
+        .mapToLong(
+            n ->
+                n._virtualRouters
+                    .values()
+                    .stream()
+                    .mapToLong(VirtualRouter::computeIterationFingerprint)
+                    .sum())
+        .sum();
   }
 
   private void computeIterationStatistics(
@@ -1139,7 +1082,7 @@ public class BdpEngine {
    *     involved in the oscillation
    */
   private void handleOscillation(
-      SortedMap<Integer, SortedMap<Integer, Integer>> recoveryIterationHashCodes,
+      SortedMap<Integer, SortedMap<Integer, Long>> recoveryIterationHashCodes,
       Map<Integer, SortedSet<Route>> iterationRoutes,
       Map<Integer, SortedMap<String, SortedMap<String, SortedSet<AbstractRoute>>>>
           iterationAbstractRoutes,
@@ -1204,63 +1147,35 @@ public class BdpEngine {
       ospfInternalIterations++;
       ospfInternalChanged.set(false);
 
-      AtomicInteger ospfInterAreaSummaryCompleted =
-          _newBatch.apply(
-              "Compute OSPF Inter-area summaries: iteration " + ospfInternalIterations,
-              nodes.size());
-      nodes
-          .values()
-          .parallelStream()
-          .forEach(
-              n -> {
-                for (VirtualRouter vr : n._virtualRouters.values()) {
-                  if (vr.computeInterAreaSummaries()) {
-                    ospfInternalChanged.set(true);
-                  }
-                }
-                ospfInterAreaSummaryCompleted.incrementAndGet();
-              });
-      AtomicInteger ospfInternalCompleted =
-          _newBatch.apply(
-              "Compute OSPF Internal routes: iteration " + ospfInternalIterations, nodes.size());
-      nodes
-          .values()
-          .parallelStream()
-          .forEach(
-              n -> {
-                for (VirtualRouter vr : n._virtualRouters.values()) {
-                  if (vr.propagateOspfInternalRoutes(nodes, topology)) {
-                    ospfInternalChanged.set(true);
-                  }
-                }
-                ospfInternalCompleted.incrementAndGet();
-              });
-      AtomicInteger ospfInternalUnstageCompleted =
-          _newBatch.apply(
-              "Unstage OSPF Internal routes: iteration " + ospfInternalIterations, nodes.size());
-      nodes
-          .values()
-          .parallelStream()
-          .forEach(
-              n -> {
-                for (VirtualRouter vr : n._virtualRouters.values()) {
-                  vr.unstageOspfInternalRoutes();
-                }
-                ospfInternalUnstageCompleted.incrementAndGet();
-              });
+      _executor.forEach(
+          nodes,
+          "Compute OSPF inter-area summaries",
+          "Compute OSPF Inter-area summaries: iteration " + ospfInternalIterations,
+          vr -> {
+            if (vr.computeInterAreaSummaries()) {
+              ospfInternalChanged.set(true);
+            }
+          });
+      _executor.forEach(
+          nodes,
+          "Propagate OSPF internal routes",
+          "Compute OSPF Internal routes: iteration " + ospfInternalIterations,
+          vr -> {
+            if (vr.propagateOspfInternalRoutes(nodes, topology)) {
+              ospfInternalChanged.set(true);
+            }
+          });
+      _executor.forEach(
+          nodes,
+          "Unstage OSPF internal routes",
+          "Unstage OSPF Internal routes: iteration " + ospfInternalIterations,
+          VirtualRouter::unstageOspfInternalRoutes);
     }
-    AtomicInteger ospfInternalImportCompleted =
-        _newBatch.apply("Import OSPF Internal routes", nodes.size());
-    nodes
-        .values()
-        .parallelStream()
-        .forEach(
-            n -> {
-              for (VirtualRouter vr : n._virtualRouters.values()) {
-                vr.importOspfInternalRoutes();
-              }
-              ospfInternalImportCompleted.incrementAndGet();
-            });
+    _executor.forEach(
+        nodes,
+        "Import OSPF internal routes",
+        "Import OSPF Internal routes",
+        VirtualRouter::importOspfInternalRoutes);
     return ospfInternalIterations;
   }
 
@@ -1270,48 +1185,29 @@ public class BdpEngine {
     while (ripInternalChanged.get()) {
       ripInternalIterations++;
       ripInternalChanged.set(false);
-      AtomicInteger ripInternalCompleted =
-          _newBatch.apply(
-              "Compute RIP Internal routes: iteration " + ripInternalIterations, nodes.size());
-      nodes
-          .values()
-          .parallelStream()
-          .forEach(
-              n -> {
-                for (VirtualRouter vr : n._virtualRouters.values()) {
-                  if (vr.propagateRipInternalRoutes(nodes, topology)) {
-                    ripInternalChanged.set(true);
-                  }
-                }
-                ripInternalCompleted.incrementAndGet();
-              });
-      AtomicInteger ripInternalUnstageCompleted =
-          _newBatch.apply(
-              "Unstage RIP Internal routes: iteration " + ripInternalIterations, nodes.size());
-      nodes
-          .values()
-          .parallelStream()
-          .forEach(
-              n -> {
-                for (VirtualRouter vr : n._virtualRouters.values()) {
-                  vr.unstageRipInternalRoutes();
-                }
-                ripInternalUnstageCompleted.incrementAndGet();
-              });
+      _executor.forEach(
+          nodes,
+          "Propagate RIP internal routes",
+          "Compute RIP Internal routes: iteration " + ripInternalIterations,
+          vr -> {
+            if (vr.propagateRipInternalRoutes(nodes, topology)) {
+              ripInternalChanged.set(true);
+            }
+          });
+      _executor.forEach(
+          nodes,
+          "Unstage RIP internal routes",
+          "Unstage RIP Internal routes: iteration " + ripInternalIterations,
+          VirtualRouter::unstageRipInternalRoutes);
     }
-    AtomicInteger ripInternalImportCompleted =
-        _newBatch.apply("Import RIP Internal routes", nodes.size());
-    nodes
-        .values()
-        .parallelStream()
-        .forEach(
-            n -> {
-              for (VirtualRouter vr : n._virtualRouters.values()) {
-                vr.importRib(vr._ripRib, vr._ripInternalRib);
-                vr.importRib(vr._independentRib, vr._ripRib);
-              }
-              ripInternalImportCompleted.incrementAndGet();
-            });
+    _executor.forEach(
+        nodes,
+        "Import RIP internal routes",
+        "Import RIP Internal routes",
+        vr -> {
+          vr.importRib(vr._ripRib, vr._ripInternalRib);
+          vr.importRib(vr._independentRib, vr._ripRib);
+        });
     return ripInternalIterations;
   }
 
@@ -1552,4 +1448,44 @@ public class BdpEngine {
       }
     }
   }
+
+  /**
+   * Restore the RIBs of all virtual routers to their state at the end of the given iteration. If
+   * that checkpoint is no longer retained, computation resumes from the current state instead,
+   * which is also part of the detected cycle.
+   */
+  private void resumeFromCheckpoint(Map<String, Node> nodes, int iteration) {
+    AtomicBoolean restored = new AtomicBoolean(false);
+    nodes
+        .values()
+        .parallelStream()
+        .forEach(
+            n -> {
+              for (VirtualRouter vr : n._virtualRouters.values()) {
+                if (vr.restoreCheckpoint(iteration)) {
+                  restored.set(true);
+                }
+              }
+            });
+    if (restored.get()) {
+      _logger.infof("Resuming oscillation recovery from iteration %d\n", iteration);
+    } else {
+      _logger.infof(
+          "Checkpoint of iteration %d not retained, resuming oscillation recovery from current "
+              + "iteration\n",
+          iteration);
+    }
+  }
+
+  private void saveCheckpoints(Map<String, Node> nodes, int iteration, int maxCheckpoints) {
+    nodes
+        .values()
+        .parallelStream()
+        .forEach(
+            n -> {
+              for (VirtualRouter vr : n._virtualRouters.values()) {
+                vr.saveCheckpoint(iteration, maxCheckpoints);
+              }
+            });
+  }
 }
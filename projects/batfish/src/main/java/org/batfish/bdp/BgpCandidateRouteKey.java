@@ -0,0 +1,44 @@
+package org.batfish.bdp;
+
+import org.batfish.datamodel.AbstractRoute;
+import org.batfish.datamodel.BgpRoute;
+
+/**
+ * Identifies a remote candidate route whose propagation result is retained by delta-driven BGP
+ * propagation. Two keys are equal only if propagating their routes is guaranteed to give the same
+ * result. BGP routes are compared by value, including the attributes that {@link BgpRoute#equals}
+ * ignores but propagation reads. Other routes are compared by identity, since their equality
+ * ignores attributes that export policies may read.
+ */
+final class BgpCandidateRouteKey {
+
+  private final AbstractRoute _route;
+
+  BgpCandidateRouteKey(AbstractRoute route) {
+    _route = route;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    } else if (!(o instanceof BgpCandidateRouteKey)) {
+      return false;
+    }
+    AbstractRoute otherRoute = ((BgpCandidateRouteKey) o)._route;
+    if (_route instanceof BgpRoute && otherRoute instanceof BgpRoute) {
+      BgpRoute bgpRoute = (BgpRoute) _route;
+      BgpRoute otherBgpRoute = (BgpRoute) otherRoute;
+      return bgpRoute.equals(otherBgpRoute)
+          && bgpRoute.getReceivedFromRouteReflectorClient()
+              == otherBgpRoute.getReceivedFromRouteReflectorClient()
+          && bgpRoute.getSrcProtocol() == otherBgpRoute.getSrcProtocol();
+    }
+    return _route == otherRoute;
+  }
+
+  @Override
+  public int hashCode() {
+    return _route instanceof BgpRoute ? _route.hashCode() : System.identityHashCode(_route);
+  }
+}
@@ -0,0 +1,43 @@
+package org.batfish.bdp;
+
+import javax.annotation.Nullable;
+import org.batfish.datamodel.BgpAdvertisement;
+import org.batfish.datamodel.BgpRoute;
+
+/**
+ * The outcome of propagating a single remote route across a BGP session: the advertisement sent by
+ * the remote speaker, and, if the local import policy accepted it, the resulting route along with
+ * the corresponding received advertisement.
+ */
+final class BgpPropagationResult {
+
+  @Nullable private final BgpAdvertisement _receivedAdvertisement;
+
+  @Nullable private final BgpRoute _receivedRoute;
+
+  private final BgpAdvertisement _sentAdvertisement;
+
+  BgpPropagationResult(
+      BgpAdvertisement sentAdvertisement,
+      @Nullable BgpRoute receivedRoute,
+      @Nullable BgpAdvertisement receivedAdvertisement) {
+    _sentAdvertisement = sentAdvertisement;
+    _receivedRoute = receivedRoute;
+    _receivedAdvertisement = receivedAdvertisement;
+  }
+
+  @Nullable
+  BgpAdvertisement getReceivedAdvertisement() {
+    return _receivedAdvertisement;
+  }
+
+  /** The route accepted by the import policy, or {@code null} if the route was rejected */
+  @Nullable
+  BgpRoute getReceivedRoute() {
+    return _receivedRoute;
+  }
+
+  BgpAdvertisement getSentAdvertisement() {
+    return _sentAdvertisement;
+  }
+}
@@ -1,8 +1,12 @@
 package org.batfish.bdp;
 
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
@@ -15,24 +19,68 @@ import org.batfish.datamodel.Route;
 
 public class Fib implements Serializable {
 
+  /**
+   * The resolution of a next-hop IP to next-hop interfaces, shared by all routes with that next-hop
+   * IP, along with the networks it traversed.
+   */
+  private static final class NextHopIpResolution {
+
+    /** Marks a next-hop IP whose resolution must be computed separately for each route */
+    private static final NextHopIpResolution UNCACHEABLE =
+        new NextHopIpResolution(null, new HashSet<>());
+
+    /** The interned id of the resulting next-hop group, shared to avoid boxing it per route */
+    private final Integer _nextHopGroupId;
+
+    /** The networks of all routes encountered while computing the resolution */
+    private final Set<Prefix> _traversedNetworks;
+
+    private NextHopIpResolution(Integer nextHopGroupId, Set<Prefix> traversedNetworks) {
+      _nextHopGroupId = nextHopGroupId;
+      _traversedNetworks = traversedNetworks;
+    }
+  }
+
   private static final int MAX_DEPTH = 10;
 
   /** */
   private static final long serialVersionUID = 1L;
 
-  private final Map<AbstractRoute, Map<String, Map<Ip, Set<AbstractRoute>>>> _nextHopInterfaces;
+  /** The id in {@link #_nextHopGroups} of the next-hop interfaces of each route */
+  private final Map<AbstractRoute, Integer> _nextHopGroupIdByRoute;
+
+  /**
+   * Ids of the distinct next-hop groups, used to intern groups as they are resolved. Only needed
+   * while the FIB is built.
+   */
+  private transient Map<Map<String, Map<Ip, Set<AbstractRoute>>>, Integer> _nextHopGroupIds;
+
+  /**
+   * The distinct next-hop groups of the routes in the RIB, indexed by id. A next-hop group maps
+   * each next-hop interface to the routes that resolved to it, keyed by the final next-hop IP.
+   * Typically far fewer than the routes, since most routes share the resolution of a few next-hops.
+   * Groups are immutable, since they are shared by routes and returned to callers.
+   */
+  private final List<Map<String, Map<Ip, Set<AbstractRoute>>>> _nextHopGroups;
+
+  /**
+   * Resolutions of the next-hop IPs of the routes in the RIB. Only needed while the FIB is built.
+   */
+  private transient Map<Ip, NextHopIpResolution> _nextHopIpResolutions;
 
   private final Rib _rib;
 
   public Fib(Rib rib) {
     _rib = rib;
-    _nextHopInterfaces = new HashMap<>();
+    _nextHopGroupIdByRoute = new HashMap<>();
+    _nextHopGroupIds = new HashMap<>();
+    _nextHopGroups = new ArrayList<>();
+    _nextHopIpResolutions = new HashMap<>();
     for (AbstractRoute route : rib.getRoutes()) {
-      Map<String, Map<Ip, Set<AbstractRoute>>> nextHopInterfaces = new TreeMap<>();
-      collectNextHopInterfaces(
-          route, Route.UNSET_ROUTE_NEXT_HOP_IP, nextHopInterfaces, new HashSet<>(), 0);
-      _nextHopInterfaces.put(route, nextHopInterfaces);
+      _nextHopGroupIdByRoute.put(route, resolve(route));
     }
+    _nextHopGroupIds = null;
+    _nextHopIpResolutions = null;
   }
 
   private void collectNextHopInterfaces(
@@ -40,8 +88,10 @@ public class Fib implements Serializable {
       Ip mostRecentNextHopIp,
       Map<String, Map<Ip, Set<AbstractRoute>>> nextHopInterfaces,
       Set<Prefix> seenNetworks,
-      int depth) {
+      int depth,
+      Set<Prefix> traversedNetworks) {
     Prefix network = route.getNetwork();
+    traversedNetworks.add(network);
     if (seenNetworks.contains(network)) {
       return;
     }
@@ -59,7 +109,8 @@ public class Fib implements Serializable {
             nextHopIp,
             nextHopInterfaces,
             newSeenNetworks,
-            depth + 1);
+            depth + 1,
+            traversedNetworks);
       }
     } else {
       String nextHopInterface = route.getNextHopInterface();
@@ -82,7 +133,7 @@ public class Fib implements Serializable {
     Set<AbstractRoute> nextHopRoutes = _rib.longestPrefixMatch(ip);
     for (AbstractRoute nextHopRoute : nextHopRoutes) {
       Map<String, Map<Ip, Set<AbstractRoute>>> currentNextHopInterfaces =
-          _nextHopInterfaces.get(nextHopRoute);
+          _nextHopGroups.get(_nextHopGroupIdByRoute.get(nextHopRoute));
       currentNextHopInterfaces.forEach(
           (nextHopInterface, nextHopInterfaceRoutesByFinalNextHopIp) -> {
             Map<Ip, Set<AbstractRoute>> outputNextHopInterfaceRoutesByFinalNextHopIp =
@@ -101,9 +152,82 @@ public class Fib implements Serializable {
     Set<AbstractRoute> nextHopRoutes = _rib.longestPrefixMatch(dstIp);
     for (AbstractRoute nextHopRoute : nextHopRoutes) {
       Map<String, Map<Ip, Set<AbstractRoute>>> nextHopInterfaces =
-          _nextHopInterfaces.get(nextHopRoute);
+          _nextHopGroups.get(_nextHopGroupIdByRoute.get(nextHopRoute));
       nextHopInterfacesByRoute.put(nextHopRoute, nextHopInterfaces);
     }
     return nextHopInterfacesByRoute;
   }
+
+  /** Returns the id of {@code nextHopGroup}, adding an immutable copy of it to the groups if new */
+  private Integer intern(Map<String, Map<Ip, Set<AbstractRoute>>> nextHopGroup) {
+    Integer nextHopGroupId = _nextHopGroupIds.get(nextHopGroup);
+    if (nextHopGroupId == null) {
+      ImmutableSortedMap.Builder<String, Map<Ip, Set<AbstractRoute>>> immutableNextHopGroup =
+          ImmutableSortedMap.naturalOrder();
+      nextHopGroup.forEach(
+          (nextHopInterface, nextHopInterfaceRoutesByFinalNextHopIp) -> {
+            ImmutableSortedMap.Builder<Ip, Set<AbstractRoute>> immutableRoutesByFinalNextHopIp =
+                ImmutableSortedMap.naturalOrder();
+            nextHopInterfaceRoutesByFinalNextHopIp.forEach(
+                (finalNextHopIp, routes) ->
+                    immutableRoutesByFinalNextHopIp.put(
+                        finalNextHopIp, ImmutableSortedSet.copyOf(routes)));
+            immutableNextHopGroup.put(nextHopInterface, immutableRoutesByFinalNextHopIp.build());
+          });
+      nextHopGroupId = _nextHopGroups.size();
+      Map<String, Map<Ip, Set<AbstractRoute>>> group = immutableNextHopGroup.build();
+      _nextHopGroups.add(group);
+      _nextHopGroupIds.put(group, nextHopGroupId);
+    }
+    return nextHopGroupId;
+  }
+
+  /**
+   * Returns the next-hop group id of {@code route}. The resolution of its next-hop IP is shared
+   * with other routes, unless resolving it encounters the network of {@code route} itself, in which
+   * case recursion through that network must be cut short for this route only.
+   */
+  private Integer resolve(AbstractRoute route) {
+    Ip nextHopIp = route.getNextHopIp();
+    if (!nextHopIp.equals(Route.UNSET_ROUTE_NEXT_HOP_IP)) {
+      NextHopIpResolution resolution =
+          _nextHopIpResolutions.computeIfAbsent(nextHopIp, this::resolveNextHopIp);
+      if (resolution != NextHopIpResolution.UNCACHEABLE
+          && !resolution._traversedNetworks.contains(route.getNetwork())) {
+        return resolution._nextHopGroupId;
+      }
+    }
+    Map<String, Map<Ip, Set<AbstractRoute>>> nextHopInterfaces = new TreeMap<>();
+    collectNextHopInterfaces(
+        route,
+        Route.UNSET_ROUTE_NEXT_HOP_IP,
+        nextHopInterfaces,
+        new HashSet<>(),
+        0,
+        new HashSet<>());
+    return intern(nextHopInterfaces);
+  }
+
+  private NextHopIpResolution resolveNextHopIp(Ip nextHopIp) {
+    Map<String, Map<Ip, Set<AbstractRoute>>> nextHopInterfaces = new TreeMap<>();
+    Set<Prefix> traversedNetworks = new HashSet<>();
+    try {
+      for (AbstractRoute route : _rib.longestPrefixMatch(nextHopIp)) {
+        collectNextHopInterfaces(
+            route,
+            nextHopIp,
+            nextHopInterfaces,
+            new HashSet<>(),
+            1,
+            traversedNetworks);
+      }
+    } catch (BatfishException e) {
+      /*
+       * A route whose own network is encountered while resolving its next-hop IP would have cut
+       * recursion short, so whether the error applies depends on the route.
+       */
+      return NextHopIpResolution.UNCACHEABLE;
+    }
+    return new NextHopIpResolution(intern(nextHopInterfaces), traversedNetworks);
+  }
 }
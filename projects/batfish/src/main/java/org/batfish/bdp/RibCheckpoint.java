@@ -0,0 +1,67 @@
+package org.batfish.bdp;
+
+import java.util.Set;
+import org.batfish.datamodel.BgpAdvertisement;
+
+/**
+ * References to the dependent RIBs and BGP advertisements of a {@link VirtualRouter} at the end of
+ * a single iteration of dependent route computation. Taking a checkpoint copies no routes, since
+ * these structures are replaced rather than modified in subsequent iterations.
+ */
+final class RibCheckpoint {
+
+  private final BgpBestPathRib _bgpBestPathRib;
+
+  private final BgpMultipathRib _bgpMultipathRib;
+
+  private final BgpBestPathRib _ebgpBestPathRib;
+
+  private final BgpMultipathRib _ebgpMultipathRib;
+
+  private final Rib _generatedRib;
+
+  private final BgpBestPathRib _ibgpBestPathRib;
+
+  private final BgpMultipathRib _ibgpMultipathRib;
+
+  private final Rib _mainRib;
+
+  private final OspfExternalType1Rib _ospfExternalType1Rib;
+
+  private final OspfExternalType2Rib _ospfExternalType2Rib;
+
+  private final Set<BgpAdvertisement> _receivedBgpAdvertisements;
+
+  private final Set<BgpAdvertisement> _sentBgpAdvertisements;
+
+  RibCheckpoint(VirtualRouter vr) {
+    _bgpBestPathRib = vr._bgpBestPathRib;
+    _bgpMultipathRib = vr._bgpMultipathRib;
+    _ebgpBestPathRib = vr._ebgpBestPathRib;
+    _ebgpMultipathRib = vr._ebgpMultipathRib;
+    _generatedRib = vr._generatedRib;
+    _ibgpBestPathRib = vr._ibgpBestPathRib;
+    _ibgpMultipathRib = vr._ibgpMultipathRib;
+    _mainRib = vr._mainRib;
+    _ospfExternalType1Rib = vr._ospfExternalType1Rib;
+    _ospfExternalType2Rib = vr._ospfExternalType2Rib;
+    _receivedBgpAdvertisements = vr._receivedBgpAdvertisements;
+    _sentBgpAdvertisements = vr._sentBgpAdvertisements;
+  }
+
+  /** Make the recorded structures the current ones of {@code vr} */
+  void restore(VirtualRouter vr) {
+    vr._bgpBestPathRib = _bgpBestPathRib;
+    vr._bgpMultipathRib = _bgpMultipathRib;
+    vr._ebgpBestPathRib = _ebgpBestPathRib;
+    vr._ebgpMultipathRib = _ebgpMultipathRib;
+    vr._generatedRib = _generatedRib;
+    vr._ibgpBestPathRib = _ibgpBestPathRib;
+    vr._ibgpMultipathRib = _ibgpMultipathRib;
+    vr._mainRib = _mainRib;
+    vr._ospfExternalType1Rib = _ospfExternalType1Rib;
+    vr._ospfExternalType2Rib = _ospfExternalType2Rib;
+    vr._receivedBgpAdvertisements = _receivedBgpAdvertisements;
+    vr._sentBgpAdvertisements = _sentBgpAdvertisements;
+  }
+}
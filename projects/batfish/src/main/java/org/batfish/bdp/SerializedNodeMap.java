@@ -0,0 +1,183 @@
+package org.batfish.bdp;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.batfish.common.BatfishException;
+import org.batfish.common.util.BatfishObjectInputStream;
+import org.batfish.common.util.CompactObjectInputStream;
+import org.batfish.common.util.CompactObjectOutputStream;
+
+/**
+ * A read-only view of the {@link Node}s of a deserialized {@link BdpDataPlane}, in which each node
+ * (with the RIBs and FIBs of all of its VRFs) is held as an independently serialized segment and
+ * only deserialized the first time it is accessed. Questions that touch a handful of nodes thus
+ * never materialize the rest of the data plane. The segment of a node is dropped once the node is
+ * materialized, so no node is held in both forms.
+ */
+final class SerializedNodeMap extends AbstractMap<String, Node> {
+
+  private static boolean isCompact(byte[] segment) {
+    return segment.length >= CompactObjectOutputStream.MAGIC.length
+        && Arrays.equals(
+            Arrays.copyOf(segment, CompactObjectOutputStream.MAGIC.length),
+            CompactObjectOutputStream.MAGIC);
+  }
+
+  /**
+   * Serializes each of the given nodes into its own segment. Nodes that are still held only in
+   * serialized form in the requested format are copied without being deserialized.
+   *
+   * @param compact Whether to write segments in the compact format of {@link
+   *     CompactObjectOutputStream} rather than with plain Java serialization
+   */
+  static SortedMap<String, byte[]> toSegments(Map<String, Node> nodes, boolean compact) {
+    SortedMap<String, byte[]> segments = new TreeMap<>();
+    if (nodes instanceof SerializedNodeMap) {
+      SerializedNodeMap serializedNodes = (SerializedNodeMap) nodes;
+      for (String hostname : serializedNodes._hostnames) {
+        byte[] segment = serializedNodes._segments.get(hostname);
+        segments.put(
+            hostname,
+            segment != null && isCompact(segment) == compact
+                ? segment
+                : serializeNode(serializedNodes.get(hostname), compact));
+      }
+      return segments;
+    }
+    nodes.forEach((hostname, node) -> segments.put(hostname, serializeNode(node, compact)));
+    return segments;
+  }
+
+  private static byte[] serializeNode(Node node, boolean compact) {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos =
+        compact ? new CompactObjectOutputStream(baos) : new ObjectOutputStream(baos)) {
+      oos.writeObject(node);
+    } catch (IOException e) {
+      throw new BatfishException("Failed to serialize data plane node: " + node.getName(), e);
+    }
+    return baos.toByteArray();
+  }
+
+  private final SortedSet<String> _hostnames;
+
+  /**
+   * The nodes that have been deserialized. The cache deserializes each node at most once, and does
+   * so without holding a lock shared with other nodes, so concurrent accesses to different nodes
+   * are not serialized behind each other.
+   */
+  private final LoadingCache<String, Node> _loaded;
+
+  /** The segments of the nodes that have not been deserialized yet */
+  private final ConcurrentMap<String, byte[]> _segments;
+
+  SerializedNodeMap(SortedMap<String, byte[]> segments) {
+    _hostnames = Collections.unmodifiableSortedSet(new TreeSet<>(segments.keySet()));
+    _loaded = CacheBuilder.newBuilder().build(CacheLoader.from(this::deserializeNode));
+    _segments = new ConcurrentHashMap<>(segments);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return _hostnames.contains(key);
+  }
+
+  private Node deserializeNode(String hostname) {
+    byte[] segment = _segments.get(hostname);
+    ClassLoader loader = SerializedNodeMap.class.getClassLoader();
+    Node node;
+    try (ObjectInputStream ois =
+        isCompact(segment)
+            ? new CompactObjectInputStream(new ByteArrayInputStream(segment), loader)
+            : new BatfishObjectInputStream(new ByteArrayInputStream(segment), loader)) {
+      node = (Node) ois.readObject();
+    } catch (IOException | ClassNotFoundException e) {
+      throw new BatfishException("Failed to deserialize data plane node: " + hostname, e);
+    }
+    _segments.remove(hostname);
+    return node;
+  }
+
+  @Override
+  public Set<Entry<String, Node>> entrySet() {
+    return new AbstractSet<Entry<String, Node>>() {
+      @Override
+      public Iterator<Entry<String, Node>> iterator() {
+        Iterator<String> hostnames = _hostnames.iterator();
+        return new Iterator<Entry<String, Node>>() {
+          @Override
+          public boolean hasNext() {
+            return hostnames.hasNext();
+          }
+
+          @Override
+          public Entry<String, Node> next() {
+            String hostname = hostnames.next();
+            return new SimpleImmutableEntry<>(hostname, get(hostname));
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return _hostnames.size();
+      }
+    };
+  }
+
+  @Override
+  public Node get(Object key) {
+    if (!_hostnames.contains(key)) {
+      return null;
+    }
+    try {
+      return _loaded.getUnchecked((String) key);
+    } catch (UncheckedExecutionException e) {
+      // Surface deserialization failures as the BatfishException thrown by deserializeNode
+      Throwables.throwIfUnchecked(e.getCause());
+      throw e;
+    }
+  }
+
+  /** Returns the number of nodes that have been deserialized so far */
+  int getLoadedNodeCount() {
+    return (int) _loaded.size();
+  }
+
+  /** Returns the number of nodes still held only as serialized segments */
+  int getSerializedNodeCount() {
+    return _segments.size();
+  }
+
+  @Override
+  public Set<String> keySet() {
+    return _hostnames;
+  }
+
+  @Override
+  public int size() {
+    return _hostnames.size();
+  }
+}
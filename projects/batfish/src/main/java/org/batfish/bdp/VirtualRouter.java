@@ -2,13 +2,19 @@ package org.batfish.bdp;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.MoreObjects;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NavigableMap;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
@@ -63,8 +69,21 @@ public class VirtualRouter extends ComparableStructure<String> {
 
   transient BgpMultipathRib _bgpMultipathRib;
 
+  /**
+   * Results of propagating each candidate remote route across each BGP session, keyed by the
+   * neighbor prefix of the session. Only maintained for delta-driven BGP propagation.
+   */
+  transient Map<Prefix, Map<BgpCandidateRouteKey, BgpPropagationResult>> _bgpSessionResults;
+
   final Configuration _c;
 
+  /**
+   * Checkpoints of the dependent RIBs at the end of recent iterations of dependent route
+   * computation, keyed by iteration. Only maintained when oscillation recovery resumes from a
+   * checkpoint.
+   */
+  transient NavigableMap<Integer, RibCheckpoint> _checkpoints;
+
   transient ConnectedRib _connectedRib;
 
   transient BgpBestPathRib _ebgpBestPathRib;
@@ -824,6 +843,8 @@ public class VirtualRouter extends ComparableStructure<String> {
   /** Initialize all ribs on this router. All RIBs will be empty */
   @VisibleForTesting
   void initRibs() {
+    _bgpSessionResults = new HashMap<>();
+    _checkpoints = new TreeMap<>();
     _bgpMultipathRib = new BgpMultipathRib(this);
     _connectedRib = new ConnectedRib(this);
     _ebgpMultipathRib = new BgpMultipathRib(this);
@@ -1134,11 +1155,26 @@ public class VirtualRouter extends ComparableStructure<String> {
     return numAdvertisements;
   }
 
+  /**
+   * Propagate BGP routes from the previous iteration's RIBs of each remote BGP speaker into this
+   * router's BGP staging RIBs.
+   *
+   * @param ipOwners Mapping of IPs to the nodes that own them
+   * @param dependentRoutesIterations The current iteration of dependent route computation
+   * @param oscillatingPrefixes Prefixes subject to lockstep propagation during recovery
+   * @param nodes All nodes in the network, keyed by hostname
+   * @param incremental Whether to only process routes whose presence in the remote speaker's
+   *     exported RIBs changed since the previous iteration, reusing the results for all other
+   *     routes. Must be {@code false} if there are oscillating prefixes, since lockstep propagation
+   *     depends on the iteration rather than only on the routes themselves.
+   * @return the number of routes merged into the staging RIBs
+   */
   int propagateBgpRoutes(
       Map<Ip, Set<String>> ipOwners,
       int dependentRoutesIterations,
       SortedSet<Prefix> oscillatingPrefixes,
-      Map<String, Node> nodes) {
+      Map<String, Node> nodes,
+      boolean incremental) {
 
     int numRoutes = 0;
     _receivedBgpAdvertisements = new LinkedHashSet<>();
@@ -1156,7 +1192,9 @@ public class VirtualRouter extends ComparableStructure<String> {
     int ibgpAdminCost =
         RoutingProtocol.IBGP.getDefaultAdministrativeCost(_c.getConfigurationFormat());
 
-    for (BgpNeighbor neighbor : _vrf.getBgpProcess().getNeighbors().values()) {
+    for (Entry<Prefix, BgpNeighbor> e : _vrf.getBgpProcess().getNeighbors().entrySet()) {
+      Prefix neighborPrefix = e.getKey();
+      BgpNeighbor neighbor = e.getValue();
       Ip localIp = neighbor.getLocalIp();
       Set<String> localIpOwners = ipOwners.get(localIp);
       String hostname = _c.getHostname();
@@ -1168,399 +1206,518 @@ public class VirtualRouter extends ComparableStructure<String> {
       if (remoteBgpNeighbor == null) {
         continue;
       }
-      int localAs = neighbor.getLocalAs();
-      int remoteAs = neighbor.getRemoteAs();
       Configuration remoteConfig = remoteBgpNeighbor.getOwner();
       String remoteHostname = remoteConfig.getHostname();
       String remoteVrfName = remoteBgpNeighbor.getVrf();
-      Vrf remoteVrf = remoteConfig.getVrfs().get(remoteVrfName);
       VirtualRouter remoteVirtualRouter =
           nodes.get(remoteHostname)._virtualRouters.get(remoteVrfName);
       RoutingPolicy remoteExportPolicy =
           remoteConfig.getRoutingPolicies().get(remoteBgpNeighbor.getExportPolicy());
-      boolean ebgpSession = localAs != remoteAs;
+      boolean ebgpSession = neighbor.getLocalAs() != neighbor.getRemoteAs();
       BgpMultipathRib targetRib = ebgpSession ? _ebgpStagingRib : _ibgpStagingRib;
-      RoutingProtocol targetProtocol = ebgpSession ? RoutingProtocol.BGP : RoutingProtocol.IBGP;
-      Set<AbstractRoute> remoteCandidateRoutes = Collections.newSetFromMap(new IdentityHashMap<>());
 
-      // Add IGP routes
-      Set<AbstractRoute> activeRemoteRoutes = Collections.newSetFromMap(new IdentityHashMap<>());
-      activeRemoteRoutes.addAll(remoteVirtualRouter._prevMainRib.getRoutes());
-      for (AbstractRoute remoteCandidateRoute : activeRemoteRoutes) {
-        if (remoteCandidateRoute.getProtocol() != RoutingProtocol.BGP
-            && remoteCandidateRoute.getProtocol() != RoutingProtocol.IBGP) {
-          remoteCandidateRoutes.add(remoteCandidateRoute);
+      Collection<BgpPropagationResult> results;
+      if (incremental) {
+        results =
+            propagateBgpRoutesIncrementally(
+                neighborPrefix,
+                neighbor,
+                remoteBgpNeighbor,
+                remoteVirtualRouter,
+                remoteExportPolicy,
+                ebgpAdminCost,
+                ibgpAdminCost);
+      } else {
+        results = new ArrayList<>();
+        for (AbstractRoute remoteRoute :
+            getBgpCandidateRoutes(ebgpSession, neighbor, remoteBgpNeighbor, remoteVirtualRouter)) {
+          BgpPropagationResult result =
+              propagateBgpRoute(
+                  remoteRoute,
+                  neighbor,
+                  remoteBgpNeighbor,
+                  remoteExportPolicy,
+                  ebgpAdminCost,
+                  ibgpAdminCost);
+          if (result == null) {
+            continue;
+          }
+          Prefix prefix = remoteRoute.getNetwork();
+          boolean isOscillatingPrefix = oscillatingPrefixes.contains(prefix);
+          boolean hasAdvertisementPriorityDuringRecovery =
+              hasAdvertisementPriorityDuringRecovery(
+                  remoteRoute,
+                  dependentRoutesIterations,
+                  oscillatingPrefixes,
+                  neighbor,
+                  remoteBgpNeighbor);
+          if (isOscillatingPrefix
+              && !hasAdvertisementPriorityDuringRecovery
+              && !_prevSentBgpAdvertisements.contains(result.getSentAdvertisement())) {
+            continue;
+          }
+          results.add(result);
+        }
+      }
+      for (BgpPropagationResult result : results) {
+        if (result == null) {
+          continue;
+        }
+        _sentBgpAdvertisements.add(result.getSentAdvertisement());
+        BgpRoute receivedRoute = result.getReceivedRoute();
+        if (receivedRoute != null) {
+          if (targetRib.mergeRoute(receivedRoute)) {
+            numRoutes++;
+          }
+          _receivedBgpAdvertisements.add(result.getReceivedAdvertisement());
         }
       }
+    }
+    return numRoutes;
+  }
 
-      /*
-       * bgp advertise-external
-       *
-       * When this is set, add best eBGP path independently of whether
-       * it is preempted by an iBGP or IGP route. Only applicable to
-       * iBGP sessions.
-       */
-      boolean advertiseExternal = !ebgpSession && remoteBgpNeighbor.getAdvertiseExternal();
-      if (advertiseExternal) {
-        remoteCandidateRoutes.addAll(remoteVirtualRouter._prevEbgpBestPathRib.getRoutes());
+  /**
+   * Compute the routes of a remote BGP speaker that are candidates for advertisement across a
+   * session to this router, based on the remote speaker's RIBs from the previous iteration.
+   */
+  private static Set<AbstractRoute> getBgpCandidateRoutes(
+      boolean ebgpSession,
+      BgpNeighbor neighbor,
+      BgpNeighbor remoteBgpNeighbor,
+      VirtualRouter remoteVirtualRouter) {
+    Set<AbstractRoute> remoteCandidateRoutes = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    // Add IGP routes
+    Set<AbstractRoute> activeRemoteRoutes = Collections.newSetFromMap(new IdentityHashMap<>());
+    activeRemoteRoutes.addAll(remoteVirtualRouter._prevMainRib.getRoutes());
+    for (AbstractRoute remoteCandidateRoute : activeRemoteRoutes) {
+      if (remoteCandidateRoute.getProtocol() != RoutingProtocol.BGP
+          && remoteCandidateRoute.getProtocol() != RoutingProtocol.IBGP) {
+        remoteCandidateRoutes.add(remoteCandidateRoute);
       }
+    }
 
-      /*
-       * bgp advertise-inactive
-       *
-       * When this is set, add best BGP path independently of whether
-       * it is preempted by an IGP route. Only applicable to eBGP
-       * sessions.
-       */
-      boolean advertiseInactive = ebgpSession && remoteBgpNeighbor.getAdvertiseInactive();
-      /* Add best bgp paths if they are active, or if advertise-inactive */
-      for (AbstractRoute remoteCandidateRoute :
-          remoteVirtualRouter._prevBgpBestPathRib.getRoutes()) {
-        if (advertiseInactive || activeRemoteRoutes.contains(remoteCandidateRoute)) {
-          remoteCandidateRoutes.add(remoteCandidateRoute);
-        }
+    /*
+     * bgp advertise-external
+     *
+     * When this is set, add best eBGP path independently of whether
+     * it is preempted by an iBGP or IGP route. Only applicable to
+     * iBGP sessions.
+     */
+    boolean advertiseExternal = !ebgpSession && remoteBgpNeighbor.getAdvertiseExternal();
+    if (advertiseExternal) {
+      remoteCandidateRoutes.addAll(remoteVirtualRouter._prevEbgpBestPathRib.getRoutes());
+    }
+
+    /*
+     * bgp advertise-inactive
+     *
+     * When this is set, add best BGP path independently of whether
+     * it is preempted by an IGP route. Only applicable to eBGP
+     * sessions.
+     */
+    boolean advertiseInactive = ebgpSession && remoteBgpNeighbor.getAdvertiseInactive();
+    /* Add best bgp paths if they are active, or if advertise-inactive */
+    for (AbstractRoute remoteCandidateRoute :
+        remoteVirtualRouter._prevBgpBestPathRib.getRoutes()) {
+      if (advertiseInactive || activeRemoteRoutes.contains(remoteCandidateRoute)) {
+        remoteCandidateRoutes.add(remoteCandidateRoute);
       }
+    }
 
-      /* Add all bgp paths if additional-paths active for this session */
-      boolean additionalPaths =
-          !ebgpSession
-              && neighbor.getAdditionalPathsReceive()
-              && remoteBgpNeighbor.getAdditionalPathsSend()
-              && remoteBgpNeighbor.getAdditionalPathsSelectAll();
-      if (additionalPaths) {
-        for (AbstractRoute remoteCandidateRoute :
-            remoteVirtualRouter._prevBgpMultipathRib.getRoutes()) {
-          remoteCandidateRoutes.add(remoteCandidateRoute);
-        }
+    /* Add all bgp paths if additional-paths active for this session */
+    boolean additionalPaths =
+        !ebgpSession
+            && neighbor.getAdditionalPathsReceive()
+            && remoteBgpNeighbor.getAdditionalPathsSend()
+            && remoteBgpNeighbor.getAdditionalPathsSelectAll();
+    if (additionalPaths) {
+      for (AbstractRoute remoteCandidateRoute :
+          remoteVirtualRouter._prevBgpMultipathRib.getRoutes()) {
+        remoteCandidateRoutes.add(remoteCandidateRoute);
       }
-      for (AbstractRoute remoteRoute : remoteCandidateRoutes) {
-        BgpRoute.Builder transformedOutgoingRouteBuilder = new BgpRoute.Builder();
-        RoutingProtocol remoteRouteProtocol = remoteRoute.getProtocol();
-        boolean remoteRouteIsBgp =
-            remoteRouteProtocol == RoutingProtocol.IBGP
-                || remoteRouteProtocol == RoutingProtocol.BGP;
+    }
+    return remoteCandidateRoutes;
+  }
 
-        // originatorIP
-        Ip originatorIp;
-        if (!ebgpSession && remoteRouteProtocol.equals(RoutingProtocol.IBGP)) {
-          BgpRoute bgpRemoteRoute = (BgpRoute) remoteRoute;
-          originatorIp = bgpRemoteRoute.getOriginatorIp();
-        } else {
-          originatorIp = remoteVrf.getBgpProcess().getRouterId();
-        }
-        transformedOutgoingRouteBuilder.setOriginatorIp(originatorIp);
+  /**
+   * Delta-driven variant of BGP route propagation for a single session. The results of
+   * propagating each candidate route are retained across iterations, so that only candidate routes
+   * that were added since the previous iteration are run through the export and import policies,
+   * and results for withdrawn candidate routes are dropped. Candidate routes are matched by {@link
+   * BgpCandidateRouteKey}, so a retained result is only reused for a route that propagates the
+   * same way.
+   *
+   * @return the propagation results for all current candidate routes of the session. Entries are
+   *     {@code null} for routes that are not sent across the session.
+   */
+  private Collection<BgpPropagationResult> propagateBgpRoutesIncrementally(
+      Prefix neighborPrefix,
+      BgpNeighbor neighbor,
+      BgpNeighbor remoteBgpNeighbor,
+      VirtualRouter remoteVirtualRouter,
+      RoutingPolicy remoteExportPolicy,
+      int ebgpAdminCost,
+      int ibgpAdminCost) {
+    Map<BgpCandidateRouteKey, BgpPropagationResult> sessionResults =
+        _bgpSessionResults.getOrDefault(neighborPrefix, Collections.emptyMap());
+    Map<BgpCandidateRouteKey, BgpPropagationResult> newSessionResults = new LinkedHashMap<>();
+    boolean ebgpSession = neighbor.getLocalAs() != neighbor.getRemoteAs();
+    for (AbstractRoute candidateRoute :
+        getBgpCandidateRoutes(ebgpSession, neighbor, remoteBgpNeighbor, remoteVirtualRouter)) {
+      BgpCandidateRouteKey key = new BgpCandidateRouteKey(candidateRoute);
+      if (newSessionResults.containsKey(key)) {
+        continue;
+      }
+      // results are null for routes that are not sent, so test for presence explicitly
+      BgpPropagationResult result =
+          sessionResults.containsKey(key)
+              ? sessionResults.get(key)
+              : propagateBgpRoute(
+                  candidateRoute,
+                  neighbor,
+                  remoteBgpNeighbor,
+                  remoteExportPolicy,
+                  ebgpAdminCost,
+                  ibgpAdminCost);
+      newSessionResults.put(key, result);
+    }
+    _bgpSessionResults.put(neighborPrefix, newSessionResults);
+    return newSessionResults.values();
+  }
 
-        // clusterList, receivedFromRouteReflectorClient, (originType
-        // for bgp remote route)
-        if (remoteRouteIsBgp) {
-          BgpRoute bgpRemoteRoute = (BgpRoute) remoteRoute;
-          transformedOutgoingRouteBuilder.setOriginType(bgpRemoteRoute.getOriginType());
-          if (ebgpSession
-              && bgpRemoteRoute.getAsPath().containsAs(remoteBgpNeighbor.getRemoteAs())
-              && !remoteBgpNeighbor.getAllowRemoteAsOut()) {
-            // skip routes containing peer's AS unless
-            // disable-peer-as-check (getAllowRemoteAsOut) is set
-            continue;
-          }
-          /*
-           * route reflection: reflect everything received from
-           * clients to clients and non-clients. reflect everything
-           * received from non-clients to clients. Do not reflect to
-           * originator
-           */
+  /**
+   * Propagate a single route of a remote BGP speaker across a session to this router, applying the
+   * remote export policy and the local import policy.
+   *
+   * @return the sent advertisement, along with the received route and advertisement if the route
+   *     was accepted by the import policy; or {@code null} if the route is not sent across the
+   *     session at all
+   */
+  @Nullable
+  private BgpPropagationResult propagateBgpRoute(
+      AbstractRoute remoteRoute,
+      BgpNeighbor neighbor,
+      BgpNeighbor remoteBgpNeighbor,
+      RoutingPolicy remoteExportPolicy,
+      int ebgpAdminCost,
+      int ibgpAdminCost) {
+    Ip localIp = neighbor.getLocalIp();
+    String hostname = _c.getHostname();
+    int remoteAs = neighbor.getRemoteAs();
+    Configuration remoteConfig = remoteBgpNeighbor.getOwner();
+    String remoteHostname = remoteConfig.getHostname();
+    String remoteVrfName = remoteBgpNeighbor.getVrf();
+    Vrf remoteVrf = remoteConfig.getVrfs().get(remoteVrfName);
+    boolean ebgpSession = neighbor.getLocalAs() != remoteAs;
+    RoutingProtocol targetProtocol = ebgpSession ? RoutingProtocol.BGP : RoutingProtocol.IBGP;
+    BgpRoute.Builder transformedOutgoingRouteBuilder = new BgpRoute.Builder();
+    RoutingProtocol remoteRouteProtocol = remoteRoute.getProtocol();
+    boolean remoteRouteIsBgp =
+        remoteRouteProtocol == RoutingProtocol.IBGP
+            || remoteRouteProtocol == RoutingProtocol.BGP;
+
+    // originatorIP
+    Ip originatorIp;
+    if (!ebgpSession && remoteRouteProtocol.equals(RoutingProtocol.IBGP)) {
+      BgpRoute bgpRemoteRoute = (BgpRoute) remoteRoute;
+      originatorIp = bgpRemoteRoute.getOriginatorIp();
+    } else {
+      originatorIp = remoteVrf.getBgpProcess().getRouterId();
+    }
+    transformedOutgoingRouteBuilder.setOriginatorIp(originatorIp);
+
+    // clusterList, receivedFromRouteReflectorClient, (originType
+    // for bgp remote route)
+    if (remoteRouteIsBgp) {
+      BgpRoute bgpRemoteRoute = (BgpRoute) remoteRoute;
+      transformedOutgoingRouteBuilder.setOriginType(bgpRemoteRoute.getOriginType());
+      if (ebgpSession
+          && bgpRemoteRoute.getAsPath().containsAs(remoteBgpNeighbor.getRemoteAs())
+          && !remoteBgpNeighbor.getAllowRemoteAsOut()) {
+        // skip routes containing peer's AS unless
+        // disable-peer-as-check (getAllowRemoteAsOut) is set
+        return null;
+      }
+      /*
+       * route reflection: reflect everything received from
+       * clients to clients and non-clients. reflect everything
+       * received from non-clients to clients. Do not reflect to
+       * originator
+       */
 
-          Ip remoteOriginatorIp = bgpRemoteRoute.getOriginatorIp();
-          /*
-           *  iBGP speaker should not send out routes to iBGP neighbor whose router-id is
-           *  same as originator id of advertisement
-           */
-          if (!ebgpSession
-              && remoteOriginatorIp != null
-              && _vrf.getBgpProcess().getRouterId().equals(remoteOriginatorIp)) {
-            continue;
-          }
-          if (remoteRouteProtocol.equals(RoutingProtocol.IBGP) && !ebgpSession) {
-            boolean remoteRouteReceivedFromRouteReflectorClient =
-                bgpRemoteRoute.getReceivedFromRouteReflectorClient();
-            boolean sendingToRouteReflectorClient = remoteBgpNeighbor.getRouteReflectorClient();
-            boolean newRouteReceivedFromRouteReflectorClient = neighbor.getRouteReflectorClient();
-            transformedOutgoingRouteBuilder.setReceivedFromRouteReflectorClient(
-                newRouteReceivedFromRouteReflectorClient);
-            transformedOutgoingRouteBuilder
-                .getClusterList()
-                .addAll(bgpRemoteRoute.getClusterList());
-            if (!remoteRouteReceivedFromRouteReflectorClient && !sendingToRouteReflectorClient) {
-              continue;
-            }
-            if (sendingToRouteReflectorClient) {
-              // sender adds its local cluster id to clusterlist of
-              // new route
-              transformedOutgoingRouteBuilder
-                  .getClusterList()
-                  .add(remoteBgpNeighbor.getClusterId());
-            }
-            if (transformedOutgoingRouteBuilder
-                .getClusterList()
-                .contains(neighbor.getClusterId())) {
-              // receiver will reject new route if it contains its
-              // local cluster id
-              continue;
-            }
-          }
+      Ip remoteOriginatorIp = bgpRemoteRoute.getOriginatorIp();
+      /*
+       *  iBGP speaker should not send out routes to iBGP neighbor whose router-id is
+       *  same as originator id of advertisement
+       */
+      if (!ebgpSession
+          && remoteOriginatorIp != null
+          && _vrf.getBgpProcess().getRouterId().equals(remoteOriginatorIp)) {
+        return null;
+      }
+      if (remoteRouteProtocol.equals(RoutingProtocol.IBGP) && !ebgpSession) {
+        boolean remoteRouteReceivedFromRouteReflectorClient =
+            bgpRemoteRoute.getReceivedFromRouteReflectorClient();
+        boolean sendingToRouteReflectorClient = remoteBgpNeighbor.getRouteReflectorClient();
+        boolean newRouteReceivedFromRouteReflectorClient = neighbor.getRouteReflectorClient();
+        transformedOutgoingRouteBuilder.setReceivedFromRouteReflectorClient(
+            newRouteReceivedFromRouteReflectorClient);
+        transformedOutgoingRouteBuilder
+            .getClusterList()
+            .addAll(bgpRemoteRoute.getClusterList());
+        if (!remoteRouteReceivedFromRouteReflectorClient && !sendingToRouteReflectorClient) {
+          return null;
         }
-
-        // Outgoing asPath
-        // Outgoing communities
-        if (remoteRouteIsBgp) {
-          BgpRoute bgpRemoteRoute = (BgpRoute) remoteRoute;
-          transformedOutgoingRouteBuilder.setAsPath(bgpRemoteRoute.getAsPath().getAsSets());
-          if (remoteBgpNeighbor.getSendCommunity()) {
-            transformedOutgoingRouteBuilder
-                .getCommunities()
-                .addAll(bgpRemoteRoute.getCommunities());
-          }
+        if (sendingToRouteReflectorClient) {
+          // sender adds its local cluster id to clusterlist of
+          // new route
+          transformedOutgoingRouteBuilder
+              .getClusterList()
+              .add(remoteBgpNeighbor.getClusterId());
         }
-        if (ebgpSession) {
-          SortedSet<Integer> newAsPathElement = new TreeSet<>();
-          newAsPathElement.add(remoteAs);
-          transformedOutgoingRouteBuilder.getAsPath().add(0, newAsPathElement);
+        if (transformedOutgoingRouteBuilder
+            .getClusterList()
+            .contains(neighbor.getClusterId())) {
+          // receiver will reject new route if it contains its
+          // local cluster id
+          return null;
         }
+      }
+    }
 
-        // Outgoing protocol
-        transformedOutgoingRouteBuilder.setProtocol(targetProtocol);
-        transformedOutgoingRouteBuilder.setNetwork(remoteRoute.getNetwork());
+    // Outgoing asPath
+    // Outgoing communities
+    if (remoteRouteIsBgp) {
+      BgpRoute bgpRemoteRoute = (BgpRoute) remoteRoute;
+      transformedOutgoingRouteBuilder.setAsPath(bgpRemoteRoute.getAsPath().getAsSets());
+      if (remoteBgpNeighbor.getSendCommunity()) {
+        transformedOutgoingRouteBuilder
+            .getCommunities()
+            .addAll(bgpRemoteRoute.getCommunities());
+      }
+    }
+    if (ebgpSession) {
+      SortedSet<Integer> newAsPathElement = new TreeSet<>();
+      newAsPathElement.add(remoteAs);
+      transformedOutgoingRouteBuilder.getAsPath().add(0, newAsPathElement);
+    }
 
-        // Outgoing metric
-        if (remoteRouteIsBgp) {
-          transformedOutgoingRouteBuilder.setMetric(remoteRoute.getMetric());
-        }
+    // Outgoing protocol
+    transformedOutgoingRouteBuilder.setProtocol(targetProtocol);
+    transformedOutgoingRouteBuilder.setNetwork(remoteRoute.getNetwork());
 
-        // Outgoing nextHopIp
-        // Outgoing localPreference
-        Ip nextHopIp;
-        int localPreference;
-        if (ebgpSession || !remoteRouteIsBgp) {
-          nextHopIp = remoteBgpNeighbor.getLocalIp();
-          localPreference = BgpRoute.DEFAULT_LOCAL_PREFERENCE;
-        } else {
-          nextHopIp = remoteRoute.getNextHopIp();
-          BgpRoute remoteIbgpRoute = (BgpRoute) remoteRoute;
-          localPreference = remoteIbgpRoute.getLocalPreference();
-        }
-        if (nextHopIp.equals(Route.UNSET_ROUTE_NEXT_HOP_IP)) {
-          // should only happen for ibgp
-          String nextHopInterface = remoteRoute.getNextHopInterface();
-          Prefix nextHopPrefix = remoteVrf.getInterfaces().get(nextHopInterface).getPrefix();
-          if (nextHopPrefix == null) {
-            throw new BatfishException("remote route's nextHopInterface has no address");
-          }
-          nextHopIp = nextHopPrefix.getAddress();
-        }
-        transformedOutgoingRouteBuilder.setNextHopIp(nextHopIp);
-        transformedOutgoingRouteBuilder.setLocalPreference(localPreference);
+    // Outgoing metric
+    if (remoteRouteIsBgp) {
+      transformedOutgoingRouteBuilder.setMetric(remoteRoute.getMetric());
+    }
 
-        // Outgoing srcProtocol
-        transformedOutgoingRouteBuilder.setSrcProtocol(remoteRoute.getProtocol());
+    // Outgoing nextHopIp
+    // Outgoing localPreference
+    Ip nextHopIp;
+    int localPreference;
+    if (ebgpSession || !remoteRouteIsBgp) {
+      nextHopIp = remoteBgpNeighbor.getLocalIp();
+      localPreference = BgpRoute.DEFAULT_LOCAL_PREFERENCE;
+    } else {
+      nextHopIp = remoteRoute.getNextHopIp();
+      BgpRoute remoteIbgpRoute = (BgpRoute) remoteRoute;
+      localPreference = remoteIbgpRoute.getLocalPreference();
+    }
+    if (nextHopIp.equals(Route.UNSET_ROUTE_NEXT_HOP_IP)) {
+      // should only happen for ibgp
+      String nextHopInterface = remoteRoute.getNextHopInterface();
+      Prefix nextHopPrefix = remoteVrf.getInterfaces().get(nextHopInterface).getPrefix();
+      if (nextHopPrefix == null) {
+        throw new BatfishException("remote route's nextHopInterface has no address");
+      }
+      nextHopIp = nextHopPrefix.getAddress();
+    }
+    transformedOutgoingRouteBuilder.setNextHopIp(nextHopIp);
+    transformedOutgoingRouteBuilder.setLocalPreference(localPreference);
 
-        /*
-         * CREATE OUTGOING ROUTE
-         */
-        boolean acceptOutgoing =
-            remoteExportPolicy.process(
-                remoteRoute,
-                transformedOutgoingRouteBuilder,
-                localIp,
-                remoteVrfName,
-                Direction.OUT);
-        if (acceptOutgoing) {
-          BgpRoute transformedOutgoingRoute = transformedOutgoingRouteBuilder.build();
-          // Record sent advertisement
-          BgpAdvertisementType sentType =
-              ebgpSession ? BgpAdvertisementType.EBGP_SENT : BgpAdvertisementType.IBGP_SENT;
-          Ip sentOriginatorIp = transformedOutgoingRoute.getOriginatorIp();
-          SortedSet<Long> sentClusterList =
-              new TreeSet<>(transformedOutgoingRoute.getClusterList());
-          boolean sentReceivedFromRouteReflectorClient =
-              transformedOutgoingRoute.getReceivedFromRouteReflectorClient();
-          AsPath sentAsPath = transformedOutgoingRoute.getAsPath();
-          SortedSet<Long> sentCommunities =
-              new TreeSet<>(transformedOutgoingRoute.getCommunities());
-          Prefix sentNetwork = remoteRoute.getNetwork();
-          Ip sentNextHopIp;
-          String sentSrcNode = remoteHostname;
-          String sentSrcVrf = remoteVrfName;
-          Ip sentSrcIp = remoteBgpNeighbor.getLocalIp();
-          String sentDstNode = hostname;
-          String sentDstVrf = _vrf.getName();
-          Ip sentDstIp = neighbor.getLocalIp();
-          int sentWeight = -1;
-          if (ebgpSession) {
-            sentNextHopIp = nextHopIp;
-          } else {
-            sentNextHopIp = transformedOutgoingRoute.getNextHopIp();
-          }
-          int sentLocalPreference = transformedOutgoingRoute.getLocalPreference();
-          long sentMed = transformedOutgoingRoute.getMetric();
-          OriginType sentOriginType = transformedOutgoingRoute.getOriginType();
-          RoutingProtocol sentSrcProtocol = targetProtocol;
-          BgpRoute.Builder transformedIncomingRouteBuilder = new BgpRoute.Builder();
+    // Outgoing srcProtocol
+    transformedOutgoingRouteBuilder.setSrcProtocol(remoteRoute.getProtocol());
 
-          // Incoming originatorIp
-          transformedIncomingRouteBuilder.setOriginatorIp(sentOriginatorIp);
+    /*
+     * CREATE OUTGOING ROUTE
+     */
+    boolean acceptOutgoing =
+        remoteExportPolicy.process(
+            remoteRoute,
+            transformedOutgoingRouteBuilder,
+            localIp,
+            remoteVrfName,
+            Direction.OUT);
+    if (!acceptOutgoing) {
+      return null;
+    }
+    BgpRoute transformedOutgoingRoute = transformedOutgoingRouteBuilder.build();
+    // Record sent advertisement
+    BgpAdvertisementType sentType =
+        ebgpSession ? BgpAdvertisementType.EBGP_SENT : BgpAdvertisementType.IBGP_SENT;
+    Ip sentOriginatorIp = transformedOutgoingRoute.getOriginatorIp();
+    SortedSet<Long> sentClusterList =
+        new TreeSet<>(transformedOutgoingRoute.getClusterList());
+    boolean sentReceivedFromRouteReflectorClient =
+        transformedOutgoingRoute.getReceivedFromRouteReflectorClient();
+    AsPath sentAsPath = transformedOutgoingRoute.getAsPath();
+    SortedSet<Long> sentCommunities =
+        new TreeSet<>(transformedOutgoingRoute.getCommunities());
+    Prefix sentNetwork = remoteRoute.getNetwork();
+    Ip sentNextHopIp;
+    String sentSrcNode = remoteHostname;
+    String sentSrcVrf = remoteVrfName;
+    Ip sentSrcIp = remoteBgpNeighbor.getLocalIp();
+    String sentDstNode = hostname;
+    String sentDstVrf = _vrf.getName();
+    Ip sentDstIp = neighbor.getLocalIp();
+    int sentWeight = -1;
+    if (ebgpSession) {
+      sentNextHopIp = nextHopIp;
+    } else {
+      sentNextHopIp = transformedOutgoingRoute.getNextHopIp();
+    }
+    int sentLocalPreference = transformedOutgoingRoute.getLocalPreference();
+    long sentMed = transformedOutgoingRoute.getMetric();
+    OriginType sentOriginType = transformedOutgoingRoute.getOriginType();
+    RoutingProtocol sentSrcProtocol = targetProtocol;
+    BgpRoute.Builder transformedIncomingRouteBuilder = new BgpRoute.Builder();
 
-          // Incoming clusterList
-          transformedIncomingRouteBuilder.getClusterList().addAll(sentClusterList);
+    // Incoming originatorIp
+    transformedIncomingRouteBuilder.setOriginatorIp(sentOriginatorIp);
 
-          // Incoming receivedFromRouteReflectorClient
-          transformedIncomingRouteBuilder.setReceivedFromRouteReflectorClient(
-              sentReceivedFromRouteReflectorClient);
+    // Incoming clusterList
+    transformedIncomingRouteBuilder.getClusterList().addAll(sentClusterList);
 
-          // Incoming asPath
-          transformedIncomingRouteBuilder.setAsPath(sentAsPath.getAsSets());
+    // Incoming receivedFromRouteReflectorClient
+    transformedIncomingRouteBuilder.setReceivedFromRouteReflectorClient(
+        sentReceivedFromRouteReflectorClient);
 
-          // Incoming communities
-          transformedIncomingRouteBuilder.getCommunities().addAll(sentCommunities);
+    // Incoming asPath
+    transformedIncomingRouteBuilder.setAsPath(sentAsPath.getAsSets());
 
-          // Incoming protocol
-          transformedIncomingRouteBuilder.setProtocol(targetProtocol);
+    // Incoming communities
+    transformedIncomingRouteBuilder.getCommunities().addAll(sentCommunities);
 
-          // Incoming network
-          transformedIncomingRouteBuilder.setNetwork(sentNetwork);
+    // Incoming protocol
+    transformedIncomingRouteBuilder.setProtocol(targetProtocol);
 
-          // Incoming nextHopIp
-          transformedIncomingRouteBuilder.setNextHopIp(sentNextHopIp);
+    // Incoming network
+    transformedIncomingRouteBuilder.setNetwork(sentNetwork);
 
-          // Incoming localPreference
-          transformedIncomingRouteBuilder.setLocalPreference(sentLocalPreference);
+    // Incoming nextHopIp
+    transformedIncomingRouteBuilder.setNextHopIp(sentNextHopIp);
 
-          // Incoming admin
-          int admin = ebgpSession ? ebgpAdminCost : ibgpAdminCost;
-          transformedIncomingRouteBuilder.setAdmin(admin);
+    // Incoming localPreference
+    transformedIncomingRouteBuilder.setLocalPreference(sentLocalPreference);
 
-          // Incoming metric
-          transformedIncomingRouteBuilder.setMetric(sentMed);
+    // Incoming admin
+    int admin = ebgpSession ? ebgpAdminCost : ibgpAdminCost;
+    transformedIncomingRouteBuilder.setAdmin(admin);
 
-          // Incoming originType
-          transformedIncomingRouteBuilder.setOriginType(sentOriginType);
+    // Incoming metric
+    transformedIncomingRouteBuilder.setMetric(sentMed);
 
-          // Incoming srcProtocol
-          transformedIncomingRouteBuilder.setSrcProtocol(sentSrcProtocol);
-          String importPolicyName = neighbor.getImportPolicy();
-          // TODO: ensure there is always an import policy
+    // Incoming originType
+    transformedIncomingRouteBuilder.setOriginType(sentOriginType);
 
-          if (transformedOutgoingRoute.getAsPath().containsAs(neighbor.getLocalAs())
-              && !neighbor.getAllowLocalAsIn()) {
-            // skip routes containing peer's AS unless
-            // disable-peer-as-check (getAllowRemoteAsOut) is set
-            continue;
-          }
+    // Incoming srcProtocol
+    transformedIncomingRouteBuilder.setSrcProtocol(sentSrcProtocol);
+    String importPolicyName = neighbor.getImportPolicy();
+    // TODO: ensure there is always an import policy
 
-          BgpAdvertisement sentAdvert =
-              new BgpAdvertisement(
-                  sentType,
-                  sentNetwork,
-                  sentNextHopIp,
-                  sentSrcNode,
-                  sentSrcVrf,
-                  sentSrcIp,
-                  sentDstNode,
-                  sentDstVrf,
-                  sentDstIp,
-                  sentSrcProtocol,
-                  sentOriginType,
-                  sentLocalPreference,
-                  sentMed,
-                  sentOriginatorIp,
-                  sentAsPath,
-                  new TreeSet<>(sentCommunities),
-                  new TreeSet<>(sentClusterList),
-                  sentWeight);
+    if (transformedOutgoingRoute.getAsPath().containsAs(neighbor.getLocalAs())
+        && !neighbor.getAllowLocalAsIn()) {
+      // skip routes containing peer's AS unless
+      // disable-peer-as-check (getAllowRemoteAsOut) is set
+      return null;
+    }
 
-          Prefix prefix = remoteRoute.getNetwork();
-          boolean isOscillatingPrefix = oscillatingPrefixes.contains(prefix);
-          boolean hasAdvertisementPriorityDuringRecovery =
-              hasAdvertisementPriorityDuringRecovery(
-                  remoteRoute,
-                  dependentRoutesIterations,
-                  oscillatingPrefixes,
-                  neighbor,
-                  remoteBgpNeighbor);
-          if (isOscillatingPrefix
-              && !hasAdvertisementPriorityDuringRecovery
-              && !_prevSentBgpAdvertisements.contains(sentAdvert)) {
-            continue;
-          }
-          _sentBgpAdvertisements.add(sentAdvert);
+    BgpAdvertisement sentAdvert =
+        new BgpAdvertisement(
+            sentType,
+            sentNetwork,
+            sentNextHopIp,
+            sentSrcNode,
+            sentSrcVrf,
+            sentSrcIp,
+            sentDstNode,
+            sentDstVrf,
+            sentDstIp,
+            sentSrcProtocol,
+            sentOriginType,
+            sentLocalPreference,
+            sentMed,
+            sentOriginatorIp,
+            sentAsPath,
+            new TreeSet<>(sentCommunities),
+            new TreeSet<>(sentClusterList),
+            sentWeight);
 
-          /*
-           * CREATE INCOMING ROUTE
-           */
-          boolean acceptIncoming = true;
-          if (importPolicyName != null) {
-            RoutingPolicy importPolicy = _c.getRoutingPolicies().get(importPolicyName);
-            if (importPolicy != null) {
-              acceptIncoming =
-                  importPolicy.process(
-                      transformedOutgoingRoute,
-                      transformedIncomingRouteBuilder,
-                      remoteBgpNeighbor.getLocalIp(),
-                      _key,
-                      Direction.IN);
-            }
-          }
-          if (acceptIncoming) {
-            BgpRoute transformedIncomingRoute = transformedIncomingRouteBuilder.build();
-            BgpAdvertisementType receivedType =
-                ebgpSession
-                    ? BgpAdvertisementType.EBGP_RECEIVED
-                    : BgpAdvertisementType.IBGP_RECEIVED;
-            Prefix receivedNetwork = sentNetwork;
-            Ip receivedNextHopIp = sentNextHopIp;
-            String receivedSrcNode = sentSrcNode;
-            String receivedSrcVrf = sentSrcVrf;
-            Ip receivedSrcIp = sentSrcIp;
-            String receivedDstNode = sentDstNode;
-            String receivedDstVrf = sentDstVrf;
-            Ip receivedDstIp = sentDstIp;
-            RoutingProtocol receivedSrcProtocol = sentSrcProtocol;
-            OriginType receivedOriginType = transformedIncomingRoute.getOriginType();
-            int receivedLocalPreference = transformedIncomingRoute.getLocalPreference();
-            long receivedMed = transformedIncomingRoute.getMetric();
-            Ip receivedOriginatorIp = sentOriginatorIp;
-            AsPath receivedAsPath = transformedIncomingRoute.getAsPath();
-            SortedSet<Long> receivedCommunities =
-                new TreeSet<>(transformedIncomingRoute.getCommunities());
-            SortedSet<Long> receivedClusterList = new TreeSet<>(sentClusterList);
-            int receivedWeight = transformedIncomingRoute.getWeight();
-            BgpAdvertisement receivedAdvert =
-                new BgpAdvertisement(
-                    receivedType,
-                    receivedNetwork,
-                    receivedNextHopIp,
-                    receivedSrcNode,
-                    receivedSrcVrf,
-                    receivedSrcIp,
-                    receivedDstNode,
-                    receivedDstVrf,
-                    receivedDstIp,
-                    receivedSrcProtocol,
-                    receivedOriginType,
-                    receivedLocalPreference,
-                    receivedMed,
-                    receivedOriginatorIp,
-                    receivedAsPath,
-                    new TreeSet<>(receivedCommunities),
-                    new TreeSet<>(receivedClusterList),
-                    receivedWeight);
-            if (targetRib.mergeRoute(transformedIncomingRoute)) {
-              numRoutes++;
-            }
-            _receivedBgpAdvertisements.add(receivedAdvert);
-          }
-        }
+    /*
+     * CREATE INCOMING ROUTE
+     */
+    boolean acceptIncoming = true;
+    if (importPolicyName != null) {
+      RoutingPolicy importPolicy = _c.getRoutingPolicies().get(importPolicyName);
+      if (importPolicy != null) {
+        acceptIncoming =
+            importPolicy.process(
+                transformedOutgoingRoute,
+                transformedIncomingRouteBuilder,
+                remoteBgpNeighbor.getLocalIp(),
+                _key,
+                Direction.IN);
       }
     }
-    return numRoutes;
+    if (!acceptIncoming) {
+      return new BgpPropagationResult(sentAdvert, null, null);
+    }
+    BgpRoute transformedIncomingRoute = transformedIncomingRouteBuilder.build();
+    BgpAdvertisementType receivedType =
+        ebgpSession
+            ? BgpAdvertisementType.EBGP_RECEIVED
+            : BgpAdvertisementType.IBGP_RECEIVED;
+    Prefix receivedNetwork = sentNetwork;
+    Ip receivedNextHopIp = sentNextHopIp;
+    String receivedSrcNode = sentSrcNode;
+    String receivedSrcVrf = sentSrcVrf;
+    Ip receivedSrcIp = sentSrcIp;
+    String receivedDstNode = sentDstNode;
+    String receivedDstVrf = sentDstVrf;
+    Ip receivedDstIp = sentDstIp;
+    RoutingProtocol receivedSrcProtocol = sentSrcProtocol;
+    OriginType receivedOriginType = transformedIncomingRoute.getOriginType();
+    int receivedLocalPreference = transformedIncomingRoute.getLocalPreference();
+    long receivedMed = transformedIncomingRoute.getMetric();
+    Ip receivedOriginatorIp = sentOriginatorIp;
+    AsPath receivedAsPath = transformedIncomingRoute.getAsPath();
+    SortedSet<Long> receivedCommunities =
+        new TreeSet<>(transformedIncomingRoute.getCommunities());
+    SortedSet<Long> receivedClusterList = new TreeSet<>(sentClusterList);
+    int receivedWeight = transformedIncomingRoute.getWeight();
+    BgpAdvertisement receivedAdvert =
+        new BgpAdvertisement(
+            receivedType,
+            receivedNetwork,
+            receivedNextHopIp,
+            receivedSrcNode,
+            receivedSrcVrf,
+            receivedSrcIp,
+            receivedDstNode,
+            receivedDstVrf,
+            receivedDstIp,
+            receivedSrcProtocol,
+            receivedOriginType,
+            receivedLocalPreference,
+            receivedMed,
+            receivedOriginatorIp,
+            receivedAsPath,
+            new TreeSet<>(receivedCommunities),
+            new TreeSet<>(receivedClusterList),
+            receivedWeight);
+    return new BgpPropagationResult(sentAdvert, transformedIncomingRoute, receivedAdvert);
   }
 
   public boolean propagateOspfExternalRoutes(Map<String, Node> nodes, Topology topology) {
@@ -2065,6 +2222,34 @@ public class VirtualRouter extends ComparableStructure<String> {
     importRib(_ibgpMultipathRib, _baseIbgpRib);
   }
 
+  /**
+   * Record a checkpoint of the dependent RIBs computed in the given iteration, discarding the
+   * checkpoints of the oldest iterations beyond {@code maxCheckpoints}.
+   */
+  void saveCheckpoint(int iteration, int maxCheckpoints) {
+    _checkpoints.put(iteration, new RibCheckpoint(this));
+    while (_checkpoints.size() > maxCheckpoints) {
+      _checkpoints.pollFirstEntry();
+    }
+  }
+
+  /**
+   * Restore the dependent RIBs computed in the given iteration, discarding the checkpoints of all
+   * later iterations.
+   *
+   * @return false if no checkpoint of the given iteration was retained, in which case the RIBs are
+   *     left untouched
+   */
+  boolean restoreCheckpoint(int iteration) {
+    RibCheckpoint checkpoint = _checkpoints.get(iteration);
+    if (checkpoint == null) {
+      return false;
+    }
+    checkpoint.restore(this);
+    _checkpoints.tailMap(iteration, false).clear();
+    return true;
+  }
+
   void reinitRibsNewIteration() {
     /*
      * RIBs not read from can just be re-initialized
@@ -2096,6 +2281,19 @@ public class VirtualRouter extends ComparableStructure<String> {
     importRib(_ripRib, _ripInternalRib);
   }
 
+  /**
+   * Returns a 64-bit hash of the routes in the main RIB and OSPF-external RIBs of this virtual
+   * router, in constant time. The RIB fingerprints are mixed with the identity of the router and of
+   * each RIB, so that a route moving between routers or RIBs changes the sum of the fingerprints of
+   * all virtual routers.
+   */
+  long computeIterationFingerprint() {
+    long routerId = 31L * _c.getHostname().hashCode() + _vrf.getName().hashCode();
+    return AbstractRib.mix(routerId ^ _mainRib.getFingerprint())
+        + AbstractRib.mix((routerId + 1) ^ _ospfExternalType1Rib.getFingerprint())
+        + AbstractRib.mix((routerId + 2) ^ _ospfExternalType2Rib.getFingerprint());
+  }
+
   /**
    * Compare main RIB and OSPF-external RIBs to their respective previous versions.
    *
@@ -0,0 +1,148 @@
+package org.batfish.bdp;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the phases of data plane computation on a dedicated {@link ForkJoinPool}, with one task per
+ * virtual router rather than per node, so that idle workers can steal the VRFs of a heavily loaded
+ * node. Also accumulates per-phase statistics of how long the slowest virtual router held up the
+ * rest.
+ */
+final class VirtualRouterExecutor implements AutoCloseable {
+
+  private static final class PhaseStatistics {
+
+    private long _busyNanos;
+
+    private long _maxTaskNanos;
+
+    private int _runs;
+
+    private String _slowestVirtualRouter;
+
+    private long _wallNanos;
+
+    private void record(long wallNanos, long[] taskNanos, List<VirtualRouter> vrs) {
+      _runs++;
+      _wallNanos += wallNanos;
+      for (int i = 0; i < taskNanos.length; i++) {
+        _busyNanos += taskNanos[i];
+        if (taskNanos[i] > _maxTaskNanos) {
+          _maxTaskNanos = taskNanos[i];
+          VirtualRouter vr = vrs.get(i);
+          _slowestVirtualRouter = vr._c.getHostname() + ":" + vr._vrf.getName();
+        }
+      }
+    }
+  }
+
+  private final BiFunction<String, Integer, AtomicInteger> _newBatch;
+
+  private final Map<String, PhaseStatistics> _phaseStatistics;
+
+  private final ForkJoinPool _pool;
+
+  /**
+   * @param threads The max number of threads to use, capped at the number of available processors
+   * @param newBatch Function creating a progress batch from a description and a number of tasks
+   */
+  VirtualRouterExecutor(int threads, BiFunction<String, Integer, AtomicInteger> newBatch) {
+    _newBatch = newBatch;
+    _phaseStatistics = new LinkedHashMap<>();
+    int parallelism = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), threads));
+    _pool = new ForkJoinPool(parallelism);
+  }
+
+  @Override
+  public void close() {
+    _pool.shutdown();
+  }
+
+  /**
+   * Apply {@code action} to every virtual router of {@code nodes} in parallel, returning once all
+   * have completed.
+   *
+   * @param phase The name under which to accumulate statistics for this phase. Should not vary by
+   *     iteration.
+   * @param batchDescription The description of the progress batch for this run of the phase
+   */
+  void forEach(
+      Map<String, Node> nodes,
+      String phase,
+      String batchDescription,
+      Consumer<VirtualRouter> action) {
+    List<VirtualRouter> vrs =
+        nodes
+            .values()
+            .stream()
+            .flatMap(n -> n._virtualRouters.values().stream())
+            .collect(Collectors.toList());
+    AtomicInteger completed = _newBatch.apply(batchDescription, vrs.size());
+    long[] taskNanos = new long[vrs.size()];
+    List<ForkJoinTask<?>> tasks = new ArrayList<>(vrs.size());
+    for (int i = 0; i < vrs.size(); i++) {
+      int index = i;
+      tasks.add(
+          ForkJoinTask.adapt(
+              () -> {
+                long start = System.nanoTime();
+                action.accept(vrs.get(index));
+                taskNanos[index] = System.nanoTime() - start;
+                completed.incrementAndGet();
+              }));
+    }
+    long start = System.nanoTime();
+    _pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+    long wallNanos = System.nanoTime() - start;
+    _phaseStatistics
+        .computeIfAbsent(phase, p -> new PhaseStatistics())
+        .record(wallNanos, taskNanos, vrs);
+  }
+
+  /**
+   * Returns a table with one line per phase: the total wall-clock time of all runs of the phase,
+   * the fraction of the pool's capacity doing useful work during that time, and the longest time
+   * taken by a single virtual router along with its name. A low utilization along with a slowest
+   * virtual router taking most of the wall-clock time indicates a straggler.
+   */
+  String getPhaseStatistics() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(
+        String.format(
+            "Data plane phase statistics (%d threads):\n%-55s %6s %10s %6s %10s  %s\n",
+            _pool.getParallelism(),
+            "Phase",
+            "Runs",
+            "Wall (ms)",
+            "Util",
+            "Max (ms)",
+            "Slowest VRF"));
+    _phaseStatistics.forEach(
+        (phase, stats) -> {
+          double utilization =
+              stats._wallNanos == 0
+                  ? 1.0
+                  : (double) stats._busyNanos / (stats._wallNanos * _pool.getParallelism());
+          sb.append(
+              String.format(
+                  "%-55s %6d %10d %5.0f%% %10d  %s\n",
+                  phase,
+                  stats._runs,
+                  TimeUnit.NANOSECONDS.toMillis(stats._wallNanos),
+                  100 * Math.min(1.0, utilization),
+                  TimeUnit.NANOSECONDS.toMillis(stats._maxTaskNanos),
+                  stats._slowestVirtualRouter));
+        });
+    return sb.toString();
+  }
+}
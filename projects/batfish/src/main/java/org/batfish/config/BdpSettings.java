@@ -6,6 +6,10 @@ public interface BdpSettings extends DataPlanePluginSettings {
 
   boolean getBdpDetail();
 
+  boolean getBdpIncrementalPropagation();
+
+  int getBdpMaxCheckpoints();
+
   int getBdpMaxOscillationRecoveryAttempts();
 
   int getBdpMaxRecordedIterations();
@@ -16,8 +20,14 @@ public interface BdpSettings extends DataPlanePluginSettings {
 
   boolean getBdpRecordAllIterations();
 
+  int getBdpThreads();
+
   void setBdpDetail(boolean bdpDetail);
 
+  void setBdpIncrementalPropagation(boolean bdpIncrementalPropagation);
+
+  void setBdpMaxCheckpoints(int bdpMaxCheckpoints);
+
   void setBdpMaxOscillationRecoveryAttempts(int bdpMaxOscillationRecoveryAttempts);
 
   void setBdpMaxRecordedIterations(int bdpMaxRecordedIterations);
@@ -27,4 +37,6 @@ public interface BdpSettings extends DataPlanePluginSettings {
   void setBdpPrintOscillatingIterations(boolean bdpPrintErrorIterations);
 
   void setBdpRecordAllIterations(boolean bdpRecordAllIterations);
+
+  void setBdpThreads(int bdpThreads);
 }
@@ -429,10 +429,18 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
 
   private static final String ARG_IGNORE_UNSUPPORTED = "ignoreunsupported";
 
+  private static final String ARG_JOB_LOG_MAX_ITEMS = "joblogmaxitems";
+
   private static final String ARG_JOBS = "jobs";
 
   private static final String ARG_LOG_TEE = "logtee";
 
+  private static final String ARG_MAX_CONCURRENT_HEAVY_TASKS = "maxconcurrentheavytasks";
+
+  private static final String ARG_MAX_CONCURRENT_TASKS = "maxconcurrenttasks";
+
+  private static final String ARG_MAX_IN_FLIGHT_JOBS = "maxinflightjobs";
+
   private static final String ARG_MAX_PARSER_CONTEXT_LINES = "maxparsercontextlines";
 
   private static final String ARG_MAX_PARSER_CONTEXT_TOKENS = "maxparsercontexttokens";
@@ -443,12 +451,20 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
 
   private static final String ARG_NO_SHUFFLE = "noshuffle";
 
+  private static final String ARG_PARSE_CACHE_DIR = "parsecachedir";
+
+  private static final String ARG_PARSE_CACHE_MAX_SIZE_MB = "parsecachemaxsizemb";
+
+  private static final String ARG_PREFETCH_QUEUE_SIZE = "prefetchqueuesize";
+
   private static final String ARG_PRINT_PARSE_TREES = "ppt";
 
   private static final String ARG_PRINT_SYMMETRIC_EDGES = "printsymmetricedges";
 
   private static final String ARG_SEQUENTIAL = "sequential";
 
+  private static final String ARG_SERIALIZE_COMPACT = "serializecompact";
+
   private static final String ARG_SERIALIZE_TO_TEXT = "stext";
 
   private static final String ARG_SERVICE_BIND_HOST = "servicebindhost";
@@ -459,6 +475,14 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
 
   private static final String ARG_SERVICE_PORT = "serviceport";
 
+  private static final String ARG_SNAPSHOT_CACHE_BUDGET_MB = "snapshotcachebudgetmb";
+
+  private static final String ARG_STREAM_JOB_LOGS = "streamjoblogs";
+
+  private static final String ARG_TASK_LOG_MAX_ENTRIES = "tasklogmaxentries";
+
+  private static final String ARG_TASK_LOG_RETENTION_MS = "tasklogretentionms";
+
   private static final String ARG_TRACING_AGENT_HOST = "tracingagenthost";
 
   private static final String ARG_TRACING_AGENT_PORT = "tracingagentport";
@@ -509,6 +533,10 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
 
   private boolean _bdpDetail;
 
+  private boolean _bdpIncrementalPropagation;
+
+  private int _bdpMaxCheckpoints;
+
   private int _bdpMaxOscillationRecoveryAttempts;
 
   private int _bdpMaxRecordedIterations;
@@ -519,6 +547,8 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
 
   private boolean _bdpRecordAllIterations;
 
+  private int _bdpThreads;
+
   private List<String> _blockNames;
 
   private boolean _canExecute;
@@ -587,6 +617,8 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
 
   private boolean _initInfo;
 
+  private int _jobLogMaxItems;
+
   private int _jobs;
 
   private String _logFile;
@@ -597,6 +629,12 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
 
   private boolean _logTee;
 
+  private int _maxConcurrentHeavyTasks;
+
+  private int _maxConcurrentTasks;
+
+  private int _maxInFlightJobs;
+
   private int _maxParserContextLines;
 
   private int _maxParserContextTokens;
@@ -607,12 +645,18 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
 
   private String _outputEnvironmentName;
 
+  private Path _parseCacheDir;
+
+  private int _parseCacheMaxSizeMb;
+
   private boolean _pedanticAsError;
 
   private boolean _pedanticRecord;
 
   private List<String> _predicates;
 
+  private int _prefetchQueueSize;
+
   private boolean _prettyPrintAnswer;
 
   private boolean _printParseTree;
@@ -633,6 +677,8 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
 
   private boolean _sequential;
 
+  private boolean _serializeCompact;
+
   private boolean _serializeIndependent;
 
   private boolean _serializeToText;
@@ -649,6 +695,8 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
 
   private boolean _simplify;
 
+  private int _snapshotCacheBudgetMb;
+
   private boolean _sslDisable;
 
   private Path _sslKeystoreFile;
@@ -661,10 +709,16 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
 
   private String _sslTruststorePassword;
 
+  private boolean _streamJobLogs;
+
   private boolean _synthesizeJsonTopology;
 
   private String _taskId;
 
+  private int _taskLogMaxEntries;
+
+  private int _taskLogRetentionMs;
+
   private String _taskPlugin;
 
   private String _testrig;
@@ -748,6 +802,14 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
     return _bdpDetail;
   }
 
+  public boolean getBdpIncrementalPropagation() {
+    return _bdpIncrementalPropagation;
+  }
+
+  public int getBdpMaxCheckpoints() {
+    return _bdpMaxCheckpoints;
+  }
+
   public int getBdpMaxOscillationRecoveryAttempts() {
     return _bdpMaxOscillationRecoveryAttempts;
   }
@@ -768,6 +830,10 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
     return _bdpRecordAllIterations;
   }
 
+  public int getBdpThreads() {
+    return _bdpThreads;
+  }
+
   public List<String> getBlockNames() {
     return _blockNames;
   }
@@ -885,6 +951,14 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
     return _initInfo;
   }
 
+  /**
+   * Returns the max number of log messages kept in memory for each parallel job, {@code <= 0} for
+   * no limit
+   */
+  public int getJobLogMaxItems() {
+    return _jobLogMaxItems;
+  }
+
   public int getJobs() {
     return _jobs;
   }
@@ -905,6 +979,18 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
     return _logTee;
   }
 
+  public int getMaxConcurrentHeavyTasks() {
+    return _maxConcurrentHeavyTasks;
+  }
+
+  public int getMaxConcurrentTasks() {
+    return _maxConcurrentTasks;
+  }
+
+  public int getMaxInFlightJobs() {
+    return _maxInFlightJobs;
+  }
+
   @Override
   public int getMaxParserContextLines() {
     return _maxParserContextLines;
@@ -928,6 +1014,14 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
     return _outputEnvironmentName;
   }
 
+  public Path getParseCacheDir() {
+    return _parseCacheDir;
+  }
+
+  public int getParseCacheMaxSizeMb() {
+    return _parseCacheMaxSizeMb;
+  }
+
   public boolean getPedanticAsError() {
     return _pedanticAsError;
   }
@@ -940,6 +1034,10 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
     return _predicates;
   }
 
+  public int getPrefetchQueueSize() {
+    return _prefetchQueueSize;
+  }
+
   @Override
   public boolean getPrintParseTree() {
     return _printParseTree;
@@ -973,6 +1071,10 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
     return _sequential;
   }
 
+  public boolean getSerializeCompact() {
+    return _serializeCompact;
+  }
+
   public boolean getSerializeIndependent() {
     return _serializeIndependent;
   }
@@ -1005,6 +1107,14 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
     return _simplify;
   }
 
+  /**
+   * Returns the heap budget in MB shared by the worker's cached testrigs and data planes, or a
+   * value {@code <= 0} to derive the budget from the maximum heap size
+   */
+  public int getSnapshotCacheBudgetMb() {
+    return _snapshotCacheBudgetMb;
+  }
+
   public boolean getSslDisable() {
     return _sslDisable;
   }
@@ -1029,6 +1139,14 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
     return _sslTruststorePassword;
   }
 
+  /**
+   * Returns whether parallel jobs write their log messages to the task log as they go, instead of
+   * keeping them in memory until the job ends
+   */
+  public boolean getStreamJobLogs() {
+    return _streamJobLogs;
+  }
+
   public boolean getSynthesizeJsonTopology() {
     return _synthesizeJsonTopology;
   }
@@ -1037,6 +1155,14 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
     return _taskId;
   }
 
+  public int getTaskLogMaxEntries() {
+    return _taskLogMaxEntries;
+  }
+
+  public int getTaskLogRetentionMs() {
+    return _taskLogRetentionMs;
+  }
+
   public String getTaskPlugin() {
     return _taskPlugin;
   }
@@ -1108,11 +1234,14 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
     setDefaultProperty(ARG_ANONYMIZE, false);
     setDefaultProperty(BfConsts.ARG_ANSWER_JSON_PATH, null);
     setDefaultProperty(BfConsts.ARG_BDP_DETAIL, false);
+    setDefaultProperty(BfConsts.ARG_BDP_INCREMENTAL_PROPAGATION, false);
+    setDefaultProperty(BfConsts.ARG_BDP_MAX_CHECKPOINTS, 0);
     setDefaultProperty(BfConsts.ARG_BDP_MAX_OSCILLATION_RECOVERY_ATTEMPTS, 0);
     setDefaultProperty(BfConsts.ARG_BDP_MAX_RECORDED_ITERATIONS, 5);
     setDefaultProperty(BfConsts.ARG_BDP_PRINT_ALL_ITERATIONS, false);
     setDefaultProperty(BfConsts.ARG_BDP_PRINT_OSCILLATING_ITERATIONS, false);
     setDefaultProperty(BfConsts.ARG_BDP_RECORD_ALL_ITERATIONS, false);
+    setDefaultProperty(BfConsts.ARG_BDP_THREADS, Integer.MAX_VALUE);
     setDefaultProperty(BfConsts.ARG_BLOCK_NAMES, new String[] {});
     setDefaultProperty(BfConsts.ARG_CONTAINER_DIR, null);
     setDefaultProperty(ARG_COORDINATOR_REGISTER, false);
@@ -1140,18 +1269,25 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
     setDefaultProperty(ARG_HISTOGRAM, false);
     setDefaultProperty(ARG_IGNORE_UNSUPPORTED, true);
     setDefaultProperty(ARG_IGNORE_UNKNOWN, true);
+    setDefaultProperty(ARG_JOB_LOG_MAX_ITEMS, 0);
     setDefaultProperty(ARG_JOBS, Integer.MAX_VALUE);
     setDefaultProperty(BfConsts.ARG_LOG_FILE, null);
     setDefaultProperty(ARG_LOG_TEE, false);
     setDefaultProperty(BfConsts.ARG_LOG_LEVEL, "debug");
+    setDefaultProperty(ARG_MAX_CONCURRENT_HEAVY_TASKS, 1);
+    setDefaultProperty(ARG_MAX_CONCURRENT_TASKS, 1);
+    setDefaultProperty(ARG_MAX_IN_FLIGHT_JOBS, 256);
     setDefaultProperty(ARG_MAX_PARSER_CONTEXT_LINES, 10);
     setDefaultProperty(ARG_MAX_PARSER_CONTEXT_TOKENS, 10);
     setDefaultProperty(ARG_MAX_PARSE_TREE_PRINT_LENGTH, 0);
     setDefaultProperty(ARG_MAX_RUNTIME_MS, 0);
     setDefaultProperty(ARG_NO_SHUFFLE, false);
     setDefaultProperty(BfConsts.ARG_OUTPUT_ENV, null);
+    setDefaultProperty(ARG_PARSE_CACHE_DIR, null);
+    setDefaultProperty(ARG_PARSE_CACHE_MAX_SIZE_MB, 1024);
     setDefaultProperty(BfConsts.ARG_PEDANTIC_AS_ERROR, false);
     setDefaultProperty(BfConsts.ARG_PEDANTIC_SUPPRESS, false);
+    setDefaultProperty(ARG_PREFETCH_QUEUE_SIZE, 4);
     setDefaultProperty(BfConsts.ARG_PRETTY_PRINT_ANSWER, false);
     setDefaultProperty(ARG_PRINT_PARSE_TREES, false);
     setDefaultProperty(ARG_PRINT_SYMMETRIC_EDGES, false);
@@ -1159,11 +1295,16 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
     setDefaultProperty(BfConsts.ARG_RED_FLAG_AS_ERROR, false);
     setDefaultProperty(BfConsts.ARG_RED_FLAG_SUPPRESS, false);
     setDefaultProperty(ARG_SEQUENTIAL, false);
+    setDefaultProperty(ARG_SERIALIZE_COMPACT, false);
     setDefaultProperty(ARG_SERIALIZE_TO_TEXT, false);
     setDefaultProperty(ARG_SERVICE_BIND_HOST, Ip.ZERO.toString());
     setDefaultProperty(ARG_SERVICE_HOST, "localhost");
     setDefaultProperty(ARG_SERVICE_MODE, false);
     setDefaultProperty(ARG_SERVICE_PORT, BfConsts.SVC_PORT);
+    setDefaultProperty(ARG_SNAPSHOT_CACHE_BUDGET_MB, 0);
+    setDefaultProperty(ARG_STREAM_JOB_LOGS, false);
+    setDefaultProperty(ARG_TASK_LOG_MAX_ENTRIES, 1000);
+    setDefaultProperty(ARG_TASK_LOG_RETENTION_MS, 24 * 60 * 60 * 1000);
     setDefaultProperty(BfConsts.ARG_SSL_DISABLE, CoordConsts.SVC_CFG_POOL_SSL_DISABLE);
     setDefaultProperty(BfConsts.ARG_SSL_KEYSTORE_FILE, null);
     setDefaultProperty(BfConsts.ARG_SSL_KEYSTORE_PASSWORD, null);
@@ -1207,6 +1348,18 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
         "Set to true to print/record detailed protocol-specific information about routes in each"
             + "iteration rather than only protocol-independent information.");
 
+    addBooleanOption(
+        BfConsts.ARG_BDP_INCREMENTAL_PROPAGATION,
+        "Set to true to propagate BGP routes incrementally, only processing routes that changed in "
+            + "the previous iteration rather than all routes of each neighbor.");
+
+    addOption(
+        BfConsts.ARG_BDP_MAX_CHECKPOINTS,
+        "Max number of iterations of per-VRF RIB state to keep during data plane computation. If"
+            + " positive, recovery from an oscillation resumes from the last iteration before the"
+            + " cycle instead of restarting the computation. 0 disables checkpointing",
+        ARGNAME_NUMBER);
+
     addOption(
         BfConsts.ARG_BDP_MAX_OSCILLATION_RECOVERY_ATTEMPTS,
         "Max number of recovery attempts when oscillation occurs during data plane computations",
@@ -1234,6 +1387,11 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
         "Set to true to record all iterations, including during oscillation. Ignores max recorded "
             + "iterations value.");
 
+    addOption(
+        BfConsts.ARG_BDP_THREADS,
+        "number of threads used for data plane computation, capped at the number of processors",
+        ARGNAME_NUMBER);
+
     addListOption(
         BfConsts.ARG_BLOCK_NAMES, "list of blocks of logic rules to add or remove", "blocknames");
 
@@ -1329,6 +1487,12 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
         ARG_IGNORE_UNSUPPORTED,
         "ignore configuration files with unsupported format instead of crashing");
 
+    addOption(
+        ARG_JOB_LOG_MAX_ITEMS,
+        "max number of log messages kept in memory for each parallel job "
+            + "(<= 0 is treated as no limit)",
+        ARGNAME_NUMBER);
+
     addOption(ARG_JOBS, "number of threads used by parallel jobs executor", ARGNAME_NUMBER);
 
     addOption(BfConsts.ARG_LOG_LEVEL, "log level", ARGNAME_LOG_LEVEL);
@@ -1339,6 +1503,21 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
 
     addBooleanOption(ARG_LOG_TEE, "print output to both logfile and standard out");
 
+    addOption(
+        ARG_MAX_CONCURRENT_HEAVY_TASKS,
+        "max number of tasks parsing a testrig or computing a data plane that a worker runs at "
+            + "once",
+        ARGNAME_NUMBER);
+
+    addOption(
+        ARG_MAX_CONCURRENT_TASKS, "max number of tasks that a worker runs at once", ARGNAME_NUMBER);
+
+    addOption(
+        ARG_MAX_IN_FLIGHT_JOBS,
+        "max number of jobs submitted to the parallel jobs executor but not yet completed "
+            + "(<= 0 is treated as no limit)",
+        ARGNAME_NUMBER);
+
     addOption(
         ARG_MAX_PARSER_CONTEXT_LINES,
         "max number of surrounding lines to print on parser error",
@@ -1361,6 +1540,17 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
 
     addOption(BfConsts.ARG_OUTPUT_ENV, "name of output environment", ARGNAME_NAME);
 
+    addOption(
+        ARG_PARSE_CACHE_DIR,
+        "directory of content-addressed cache of parsed and converted configurations, "
+            + "reused across testrigs (disabled if unset)",
+        ARGNAME_PATH);
+
+    addOption(
+        ARG_PARSE_CACHE_MAX_SIZE_MB,
+        "size in MB of parse cache directory beyond which least recently used entries are evicted",
+        ARGNAME_NUMBER);
+
     addBooleanOption(
         BfConsts.ARG_PEDANTIC_AS_ERROR,
         "throws "
@@ -1370,6 +1560,12 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
 
     addBooleanOption(BfConsts.ARG_PEDANTIC_SUPPRESS, "suppresses pedantic warnings");
 
+    addOption(
+        ARG_PREFETCH_QUEUE_SIZE,
+        "max number of snapshot prefetch hints from the coordinator that a worker keeps pending "
+            + "(0 to ignore hints)",
+        ARGNAME_NUMBER);
+
     addBooleanOption(BfConsts.ARG_PRETTY_PRINT_ANSWER, "pretty print answer");
 
     addBooleanOption(ARG_PRINT_PARSE_TREES, "print parse trees");
@@ -1390,6 +1586,10 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
 
     addBooleanOption(ARG_SEQUENTIAL, "force sequential operation");
 
+    addBooleanOption(
+        ARG_SERIALIZE_COMPACT,
+        "serialize to compact versioned binary format with interned strings, ips, and prefixes");
+
     addBooleanOption(ARG_SERIALIZE_TO_TEXT, "serialize to text");
 
     addOption(
@@ -1403,6 +1603,12 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
 
     addOption(ARG_SERVICE_PORT, "port for batfish service", ARGNAME_PORT);
 
+    addOption(
+        ARG_SNAPSHOT_CACHE_BUDGET_MB,
+        "estimated heap (in MB) used to cache testrigs and data planes between tasks "
+            + "(<= 0 is treated as half of the max heap size)",
+        ARGNAME_NUMBER);
+
     addBooleanOption(
         BfConsts.ARG_SSL_DISABLE, "whether to disable SSL during communication with coordinator");
 
@@ -1410,6 +1616,13 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
         BfConsts.ARG_SSL_TRUST_ALL_CERTS,
         "whether to trust all SSL certificates during communication with coordinator");
 
+    addBooleanOption(
+        ARG_STREAM_JOB_LOGS,
+        "write log messages of parallel jobs to the log as they are produced rather than when "
+            + "each job ends, prefixed with the job name; the latest -"
+            + ARG_JOB_LOG_MAX_ITEMS
+            + " messages are still kept for failure reports");
+
     addBooleanOption(
         BfConsts.ARG_SYNTHESIZE_JSON_TOPOLOGY,
         "synthesize json topology from interface ip subnet information");
@@ -1418,6 +1631,16 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
         BfConsts.ARG_SYNTHESIZE_TOPOLOGY,
         "synthesize topology from interface ip subnet information");
 
+    addOption(
+        ARG_TASK_LOG_MAX_ENTRIES,
+        "max number of terminated tasks whose status a worker remembers",
+        ARGNAME_NUMBER);
+
+    addOption(
+        ARG_TASK_LOG_RETENTION_MS,
+        "time (in ms) for which a worker remembers the status of a terminated task",
+        ARGNAME_NUMBER);
+
     addOption(BfConsts.ARG_TASK_PLUGIN, "fully-qualified name of task plugin class", ARGNAME_NAME);
 
     addOption(BfConsts.ARG_TESTRIG, "name of testrig", ARGNAME_NAME);
@@ -1494,7 +1717,11 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
     _answer = getBooleanOptionValue(BfConsts.COMMAND_ANSWER);
     _answerJsonPath = getPathOptionValue(BfConsts.ARG_ANSWER_JSON_PATH);
     _bdpRecordAllIterations = getBooleanOptionValue(BfConsts.ARG_BDP_RECORD_ALL_ITERATIONS);
+    _bdpThreads = getIntOptionValue(BfConsts.ARG_BDP_THREADS);
     _bdpDetail = getBooleanOptionValue(BfConsts.ARG_BDP_DETAIL);
+    _bdpIncrementalPropagation =
+        getBooleanOptionValue(BfConsts.ARG_BDP_INCREMENTAL_PROPAGATION);
+    _bdpMaxCheckpoints = getIntOptionValue(BfConsts.ARG_BDP_MAX_CHECKPOINTS);
     _bdpMaxOscillationRecoveryAttempts =
         getIntOptionValue(BfConsts.ARG_BDP_MAX_OSCILLATION_RECOVERY_ATTEMPTS);
     _bdpMaxRecordedIterations = getIntOptionValue(BfConsts.ARG_BDP_MAX_RECORDED_ITERATIONS);
@@ -1532,15 +1759,22 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
     _ignoreUnknown = getBooleanOptionValue(ARG_IGNORE_UNKNOWN);
     _ignoreUnsupported = getBooleanOptionValue(ARG_IGNORE_UNSUPPORTED);
     _initInfo = getBooleanOptionValue(BfConsts.COMMAND_INIT_INFO);
+    _jobLogMaxItems = getIntOptionValue(ARG_JOB_LOG_MAX_ITEMS);
     _jobs = getIntOptionValue(ARG_JOBS);
     _logTee = getBooleanOptionValue(ARG_LOG_TEE);
+    _maxConcurrentHeavyTasks = getIntOptionValue(ARG_MAX_CONCURRENT_HEAVY_TASKS);
+    _maxConcurrentTasks = getIntOptionValue(ARG_MAX_CONCURRENT_TASKS);
+    _maxInFlightJobs = getIntOptionValue(ARG_MAX_IN_FLIGHT_JOBS);
     _maxParserContextLines = getIntOptionValue(ARG_MAX_PARSER_CONTEXT_LINES);
     _maxParserContextTokens = getIntOptionValue(ARG_MAX_PARSER_CONTEXT_TOKENS);
     _maxParseTreePrintLength = getIntOptionValue(ARG_MAX_PARSE_TREE_PRINT_LENGTH);
     _maxRuntimeMs = getIntOptionValue(ARG_MAX_RUNTIME_MS);
     _outputEnvironmentName = getStringOptionValue(BfConsts.ARG_OUTPUT_ENV);
+    _parseCacheDir = getPathOptionValue(ARG_PARSE_CACHE_DIR);
+    _parseCacheMaxSizeMb = getIntOptionValue(ARG_PARSE_CACHE_MAX_SIZE_MB);
     _pedanticAsError = getBooleanOptionValue(BfConsts.ARG_PEDANTIC_AS_ERROR);
     _pedanticRecord = !getBooleanOptionValue(BfConsts.ARG_PEDANTIC_SUPPRESS);
+    _prefetchQueueSize = getIntOptionValue(ARG_PREFETCH_QUEUE_SIZE);
     _prettyPrintAnswer = getBooleanOptionValue(BfConsts.ARG_PRETTY_PRINT_ANSWER);
     _printParseTree = getBooleanOptionValue(ARG_PRINT_PARSE_TREES);
     _printSymmetricEdges = getBooleanOptionValue(ARG_PRINT_SYMMETRIC_EDGES);
@@ -1551,6 +1785,7 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
     _runInServiceMode = getBooleanOptionValue(ARG_SERVICE_MODE);
     _sequential = getBooleanOptionValue(ARG_SEQUENTIAL);
     _serializeIndependent = getBooleanOptionValue(BfConsts.COMMAND_PARSE_VENDOR_INDEPENDENT);
+    _serializeCompact = getBooleanOptionValue(ARG_SERIALIZE_COMPACT);
     _serializeToText = getBooleanOptionValue(ARG_SERIALIZE_TO_TEXT);
     _serializeVendor = getBooleanOptionValue(BfConsts.COMMAND_PARSE_VENDOR_SPECIFIC);
     _serviceBindHost = getStringOptionValue(ARG_SERVICE_BIND_HOST);
@@ -1558,13 +1793,17 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
     _servicePort = getIntOptionValue(ARG_SERVICE_PORT);
     _shuffleJobs = !getBooleanOptionValue(ARG_NO_SHUFFLE);
     _simplify = !getBooleanOptionValue(ARG_DISABLE_Z3_SIMPLIFICATION);
+    _snapshotCacheBudgetMb = getIntOptionValue(ARG_SNAPSHOT_CACHE_BUDGET_MB);
     _sslDisable = getBooleanOptionValue(BfConsts.ARG_SSL_DISABLE);
     _sslKeystoreFile = getPathOptionValue(BfConsts.ARG_SSL_KEYSTORE_FILE);
     _sslKeystorePassword = getStringOptionValue(BfConsts.ARG_SSL_KEYSTORE_PASSWORD);
     _sslTrustAllCerts = getBooleanOptionValue(BfConsts.ARG_SSL_TRUST_ALL_CERTS);
     _sslTruststoreFile = getPathOptionValue(BfConsts.ARG_SSL_TRUSTSTORE_FILE);
     _sslTruststorePassword = getStringOptionValue(BfConsts.ARG_SSL_TRUSTSTORE_PASSWORD);
+    _streamJobLogs = getBooleanOptionValue(ARG_STREAM_JOB_LOGS);
     _synthesizeJsonTopology = getBooleanOptionValue(BfConsts.ARG_SYNTHESIZE_JSON_TOPOLOGY);
+    _taskLogMaxEntries = getIntOptionValue(ARG_TASK_LOG_MAX_ENTRIES);
+    _taskLogRetentionMs = getIntOptionValue(ARG_TASK_LOG_RETENTION_MS);
     _taskPlugin = getStringOptionValue(BfConsts.ARG_TASK_PLUGIN);
     _testrig = getStringOptionValue(BfConsts.ARG_TESTRIG);
     _throwOnLexerError = getBooleanOptionValue(ARG_THROW_ON_LEXER_ERROR);
@@ -1596,6 +1835,14 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
     _bdpDetail = bdpDetail;
   }
 
+  public void setBdpIncrementalPropagation(boolean bdpIncrementalPropagation) {
+    _bdpIncrementalPropagation = bdpIncrementalPropagation;
+  }
+
+  public void setBdpMaxCheckpoints(int bdpMaxCheckpoints) {
+    _bdpMaxCheckpoints = bdpMaxCheckpoints;
+  }
+
   public void setBdpMaxOscillationRecoveryAttempts(int bdpMaxOscillationRecoveryAttempts) {
     _bdpMaxOscillationRecoveryAttempts = bdpMaxOscillationRecoveryAttempts;
   }
@@ -1616,6 +1863,10 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
     _bdpRecordAllIterations = bdpRecordAllIterations;
   }
 
+  public void setBdpThreads(int bdpThreads) {
+    _bdpThreads = bdpThreads;
+  }
+
   public void setContainerDir(Path containerDir) {
     _containerDir = containerDir;
   }
@@ -1661,6 +1912,18 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
     _logger = logger;
   }
 
+  public void setMaxConcurrentHeavyTasks(int maxConcurrentHeavyTasks) {
+    _maxConcurrentHeavyTasks = maxConcurrentHeavyTasks;
+  }
+
+  public void setMaxConcurrentTasks(int maxConcurrentTasks) {
+    _maxConcurrentTasks = maxConcurrentTasks;
+  }
+
+  public void setMaxInFlightJobs(int maxInFlightJobs) {
+    _maxInFlightJobs = maxInFlightJobs;
+  }
+
   public void setMaxParserContextLines(int maxParserContextLines) {
     _maxParserContextLines = maxParserContextLines;
   }
@@ -1677,6 +1940,18 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
     _maxRuntimeMs = runtimeMs;
   }
 
+  public void setParseCacheDir(Path parseCacheDir) {
+    _parseCacheDir = parseCacheDir;
+  }
+
+  public void setParseCacheMaxSizeMb(int parseCacheMaxSizeMb) {
+    _parseCacheMaxSizeMb = parseCacheMaxSizeMb;
+  }
+
+  public void setPrefetchQueueSize(int prefetchQueueSize) {
+    _prefetchQueueSize = prefetchQueueSize;
+  }
+
   @Override
   public void setPrintParseTree(boolean printParseTree) {
     _printParseTree = printParseTree;
@@ -1694,6 +1969,10 @@ public final class Settings extends BaseSettings implements BdpSettings, Grammar
     _sequential = true;
   }
 
+  public void setSnapshotCacheBudgetMb(int snapshotCacheBudgetMb) {
+    _snapshotCacheBudgetMb = snapshotCacheBudgetMb;
+  }
+
   public void setSslDisable(boolean sslDisable) {
     _sslDisable = sslDisable;
   }
@@ -1,6 +1,7 @@
 package org.batfish.job;
 
 import java.util.concurrent.Callable;
+import javax.annotation.Nullable;
 import org.batfish.common.BatfishLogger;
 import org.batfish.config.Settings;
 
@@ -10,8 +11,36 @@ public abstract class BatfishJob<R extends BatfishJobResult<?, ?>> implements Ca
 
   protected final Settings _settings;
 
+  /** Messages kept for failure reports of a streamed job when no limit is set */
+  private static final int STREAMED_JOB_LOG_TAIL_ITEMS = 100;
+
   public BatfishJob(Settings settings) {
+    this(settings, null);
+  }
+
+  /**
+   * @param name Identifies the job, e.g. by its input file, in messages streamed to the task log.
+   *     Defaults to the job's class name.
+   */
+  public BatfishJob(Settings settings, @Nullable String name) {
     _settings = settings;
-    _logger = new BatfishLogger(_settings.getLogLevel(), _settings.getTimestamp());
+    BatfishLogger taskLogger = _settings.getLogger();
+    int logMaxItems = _settings.getJobLogMaxItems();
+    if (_settings.getStreamJobLogs() && taskLogger != null) {
+      String prefix = String.format("%s: ", name != null ? name : getClass().getSimpleName());
+      _logger =
+          new BatfishLogger(
+              _settings.getLogLevel(),
+              _settings.getTimestamp(),
+              taskLogger,
+              prefix,
+              logMaxItems > 0 ? logMaxItems : STREAMED_JOB_LOG_TAIL_ITEMS);
+    } else {
+      _logger =
+          new BatfishLogger(
+              _settings.getLogLevel(),
+              _settings.getTimestamp(),
+              logMaxItems > 0 ? logMaxItems : Integer.MAX_VALUE);
+    }
   }
 }
@@ -2,6 +2,7 @@ package org.batfish.job;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
@@ -19,7 +20,10 @@ import org.batfish.main.Driver;
 
 /**
  * Class to execute a list of jobs in a thread pool of adaptable size using {@link Executors}. The
- * execution can be forced to be sequential by setting the appropriate property in {@link Settings}
+ * execution can be forced to be sequential by setting the appropriate property in {@link Settings}.
+ * At most {@link Settings#getMaxInFlightJobs()} jobs are submitted to the pool at any time; further
+ * jobs are submitted only as earlier ones complete, so jobs that load their input lazily keep peak
+ * memory proportional to the window rather than to the total number of jobs.
  */
 public class BatfishJobExecutor {
 
@@ -109,8 +113,10 @@ public class BatfishJobExecutor {
       Collections.shuffle(jobs);
     }
 
-    for (JobT job : jobs) {
-      completionService.submit(job);
+    Iterator<JobT> pendingJobs = jobs.iterator();
+    int window = getInFlightWindow();
+    for (int i = 0; i < window && pendingJobs.hasNext(); i++) {
+      completionService.submit(pendingJobs.next());
     }
 
     initializeJobsStats(jobs, description);
@@ -128,6 +134,9 @@ public class BatfishJobExecutor {
         } catch (ExecutionException e) {
           throw new BatfishException("Error executing job", e);
         }
+        if (pendingJobs.hasNext()) {
+          completionService.submit(pendingJobs.next());
+        }
 
         markJobCompleted();
         boolean jobResultError =
@@ -157,6 +166,12 @@ public class BatfishJobExecutor {
     return Executors.newFixedThreadPool(numConcurrentThreads);
   }
 
+  /** Returns the maximum number of jobs that may be submitted but not yet completed at once */
+  int getInFlightWindow() {
+    int maxInFlightJobs = _settings.getMaxInFlightJobs();
+    return maxInFlightJobs > 0 ? maxInFlightJobs : Integer.MAX_VALUE;
+  }
+
   <
           JobResultT extends BatfishJobResult<OutputT, AnswerElementT>,
           AnswerElementT extends AnswerElement,
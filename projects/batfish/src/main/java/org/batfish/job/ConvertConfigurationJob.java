@@ -1,5 +1,6 @@
 package org.batfish.job;
 
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
 import org.batfish.common.BatfishException;
@@ -15,6 +16,27 @@ import org.batfish.vendor.VendorConfiguration;
 
 public class ConvertConfigurationJob extends BatfishJob<ConvertConfigurationResult> {
 
+  /** A successful conversion result as stored in the {@link ParseCache} */
+  private static final class CachedConversionResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ConvertConfigurationAnswerElement _answerElement;
+
+    private final Configuration _configuration;
+
+    private final Warnings _warnings;
+
+    private CachedConversionResult(
+        Configuration configuration,
+        ConvertConfigurationAnswerElement answerElement,
+        Warnings warnings) {
+      _answerElement = answerElement;
+      _configuration = configuration;
+      _warnings = warnings;
+    }
+  }
+
   private Object _configObject;
 
   private String _name;
@@ -23,7 +45,7 @@ public class ConvertConfigurationJob extends BatfishJob<ConvertConfigurationResu
 
   public ConvertConfigurationJob(
       Settings settings, Object configObject, String name, Warnings warnings) {
-    super(settings);
+    super(settings, name);
     _configObject = configObject;
     _name = name;
     _warnings = warnings;
@@ -40,6 +62,36 @@ public class ConvertConfigurationJob extends BatfishJob<ConvertConfigurationResu
       // We have only two options: AWS VPCs or router configs
       if (VendorConfiguration.class.isInstance(_configObject)) {
         VendorConfiguration vendorConfiguration = ((VendorConfiguration) _configObject);
+        /*
+         * Only configurations whose parse input is known and that are not modified after parsing
+         * (by overlays or attached iptables) are keyed by their parse input alone.
+         */
+        ParseCache cache = null;
+        String cacheKey = null;
+        if (vendorConfiguration.getContentHash() != null
+            && vendorConfiguration.getOverlayConfiguration() == null
+            && !(vendorConfiguration instanceof HostConfiguration)) {
+          cache = ParseCache.forSettings(_settings);
+        }
+        if (cache != null) {
+          cacheKey =
+              ParseCache.key(_settings, "convert", _name, vendorConfiguration.getContentHash());
+          CachedConversionResult cached =
+              cache.get(cacheKey, CachedConversionResult.class, _logger);
+          if (cached != null) {
+            _logger.info(" ...reusing cached conversion result\n");
+            _warnings = cached._warnings;
+            configurations.put(_name, cached._configuration);
+            elapsedTime = System.currentTimeMillis() - startTime;
+            return new ConvertConfigurationResult(
+                elapsedTime,
+                _logger.getHistory(),
+                _warnings,
+                _name,
+                configurations,
+                cached._answerElement);
+          }
+        }
         vendorConfiguration.setWarnings(_warnings);
         vendorConfiguration.setAnswerElement(answerElement);
         Configuration configuration = vendorConfiguration.toVendorIndependentConfiguration();
@@ -74,6 +126,12 @@ public class ConvertConfigurationJob extends BatfishJob<ConvertConfigurationResu
         }
 
         configurations.put(_name, configuration);
+        if (cache != null) {
+          cache.put(
+              cacheKey,
+              new CachedConversionResult(configuration, answerElement, _warnings),
+              _logger);
+        }
       } else {
         configurations = ((AwsVpcConfiguration) _configObject).toConfigurations(_warnings);
       }
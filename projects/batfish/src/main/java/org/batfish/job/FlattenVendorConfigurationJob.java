@@ -21,7 +21,7 @@ public class FlattenVendorConfigurationJob extends BatfishJob<FlattenVendorConfi
 
   public FlattenVendorConfigurationJob(
       Settings settings, String fileText, Path inputFile, Path outputFile, Warnings warnings) {
-    super(settings);
+    super(settings, inputFile.getFileName().toString());
     _fileText = fileText;
     _inputFile = inputFile;
     _outputFile = outputFile;
@@ -0,0 +1,245 @@
+package org.batfish.job;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.annotation.Nullable;
+import org.batfish.common.BatfishLogger;
+import org.batfish.common.Version;
+import org.batfish.common.util.BatfishObjectInputStream;
+import org.batfish.config.Settings;
+import org.batfish.datamodel.Configuration;
+
+/**
+ * A content-addressed on-disk cache of parse and conversion results, shared across testrigs. Keys
+ * are hashes of the job input together with a fingerprint of the parsing and conversion code and
+ * every setting that affects the result, so unchanged files in a new snapshot are not re-parsed or
+ * re-converted. Entries are never invalidated; a code or settings change simply produces different
+ * keys, and the least recently used entries are evicted once the directory exceeds its size limit.
+ */
+final class ParseCache {
+
+  /** Lazily computed fingerprint of the code that produces cached results */
+  private static final class CodeFingerprintHolder {
+    private static final String CODE_FINGERPRINT = computeCodeFingerprint();
+  }
+
+  /** Fraction of the size limit that may be written to a directory between prunings */
+  private static final long PRUNE_INTERVAL_DIVISOR = 10;
+
+  /** Age after which a temporary file is considered abandoned by an interrupted write */
+  private static final long STALE_TEMP_FILE_MS = TimeUnit.HOURS.toMillis(1);
+
+  private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+  /**
+   * Bytes written to each cache directory by this process since the directory was last pruned.
+   * Starts out at the pruning threshold, so each directory is pruned on its first write.
+   */
+  private static final ConcurrentMap<Path, AtomicLong> WRITTEN_SINCE_PRUNE =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Returns a hash of the classes of Batfish and of its data model, as found in the jar or class
+   * directory each was loaded from. Any change to the grammars, extractors, conversion code, or
+   * cached classes thus changes every key, whether or not the version number changed. Falls back
+   * to the Batfish version if the code cannot be read.
+   */
+  private static String computeCodeFingerprint() {
+    Hasher hasher = Hashing.sha256().newHasher();
+    Set<Path> codeLocations = new TreeSet<>();
+    try {
+      for (Class<?> codeClass : new Class<?>[] {ParseCache.class, Configuration.class}) {
+        CodeSource codeSource = codeClass.getProtectionDomain().getCodeSource();
+        if (codeSource == null) {
+          return Version.getVersion();
+        }
+        codeLocations.add(Paths.get(codeSource.getLocation().toURI()));
+      }
+      for (Path codeLocation : codeLocations) {
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(codeLocation)) {
+          files = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        for (Path file : files) {
+          hasher.putString(codeLocation.relativize(file).toString(), StandardCharsets.UTF_8);
+          try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[1 << 16];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+              hasher.putBytes(buffer, 0, read);
+            }
+          }
+        }
+      }
+    } catch (IOException | URISyntaxException | SecurityException e) {
+      return Version.getVersion();
+    }
+    return hasher.hash().toString();
+  }
+
+  /** Returns the cache configured in {@code settings}, or {@code null} if caching is disabled */
+  @Nullable
+  static ParseCache forSettings(Settings settings) {
+    Path dir = settings.getParseCacheDir();
+    return dir == null
+        ? null
+        : new ParseCache(dir, settings.getParseCacheMaxSizeMb() * 1024L * 1024L);
+  }
+
+  /**
+   * Computes a cache key for the given input parts, also covering the code that produces cached
+   * results and the settings that affect parsing, extraction, conversion, and warning collection.
+   */
+  static String key(Settings settings, String... parts) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putString(CodeFingerprintHolder.CODE_FINGERPRINT, StandardCharsets.UTF_8);
+    hasher.putBoolean(settings.getDisableUnrecognized());
+    hasher.putBoolean(settings.getUnrecognizedAsRedFlag());
+    hasher.putBoolean(settings.flattenOnTheFly());
+    hasher.putBoolean(settings.getPedanticAsError());
+    hasher.putBoolean(settings.getPedanticRecord());
+    hasher.putBoolean(settings.getRedFlagAsError());
+    hasher.putBoolean(settings.getRedFlagRecord());
+    hasher.putBoolean(settings.getUnimplementedAsError());
+    hasher.putBoolean(settings.getUnimplementedRecord());
+    hasher.putString(settings.getLogLevel(), StandardCharsets.UTF_8);
+    hasher.putString(String.join("\0", settings.ignoreFilesWithStrings()), StandardCharsets.UTF_8);
+    for (String part : parts) {
+      hasher.putInt(part.length());
+      hasher.putString(part, StandardCharsets.UTF_8);
+    }
+    return hasher.hash().toString();
+  }
+
+  private final Path _dir;
+
+  private final long _maxSizeBytes;
+
+  ParseCache(Path dir, long maxSizeBytes) {
+    _dir = dir;
+    _maxSizeBytes = maxSizeBytes;
+  }
+
+  /**
+   * Returns the entry stored under {@code key}, or {@code null} if there is none or it cannot be
+   * read
+   */
+  @Nullable
+  <T extends Serializable> T get(String key, Class<T> entryClass, BatfishLogger logger) {
+    Path entryPath = _dir.resolve(key);
+    if (!Files.exists(entryPath)) {
+      return null;
+    }
+    try (InputStream in = new GZIPInputStream(Files.newInputStream(entryPath));
+        ObjectInputStream ois =
+            new BatfishObjectInputStream(in, ParseCache.class.getClassLoader())) {
+      T entry = entryClass.cast(ois.readObject());
+      // Record the use, so that eviction picks the least recently used entries
+      Files.setLastModifiedTime(entryPath, FileTime.fromMillis(System.currentTimeMillis()));
+      return entry;
+    } catch (IOException | ClassNotFoundException | ClassCastException e) {
+      logger.warnf("Ignoring unreadable parse cache entry '%s': %s\n", entryPath, e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Deletes the least recently used entries until the directory is within its size limit, along
+   * with temporary files abandoned by interrupted writes.
+   */
+  void prune(BatfishLogger logger) {
+    Map<Path, FileTime> lastUsedByEntry = new HashMap<>();
+    Map<Path, Long> sizeByEntry = new HashMap<>();
+    long totalSize = 0L;
+    long now = System.currentTimeMillis();
+    try (Stream<Path> paths = Files.list(_dir)) {
+      for (Path path : paths.collect(Collectors.toList())) {
+        FileTime lastModified = Files.getLastModifiedTime(path);
+        if (path.getFileName().toString().endsWith(TEMP_FILE_SUFFIX)) {
+          if (now - lastModified.toMillis() > STALE_TEMP_FILE_MS) {
+            Files.deleteIfExists(path);
+          }
+        } else {
+          long size = Files.size(path);
+          lastUsedByEntry.put(path, lastModified);
+          sizeByEntry.put(path, size);
+          totalSize += size;
+        }
+      }
+      if (totalSize <= _maxSizeBytes) {
+        return;
+      }
+      List<Path> entries = new ArrayList<>(lastUsedByEntry.keySet());
+      entries.sort(Comparator.comparing(lastUsedByEntry::get));
+      int evicted = 0;
+      for (Path entry : entries) {
+        if (totalSize <= _maxSizeBytes) {
+          break;
+        }
+        Files.deleteIfExists(entry);
+        totalSize -= sizeByEntry.get(entry);
+        evicted++;
+      }
+      logger.infof("Evicted %d least recently used parse cache entries\n", evicted);
+    } catch (IOException e) {
+      // Entries may be evicted or replaced concurrently by another process
+      logger.warnf("Failed to prune parse cache '%s': %s\n", _dir, e.getMessage());
+    }
+  }
+
+  /**
+   * Stores {@code entry} under {@code key}, replacing any existing entry atomically. Failure to
+   * write is logged rather than thrown, since the cache is only an optimization. Prunes the cache
+   * whenever a tenth of its size limit has been written since it was last pruned.
+   */
+  void put(String key, Serializable entry, BatfishLogger logger) {
+    long pruneThreshold = Math.max(1L, _maxSizeBytes / PRUNE_INTERVAL_DIVISOR);
+    try {
+      Files.createDirectories(_dir);
+      Path tmp = Files.createTempFile(_dir, key, TEMP_FILE_SUFFIX);
+      try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp));
+          ObjectOutputStream oos = new ObjectOutputStream(out)) {
+        oos.writeObject(entry);
+      }
+      long size = Files.size(tmp);
+      Files.move(tmp, _dir.resolve(key), StandardCopyOption.ATOMIC_MOVE);
+      AtomicLong written =
+          WRITTEN_SINCE_PRUNE.computeIfAbsent(_dir, d -> new AtomicLong(pruneThreshold));
+      long writtenSincePrune = written.addAndGet(size);
+      if (writtenSincePrune >= pruneThreshold && written.compareAndSet(writtenSincePrune, 0L)) {
+        prune(logger);
+      }
+    } catch (IOException e) {
+      logger.warnf("Failed to write parse cache entry '%s': %s\n", key, e.getMessage());
+    }
+  }
+}
@@ -39,7 +39,7 @@ public class ParseEnvironmentBgpTableJob extends BatfishJob<ParseEnvironmentBgpT
       Path file,
       Warnings warnings,
       SortedMap<BgpTableFormat, BgpTablePlugin> bgpTablePlugins) {
-    super(settings);
+    super(settings, file.getFileName().toString());
     _bgpTablePlugins = bgpTablePlugins;
     _fileText = fileText;
     _file = file;
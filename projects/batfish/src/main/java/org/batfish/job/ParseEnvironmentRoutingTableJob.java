@@ -40,7 +40,7 @@ public class ParseEnvironmentRoutingTableJob
 
   public ParseEnvironmentRoutingTableJob(
       Settings settings, String fileText, Path file, Warnings warnings, IBatfish batfish) {
-    super(settings);
+    super(settings, file.getFileName().toString());
     _batfish = batfish;
     _fileText = fileText;
     _file = file;
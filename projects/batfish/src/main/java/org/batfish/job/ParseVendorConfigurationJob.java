@@ -1,5 +1,6 @@
 package org.batfish.job;
 
+import java.io.Serializable;
 import java.nio.file.Path;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -61,6 +62,24 @@ public class ParseVendorConfigurationJob extends BatfishJob<ParseVendorConfigura
     }
   }
 
+  /** A successful parse result as stored in the {@link ParseCache} */
+  private static final class CachedParseResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean _unrecognized;
+
+    private final VendorConfiguration _vc;
+
+    private final Warnings _warnings;
+
+    private CachedParseResult(VendorConfiguration vc, Warnings warnings) {
+      _unrecognized = vc.getUnrecognized();
+      _vc = vc;
+      _warnings = warnings;
+    }
+  }
+
   private Path _file;
 
   private String _fileText;
@@ -77,7 +96,7 @@ public class ParseVendorConfigurationJob extends BatfishJob<ParseVendorConfigura
       Path file,
       Warnings warnings,
       ConfigurationFormat configurationFormat) {
-    super(settings);
+    super(settings, file.getFileName().toString());
     _fileText = fileText;
     _file = file;
     _ptSentences = new ParseTreeSentences();
@@ -85,9 +104,33 @@ public class ParseVendorConfigurationJob extends BatfishJob<ParseVendorConfigura
     _format = configurationFormat;
   }
 
-  @SuppressWarnings("fallthrough")
+  /**
+   * Creates a job that reads the text of {@code file} itself when run, so that the file contents
+   * are only held in memory while the job is in flight.
+   */
+  public ParseVendorConfigurationJob(
+      Settings settings, Path file, Warnings warnings, ConfigurationFormat configurationFormat) {
+    this(settings, null, file, warnings, configurationFormat);
+  }
+
   @Override
   public ParseVendorConfigurationResult call() throws Exception {
+    try {
+      return parse();
+    } finally {
+      // Jobs stay reachable until all jobs of a batch complete, so drop the file text as soon as
+      // this one finishes to keep only the texts of in-flight jobs in memory.
+      _fileText = null;
+    }
+  }
+
+  /** Returns the text of the file to parse, if currently held by this job */
+  String getFileText() {
+    return _fileText;
+  }
+
+  @SuppressWarnings("fallthrough")
+  private ParseVendorConfigurationResult parse() throws Exception {
     long startTime = System.currentTimeMillis();
     long elapsedTime;
     String currentPath = _file.toAbsolutePath().toString();
@@ -97,6 +140,9 @@ public class ParseVendorConfigurationJob extends BatfishJob<ParseVendorConfigura
     ControlPlaneExtractor extractor = null;
     ConfigurationFormat format = _format;
     _logger.info("Processing: '" + currentPath + "'\n");
+    if (_fileText == null) {
+      _fileText = Batfish.readConfigurationFile(_file);
+    }
 
     for (String s : _settings.ignoreFilesWithStrings()) {
       if (_fileText.contains(s)) {
@@ -108,6 +154,24 @@ public class ParseVendorConfigurationJob extends BatfishJob<ParseVendorConfigura
     String relativePathStr =
         _settings.getActiveTestrigSettings().getBasePath().relativize(_file).toString();
 
+    // The parse tree is not cached, so only consult the cache when it is not needed
+    ParseCache cache = _settings.getPrintParseTree() ? null : ParseCache.forSettings(_settings);
+    String cacheKey = null;
+    if (cache != null) {
+      cacheKey = ParseCache.key(_settings, "parse", format.name(), relativePathStr, _fileText);
+      CachedParseResult cached = cache.get(cacheKey, CachedParseResult.class, _logger);
+      if (cached != null) {
+        _logger.info("\tReusing cached parse result\n");
+        vc = cached._vc;
+        vc.setUnrecognized(cached._unrecognized);
+        vc.setContentHash(cacheKey);
+        Batfish.logWarnings(_logger, cached._warnings);
+        elapsedTime = System.currentTimeMillis() - startTime;
+        return new ParseVendorConfigurationResult(
+            elapsedTime, _logger.getHistory(), _file, vc, cached._warnings, _ptSentences);
+      }
+    }
+
     if (format == ConfigurationFormat.UNKNOWN) {
       format = VendorConfigurationFormatDetector.identifyConfigurationFormat(_fileText);
     }
@@ -354,6 +418,10 @@ public class ParseVendorConfigurationJob extends BatfishJob<ParseVendorConfigura
               + "'\n");
       vc.setHostname(guessedHostname);
     }
+    if (cache != null) {
+      vc.setContentHash(cacheKey);
+      cache.put(cacheKey, new CachedParseResult(vc, _warnings), _logger);
+    }
     elapsedTime = System.currentTimeMillis() - startTime;
     return new ParseVendorConfigurationResult(
         elapsedTime, _logger.getHistory(), _file, vc, _warnings, _ptSentences);
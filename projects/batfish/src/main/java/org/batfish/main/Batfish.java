@@ -1,5 +1,6 @@
 package org.batfish.main;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -7,9 +8,12 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.cache.Cache;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
-import java.io.File;
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
@@ -32,13 +36,16 @@ import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiFunction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 import javax.annotation.Nullable;
 import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
@@ -66,6 +73,7 @@ import org.batfish.common.plugin.PluginClientType;
 import org.batfish.common.plugin.PluginConsumer;
 import org.batfish.common.util.BatfishObjectMapper;
 import org.batfish.common.util.CommonUtil;
+import org.batfish.common.util.TimedInputStream;
 import org.batfish.config.Settings;
 import org.batfish.config.Settings.EnvironmentSettings;
 import org.batfish.config.Settings.TestrigSettings;
@@ -420,6 +428,12 @@ public class Batfish extends PluginConsumer implements IBatfish {
     return tree;
   }
 
+  /**
+   * The admission of the task run by this instance, if run as a worker task. Escalated before
+   * stale serialized data of the testrig is repaired.
+   */
+  @Nullable private TaskSlots.Admission _admission;
+
   private final Map<String, BiFunction<Question, IBatfish, Answerer>> _answererCreators;
 
   private TestrigSettings _baseTestrigSettings;
@@ -463,7 +477,7 @@ public class Batfish extends PluginConsumer implements IBatfish {
       Map<EnvironmentSettings, SortedMap<String, BgpAdvertisementsByVrf>>
           cachedEnvironmentBgpTables,
       Map<EnvironmentSettings, SortedMap<String, RoutesByVrf>> cachedEnvironmentRoutingTables) {
-    super(settings.getSerializeToText());
+    super(settings.getSerializeToText(), settings.getSerializeCompact());
     _settings = settings;
     _bgpTablePlugins = new TreeMap<>();
     _cachedConfigurations = cachedConfigurations;
@@ -1100,47 +1114,84 @@ public class Batfish extends PluginConsumer implements IBatfish {
     return routingTables;
   }
 
+  /**
+   * Deserializes the gzipped objects in the given files. Reading, decompression, and
+   * deserialization of each file are fused into a single parallel stage that streams from disk, so
+   * only the files currently being processed are buffered in memory. The time spent in I/O and
+   * decompression versus deserialization is reported once all files are loaded.
+   */
   public <S extends Serializable> SortedMap<String, S> deserializeObjects(
       Map<Path, String> namesByPath, Class<S> outputClass) {
     String outputClassName = outputClass.getName();
     BatfishLogger logger = getLogger();
-    Map<String, byte[]> dataByName = new TreeMap<>();
-    AtomicInteger readCompleted =
+    AtomicInteger completed =
         newBatch(
-            "Reading and unpacking files containg '" + outputClassName + "' instances",
+            "Reading, unpacking, and deserializing files containing '"
+                + outputClassName
+                + "' instances",
             namesByPath.size());
-    namesByPath.forEach(
-        (inputPath, name) -> {
-          logger.debug(
-              "Reading and gunzipping: "
-                  + outputClassName
-                  + " '"
-                  + name
-                  + "' from '"
-                  + inputPath.toString()
-                  + "'");
-          byte[] data = fromGzipFile(inputPath);
-          logger.debug(" ...OK\n");
-          dataByName.put(name, data);
-          readCompleted.incrementAndGet();
-        });
+    LongAdder readNanos = new LongAdder();
+    LongAdder totalNanos = new LongAdder();
     Map<String, S> unsortedOutput = new ConcurrentHashMap<>();
-    AtomicInteger deserializeCompleted =
-        newBatch("Deserializing '" + outputClassName + "' instances", dataByName.size());
-    dataByName
-        .keySet()
+    namesByPath
+        .entrySet()
         .parallelStream()
         .forEach(
-            name -> {
-              byte[] data = dataByName.get(name);
-              S object = deserializeObject(data, outputClass);
+            e -> {
+              Path inputPath = e.getKey();
+              String name = e.getValue();
+              logger.debug(
+                  "Reading, gunzipping, and deserializing: "
+                      + outputClassName
+                      + " '"
+                      + name
+                      + "' from '"
+                      + inputPath.toString()
+                      + "'");
+              long start = System.nanoTime();
+              S object = deserializeGzipFile(inputPath, outputClass, readNanos);
+              totalNanos.add(System.nanoTime() - start);
+              logger.debug(" ...OK\n");
               unsortedOutput.put(name, object);
-              deserializeCompleted.incrementAndGet();
+              completed.incrementAndGet();
             });
+    long readMs = TimeUnit.NANOSECONDS.toMillis(readNanos.sum());
+    long deserializeMs = TimeUnit.NANOSECONDS.toMillis(totalNanos.sum() - readNanos.sum());
+    String timing =
+        String.format(
+            "Loaded %d '%s' instances: %s reading and unpacking, %s deserializing (summed over "
+                + "threads)",
+            namesByPath.size(),
+            outputClassName,
+            CommonUtil.getTime(readMs),
+            CommonUtil.getTime(deserializeMs));
+    logger.info(timing + "\n");
+    newBatch(timing, 0);
     SortedMap<String, S> output = new TreeMap<>(unsortedOutput);
     return output;
   }
 
+  /**
+   * Streams a gzipped object from {@code inputFile}, adding the time spent reading and
+   * decompressing to {@code readNanos}
+   */
+  private <S extends Serializable> S deserializeGzipFile(
+      Path inputFile, Class<S> outputClass, LongAdder readNanos) {
+    try (InputStream in =
+        new BufferedInputStream(
+            new TimedInputStream(
+                new GZIPInputStream(new BufferedInputStream(Files.newInputStream(inputFile))),
+                readNanos))) {
+      return deserializeObject(in, outputClass);
+    } catch (IOException e) {
+      throw new BatfishException(
+          String.format(
+              "Failed to deserialize object of type %s from file %s",
+              outputClass.getCanonicalName(), inputFile),
+          e);
+    }
+  }
+
   public Map<String, GenericConfigObject> deserializeVendorConfigurations(
       Path serializedVendorConfigPath) {
     _logger.info("\n*** DESERIALIZING VENDOR CONFIGURATION STRUCTURES ***\n");
@@ -2322,6 +2373,9 @@ public class Batfish extends PluginConsumer implements IBatfish {
       ConvertConfigurationAnswerElement ccae = loadConvertConfigurationAnswerElement();
       if (!Version.isCompatibleVersion(
           "Service", "Old processed configurations", ccae.getVersion())) {
+        if (escalateForRepair()) {
+          return loadConfigurationsWithoutValidation();
+        }
         repairConfigurations();
       }
       configurations = deserializeConfigurations(_testrigSettings.getSerializeIndependentPath());
@@ -2347,6 +2401,9 @@ public class Batfish extends PluginConsumer implements IBatfish {
       }
     }
     if (firstAttempt) {
+      if (escalateForRepair()) {
+        return loadConvertConfigurationAnswerElement(true);
+      }
       repairConfigurations();
       return loadConvertConfigurationAnswerElement(false);
     } else {
@@ -2381,6 +2438,44 @@ public class Batfish extends PluginConsumer implements IBatfish {
     return loadDataPlaneAnswerElement(true);
   }
 
+  /**
+   * Loads the configurations and data plane of the testrig into the caches, if they were already
+   * computed by a compatible version. Unlike {@link #loadConfigurations} and {@link
+   * #loadDataPlane}, this never validates, repairs, or computes anything, so that it is cheap to
+   * call speculatively before a task on the testrig arrives. Returns whether anything was loaded.
+   */
+  public boolean prefetch() {
+    boolean loaded = false;
+    if (_cachedConfigurations.getIfPresent(_testrigSettings) == null
+        && Files.exists(_testrigSettings.getConvertAnswerPath())
+        && Version.isCompatibleVersion(
+            "Service",
+            "Old processed configurations",
+            deserializeObject(
+                    _testrigSettings.getConvertAnswerPath(),
+                    ConvertConfigurationAnswerElement.class)
+                .getVersion())) {
+      _cachedConfigurations.put(
+          _testrigSettings,
+          deserializeConfigurations(_testrigSettings.getSerializeIndependentPath()));
+      loaded = true;
+    }
+    EnvironmentSettings envSettings = _testrigSettings.getEnvironmentSettings();
+    if (_cachedDataPlanes.getIfPresent(_testrigSettings) == null
+        && Files.exists(envSettings.getDataPlaneAnswerPath())
+        && Files.exists(envSettings.getDataPlanePath())
+        && Version.isCompatibleVersion(
+            "Service",
+            "Old data plane",
+            deserializeObject(envSettings.getDataPlaneAnswerPath(), DataPlaneAnswerElement.class)
+                .getVersion())) {
+      _cachedDataPlanes.put(
+          _testrigSettings, deserializeObject(envSettings.getDataPlanePath(), DataPlane.class));
+      loaded = true;
+    }
+    return loaded;
+  }
+
   private DataPlaneAnswerElement loadDataPlaneAnswerElement(boolean firstAttempt) {
     DataPlaneAnswerElement bae =
         deserializeObject(
@@ -2388,6 +2483,9 @@ public class Batfish extends PluginConsumer implements IBatfish {
             DataPlaneAnswerElement.class);
     if (!Version.isCompatibleVersion("Service", "Old data plane", bae.getVersion())) {
       if (firstAttempt) {
+        if (escalateForRepair()) {
+          return loadDataPlaneAnswerElement(true);
+        }
         repairDataPlane();
         return loadDataPlaneAnswerElement(false);
       } else {
@@ -2408,6 +2506,9 @@ public class Batfish extends PluginConsumer implements IBatfish {
       ParseEnvironmentBgpTablesAnswerElement ae = loadParseEnvironmentBgpTablesAnswerElement();
       if (!Version.isCompatibleVersion(
           "Service", "Old processed environment BGP tables", ae.getVersion())) {
+        if (escalateForRepair()) {
+          return loadEnvironmentBgpTables();
+        }
         repairEnvironmentBgpTables();
       }
       environmentBgpTables =
@@ -2427,6 +2528,9 @@ public class Batfish extends PluginConsumer implements IBatfish {
           loadParseEnvironmentRoutingTablesAnswerElement();
       if (!Version.isCompatibleVersion(
           "Service", "Old processed environment routing tables", pertae.getVersion())) {
+        if (escalateForRepair()) {
+          return loadEnvironmentRoutingTables();
+        }
         repairEnvironmentRoutingTables();
       }
       environmentRoutingTables =
@@ -2447,6 +2551,9 @@ public class Batfish extends PluginConsumer implements IBatfish {
     Path answerPath =
         _testrigSettings.getEnvironmentSettings().getParseEnvironmentBgpTablesAnswerPath();
     if (!Files.exists(answerPath)) {
+      if (escalateForRepair()) {
+        return loadParseEnvironmentBgpTablesAnswerElement(firstAttempt);
+      }
       repairEnvironmentBgpTables();
     }
     ParseEnvironmentBgpTablesAnswerElement ae =
@@ -2454,6 +2561,9 @@ public class Batfish extends PluginConsumer implements IBatfish {
     if (!Version.isCompatibleVersion(
         "Service", "Old processed environment BGP tables", ae.getVersion())) {
       if (firstAttempt) {
+        if (escalateForRepair()) {
+          return loadParseEnvironmentBgpTablesAnswerElement(true);
+        }
         repairEnvironmentRoutingTables();
         return loadParseEnvironmentBgpTablesAnswerElement(false);
       } else {
@@ -2477,6 +2587,9 @@ public class Batfish extends PluginConsumer implements IBatfish {
     Path answerPath =
         _testrigSettings.getEnvironmentSettings().getParseEnvironmentRoutingTablesAnswerPath();
     if (!Files.exists(answerPath)) {
+      if (escalateForRepair()) {
+        return loadParseEnvironmentRoutingTablesAnswerElement(firstAttempt);
+      }
       repairEnvironmentRoutingTables();
     }
     ParseEnvironmentRoutingTablesAnswerElement pertae =
@@ -2484,6 +2597,9 @@ public class Batfish extends PluginConsumer implements IBatfish {
     if (!Version.isCompatibleVersion(
         "Service", "Old processed environment routing tables", pertae.getVersion())) {
       if (firstAttempt) {
+        if (escalateForRepair()) {
+          return loadParseEnvironmentRoutingTablesAnswerElement(true);
+        }
         repairEnvironmentRoutingTables();
         return loadParseEnvironmentRoutingTablesAnswerElement(false);
       } else {
@@ -2513,6 +2629,9 @@ public class Batfish extends PluginConsumer implements IBatfish {
       }
     }
     if (firstAttempt) {
+      if (escalateForRepair()) {
+        return loadParseVendorConfigurationAnswerElement(true);
+      }
       repairVendorConfigurations();
       return loadParseVendorConfigurationAnswerElement(false);
     } else {
@@ -2536,6 +2655,9 @@ public class Batfish extends PluginConsumer implements IBatfish {
       }
     }
     if (firstAttempt) {
+      if (escalateForRepair()) {
+        return loadValidateEnvironmentAnswerElement(true);
+      }
       repairEnvironment();
       return loadValidateEnvironmentAnswerElement(false);
     } else {
@@ -2630,53 +2752,18 @@ public class Batfish extends PluginConsumer implements IBatfish {
   }
 
   void outputAnswer(Answer answer) {
-    ObjectMapper mapper = new BatfishObjectMapper();
+    outputAnswer(answer, false);
+  }
+
+  private void outputAnswer(Answer answer, boolean writeLog) {
     try {
-      Answer structuredAnswer = answer;
-      Answer prettyAnswer = structuredAnswer.prettyPrintAnswer();
-      StringBuilder structuredAnswerSb = new StringBuilder();
-      String structuredAnswerRawString = mapper.writeValueAsString(structuredAnswer);
-      structuredAnswerSb.append(structuredAnswerRawString);
-      structuredAnswerSb.append("\n");
-      String structuredAnswerString = structuredAnswerSb.toString();
-      StringBuilder prettyAnswerSb = new StringBuilder();
-      String prettyAnswerRawString = mapper.writeValueAsString(prettyAnswer);
-      prettyAnswerSb.append(prettyAnswerRawString);
-      prettyAnswerSb.append("\n");
-      String answerString;
-      String prettyAnswerString = prettyAnswerSb.toString();
-      if (_settings.prettyPrintAnswer()) {
-        answerString = prettyAnswerString;
-      } else {
-        answerString = structuredAnswerString;
-      }
-      _logger.debug(answerString);
-      writeJsonAnswer(structuredAnswerString, prettyAnswerString);
+      writeJsonAnswer(answer, writeLog, false);
     } catch (Exception e) {
       BatfishException be = new BatfishException("Error in sending answer", e);
       try {
         Answer failureAnswer = Answer.failureAnswer(e.toString(), answer.getQuestion());
         failureAnswer.addAnswerElement(be.getBatfishStackTrace());
-        Answer structuredAnswer = failureAnswer;
-        Answer prettyAnswer = structuredAnswer.prettyPrintAnswer();
-        StringBuilder structuredAnswerSb = new StringBuilder();
-        String structuredAnswerRawString = mapper.writeValueAsString(structuredAnswer);
-        structuredAnswerSb.append(structuredAnswerRawString);
-        structuredAnswerSb.append("\n");
-        String structuredAnswerString = structuredAnswerSb.toString();
-        StringBuilder prettyAnswerSb = new StringBuilder();
-        String prettyAnswerRawString = mapper.writeValueAsString(prettyAnswer);
-        prettyAnswerSb.append(prettyAnswerRawString);
-        prettyAnswerSb.append("\n");
-        String answerString;
-        String prettyAnswerString = prettyAnswerSb.toString();
-        if (_settings.prettyPrintAnswer()) {
-          answerString = prettyAnswerString;
-        } else {
-          answerString = structuredAnswerString;
-        }
-        _logger.error(answerString);
-        writeJsonAnswer(structuredAnswerString, prettyAnswerString);
+        writeJsonAnswer(failureAnswer, writeLog, true);
       } catch (Exception e1) {
         _logger.errorf("Could not serialize failure answer. %s", ExceptionUtils.getStackTrace(e1));
       }
@@ -2685,58 +2772,7 @@ public class Batfish extends PluginConsumer implements IBatfish {
   }
 
   void outputAnswerWithLog(Answer answer) {
-    ObjectMapper mapper = new BatfishObjectMapper();
-    try {
-      Answer structuredAnswer = answer;
-      Answer prettyAnswer = structuredAnswer.prettyPrintAnswer();
-      StringBuilder structuredAnswerSb = new StringBuilder();
-      String structuredAnswerRawString = mapper.writeValueAsString(structuredAnswer);
-      structuredAnswerSb.append(structuredAnswerRawString);
-      structuredAnswerSb.append("\n");
-      String structuredAnswerString = structuredAnswerSb.toString();
-      StringBuilder prettyAnswerSb = new StringBuilder();
-      String prettyAnswerRawString = mapper.writeValueAsString(prettyAnswer);
-      prettyAnswerSb.append(prettyAnswerRawString);
-      prettyAnswerSb.append("\n");
-      String answerString;
-      String prettyAnswerString = prettyAnswerSb.toString();
-      if (_settings.prettyPrintAnswer()) {
-        answerString = prettyAnswerString;
-      } else {
-        answerString = structuredAnswerString;
-      }
-      _logger.debug(answerString);
-      writeJsonAnswerWithLog(answerString, structuredAnswerString, prettyAnswerString);
-    } catch (Exception e) {
-      BatfishException be = new BatfishException("Error in sending answer", e);
-      try {
-        Answer failureAnswer = Answer.failureAnswer(e.toString(), answer.getQuestion());
-        failureAnswer.addAnswerElement(be.getBatfishStackTrace());
-        Answer structuredAnswer = failureAnswer;
-        Answer prettyAnswer = structuredAnswer.prettyPrintAnswer();
-        StringBuilder structuredAnswerSb = new StringBuilder();
-        String structuredAnswerRawString = mapper.writeValueAsString(structuredAnswer);
-        structuredAnswerSb.append(structuredAnswerRawString);
-        structuredAnswerSb.append("\n");
-        String structuredAnswerString = structuredAnswerSb.toString();
-        StringBuilder prettyAnswerSb = new StringBuilder();
-        String prettyAnswerRawString = mapper.writeValueAsString(prettyAnswer);
-        prettyAnswerSb.append(prettyAnswerRawString);
-        prettyAnswerSb.append("\n");
-        String answerString;
-        String prettyAnswerString = prettyAnswerSb.toString();
-        if (_settings.prettyPrintAnswer()) {
-          answerString = prettyAnswerString;
-        } else {
-          answerString = structuredAnswerString;
-        }
-        _logger.error(answerString);
-        writeJsonAnswerWithLog(answerString, structuredAnswerString, prettyAnswerString);
-      } catch (Exception e1) {
-        _logger.errorf("Could not serialize failure answer. %s", ExceptionUtils.getStackTrace(e1));
-      }
-      throw be;
-    }
+    outputAnswer(answer, true);
   }
 
   private ParserRuleContext parse(BatfishCombinedParser<?, ?> parser) {
@@ -2992,6 +3028,37 @@ public class Batfish extends PluginConsumer implements IBatfish {
     return vendorConfigurations;
   }
 
+  /**
+   * Parses the given files without reading them up front. Each parse job reads its own file, so
+   * together with the in-flight window of {@link BatfishJobExecutor} only a bounded number of file
+   * texts are held in memory at once. Each parsed configuration is put into {@code
+   * vendorConfigurations} as its job completes.
+   */
+  private void parseVendorConfigurationFiles(
+      List<Path> configFilePaths,
+      ParseVendorConfigurationAnswerElement answerElement,
+      ConfigurationFormat configurationFormat,
+      Map<String, VendorConfiguration> vendorConfigurations) {
+    _logger.info("\n*** READING AND PARSING VENDOR CONFIGURATION FILES ***\n");
+    _logger.resetTimer();
+    List<ParseVendorConfigurationJob> jobs = new ArrayList<>();
+    for (Path currentFile : configFilePaths) {
+      Warnings warnings = buildWarnings();
+      ParseVendorConfigurationJob job =
+          new ParseVendorConfigurationJob(_settings, currentFile, warnings, configurationFormat);
+      jobs.add(job);
+    }
+    BatfishJobExecutor.runJobsInExecutor(
+        _settings,
+        _logger,
+        jobs,
+        vendorConfigurations,
+        answerElement,
+        _settings.getHaltOnParseError(),
+        "Read and parse configurations");
+    _logger.printElapsedTime();
+  }
+
   @Override
   public AnswerElement pathDiff(HeaderSpace headerSpace) {
     if (SystemUtils.IS_OS_MAC_OSX) {
@@ -3411,15 +3478,19 @@ public class Batfish extends PluginConsumer implements IBatfish {
         newBatch("Reading network configuration files", configFilePaths.size());
     for (Path file : configFilePaths) {
       _logger.debug("Reading: \"" + file + "\"\n");
-      String fileTextRaw = CommonUtil.readFile(file.toAbsolutePath());
-      String fileText = fileTextRaw + ((fileTextRaw.length() != 0) ? "\n" : "");
-      configurationData.put(file, fileText);
+      configurationData.put(file, readConfigurationFile(file));
       completed.incrementAndGet();
     }
     _logger.printElapsedTime();
     return configurationData;
   }
 
+  /** Reads the text of a configuration file, terminating any non-empty text with a newline. */
+  public static String readConfigurationFile(Path file) {
+    String fileTextRaw = CommonUtil.readFile(file.toAbsolutePath());
+    return fileTextRaw + ((fileTextRaw.length() != 0) ? "\n" : "");
+  }
+
   @Nullable
   @Override
   public String readExternalBgpAnnouncementsFile() {
@@ -3652,6 +3723,23 @@ public class Batfish extends PluginConsumer implements IBatfish {
     _externalBgpAdvertisementPlugins.add(externalBgpAdvertisementPlugin);
   }
 
+  /**
+   * Obtains exclusive access to the testrigs of this task, so that their serialized data may be
+   * repaired. Returns {@code true} if this task had to wait for it, in which case another task may
+   * have repaired the data meanwhile and the caller must check again whether repair is needed.
+   */
+  private boolean escalateForRepair() {
+    if (_admission == null) {
+      return false;
+    }
+    try {
+      return _admission.escalate();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new BatfishException("Interrupted while waiting to repair testrig", e);
+    }
+  }
+
   private void repairConfigurations() {
     Path outputPath = _testrigSettings.getSerializeIndependentPath();
     CommonUtil.deleteDirectory(outputPath);
@@ -3878,7 +3966,8 @@ public class Batfish extends PluginConsumer implements IBatfish {
     } catch (JsonProcessingException e) {
       throw new BatfishException("Could not serialize " + objectName + " ", e);
     }
-    CommonUtil.writeFile(outputPath, str);
+    // the output may be in the testrig directory, whose files must be replaced, not modified
+    CommonUtil.replaceFile(outputPath, str);
   }
 
   private Answer serializeAwsVpcConfigs(Path testRigPath, Path outputPath) {
@@ -4064,54 +4153,30 @@ public class Batfish extends PluginConsumer implements IBatfish {
     return answer;
   }
 
+  /**
+   * Parses and serializes the network configurations of the given testrig. Each configuration is
+   * serialized and dropped as soon as its parse job completes, so memory use is bounded by the
+   * in-flight window of {@link BatfishJobExecutor} rather than by the size of the testrig.
+   */
   private void serializeNetworkConfigs(
       Path testRigPath,
       Path outputPath,
       ParseVendorConfigurationAnswerElement answerElement,
       SortedMap<String, VendorConfiguration> overlayHostConfigurations) {
-    Map<Path, String> configurationData =
-        readConfigurationFiles(testRigPath, BfConsts.RELPATH_CONFIGURATIONS_DIR);
-    Map<String, VendorConfiguration> vendorConfigurations =
-        parseVendorConfigurations(configurationData, answerElement, ConfigurationFormat.UNKNOWN);
-    if (vendorConfigurations == null) {
-      throw new BatfishException("Exiting due to parser errors");
-    }
-    _logger.info("\n*** SERIALIZING VENDOR CONFIGURATION STRUCTURES ***\n");
-    _logger.resetTimer();
+    List<Path> configFilePaths =
+        listAllFiles(testRigPath.resolve(BfConsts.RELPATH_CONFIGURATIONS_DIR));
     CommonUtil.createDirectories(outputPath);
-    Map<Path, VendorConfiguration> output = new TreeMap<>();
-    vendorConfigurations.forEach(
-        (name, vc) -> {
-          if (name.contains(File.separator)) {
-            // iptables will get a hostname like configs/iptables-save if they
-            // are not set up correctly using host files
-            _logger.errorf("Cannot serialize configuration with hostname %s\n", name);
-            answerElement.addRedFlagWarning(
-                name,
-                new Warning(
-                    "Cannot serialize network config. Bad hostname " + name.replace("\\", "/"),
-                    "MISCELLANEOUS"));
-          } else {
-            // apply overlay if it exists
-            VendorConfiguration overlayConfig = overlayHostConfigurations.get(name);
-            if (overlayConfig != null) {
-              vc.setOverlayConfiguration(overlayConfig);
-              overlayHostConfigurations.remove(name);
-            }
-
-            Path currentOutputPath = outputPath.resolve(name);
-            output.put(currentOutputPath, vc);
-          }
-        });
+    parseVendorConfigurationFiles(
+        configFilePaths,
+        answerElement,
+        ConfigurationFormat.UNKNOWN,
+        new NetworkConfigSerializer(this, outputPath, answerElement, overlayHostConfigurations));
 
     // warn about unused overlays
     overlayHostConfigurations.forEach(
         (name, overlay) -> {
           answerElement.getParseStatus().put(name, ParseStatus.ORPHANED);
         });
-
-    serializeObjects(output);
-    _logger.printElapsedTime();
   }
 
   public <S extends Serializable> void serializeObjects(Map<Path, S> objectsByPath) {
@@ -4119,33 +4184,22 @@ public class Batfish extends PluginConsumer implements IBatfish {
       return;
     }
     BatfishLogger logger = getLogger();
-    Map<Path, byte[]> dataByPath = new ConcurrentHashMap<>();
     int size = objectsByPath.size();
     String className = objectsByPath.values().iterator().next().getClass().getName();
-    AtomicInteger serializeCompleted = newBatch("Serializing '" + className + "' instances", size);
+    // Each object is written as soon as it is serialized, so at most one serialized object per
+    // thread is held in memory at a time.
+    AtomicInteger completed =
+        newBatch("Serializing and writing '" + className + "' instances to disk", size);
     objectsByPath
         .keySet()
         .parallelStream()
         .forEach(
             outputPath -> {
-              S object = objectsByPath.get(outputPath);
-              byte[] gzipData = toGzipData(object);
-              dataByPath.put(outputPath, gzipData);
-              serializeCompleted.incrementAndGet();
+              logger.debug("Writing: \"" + outputPath + "\"...");
+              serializeObject(objectsByPath.get(outputPath), outputPath);
+              logger.debug("OK\n");
+              completed.incrementAndGet();
             });
-    AtomicInteger writeCompleted =
-        newBatch("Packing and writing '" + className + "' instances to disk", size);
-    dataByPath.forEach(
-        (outputPath, data) -> {
-          logger.debug("Writing: \"" + outputPath + "\"...");
-          try {
-            Files.write(outputPath, data);
-          } catch (IOException e) {
-            throw new BatfishException("Failed to write: '" + outputPath + "'");
-          }
-          logger.debug("OK\n");
-          writeCompleted.incrementAndGet();
-        });
   }
 
   Answer serializeVendorConfigs(Path testRigPath, Path outputPath) {
@@ -4196,6 +4250,10 @@ public class Batfish extends PluginConsumer implements IBatfish {
     _dataPlanePlugin = dataPlanePlugin;
   }
 
+  void setAdmission(@Nullable TaskSlots.Admission admission) {
+    _admission = admission;
+  }
+
   public void setMonotonicCache(boolean monotonicCache) {
     _monotonicCache = monotonicCache;
   }
@@ -4432,45 +4490,36 @@ public class Batfish extends PluginConsumer implements IBatfish {
 
   @Override
   public void writeDataPlane(DataPlane dp, DataPlaneAnswerElement ae) {
-    _cachedDataPlanes.put(_testrigSettings, dp);
+    // serialize first, since the cached entry is weighed by the size of its serialized form
     serializeObject(dp, _testrigSettings.getEnvironmentSettings().getDataPlanePath());
+    _cachedDataPlanes.put(_testrigSettings, dp);
     serializeObject(ae, _testrigSettings.getEnvironmentSettings().getDataPlaneAnswerPath());
   }
 
-  private void writeJsonAnswer(String structuredAnswerString, String prettyAnswerString) {
-    Path questionPath = _settings.getQuestionPath();
-    if (questionPath != null) {
-      Path questionDir = questionPath.getParent();
-      if (!Files.exists(questionDir)) {
-        throw new BatfishException(
-            "Could not write JSON answer to question dir '"
-                + questionDir
-                + "' because it does not exist");
-      }
-      boolean diff = _settings.getDiffQuestion();
-      String baseEnvName = _testrigSettings.getEnvironmentSettings().getName();
-      Path answerDir =
-          questionDir.resolve(Paths.get(BfConsts.RELPATH_ENVIRONMENTS_DIR, baseEnvName).toString());
-      if (diff) {
-        String deltaTestrigName = _deltaTestrigSettings.getName();
-        String deltaEnvName = _deltaTestrigSettings.getEnvironmentSettings().getName();
-        answerDir =
-            answerDir.resolve(
-                Paths.get(BfConsts.RELPATH_DELTA, deltaTestrigName, deltaEnvName).toString());
+  /**
+   * Writes {@code structuredAnswer} and its pretty-printed form to the answer files of the
+   * question, and with {@code writeLog} the form selected by the settings to the answer json path.
+   * Answers are serialized straight to their files rather than to intermediate strings, since
+   * answers with many flow traces can be large. The answer is also logged, at error level if {@code
+   * failure}.
+   */
+  private void writeJsonAnswer(Answer structuredAnswer, boolean writeLog, boolean failure)
+      throws IOException {
+    Answer prettyAnswer = structuredAnswer.prettyPrintAnswer();
+    Answer selectedAnswer = _settings.prettyPrintAnswer() ? prettyAnswer : structuredAnswer;
+    ObjectMapper mapper = new BatfishObjectMapper();
+    int logLevel = failure ? BatfishLogger.LEVEL_ERROR : BatfishLogger.LEVEL_DEBUG;
+    if (_logger.isActive(logLevel)) {
+      String answerString = mapper.writeValueAsString(selectedAnswer) + "\n";
+      if (failure) {
+        _logger.error(answerString);
+      } else {
+        _logger.debug(answerString);
       }
-      Path structuredAnswerPath = answerDir.resolve(BfConsts.RELPATH_ANSWER_JSON);
-      Path prettyAnswerPath = answerDir.resolve(BfConsts.RELPATH_ANSWER_PRETTY_JSON);
-      answerDir.toFile().mkdirs();
-      CommonUtil.writeFile(structuredAnswerPath, structuredAnswerString);
-      CommonUtil.writeFile(prettyAnswerPath, prettyAnswerString);
     }
-  }
-
-  private void writeJsonAnswerWithLog(
-      String answerString, String structuredAnswerString, String prettyAnswerString) {
     Path jsonPath = _settings.getAnswerJsonPath();
-    if (jsonPath != null) {
-      CommonUtil.writeFile(jsonPath, answerString);
+    if (writeLog && jsonPath != null) {
+      writeJsonFile(mapper, jsonPath, selectedAnswer);
     }
     Path questionPath = _settings.getQuestionPath();
     if (questionPath != null) {
@@ -4495,8 +4544,20 @@ public class Batfish extends PluginConsumer implements IBatfish {
       Path structuredAnswerPath = answerDir.resolve(BfConsts.RELPATH_ANSWER_JSON);
       Path prettyAnswerPath = answerDir.resolve(BfConsts.RELPATH_ANSWER_PRETTY_JSON);
       answerDir.toFile().mkdirs();
-      CommonUtil.writeFile(structuredAnswerPath, structuredAnswerString);
-      CommonUtil.writeFile(prettyAnswerPath, prettyAnswerString);
+      writeJsonFile(mapper, structuredAnswerPath, structuredAnswer);
+      writeJsonFile(mapper, prettyAnswerPath, prettyAnswer);
+    }
+  }
+
+  /**
+   * Serializes {@code value} with {@code mapper} straight to the file at {@code path}, followed by
+   * a newline. The result is the same as writing {@link ObjectMapper#writeValueAsString} to the
+   * file.
+   */
+  static void writeJsonFile(ObjectMapper mapper, Path path, Object value) throws IOException {
+    try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+      mapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValue(writer, value);
+      writer.write("\n");
     }
   }
 
@@ -1,7 +1,5 @@
 package org.batfish.main;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import com.uber.jaeger.Configuration.ReporterConfiguration;
 import com.uber.jaeger.Configuration.SamplerConfiguration;
 import com.uber.jaeger.samplers.ConstSampler;
@@ -10,16 +8,24 @@ import io.opentracing.util.GlobalTracer;
 import java.net.URI;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 import java.util.SortedMap;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import javax.net.ssl.SSLHandshakeException;
 import javax.ws.rs.ProcessingException;
@@ -46,30 +52,34 @@ import org.batfish.config.ConfigurationLocator;
 import org.batfish.config.Settings;
 import org.batfish.config.Settings.EnvironmentSettings;
 import org.batfish.config.Settings.TestrigSettings;
-import org.batfish.datamodel.Configuration;
-import org.batfish.datamodel.DataPlane;
 import org.batfish.datamodel.answers.Answer;
 import org.batfish.datamodel.answers.AnswerStatus;
 import org.batfish.datamodel.collections.BgpAdvertisementsByVrf;
 import org.batfish.datamodel.collections.RoutesByVrf;
 import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
 import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
 import org.glassfish.jersey.jettison.JettisonFeature;
 import org.glassfish.jersey.server.ResourceConfig;
 
 public class Driver {
 
-  private static boolean _idle = true;
-
   private static Date _lastPollFromCoordinator = new Date();
 
   private static BatfishLogger _mainLogger = null;
 
   private static Settings _mainSettings = null;
 
+  private static Set<String> _pendingPrefetches = ConcurrentHashMap.newKeySet();
+
+  private static ThreadPoolExecutor _prefetchExecutor;
+
+  private static SnapshotCache _snapshotCache;
+
   private static ConcurrentMap<String, Task> _taskLog;
 
-  private static final Cache<TestrigSettings, DataPlane> CACHED_DATA_PLANES = buildDataPlaneCache();
+  private static TaskSlots _taskSlots;
 
   private static final Map<EnvironmentSettings, SortedMap<String, BgpAdvertisementsByVrf>>
       CACHED_ENVIRONMENT_BGP_TABLES = buildEnvironmentBgpTablesCache();
@@ -77,9 +87,6 @@ public class Driver {
   private static final Map<EnvironmentSettings, SortedMap<String, RoutesByVrf>>
       CACHED_ENVIRONMENT_ROUTING_TABLES = buildEnvironmentRoutingTablesCache();
 
-  private static final Cache<TestrigSettings, SortedMap<String, Configuration>> CACHED_TESTRIGS =
-      buildTestrigCache();
-
   private static final int COORDINATOR_POLL_CHECK_INTERVAL_MS = 1 * 60 * 1000;
 
   private static final int COORDINATOR_POLL_TIMEOUT_MS = 30 * 1000;
@@ -90,21 +97,13 @@ public class Driver {
   static Logger httpServerLogger =
       Logger.getLogger(org.glassfish.grizzly.http.server.HttpServer.class.getName());
 
-  private static final int MAX_CACHED_DATA_PLANES = 2;
-
   private static final int MAX_CACHED_ENVIRONMENT_BGP_TABLES = 4;
 
   private static final int MAX_CACHED_ENVIRONMENT_ROUTING_TABLES = 4;
 
-  private static final int MAX_CACHED_TESTRIGS = 5;
-
   static Logger networkListenerLogger =
       Logger.getLogger("org.glassfish.grizzly.http.server.NetworkListener");
 
-  private static synchronized Cache<TestrigSettings, DataPlane> buildDataPlaneCache() {
-    return CacheBuilder.newBuilder().maximumSize(MAX_CACHED_DATA_PLANES).weakValues().build();
-  }
-
   private static Map<EnvironmentSettings, SortedMap<String, BgpAdvertisementsByVrf>>
       buildEnvironmentBgpTablesCache() {
     return Collections.synchronizedMap(
@@ -119,29 +118,72 @@ public class Driver {
             MAX_CACHED_ENVIRONMENT_ROUTING_TABLES));
   }
 
-  private static synchronized Cache<TestrigSettings, SortedMap<String, Configuration>>
-      buildTestrigCache() {
-    return CacheBuilder.newBuilder().maximumSize(MAX_CACHED_TESTRIGS).build();
+  /** Returns the snapshots whose testrig or data plane is cached by this worker */
+  public static JSONArray getCachedSnapshots() throws JSONException {
+    return getSnapshotCache().getCachedSnapshotsJson();
   }
 
-  private static synchronized boolean claimIdle() {
-    if (_idle) {
-      _idle = false;
-      return true;
-    }
-
-    return false;
+  /** Returns the number of additional tasks this worker would accept now */
+  public static int getFreeTaskSlots() {
+    return getTaskSlots().getFreeSlots();
   }
 
+  /** Returns whether this worker would accept another task now */
   public static synchronized boolean getIdle() {
     _lastPollFromCoordinator = new Date();
-    return _idle;
+    return getTaskSlots().getFreeSlots() > 0;
   }
 
   public static BatfishLogger getMainLogger() {
     return _mainLogger;
   }
 
+  private static synchronized ThreadPoolExecutor getPrefetchExecutor() {
+    if (_prefetchExecutor == null) {
+      // one low-priority thread, so that prefetching never competes with tasks for more than a core
+      _prefetchExecutor =
+          new ThreadPoolExecutor(
+              1,
+              1,
+              0L,
+              TimeUnit.MILLISECONDS,
+              new ArrayBlockingQueue<>(Math.max(1, _mainSettings.getPrefetchQueueSize())),
+              runnable -> {
+                Thread thread = new Thread(runnable, "prefetch");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+              });
+    }
+    return _prefetchExecutor;
+  }
+
+  private static synchronized SnapshotCache getSnapshotCache() {
+    if (_snapshotCache == null) {
+      _snapshotCache = new SnapshotCache(SnapshotCache.getBudgetKb(_mainSettings));
+    }
+    return _snapshotCache;
+  }
+
+  /** Returns the size and hit/miss/eviction statistics of the worker's snapshot cache */
+  public static JSONObject getSnapshotCacheStats() throws JSONException {
+    return getSnapshotCache().getStatsJson();
+  }
+
+  /** Returns the number of tasks this worker runs at once */
+  public static int getTaskSlotCount() {
+    return getTaskSlots().getSlots();
+  }
+
+  private static synchronized TaskSlots getTaskSlots() {
+    if (_taskSlots == null) {
+      _taskSlots =
+          new TaskSlots(
+              _mainSettings.getMaxConcurrentTasks(), _mainSettings.getMaxConcurrentHeavyTasks());
+    }
+    return _taskSlots;
+  }
+
   @Nullable
   private static synchronized Task getTask(Settings settings) {
     String taskId = settings.getTaskId();
@@ -176,6 +218,11 @@ public class Driver {
       throw new Exception("duplicate UUID for task");
     } else {
       _taskLog.put(taskId, task);
+      pruneTaskLog(
+          _taskLog,
+          _mainSettings.getTaskLogMaxEntries(),
+          _mainSettings.getTaskLogRetentionMs(),
+          new Date());
     }
   }
 
@@ -275,16 +322,12 @@ public class Driver {
     } else if (_mainSettings.canExecute()) {
       _mainSettings.setLogger(_mainLogger);
       Batfish.initTestrigSettings(_mainSettings);
-      if (!runBatfish(_mainSettings)) {
+      if (!runBatfish(_mainSettings, null)) {
         System.exit(1);
       }
     }
   }
 
-  private static synchronized void makeIdle() {
-    _idle = true;
-  }
-
   public static synchronized AtomicInteger newBatch(
       Settings settings, String description, int jobs) {
     Batch batch = null;
@@ -298,6 +341,52 @@ public class Driver {
     }
   }
 
+  /**
+   * Tells the coordinator that the task with the given id has terminated, so that it can collect
+   * the result and assign new work without waiting for its next poll. Failures are only logged,
+   * since the coordinator also polls for task status.
+   */
+  private static void notifyCoordinatorOfCompletion(String taskId) {
+    String protocol = _mainSettings.getSslDisable() ? "http" : "https";
+    String url =
+        String.format(
+            "%s://%s:%s%s/%s",
+            protocol,
+            _mainSettings.getCoordinatorHost(),
+            _mainSettings.getCoordinatorPoolPort(),
+            CoordConsts.SVC_CFG_POOL_MGR,
+            CoordConsts.SVC_RSC_POOL_TASK_COMPLETED);
+    Map<String, String> params = new HashMap<>();
+    params.put(CoordConsts.SVC_KEY_WORKID, taskId);
+    talkToCoordinator(url, params, _mainLogger);
+  }
+
+  /**
+   * Forgets the tasks in {@code taskLog} that terminated more than {@code retentionMs} before
+   * {@code now}, then the earliest terminated ones while more than {@code maxEntries} tasks remain.
+   * Tasks that have not terminated are always kept.
+   */
+  static void pruneTaskLog(Map<String, Task> taskLog, int maxEntries, long retentionMs, Date now) {
+    taskLog
+        .values()
+        .removeIf(
+            task ->
+                task.getTerminated() != null
+                    && now.getTime() - task.getTerminated().getTime() > retentionMs);
+    int excess = taskLog.size() - maxEntries;
+    if (excess > 0) {
+      taskLog
+          .entrySet()
+          .stream()
+          .filter(entry -> entry.getValue().getTerminated() != null)
+          .sorted(Comparator.comparing(entry -> entry.getValue().getTerminated()))
+          .limit(excess)
+          .map(Entry::getKey)
+          .collect(Collectors.toList())
+          .forEach(taskLog::remove);
+    }
+  }
+
   private static boolean registerWithCoordinator(String poolRegUrl) {
     Map<String, String> params = new HashMap<>();
     params.put(
@@ -331,7 +420,8 @@ public class Driver {
   }
 
   @SuppressWarnings("deprecation")
-  private static boolean runBatfish(final Settings settings) {
+  private static boolean runBatfish(
+      final Settings settings, @Nullable TaskSlots.Admission admission) {
 
     final BatfishLogger logger = settings.getLogger();
 
@@ -339,10 +429,11 @@ public class Driver {
       final Batfish batfish =
           new Batfish(
               settings,
-              CACHED_TESTRIGS,
-              CACHED_DATA_PLANES,
+              getSnapshotCache().getTestrigs(),
+              getSnapshotCache().getDataPlanes(),
               CACHED_ENVIRONMENT_BGP_TABLES,
               CACHED_ENVIRONMENT_ROUTING_TABLES);
+      batfish.setAdmission(admission);
 
       Thread thread =
           new Thread() {
@@ -410,6 +501,69 @@ public class Driver {
     }
   }
 
+  /**
+   * Loads in the background the configurations and data plane of the snapshot that the task given
+   * by {@code args} would use, so that they are cached by the time such a task is assigned here.
+   * This is only a hint: it is dropped if prefetching is disabled, if the task would compute rather
+   * than load the snapshot, or if too many hints are pending.
+   */
+  public static List<String> prefetchThroughService(String[] args) {
+    if (_mainSettings.getPrefetchQueueSize() <= 0) {
+      return Arrays.asList(BfConsts.SVC_FAILURE_KEY, "Prefetching is disabled");
+    }
+    final Settings settings;
+    try {
+      settings = new Settings(args);
+      Batfish.initTestrigSettings(settings);
+    } catch (Exception e) {
+      return Arrays.asList(
+          BfConsts.SVC_FAILURE_KEY, "Initialization failed: " + e.getMessage());
+    }
+    if (TaskSlots.isHeavy(settings)) {
+      return Arrays.asList(BfConsts.SVC_FAILURE_KEY, "Nothing to prefetch for a heavy task");
+    }
+    TestrigSettings testrig = settings.getBaseTestrigSettings();
+    String key = testrig.getBasePath() + "/" + testrig.getEnvironmentSettings().getName();
+    if (!_pendingPrefetches.add(key)) {
+      return Arrays.asList(BfConsts.SVC_SUCCESS_KEY, "already prefetching");
+    }
+    settings.setLogger(_mainLogger);
+    try {
+      getPrefetchExecutor().execute(() -> prefetch(settings, key));
+    } catch (RejectedExecutionException e) {
+      _pendingPrefetches.remove(key);
+      return Arrays.asList(BfConsts.SVC_FAILURE_KEY, "Too many pending prefetches");
+    }
+    return Arrays.asList(BfConsts.SVC_SUCCESS_KEY, "prefetching");
+  }
+
+  private static void prefetch(Settings settings, String key) {
+    TaskSlots.Admission admission = null;
+    try {
+      // shares the testrig with answering tasks, but waits for any task that rewrites it
+      admission = getTaskSlots().admit(settings);
+      Batfish batfish =
+          new Batfish(
+              settings,
+              getSnapshotCache().getTestrigs(),
+              getSnapshotCache().getDataPlanes(),
+              CACHED_ENVIRONMENT_BGP_TABLES,
+              CACHED_ENVIRONMENT_ROUTING_TABLES);
+      if (batfish.prefetch()) {
+        _mainLogger.infof("Prefetched snapshot %s\n", key);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      _mainLogger.warnf("Failed to prefetch snapshot %s: %s\n", key, e.getMessage());
+    } finally {
+      if (admission != null) {
+        admission.close();
+      }
+      _pendingPrefetches.remove(key);
+    }
+  }
+
   public static List<String> runBatfishThroughService(final String taskId, String[] args) {
     final Settings settings;
     try {
@@ -430,10 +584,11 @@ public class Driver {
     }
 
     if (settings.canExecute()) {
-      if (claimIdle()) {
+      final TaskSlots taskSlots = getTaskSlots();
+      if (taskSlots.claim()) {
 
-        // lets put a try-catch around all the code around claimIdle
-        // so that we never the worker non-idle accidentally
+        // lets put a try-catch around all the code around claim
+        // so that we never leak a task slot accidentally
 
         try {
 
@@ -452,20 +607,34 @@ public class Driver {
 
           logTask(taskId, task);
 
-          // run batfish on a new thread and set idle to true when done
+          // run batfish on a new thread and free the slot when done. The task stays unscheduled
+          // while it waits for admission, e.g. behind a heavy task on the same testrig.
           Thread thread =
               new Thread() {
                 @Override
                 public void run() {
-                  task.setStatus(TaskStatus.InProgress);
-                  if (runBatfish(settings)) {
-                    task.setStatus(TaskStatus.TerminatedNormally);
-                  } else {
+                  TaskSlots.Admission admission = null;
+                  try {
+                    admission = taskSlots.admit(settings);
+                    task.setStatus(TaskStatus.InProgress);
+                    if (runBatfish(settings, admission)) {
+                      task.setStatus(TaskStatus.TerminatedNormally);
+                    } else {
+                      task.setStatus(TaskStatus.TerminatedAbnormally);
+                    }
+                  } catch (InterruptedException e) {
                     task.setStatus(TaskStatus.TerminatedAbnormally);
+                  } finally {
+                    if (admission != null) {
+                      admission.close();
+                    }
                   }
                   task.setTerminated();
                   jobLogger.close();
-                  makeIdle();
+                  taskSlots.release();
+                  if (_mainSettings.getCoordinatorRegister()) {
+                    notifyCoordinatorOfCompletion(taskId);
+                  }
                 }
               };
 
@@ -474,11 +643,11 @@ public class Driver {
           return Arrays.asList(BfConsts.SVC_SUCCESS_KEY, "running now");
         } catch (Exception e) {
           _mainLogger.error("Exception while running task: " + e.getMessage());
-          makeIdle();
+          taskSlots.release();
           return Arrays.asList(BfConsts.SVC_FAILURE_KEY, e.getMessage());
         }
       } else {
-        return Arrays.asList(BfConsts.SVC_FAILURE_KEY, "Not idle");
+        return Arrays.asList(BfConsts.SVC_FAILURE_KEY, "No free task slot");
       }
     } else {
       return Arrays.asList(BfConsts.SVC_FAILURE_KEY, "Non-executable command");
@@ -0,0 +1,84 @@
+package org.batfish.main;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.batfish.common.BatfishLogger;
+import org.batfish.common.Warning;
+import org.batfish.datamodel.answers.ParseVendorConfigurationAnswerElement;
+import org.batfish.vendor.VendorConfiguration;
+
+/**
+ * Write-through destination for parsed network configurations. Each configuration put into this
+ * map has its overlay applied and is serialized to disk immediately; only its hostname is retained,
+ * which is all duplicate detection needs. Reading configurations back out is not supported.
+ */
+final class NetworkConfigSerializer extends AbstractMap<String, VendorConfiguration> {
+
+  private final ParseVendorConfigurationAnswerElement _answerElement;
+
+  private final Batfish _batfish;
+
+  private final Set<String> _hostnames;
+
+  private final Path _outputPath;
+
+  private final Map<String, VendorConfiguration> _overlayHostConfigurations;
+
+  NetworkConfigSerializer(
+      Batfish batfish,
+      Path outputPath,
+      ParseVendorConfigurationAnswerElement answerElement,
+      Map<String, VendorConfiguration> overlayHostConfigurations) {
+    _answerElement = answerElement;
+    _batfish = batfish;
+    _hostnames = new HashSet<>();
+    _outputPath = outputPath;
+    _overlayHostConfigurations = overlayHostConfigurations;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return _hostnames.contains(key);
+  }
+
+  @Override
+  public Set<Entry<String, VendorConfiguration>> entrySet() {
+    throw new UnsupportedOperationException("Serialized configurations are not retained");
+  }
+
+  @Override
+  public VendorConfiguration put(String name, VendorConfiguration vc) {
+    _hostnames.add(name);
+    BatfishLogger logger = _batfish.getLogger();
+    if (name.contains(File.separator)) {
+      // iptables will get a hostname like configs/iptables-save if they
+      // are not set up correctly using host files
+      logger.errorf("Cannot serialize configuration with hostname %s\n", name);
+      _answerElement.addRedFlagWarning(
+          name,
+          new Warning(
+              "Cannot serialize network config. Bad hostname " + name.replace("\\", "/"),
+              "MISCELLANEOUS"));
+      return null;
+    }
+    // apply overlay if it exists
+    VendorConfiguration overlayConfig = _overlayHostConfigurations.remove(name);
+    if (overlayConfig != null) {
+      vc.setOverlayConfiguration(overlayConfig);
+    }
+    Path currentOutputPath = _outputPath.resolve(name);
+    logger.debug("Writing: \"" + currentOutputPath + "\"...");
+    _batfish.serializeObject(vc, currentOutputPath);
+    logger.debug("OK\n");
+    return null;
+  }
+
+  @Override
+  public int size() {
+    return _hostnames.size();
+  }
+}
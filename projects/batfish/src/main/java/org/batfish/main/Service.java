@@ -14,11 +14,34 @@ import org.batfish.common.BfConsts;
 import org.batfish.common.BfConsts.TaskStatus;
 import org.batfish.common.Task;
 import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
 
 @Path(BfConsts.SVC_BASE_RSC)
 public class Service {
 
+  /** Converts a task, given as a JSON object of option names and values, to command-line args */
+  private static String[] toArgs(String task) throws JSONException {
+    List<String> argsList = new ArrayList<>();
+
+    JSONObject taskObj = new JSONObject(task);
+    Iterator<?> keys = taskObj.keys();
+
+    while (keys.hasNext()) {
+
+      String key = (String) keys.next();
+      String value = taskObj.getString(key);
+
+      argsList.add("-" + key);
+
+      if (value != null && !value.equals("")) {
+        argsList.add(value);
+      }
+    }
+
+    return argsList.toArray(new String[argsList.size()]);
+  }
+
   BatfishLogger _logger = Driver.getMainLogger();
 
   @GET
@@ -39,7 +62,13 @@ public class Service {
       return new JSONArray(
           Arrays.asList(
               BfConsts.SVC_SUCCESS_KEY,
-              (new JSONObject().put("idle", Driver.getIdle())).toString()));
+              (new JSONObject()
+                      .put("idle", Driver.getIdle())
+                      .put("freeslots", Driver.getFreeTaskSlots())
+                      .put("slots", Driver.getTaskSlotCount())
+                      .put("cachedsnapshots", Driver.getCachedSnapshots())
+                      .put("snapshotcache", Driver.getSnapshotCacheStats()))
+                  .toString()));
     } catch (Exception e) {
       return new JSONArray(Arrays.asList(BfConsts.SVC_FAILURE_KEY, e.getMessage()));
     }
@@ -68,6 +97,21 @@ public class Service {
     }
   }
 
+  @GET
+  @Path(BfConsts.SVC_PREFETCH_RSC)
+  @Produces(MediaType.APPLICATION_JSON)
+  public JSONArray prefetch(@QueryParam(BfConsts.SVC_TASK_KEY) String task) {
+    _logger.info("BFS:prefetch(" + task + ")\n");
+    try {
+      if (task == null || task.equals("")) {
+        return new JSONArray(Arrays.asList(BfConsts.SVC_FAILURE_KEY, "task not supplied"));
+      }
+      return new JSONArray(Driver.prefetchThroughService(toArgs(task)));
+    } catch (Exception e) {
+      return new JSONArray(Arrays.asList(BfConsts.SVC_FAILURE_KEY, e.getMessage()));
+    }
+  }
+
   @GET
   @Path(BfConsts.SVC_RUN_TASK_RSC)
   @Produces(MediaType.APPLICATION_JSON)
@@ -85,24 +129,7 @@ public class Service {
         return new JSONArray(Arrays.asList(BfConsts.SVC_FAILURE_KEY, "task not supplied"));
       }
 
-      List<String> argsList = new ArrayList<>();
-
-      JSONObject taskObj = new JSONObject(task);
-      Iterator<?> keys = taskObj.keys();
-
-      while (keys.hasNext()) {
-
-        String key = (String) keys.next();
-        String value = taskObj.getString(key);
-
-        argsList.add("-" + key);
-
-        if (value != null && !value.equals("")) {
-          argsList.add(value);
-        }
-      }
-
-      String[] args = argsList.toArray(new String[argsList.size()]);
+      String[] args = toArgs(task);
 
       _logger.info("Will run with args: " + Arrays.toString(args) + "\n");
 
@@ -0,0 +1,185 @@
+package org.batfish.main;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import org.batfish.config.Settings;
+import org.batfish.config.Settings.TestrigSettings;
+import org.batfish.datamodel.Configuration;
+import org.batfish.datamodel.DataPlane;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+/**
+ * The testrigs and data planes a worker keeps in memory between tasks, bounded by an estimate of
+ * their retained heap size rather than by entry count. The size of an entry is estimated when it is
+ * inserted, from the size of the serialized form it was loaded from or written to, and recorded for
+ * reporting. Evicted entries are dropped from memory only: their serialized form stays on disk and
+ * is reloaded on next use.
+ */
+final class SnapshotCache {
+
+  /** Fraction of the budget given to data planes; the remainder is used for testrigs */
+  static final double DATA_PLANE_BUDGET_FRACTION = 0.75;
+
+  /** Estimated ratio of the heap retained by an object to the size of its gzipped serialization */
+  static final int ESTIMATED_HEAP_EXPANSION_FACTOR = 16;
+
+  private static int compareSnapshots(TestrigSettings t1, TestrigSettings t2) {
+    int cmp = t1.getBasePath().compareTo(t2.getBasePath());
+    if (cmp != 0) {
+      return cmp;
+    }
+    return Comparator.nullsFirst(Comparator.<String>naturalOrder())
+        .compare(t1.getEnvironmentSettings().getName(), t2.getEnvironmentSettings().getName());
+  }
+
+  /** Returns the budget in KB configured in {@code settings} */
+  static long getBudgetKb(Settings settings) {
+    int budgetMb = settings.getSnapshotCacheBudgetMb();
+    if (budgetMb > 0) {
+      return budgetMb * 1024L;
+    }
+    return Runtime.getRuntime().maxMemory() / 2 / 1024;
+  }
+
+  /**
+   * Estimates in KB the heap retained by an object deserialized from {@code path}, which may be a
+   * single file or a directory of files. Returns 1 if nothing can be read at {@code path}.
+   */
+  static int estimateRetainedSizeKb(Path path) {
+    long bytes = 0;
+    if (Files.isDirectory(path)) {
+      try (Stream<Path> files = Files.walk(path)) {
+        bytes = files.filter(Files::isRegularFile).mapToLong(p -> p.toFile().length()).sum();
+      } catch (IOException | RuntimeException e) {
+        bytes = 0;
+      }
+    } else {
+      bytes = path.toFile().length();
+    }
+    long kb = bytes * ESTIMATED_HEAP_EXPANSION_FACTOR / 1024;
+    return (int) Math.max(1L, Math.min(Integer.MAX_VALUE, kb));
+  }
+
+  /**
+   * Creates a cache bounded by {@code budgetKb}, weighing each entry by the estimated retained size
+   * of its serialized form at {@code serializedPath}. The weight of each cached entry is recorded
+   * in {@code weightsKb}.
+   */
+  private static <V> Cache<TestrigSettings, V> newCache(
+      long budgetKb,
+      Function<TestrigSettings, Path> serializedPath,
+      ConcurrentMap<TestrigSettings, Integer> weightsKb) {
+    // A concurrency level of 1 keeps a single segment, so that the whole budget is available to
+    // each entry instead of being split across segments.
+    return CacheBuilder.newBuilder()
+        .concurrencyLevel(1)
+        .maximumWeight(budgetKb)
+        .<TestrigSettings, V>weigher(
+            (testrig, value) -> {
+              int weightKb = estimateRetainedSizeKb(serializedPath.apply(testrig));
+              weightsKb.put(testrig, weightKb);
+              return weightKb;
+            })
+        .removalListener(
+            notification -> {
+              // The weight of a replacing entry has already been recorded
+              if (notification.getCause() != RemovalCause.REPLACED) {
+                weightsKb.remove(notification.getKey());
+              }
+            })
+        .recordStats()
+        .build();
+  }
+
+  private static JSONObject toJson(
+      Cache<?, ?> cache, long budgetKb, ConcurrentMap<?, Integer> weightsKb) throws JSONException {
+    CacheStats stats = cache.stats();
+    return new JSONObject()
+        .put("entries", cache.size())
+        .put("budgetKb", budgetKb)
+        .put("weightKb", weightsKb.values().stream().mapToLong(Integer::longValue).sum())
+        .put("hits", stats.hitCount())
+        .put("misses", stats.missCount())
+        .put("evictions", stats.evictionCount());
+  }
+
+  private final long _dataPlaneBudgetKb;
+
+  private final Cache<TestrigSettings, DataPlane> _dataPlanes;
+
+  private final ConcurrentMap<TestrigSettings, Integer> _dataPlaneWeightsKb;
+
+  private final long _testrigBudgetKb;
+
+  private final Cache<TestrigSettings, SortedMap<String, Configuration>> _testrigs;
+
+  private final ConcurrentMap<TestrigSettings, Integer> _testrigWeightsKb;
+
+  SnapshotCache(long budgetKb) {
+    _dataPlaneBudgetKb = Math.max(1L, (long) (budgetKb * DATA_PLANE_BUDGET_FRACTION));
+    _testrigBudgetKb = Math.max(1L, budgetKb - _dataPlaneBudgetKb);
+    _dataPlaneWeightsKb = new ConcurrentHashMap<>();
+    _testrigWeightsKb = new ConcurrentHashMap<>();
+    _dataPlanes =
+        newCache(
+            _dataPlaneBudgetKb,
+            testrig -> testrig.getEnvironmentSettings().getDataPlanePath(),
+            _dataPlaneWeightsKb);
+    _testrigs =
+        newCache(
+            _testrigBudgetKb, TestrigSettings::getSerializeIndependentPath, _testrigWeightsKb);
+  }
+
+  /**
+   * Returns the container, testrig, and environment of each testrig or data plane currently cached,
+   * so that the coordinator can send work on those snapshots to this worker
+   */
+  JSONArray getCachedSnapshotsJson() throws JSONException {
+    Set<TestrigSettings> cached = new TreeSet<>(SnapshotCache::compareSnapshots);
+    cached.addAll(_dataPlanes.asMap().keySet());
+    cached.addAll(_testrigs.asMap().keySet());
+    JSONArray snapshots = new JSONArray();
+    for (TestrigSettings testrig : cached) {
+      Path containerDir = testrig.getBasePath().getParent().getParent();
+      snapshots.put(
+          new JSONObject()
+              .put("container", containerDir.getFileName().toString())
+              .put("testrig", testrig.getName())
+              .put("environment", testrig.getEnvironmentSettings().getName()));
+    }
+    return snapshots;
+  }
+
+  Cache<TestrigSettings, DataPlane> getDataPlanes() {
+    return _dataPlanes;
+  }
+
+  Cache<TestrigSettings, SortedMap<String, Configuration>> getTestrigs() {
+    return _testrigs;
+  }
+
+  /**
+   * Returns the size, budget, and hit/miss/eviction counts of the testrig and data plane caches.
+   * Sizes are those estimated when entries were inserted, so no serialized data is inspected.
+   */
+  JSONObject getStatsJson() throws JSONException {
+    return new JSONObject()
+        .put("dataplanes", toJson(_dataPlanes, _dataPlaneBudgetKb, _dataPlaneWeightsKb))
+        .put("testrigs", toJson(_testrigs, _testrigBudgetKb, _testrigWeightsKb));
+  }
+}
@@ -0,0 +1,159 @@
+package org.batfish.main;
+
+import com.google.common.collect.MapMaker;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.StampedLock;
+import org.batfish.config.Settings;
+import org.batfish.config.Settings.TestrigSettings;
+
+/**
+ * Admission control for the tasks a worker runs concurrently. A worker has a fixed number of slots,
+ * and a task is accepted only if it can claim one. Heavy tasks, which parse a testrig or compute a
+ * data plane and so need much more memory and CPU than answering a question, additionally wait for
+ * one of a smaller number of heavy permits before they start. Tasks on the same testrig coordinate
+ * through a read-write lock: answering tasks share the cached testrig and data plane read-only,
+ * while a heavy task, which writes them, runs alone on its testrig. Each testrig has its own lock,
+ * so tasks on different testrigs never wait for each other. An answering task that finds the
+ * serialized data of its testrig stale escalates to a heavy task before repairing it.
+ */
+final class TaskSlots {
+
+  /** Held by a started task until it terminates */
+  final class Admission implements AutoCloseable {
+
+    private boolean _heavy;
+
+    /** The stamps of the locks held on {@link #_testrigLocksHeld}, in the same order */
+    private final List<Long> _stamps;
+
+    /**
+     * The locks of the testrigs of the task. Holding them keeps them in {@link #_testrigLocks},
+     * which only references them weakly, for as long as the task runs.
+     */
+    private final List<StampedLock> _testrigLocksHeld;
+
+    private Admission(List<StampedLock> testrigLocksHeld) {
+      _stamps = new ArrayList<>();
+      _testrigLocksHeld = testrigLocksHeld;
+    }
+
+    /** Takes a heavy permit if {@code heavy}, then the testrig locks in the matching mode */
+    private void acquire(boolean heavy) throws InterruptedException {
+      if (heavy) {
+        _heavyPermits.acquire();
+        _heavy = true;
+      }
+      // locks are taken in key order, so tasks locking two testrigs cannot deadlock
+      for (StampedLock lock : _testrigLocksHeld) {
+        _stamps.add(heavy ? lock.writeLockInterruptibly() : lock.readLockInterruptibly());
+      }
+    }
+
+    @Override
+    public void close() {
+      for (int i = _stamps.size() - 1; i >= 0; i--) {
+        _testrigLocksHeld.get(i).unlock(_stamps.get(i));
+      }
+      _stamps.clear();
+      if (_heavy) {
+        _heavyPermits.release();
+        _heavy = false;
+      }
+    }
+
+    /**
+     * Turns this admission into that of a heavy task, so that the task may rewrite its testrigs,
+     * e.g. to repair stale serialized data. Waiting for the write locks while holding read locks
+     * could deadlock with another escalating task, so the read locks are released first and the
+     * task then waits like a new heavy task. Returns {@code true} if the admission was escalated,
+     * in which case other tasks may have rewritten the testrigs in the meantime; {@code false} if
+     * it was already heavy.
+     */
+    boolean escalate() throws InterruptedException {
+      if (_heavy) {
+        return false;
+      }
+      close();
+      acquire(true);
+      return true;
+    }
+  }
+
+  /** Returns whether the task described by {@code settings} parses or computes a data plane */
+  static boolean isHeavy(Settings settings) {
+    return settings.getSerializeVendor()
+        || settings.getSerializeIndependent()
+        || settings.getCompileEnvironment()
+        || settings.getDataPlane();
+  }
+
+  private static void addTestrigKey(SortedSet<String> keys, TestrigSettings testrig) {
+    if (testrig != null && testrig.getName() != null && testrig.getBasePath() != null) {
+      keys.add(testrig.getBasePath().toString());
+    }
+  }
+
+  private int _activeTasks;
+
+  private final Semaphore _heavyPermits;
+
+  private final int _slots;
+
+  /** The lock of each testrig with a task running or waiting on it, keyed by testrig path */
+  private final ConcurrentMap<String, StampedLock> _testrigLocks;
+
+  TaskSlots(int slots, int heavyPermits) {
+    _slots = Math.max(1, slots);
+    _heavyPermits = new Semaphore(Math.max(1, Math.min(heavyPermits, _slots)), true);
+    _testrigLocks = new MapMaker().weakValues().makeMap();
+  }
+
+  /**
+   * Waits until the task described by {@code settings} may start. The returned admission is not
+   * bound to the calling thread, but must not be used by several threads at once.
+   */
+  Admission admit(Settings settings) throws InterruptedException {
+    SortedSet<String> keys = new TreeSet<>();
+    addTestrigKey(keys, settings.getBaseTestrigSettings());
+    addTestrigKey(keys, settings.getDeltaTestrigSettings());
+    List<StampedLock> testrigLocks = new ArrayList<>();
+    for (String key : keys) {
+      testrigLocks.add(_testrigLocks.computeIfAbsent(key, k -> new StampedLock()));
+    }
+    Admission admission = new Admission(testrigLocks);
+    try {
+      admission.acquire(isHeavy(settings));
+    } catch (InterruptedException e) {
+      admission.close();
+      throw e;
+    }
+    return admission;
+  }
+
+  /** Claims a slot for a new task. Returns {@code false} if all slots are in use. */
+  synchronized boolean claim() {
+    if (_activeTasks >= _slots) {
+      return false;
+    }
+    _activeTasks++;
+    return true;
+  }
+
+  synchronized int getFreeSlots() {
+    return _slots - _activeTasks;
+  }
+
+  int getSlots() {
+    return _slots;
+  }
+
+  /** Frees the slot of a terminated task */
+  synchronized void release() {
+    _activeTasks--;
+  }
+}
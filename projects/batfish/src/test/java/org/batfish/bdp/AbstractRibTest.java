@@ -164,6 +164,24 @@ public class AbstractRibTest {
     assertThat(match, is(emptyIterableOf(StaticRoute.class)));
   }
 
+  /**
+   * Ensure that longestPrefixMatch() falls back to a less specific route when the address diverges
+   * from a more specific branch, and matches host routes and the default route
+   */
+  @Test
+  public void testLongestPrefixMatchFallback() {
+    StaticRoute hostRoute = new StaticRoute(new Prefix("10.1.1.1/32"), Ip.ZERO, null, 0, 0);
+    StaticRoute route24 = new StaticRoute(new Prefix("10.1.1.0/24"), Ip.ZERO, null, 0, 0);
+    _rib.mergeRoute(_mostGeneralRoute);
+    _rib.mergeRoute(hostRoute);
+    _rib.mergeRoute(route24);
+
+    assertThat(_rib.longestPrefixMatch(new Ip("10.1.1.1")), contains(hostRoute));
+    assertThat(_rib.longestPrefixMatch(new Ip("10.1.1.255")), contains(route24));
+    assertThat(_rib.longestPrefixMatch(new Ip("10.1.2.1")), contains(_mostGeneralRoute));
+    assertThat(_rib.longestPrefixMatch(new Ip("255.255.255.255")), contains(_mostGeneralRoute));
+  }
+
   @Test
   public void testSelfHasSameRoutes() {
     assertThat(_rib, equalTo(_rib));
@@ -191,6 +209,38 @@ public class AbstractRibTest {
     assertThat(rib2, equalTo(_rib));
   }
 
+  /** Check that the fingerprint depends only on the routes in the RIB, not on merge order */
+  @Test
+  public void testFingerprint() {
+    List<StaticRoute> routes = setupOverlappingRoutes();
+    AbstractRib<StaticRoute> rib2 = new StaticRib(null);
+    assertThat(rib2.getFingerprint(), equalTo(0L));
+
+    rib2.mergeRoute(routes.get(3));
+    rib2.mergeRoute(routes.get(1));
+    rib2.mergeRoute(routes.get(0));
+    assertThat(rib2.getFingerprint(), not(equalTo(_rib.getFingerprint())));
+
+    rib2.mergeRoute(routes.get(2));
+    rib2.mergeRoute(routes.get(2));
+    assertThat(rib2.getFingerprint(), equalTo(_rib.getFingerprint()));
+  }
+
+  /** Check that routes replaced by preferred routes no longer count in the fingerprint */
+  @Test
+  public void testFingerprintWithReplacement() {
+    Prefix prefix = new Prefix("1.1.1.1/32");
+    OspfIntraAreaRoute newRoute = new OspfIntraAreaRoute(prefix, null, 100, 10, 1);
+    OspfIntraAreaRib rib = new OspfIntraAreaRib(null);
+    rib.mergeRoute(new OspfIntraAreaRoute(prefix, null, 100, 30, 1));
+    rib.mergeRoute(newRoute);
+    OspfIntraAreaRib rib2 = new OspfIntraAreaRib(null);
+    rib2.mergeRoute(newRoute);
+
+    assertThat(rib.getFingerprint(), equalTo(rib2.getFingerprint()));
+    assertThat(rib, equalTo(rib2));
+  }
+
   /**
    * Check that getRoutes works as expected even when routes replace other routes based on
    * preference
@@ -1,6 +1,7 @@
 package org.batfish.bdp;
 
 import static java.util.Collections.singletonList;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
@@ -12,7 +13,11 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
 import com.google.common.collect.Lists;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -27,6 +32,8 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.batfish.common.BatfishException;
 import org.batfish.common.BdpOscillationException;
+import org.batfish.common.util.CompactObjectInputStream;
+import org.batfish.common.util.CompactObjectOutputStream;
 import org.batfish.datamodel.AbstractRoute;
 import org.batfish.datamodel.AsPath;
 import org.batfish.datamodel.BgpProcess;
@@ -45,6 +52,8 @@ import org.batfish.datamodel.Route;
 import org.batfish.datamodel.RoutingProtocol;
 import org.batfish.datamodel.SourceNat;
 import org.batfish.datamodel.Vrf;
+import org.batfish.datamodel.answers.Answer;
+import org.batfish.datamodel.answers.BdpAnswerElement;
 import org.batfish.datamodel.collections.RoutesByVrf;
 import org.batfish.main.Batfish;
 import org.batfish.main.BatfishTestUtils;
@@ -78,6 +87,53 @@ public class BdpDataPlanePluginTest {
     dataPlanePlugin.computeDataPlane(false);
   }
 
+  private static void assertBgpOscillationRecovered(
+      SortedMap<String, SortedMap<String, SortedSet<AbstractRoute>>> routes) {
+    Prefix bgpPrefix = new Prefix("1.1.1.1/32");
+    SortedSet<AbstractRoute> r2Routes = routes.get("r2").get(Configuration.DEFAULT_VRF_NAME);
+    SortedSet<AbstractRoute> r3Routes = routes.get("r3").get(Configuration.DEFAULT_VRF_NAME);
+    Stream<AbstractRoute> r2MatchingRoutes =
+        r2Routes.stream().filter(r -> r.getNetwork().equals(bgpPrefix));
+    Stream<AbstractRoute> r3MatchingRoutes =
+        r3Routes.stream().filter(r -> r.getNetwork().equals(bgpPrefix));
+    AbstractRoute r2Route =
+        r2Routes.stream().filter(r -> r.getNetwork().equals(bgpPrefix)).findAny().get();
+    AbstractRoute r3Route =
+        r3Routes.stream().filter(r -> r.getNetwork().equals(bgpPrefix)).findAny().get();
+    String r2NextHop = r2Route.getNextHop();
+    String r3NextHop = r3Route.getNextHop();
+    int routesWithR1AsNextHop = 0;
+    if (r2Route.getNextHop().equals("r1")) {
+      routesWithR1AsNextHop++;
+    }
+    if (r3Route.getNextHop().equals("r1")) {
+      routesWithR1AsNextHop++;
+    }
+    boolean r2AsNextHop = r3NextHop.equals("r2");
+    boolean r3AsNextHop = r2NextHop.equals("r3");
+
+    assertThat(r2MatchingRoutes.count(), equalTo(1L));
+    assertThat(r3MatchingRoutes.count(), equalTo(1L));
+    assertThat(routesWithR1AsNextHop, equalTo(1));
+    assertTrue((r2AsNextHop && !r3AsNextHop) || (!r2AsNextHop && r3AsNextHop));
+  }
+
+  private static SortedMap<String, SortedMap<String, SortedSet<AbstractRoute>>> computeRoutes(
+      String testrigName,
+      String[] configurationNames,
+      boolean incrementalPropagation,
+      TemporaryFolder folder)
+      throws IOException {
+    Batfish batfish =
+        BatfishTestUtils.getBatfishFromTestrigResource(
+            TESTRIGS_PREFIX + testrigName, configurationNames, null, null, null, null, folder);
+    batfish.getSettings().setBdpIncrementalPropagation(incrementalPropagation);
+    BdpDataPlanePlugin dataPlanePlugin = new BdpDataPlanePlugin();
+    dataPlanePlugin.initialize(batfish);
+    dataPlanePlugin.computeDataPlane(false);
+    return dataPlanePlugin.getRoutes();
+  }
+
   private static Flow makeFlow() {
     Flow.Builder builder = new Flow.Builder();
     builder.setSrcIp(new Ip("1.2.3.4"));
@@ -386,35 +442,28 @@ public class BdpDataPlanePluginTest {
     BdpDataPlanePlugin dataPlanePlugin = new BdpDataPlanePlugin();
     dataPlanePlugin.initialize(batfish);
     dataPlanePlugin.computeDataPlane(false);
-    SortedMap<String, SortedMap<String, SortedSet<AbstractRoute>>> routes =
-        dataPlanePlugin.getRoutes();
-    Prefix bgpPrefix = new Prefix("1.1.1.1/32");
-    SortedSet<AbstractRoute> r2Routes = routes.get("r2").get(Configuration.DEFAULT_VRF_NAME);
-    SortedSet<AbstractRoute> r3Routes = routes.get("r3").get(Configuration.DEFAULT_VRF_NAME);
-    Stream<AbstractRoute> r2MatchingRoutes =
-        r2Routes.stream().filter(r -> r.getNetwork().equals(bgpPrefix));
-    Stream<AbstractRoute> r3MatchingRoutes =
-        r3Routes.stream().filter(r -> r.getNetwork().equals(bgpPrefix));
-    AbstractRoute r2Route =
-        r2Routes.stream().filter(r -> r.getNetwork().equals(bgpPrefix)).findAny().get();
-    AbstractRoute r3Route =
-        r3Routes.stream().filter(r -> r.getNetwork().equals(bgpPrefix)).findAny().get();
-    String r2NextHop = r2Route.getNextHop();
-    String r3NextHop = r3Route.getNextHop();
-    int routesWithR1AsNextHop = 0;
-    if (r2Route.getNextHop().equals("r1")) {
-      routesWithR1AsNextHop++;
-    }
-    if (r3Route.getNextHop().equals("r1")) {
-      routesWithR1AsNextHop++;
-    }
-    boolean r2AsNextHop = r3NextHop.equals("r2");
-    boolean r3AsNextHop = r2NextHop.equals("r3");
+    assertBgpOscillationRecovered(dataPlanePlugin.getRoutes());
+  }
 
-    assertThat(r2MatchingRoutes.count(), equalTo(1L));
-    assertThat(r3MatchingRoutes.count(), equalTo(1L));
-    assertThat(routesWithR1AsNextHop, equalTo(1));
-    assertTrue((r2AsNextHop && !r3AsNextHop) || (!r2AsNextHop && r3AsNextHop));
+  @Test
+  public void testBgpOscillationRecoveryFromCheckpoint() throws IOException {
+    String testrigName = "bgp-oscillation";
+    String[] configurationNames = new String[] {"r1", "r2", "r3"};
+    Batfish batfish =
+        BatfishTestUtils.getBatfishFromTestrigResource(
+            TESTRIGS_PREFIX + testrigName, configurationNames, null, null, null, null, _folder);
+    batfish.getSettings().setBdpDetail(true);
+    batfish.getSettings().setBdpMaxCheckpoints(3);
+    batfish.getSettings().setBdpMaxOscillationRecoveryAttempts(1);
+    batfish.getSettings().setBdpRecordAllIterations(true);
+    BdpDataPlanePlugin dataPlanePlugin = new BdpDataPlanePlugin();
+    dataPlanePlugin.initialize(batfish);
+    Answer answer = dataPlanePlugin.computeDataPlane(false);
+    BdpAnswerElement ae = (BdpAnswerElement) answer.getAnswerElements().get(0);
+
+    // Recovery resumed from a checkpoint rather than restarting the computation
+    assertThat(ae.getOscillatingPrefixes(), contains(new Prefix("1.1.1.1/32")));
+    assertBgpOscillationRecovered(dataPlanePlugin.getRoutes());
   }
 
   @Test
@@ -504,6 +553,89 @@ public class BdpDataPlanePluginTest {
     assertThat(r1Loopback0Prefix, isIn(r3Prefixes));
   }
 
+  @Test
+  public void testIncrementalBgpPropagation() throws IOException {
+    // r4 reflects routes among its iBGP route-reflector clients r1, r2, and r3
+    String testrigName = "ibgp-reject-routerid-match";
+    String[] configurationNames = new String[] {"r1", "r2", "r3", "r4"};
+    TemporaryFolder incrementalFolder = new TemporaryFolder(_folder.newFolder());
+    incrementalFolder.create();
+
+    SortedMap<String, SortedMap<String, SortedSet<AbstractRoute>>> fullRoutes =
+        computeRoutes(testrigName, configurationNames, false, _folder);
+    SortedMap<String, SortedMap<String, SortedSet<AbstractRoute>>> incrementalRoutes =
+        computeRoutes(testrigName, configurationNames, true, incrementalFolder);
+
+    // Ensure that the reflected prefix is part of the compared fixed point
+    Set<Prefix> r2Prefixes =
+        incrementalRoutes
+            .get("r2")
+            .get(Configuration.DEFAULT_VRF_NAME)
+            .stream()
+            .map(r -> r.getNetwork())
+            .collect(Collectors.toSet());
+    assertThat(new Prefix("9.9.9.9/32"), isIn(r2Prefixes));
+    // Routes propagated incrementally should reach the same fixed point as full propagation
+    assertThat(incrementalRoutes, equalTo(fullRoutes));
+  }
+
+  @Test
+  public void testNodesDeserializedOnDemand() throws IOException, ClassNotFoundException {
+    String testrigName = "ebgp-accept-routerid-match";
+    String[] configurationNames = new String[] {"r1", "r2", "r3"};
+    Batfish batfish =
+        BatfishTestUtils.getBatfishFromTestrigResource(
+            TESTRIGS_PREFIX + testrigName, configurationNames, null, null, null, null, _folder);
+    BdpDataPlanePlugin dataPlanePlugin = new BdpDataPlanePlugin();
+    dataPlanePlugin.initialize(batfish);
+    dataPlanePlugin.computeDataPlane(false);
+    BdpDataPlane dp = (BdpDataPlane) batfish.loadDataPlane();
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+      oos.writeObject(dp);
+    }
+    BdpDataPlane deserialized;
+    try (ObjectInputStream ois =
+        new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+      deserialized = (BdpDataPlane) ois.readObject();
+    }
+    SerializedNodeMap nodes = (SerializedNodeMap) deserialized.getNodes();
+
+    // No node is materialized until it is accessed
+    assertThat(nodes.keySet(), equalTo(dp.getNodes().keySet()));
+    assertThat(nodes.getLoadedNodeCount(), equalTo(0));
+    Node r1 = nodes.get("r1");
+    assertThat(nodes.getLoadedNodeCount(), equalTo(1));
+    // The segment of a materialized node is released
+    assertThat(nodes.getSerializedNodeCount(), equalTo(2));
+    assertThat(
+        r1._virtualRouters.get(Configuration.DEFAULT_VRF_NAME)._mainRib.getRoutes(),
+        equalTo(
+            dp.getNodes()
+                .get("r1")
+                ._virtualRouters
+                .get(Configuration.DEFAULT_VRF_NAME)
+                ._mainRib
+                .getRoutes()));
+
+    // A partially materialized data plane can be written again, here in the compact format
+    baos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new CompactObjectOutputStream(baos)) {
+      oos.writeObject(deserialized);
+    }
+    BdpDataPlane reserialized;
+    try (ObjectInputStream ois =
+        new CompactObjectInputStream(
+            new ByteArrayInputStream(baos.toByteArray()), getClass().getClassLoader())) {
+      reserialized = (BdpDataPlane) ois.readObject();
+    }
+    assertThat(reserialized.getNodes().keySet(), equalTo(dp.getNodes().keySet()));
+    assertThat(
+        reserialized.getNodes().get("r2")._virtualRouters.keySet(),
+        equalTo(dp.getNodes().get("r2")._virtualRouters.keySet()));
+  }
+
   @Test
   public void testContainsRoute() {
     String hostname = "r1";
@@ -0,0 +1,78 @@
+package org.batfish.bdp;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.Map;
+import java.util.Set;
+import org.batfish.datamodel.AbstractRoute;
+import org.batfish.datamodel.ConnectedRoute;
+import org.batfish.datamodel.Ip;
+import org.batfish.datamodel.Prefix;
+import org.batfish.datamodel.StaticRoute;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class FibTest {
+
+  private static final Ip NEXT_HOP_IP = new Ip("10.0.0.1");
+
+  @Rule public ExpectedException _thrown = ExpectedException.none();
+
+  private ConnectedRoute _connectedRoute;
+
+  private Rib _rib;
+
+  private StaticRoute _staticRoute1;
+
+  private StaticRoute _staticRoute2;
+
+  @Before
+  public void setup() {
+    _connectedRoute = new ConnectedRoute(new Prefix("10.0.0.0/24"), "Ethernet1");
+    _staticRoute1 = new StaticRoute(new Prefix("1.0.0.0/8"), NEXT_HOP_IP, null, 1, 0);
+    _staticRoute2 = new StaticRoute(new Prefix("2.0.0.0/8"), NEXT_HOP_IP, null, 1, 0);
+    _rib = new Rib(null);
+    _rib.mergeRoute(_connectedRoute);
+    _rib.mergeRoute(_staticRoute1);
+    _rib.mergeRoute(_staticRoute2);
+  }
+
+  @Test
+  public void testNextHopGroupInterned() {
+    StaticRoute recursiveRoute =
+        new StaticRoute(new Prefix("3.0.0.0/8"), new Ip("1.1.1.1"), null, 1, 0);
+    _rib.mergeRoute(recursiveRoute);
+    Fib fib = new Fib(_rib);
+
+    // Different next-hop IPs that resolve to the same next-hop group share it
+    assertThat(
+        fib.getNextHopInterfacesByRoute(new Ip("3.3.3.3")).get(recursiveRoute),
+        sameInstance(fib.getNextHopInterfacesByRoute(new Ip("1.1.1.1")).get(_staticRoute1)));
+  }
+
+  @Test
+  public void testNextHopGroupUnmodifiable() {
+    Fib fib = new Fib(_rib);
+    Map<String, Map<Ip, Set<AbstractRoute>>> nextHopInterfaces =
+        fib.getNextHopInterfacesByRoute(new Ip("1.1.1.1")).get(_staticRoute1);
+
+    _thrown.expect(UnsupportedOperationException.class);
+    nextHopInterfaces.get("Ethernet1").get(NEXT_HOP_IP).add(_staticRoute2);
+  }
+
+  @Test
+  public void testNextHopIpResolutionShared() {
+    Fib fib = new Fib(_rib);
+    Map<String, Map<Ip, Set<AbstractRoute>>> nextHopInterfaces1 =
+        fib.getNextHopInterfacesByRoute(new Ip("1.1.1.1")).get(_staticRoute1);
+    Map<String, Map<Ip, Set<AbstractRoute>>> nextHopInterfaces2 =
+        fib.getNextHopInterfacesByRoute(new Ip("2.2.2.2")).get(_staticRoute2);
+
+    assertThat(nextHopInterfaces1.get("Ethernet1").get(NEXT_HOP_IP), contains(_connectedRoute));
+    assertThat(nextHopInterfaces1, sameInstance(nextHopInterfaces2));
+  }
+}
@@ -6,6 +6,10 @@ public class TestBdpSettings implements BdpSettings {
 
   private boolean _bdpDetail;
 
+  private boolean _bdpIncrementalPropagation;
+
+  private int _bdpMaxCheckpoints;
+
   private int _bdpMaxOscillationRecoveryAttempts;
 
   private int _bdpMaxRecordedIterations;
@@ -16,19 +20,32 @@ public class TestBdpSettings implements BdpSettings {
 
   private boolean _bdpRecordAllIterations;
 
+  private int _bdpThreads;
+
   public TestBdpSettings() {
     _bdpDetail = true;
+    _bdpIncrementalPropagation = false;
+    _bdpMaxCheckpoints = 0;
     _bdpMaxOscillationRecoveryAttempts = 0;
     _bdpMaxRecordedIterations = 2;
     _bdpPrintAllIterations = false;
     _bdpPrintOscillatingIterations = false;
     _bdpRecordAllIterations = false;
+    _bdpThreads = Integer.MAX_VALUE;
   }
 
   public boolean getBdpDetail() {
     return _bdpDetail;
   }
 
+  public boolean getBdpIncrementalPropagation() {
+    return _bdpIncrementalPropagation;
+  }
+
+  public int getBdpMaxCheckpoints() {
+    return _bdpMaxCheckpoints;
+  }
+
   public int getBdpMaxOscillationRecoveryAttempts() {
     return _bdpMaxOscillationRecoveryAttempts;
   }
@@ -49,10 +66,22 @@ public class TestBdpSettings implements BdpSettings {
     return _bdpRecordAllIterations;
   }
 
+  public int getBdpThreads() {
+    return _bdpThreads;
+  }
+
   public void setBdpDetail(boolean bdpDetail) {
     _bdpDetail = bdpDetail;
   }
 
+  public void setBdpIncrementalPropagation(boolean bdpIncrementalPropagation) {
+    _bdpIncrementalPropagation = bdpIncrementalPropagation;
+  }
+
+  public void setBdpMaxCheckpoints(int bdpMaxCheckpoints) {
+    _bdpMaxCheckpoints = bdpMaxCheckpoints;
+  }
+
   public void setBdpMaxOscillationRecoveryAttempts(int bdpMaxOscillationRecoveryAttempts) {
     _bdpMaxOscillationRecoveryAttempts = bdpMaxOscillationRecoveryAttempts;
   }
@@ -72,4 +101,8 @@ public class TestBdpSettings implements BdpSettings {
   public void setBdpRecordAllIterations(boolean bdpRecordAllIterations) {
     _bdpRecordAllIterations = bdpRecordAllIterations;
   }
+
+  public void setBdpThreads(int bdpThreads) {
+    _bdpThreads = bdpThreads;
+  }
 }
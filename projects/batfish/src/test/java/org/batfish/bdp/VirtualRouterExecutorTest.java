@@ -0,0 +1,63 @@
+package org.batfish.bdp;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.batfish.datamodel.Configuration;
+import org.batfish.datamodel.ConfigurationFormat;
+import org.batfish.datamodel.NetworkFactory;
+import org.junit.Test;
+
+public class VirtualRouterExecutorTest {
+
+  private static Node makeNode(NetworkFactory nf, String hostname, String... vrfNames) {
+    Configuration c =
+        nf.configurationBuilder()
+            .setHostname(hostname)
+            .setConfigurationFormat(ConfigurationFormat.CISCO_IOS)
+            .build();
+    for (String vrfName : vrfNames) {
+      nf.vrfBuilder().setName(vrfName).setOwner(c).build();
+    }
+    return new Node(c);
+  }
+
+  @Test
+  public void testForEach() {
+    NetworkFactory nf = new NetworkFactory();
+    SortedMap<String, Node> nodes = new TreeMap<>();
+    nodes.put("n1", makeNode(nf, "n1", "v1"));
+    nodes.put("n2", makeNode(nf, "n2", "v1", "v2", "v3"));
+    Map<String, Integer> batchSizes = new TreeMap<>();
+    AtomicInteger completed = new AtomicInteger();
+    Set<String> visited = ConcurrentHashMap.newKeySet();
+
+    try (VirtualRouterExecutor executor =
+        new VirtualRouterExecutor(
+            4,
+            (description, size) -> {
+              batchSizes.put(description, size);
+              return completed;
+            })) {
+      executor.forEach(
+          nodes,
+          "Visit",
+          "Visit all VRFs",
+          vr -> visited.add(vr._c.getHostname() + ":" + vr._vrf.getName()));
+
+      // Every VRF is its own task
+      assertThat(visited, containsInAnyOrder("n1:v1", "n2:v1", "n2:v2", "n2:v3"));
+      assertThat(batchSizes.get("Visit all VRFs"), equalTo(4));
+      assertThat(completed.get(), equalTo(4));
+      assertThat(executor.getPhaseStatistics(), containsString("Visit"));
+    }
+  }
+}
@@ -5,6 +5,7 @@ import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.hamcrest.collection.IsEmptyIterable.emptyIterableOf;
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.junit.Assert.assertThat;
@@ -336,6 +337,30 @@ public class VirtualRouterTest {
     vr._ripInternalRib.getRoutes();
   }
 
+  /** Test that restoring a checkpoint brings back its RIBs and only recent ones are retained */
+  @Test
+  public void testSaveAndRestoreCheckpoint() {
+    VirtualRouter vr = makeIosVirtualRouter(null);
+    vr.initRibs();
+    vr.saveCheckpoint(0, 2);
+    vr.moveRibs();
+    Rib mainRib1 = vr._mainRib;
+    vr.saveCheckpoint(1, 2);
+    vr.moveRibs();
+    vr.saveCheckpoint(2, 2);
+    vr.moveRibs();
+    Rib mainRib3 = vr._mainRib;
+
+    // Only the most recent checkpoints are retained
+    assertThat(vr.restoreCheckpoint(0), is(false));
+    assertThat(vr._mainRib, sameInstance(mainRib3));
+
+    // Restoring a checkpoint brings back its RIBs and discards later checkpoints
+    assertThat(vr.restoreCheckpoint(1), is(true));
+    assertThat(vr._mainRib, sameInstance(mainRib1));
+    assertThat(vr._checkpoints.keySet(), contains(1));
+  }
+
   /** Test that staging of a single OSPF Inter-Area route works as expected */
   @Test
   public void testStageOSPFInterAreaRoute() {
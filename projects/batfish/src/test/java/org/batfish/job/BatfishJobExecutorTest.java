@@ -50,6 +50,25 @@ public class BatfishJobExecutorTest {
     assertEquals(output, Sets.newHashSet("result1", "result2"));
   }
 
+  @Test
+  public void testExecuteJobsWithInFlightWindow() {
+    Settings settings = new Settings();
+    settings.setMaxInFlightJobs(1);
+
+    List<BfTestJob> jobs = new ArrayList<>();
+    jobs.add(new BfTestJob(settings, "result1"));
+    jobs.add(new BfTestJob(settings, "result2"));
+    jobs.add(new BfTestJob(settings, "result3"));
+
+    Set<String> output = new HashSet<>();
+    BfTestAnswerElement ae = new BfTestAnswerElement();
+    BatfishJobExecutor.runJobsInExecutor(
+        settings, _logger, jobs, output, ae, false, TEST_EXECUTOR_DESC);
+
+    // all jobs run even though only one may be in flight at a time
+    assertEquals(output, Sets.newHashSet("result1", "result2", "result3"));
+  }
+
   @Test
   public void testHandleJobResultSuccess() {
     Settings settings = new Settings();
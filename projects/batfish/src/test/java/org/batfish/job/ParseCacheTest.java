@@ -0,0 +1,83 @@
+package org.batfish.job;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.TreeSet;
+import org.batfish.common.BatfishLogger;
+import org.batfish.config.Settings;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Tests for {@link ParseCache}. */
+public class ParseCacheTest {
+
+  @Rule public TemporaryFolder _folder = new TemporaryFolder();
+
+  private final BatfishLogger _logger = new BatfishLogger(BatfishLogger.LEVELSTR_INFO, false);
+
+  @Test
+  public void testDisabledWithoutDirectory() {
+    assertThat(ParseCache.forSettings(new Settings()), nullValue());
+  }
+
+  @Test
+  public void testKeyDependsOnContentAndSettings() {
+    Settings settings = new Settings();
+    String key = ParseCache.key(settings, "parse", "configs/r1", "hostname r1\n");
+    assertThat(ParseCache.key(settings, "parse", "configs/r1", "hostname r1\n"), equalTo(key));
+    assertThat(ParseCache.key(settings, "parse", "configs/r1", "hostname r2\n"), not(key));
+    // part boundaries are significant
+    assertThat(ParseCache.key(settings, "parse", "configs/r1h", "ostname r1\n"), not(key));
+    settings.setUnrecognizedAsRedFlag(!settings.getUnrecognizedAsRedFlag());
+    assertThat(ParseCache.key(settings, "parse", "configs/r1", "hostname r1\n"), not(key));
+  }
+
+  @Test
+  public void testPutAndGet() throws IOException {
+    Settings settings = new Settings();
+    settings.setParseCacheDir(_folder.newFolder().toPath().resolve("cache"));
+    ParseCache cache = ParseCache.forSettings(settings);
+    String key = ParseCache.key(settings, "entry");
+    TreeSet<String> entry = new TreeSet<>();
+    entry.add("value");
+
+    assertThat(cache.get(key, TreeSet.class, _logger), nullValue());
+    cache.put(key, entry, _logger);
+    assertThat(cache.get(key, TreeSet.class, _logger), equalTo(entry));
+  }
+
+  @Test
+  public void testPruneEvictsLeastRecentlyUsed() throws IOException {
+    Settings settings = new Settings();
+    Path dir = _folder.newFolder().toPath();
+    ParseCache cache = new ParseCache(dir, Long.MAX_VALUE);
+    String key1 = ParseCache.key(settings, "entry1");
+    String key2 = ParseCache.key(settings, "entry2");
+    String key3 = ParseCache.key(settings, "entry3");
+    cache.put(key1, "value1", _logger);
+    cache.put(key2, "value2", _logger);
+    cache.put(key3, "value3", _logger);
+    Files.setLastModifiedTime(dir.resolve(key1), FileTime.fromMillis(1000L));
+    Files.setLastModifiedTime(dir.resolve(key2), FileTime.fromMillis(2000L));
+    Files.setLastModifiedTime(dir.resolve(key3), FileTime.fromMillis(3000L));
+
+    // Reading an entry makes it the most recently used
+    assertThat(cache.get(key1, String.class, _logger), equalTo("value1"));
+    assertThat(Files.getLastModifiedTime(dir.resolve(key1)).toMillis(), greaterThan(3000L));
+
+    long twoEntries = Files.size(dir.resolve(key1)) + Files.size(dir.resolve(key3));
+    new ParseCache(dir, twoEntries).prune(_logger);
+    assertThat(cache.get(key2, String.class, _logger), nullValue());
+    assertThat(cache.get(key1, String.class, _logger), equalTo("value1"));
+    assertThat(cache.get(key3, String.class, _logger), equalTo("value3"));
+  }
+}
@@ -0,0 +1,41 @@
+package org.batfish.job;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.batfish.common.Warnings;
+import org.batfish.config.Settings;
+import org.batfish.config.Settings.TestrigSettings;
+import org.batfish.datamodel.ConfigurationFormat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Tests for {@link ParseVendorConfigurationJob}. */
+public class ParseVendorConfigurationJobTest {
+
+  @Rule public TemporaryFolder _folder = new TemporaryFolder();
+
+  @Test
+  public void testFileTextReleasedAfterCall() throws Exception {
+    Path basePath = _folder.newFolder().toPath();
+    Path file = basePath.resolve("r1");
+    Files.write(file, "hostname r1\n".getBytes());
+    Settings settings = new Settings();
+    TestrigSettings testrigSettings = new TestrigSettings();
+    testrigSettings.setBasePath(basePath);
+    settings.setActiveTestrigSettings(testrigSettings);
+    ParseVendorConfigurationJob job =
+        new ParseVendorConfigurationJob(
+            settings, file, new Warnings(), ConfigurationFormat.CISCO_IOS);
+
+    ParseVendorConfigurationResult result = job.call();
+
+    assertThat(result.getFailureCause(), nullValue());
+    assertThat(result.getVendorConfiguration().getHostname(), equalTo("r1"));
+    assertThat(job.getFileText(), nullValue());
+  }
+}
@@ -11,6 +11,7 @@ import static org.hamcrest.collection.IsEmptyCollection.empty;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableSortedMap;
 import java.io.File;
 import java.io.IOException;
@@ -19,6 +20,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -28,9 +30,15 @@ import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.lang.StringUtils;
 import org.batfish.common.BatfishException;
+import org.batfish.common.BatfishLogger;
 import org.batfish.common.CompositeBatfishException;
+import org.batfish.common.util.BatfishObjectMapper;
 import org.batfish.common.util.CommonUtil;
+import org.batfish.config.Settings;
 import org.batfish.datamodel.Configuration;
 import org.batfish.datamodel.ConfigurationFormat;
 import org.batfish.datamodel.Edge;
@@ -304,6 +312,91 @@ public class BatfishTest {
     batfish.readIptableFiles(testRigPath, hostConfigurations, iptablesData, answerElement);
   }
 
+  @Test
+  public void testConcurrentTasksRepairStaleTestrigOnce() throws Exception {
+    Batfish batfish =
+        BatfishTestUtils.getBatfishFromTestrigText(
+            ImmutableSortedMap.of("r1", "hostname r1\n"), null, null, null, null, _folder);
+    // a second task on the same testrig, which has not been parsed yet
+    Settings otherSettings = new Settings(new String[] {});
+    otherSettings.setLogger(new BatfishLogger("info", false));
+    otherSettings.setContainerDir(batfish.getSettings().getContainerDir());
+    otherSettings.setTestrig(batfish.getSettings().getTestrig());
+    otherSettings.setEnvironmentName(batfish.getSettings().getEnvironmentName());
+    Batfish.initTestrigSettings(otherSettings);
+    otherSettings.setActiveTestrigSettings(otherSettings.getBaseTestrigSettings());
+    Batfish otherBatfish =
+        new Batfish(
+            otherSettings,
+            CacheBuilder.newBuilder().build(),
+            CacheBuilder.newBuilder().build(),
+            new HashMap<>(),
+            new HashMap<>());
+    List<Batfish> tasks = Arrays.asList(batfish, otherBatfish);
+    TaskSlots slots = new TaskSlots(2, 1);
+    CountDownLatch admitted = new CountDownLatch(tasks.size());
+    AtomicInteger loaded = new AtomicInteger();
+
+    List<Thread> threads = new ArrayList<>();
+    for (Batfish task : tasks) {
+      Thread thread =
+          new Thread(
+              () -> {
+                try (TaskSlots.Admission admission = slots.admit(task.getSettings())) {
+                  task.setAdmission(admission);
+                  // both answering tasks share the testrig before either finds it stale
+                  admitted.countDown();
+                  admitted.await();
+                  if (task.loadConvertConfigurationAnswerElement() != null) {
+                    loaded.incrementAndGet();
+                  }
+                } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                }
+              });
+      thread.start();
+      threads.add(thread);
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertThat(loaded.get(), equalTo(2));
+    int repairs = 0;
+    for (Batfish task : tasks) {
+      String log = task.getSettings().getLogger().getHistory().toString(BatfishLogger.LEVEL_INFO);
+      repairs += StringUtils.countMatches(log, "CONVERTING VENDOR CONFIGURATIONS");
+    }
+    assertThat(repairs, equalTo(1));
+  }
+
+  @Test
+  public void testDeserializeObjectsRoundTrip() throws IOException {
+    Batfish batfish = BatfishTestUtils.getBatfish(new TreeMap<>(), _folder);
+    Path dir = _folder.newFolder().toPath();
+    Map<Path, Ip> objectsByPath = new HashMap<>();
+    Map<Path, String> namesByPath = new HashMap<>();
+    for (int i = 1; i <= 3; i++) {
+      Path path = dir.resolve("object" + i);
+      objectsByPath.put(path, new Ip("10.0.0." + i));
+      namesByPath.put(path, "name" + i);
+    }
+    batfish.serializeObjects(objectsByPath);
+
+    SortedMap<String, Ip> deserialized = batfish.deserializeObjects(namesByPath, Ip.class);
+
+    assertThat(
+        deserialized,
+        equalTo(
+            ImmutableSortedMap.of(
+                "name1",
+                new Ip("10.0.0.1"),
+                "name2",
+                new Ip("10.0.0.2"),
+                "name3",
+                new Ip("10.0.0.3"))));
+  }
+
   @Test
   public void testReadNestedPath() throws IOException {
     Path nestedFolder = _folder.newFolder("nestedDirectory").toPath();
@@ -406,4 +499,17 @@ public class BatfishTest {
     _thrown.expectMessage("Failed to walk path: " + nonExistPath);
     Batfish.listAllFiles(nonExistPath);
   }
+
+  @Test
+  public void testWriteJsonFile() throws IOException {
+    Answer answer = Answer.failureAnswer("line1\nline2", null);
+    BatfishObjectMapper mapper = new BatfishObjectMapper();
+    Path answerPath = _folder.newFile("answer.json").toPath();
+
+    Batfish.writeJsonFile(mapper, answerPath, answer);
+
+    assertThat(
+        new String(Files.readAllBytes(answerPath), StandardCharsets.UTF_8),
+        equalTo(mapper.writeValueAsString(answer) + "\n"));
+  }
 }
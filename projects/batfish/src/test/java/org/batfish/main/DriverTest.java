@@ -0,0 +1,52 @@
+package org.batfish.main;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.Assert.assertThat;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.batfish.common.Task;
+import org.junit.Test;
+
+/** Tests for {@link Driver}. */
+public class DriverTest {
+
+  private static Task task(@Nullable Long terminatedMs) {
+    Task task = new Task(new String[] {});
+    if (terminatedMs != null) {
+      task.setTerminated(new Date(terminatedMs));
+    }
+    return task;
+  }
+
+  @Test
+  public void testPruneTaskLogByAge() {
+    Map<String, Task> taskLog = new HashMap<>();
+    taskLog.put("running", task(null));
+    taskLog.put("old", task(1000L));
+    taskLog.put("recent", task(9000L));
+
+    Driver.pruneTaskLog(taskLog, 100, 5000L, new Date(10000L));
+
+    assertThat(taskLog.keySet(), containsInAnyOrder("running", "recent"));
+  }
+
+  @Test
+  public void testPruneTaskLogBySize() {
+    Map<String, Task> taskLog = new HashMap<>();
+    taskLog.put("running1", task(null));
+    taskLog.put("running2", task(null));
+    taskLog.put("first", task(1000L));
+    taskLog.put("second", task(2000L));
+    taskLog.put("third", task(3000L));
+
+    Driver.pruneTaskLog(taskLog, 3, Long.MAX_VALUE, new Date(10000L));
+    assertThat(taskLog.keySet(), containsInAnyOrder("running1", "running2", "third"));
+
+    // tasks that have not terminated are kept even beyond the limit
+    Driver.pruneTaskLog(taskLog, 1, Long.MAX_VALUE, new Date(10000L));
+    assertThat(taskLog.keySet(), containsInAnyOrder("running1", "running2"));
+  }
+}
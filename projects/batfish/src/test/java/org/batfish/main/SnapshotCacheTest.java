@@ -0,0 +1,88 @@
+package org.batfish.main;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.cache.Cache;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import org.batfish.config.Settings.TestrigSettings;
+import org.batfish.datamodel.Configuration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Tests for {@link SnapshotCache}. */
+public class SnapshotCacheTest {
+
+  @Rule public TemporaryFolder _folder = new TemporaryFolder();
+
+  private TestrigSettings testrigWithSerializedSize(String name, int bytes) throws IOException {
+    Path dir = _folder.newFolder(name).toPath();
+    Files.write(dir.resolve("r1"), new byte[bytes]);
+    TestrigSettings testrig = new TestrigSettings();
+    testrig.setName(name);
+    testrig.getEnvironmentSettings().setName("env");
+    testrig.setSerializeIndependentPath(dir);
+    return testrig;
+  }
+
+  @Test
+  public void testEstimateRetainedSize() throws IOException {
+    Path dir = _folder.newFolder().toPath();
+    Files.write(dir.resolve("a"), new byte[32 * 1024]);
+    Files.write(dir.resolve("b"), new byte[32 * 1024]);
+    int expectedKb = 64 * SnapshotCache.ESTIMATED_HEAP_EXPANSION_FACTOR;
+
+    assertThat(SnapshotCache.estimateRetainedSizeKb(dir), equalTo(expectedKb));
+    assertThat(SnapshotCache.estimateRetainedSizeKb(dir.resolve("a")), equalTo(expectedKb / 2));
+    assertThat(SnapshotCache.estimateRetainedSizeKb(dir.resolve("missing")), equalTo(1));
+  }
+
+  @Test
+  public void testEvictsByWeight() throws IOException {
+    // 4096 KB budget leaves 1024 KB for testrigs, i.e. two testrigs of 512 KB each
+    SnapshotCache snapshotCache = new SnapshotCache(4096);
+    Cache<TestrigSettings, SortedMap<String, Configuration>> testrigs =
+        snapshotCache.getTestrigs();
+    int bytes = 512 * 1024 / SnapshotCache.ESTIMATED_HEAP_EXPANSION_FACTOR;
+    TestrigSettings t1 = testrigWithSerializedSize("t1", bytes);
+    TestrigSettings t2 = testrigWithSerializedSize("t2", bytes);
+    TestrigSettings t3 = testrigWithSerializedSize("t3", bytes);
+
+    testrigs.put(t1, new TreeMap<>());
+    testrigs.put(t2, new TreeMap<>());
+    assertThat(testrigs.size(), equalTo(2L));
+    assertThat(testrigs.stats().evictionCount(), equalTo(0L));
+
+    testrigs.put(t3, new TreeMap<>());
+    assertThat(testrigs.size(), equalTo(2L));
+    assertThat(testrigs.stats().evictionCount(), equalTo(1L));
+  }
+
+  @Test
+  public void testStatsReportWeightsRecordedAtInsert() throws Exception {
+    SnapshotCache snapshotCache = new SnapshotCache(4096);
+    Cache<TestrigSettings, SortedMap<String, Configuration>> testrigs =
+        snapshotCache.getTestrigs();
+    int bytes = 512 * 1024 / SnapshotCache.ESTIMATED_HEAP_EXPANSION_FACTOR;
+    TestrigSettings t1 = testrigWithSerializedSize("t1", bytes);
+    TestrigSettings t2 = testrigWithSerializedSize("t2", bytes);
+    testrigs.put(t1, new TreeMap<>());
+    testrigs.put(t2, new TreeMap<>());
+
+    // Serialized data changing after insertion does not affect the reported weight
+    Files.write(t1.getSerializeIndependentPath().resolve("r2"), new byte[bytes]);
+    assertThat(
+        snapshotCache.getStatsJson().getJSONObject("testrigs").getLong("weightKb"),
+        equalTo(1024L));
+
+    testrigs.invalidate(t1);
+    assertThat(
+        snapshotCache.getStatsJson().getJSONObject("testrigs").getLong("weightKb"),
+        equalTo(512L));
+  }
+}
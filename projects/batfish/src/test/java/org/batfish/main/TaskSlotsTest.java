@@ -0,0 +1,90 @@
+package org.batfish.main;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.batfish.common.BfConsts;
+import org.batfish.config.Settings;
+import org.junit.Test;
+
+/** Tests for {@link TaskSlots}. */
+public class TaskSlotsTest {
+
+  private static Settings taskOnTestrig(String testrig, boolean heavy) {
+    Settings settings =
+        new Settings(heavy ? new String[] {"-" + BfConsts.COMMAND_DUMP_DP} : new String[] {});
+    settings.getBaseTestrigSettings().setName(testrig);
+    settings.getBaseTestrigSettings().setBasePath(Paths.get("container", "testrigs", testrig));
+    return settings;
+  }
+
+  @Test
+  public void testClaimAndRelease() {
+    TaskSlots slots = new TaskSlots(2, 1);
+
+    assertThat(slots.claim(), equalTo(true));
+    assertThat(slots.claim(), equalTo(true));
+    assertThat(slots.claim(), equalTo(false));
+    assertThat(slots.getFreeSlots(), equalTo(0));
+
+    slots.release();
+    assertThat(slots.getFreeSlots(), equalTo(1));
+    assertThat(slots.claim(), equalTo(true));
+  }
+
+  @Test
+  public void testHeavyTaskExcludesTasksOnSameTestrig() throws InterruptedException {
+    TaskSlots slots = new TaskSlots(4, 2);
+    CountDownLatch answered = new CountDownLatch(1);
+    TaskSlots.Admission heavy = slots.admit(taskOnTestrig("t1", true));
+
+    // answering on another testrig is not held up
+    slots.admit(taskOnTestrig("t2", false)).close();
+
+    Thread answerer =
+        new Thread(
+            () -> {
+              try {
+                slots.admit(taskOnTestrig("t1", false)).close();
+                answered.countDown();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            });
+    answerer.start();
+    assertThat(answered.await(100, TimeUnit.MILLISECONDS), equalTo(false));
+
+    heavy.close();
+    assertThat(answered.await(10, TimeUnit.SECONDS), equalTo(true));
+    answerer.join();
+  }
+
+  @Test
+  public void testHeavyTasksOnDifferentTestrigsDoNotWait() throws InterruptedException {
+    int testrigs = 200;
+    TaskSlots slots = new TaskSlots(testrigs + 1, testrigs + 1);
+    CountDownLatch admitted = new CountDownLatch(testrigs);
+    TaskSlots.Admission held = slots.admit(taskOnTestrig("t0", true));
+
+    Thread others =
+        new Thread(
+            () -> {
+              try {
+                for (int i = 1; i <= testrigs; i++) {
+                  slots.admit(taskOnTestrig("t" + i, true)).close();
+                  admitted.countDown();
+                }
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            });
+    others.start();
+    assertThat(admitted.await(10, TimeUnit.SECONDS), equalTo(true));
+
+    held.close();
+    others.join();
+  }
+}
@@ -182,6 +182,18 @@ public class Main {
     }
   }
 
+  /**
+   * Sizes the keep-alive cache of the connections to workers. The default Jersey connector uses
+   * HttpURLConnection, whose keep-alive cache is sized by a JVM-wide property, so it is set once at
+   * startup, and only if it was not given explicitly on the command line.
+   */
+  private static void initHttpConnections() {
+    if (System.getProperty("http.maxConnections") == null) {
+      System.setProperty(
+          "http.maxConnections", Integer.toString(_settings.getPoolMaxConnectionsPerWorker()));
+    }
+  }
+
   private static void initPoolManager() {
 
     ResourceConfig rcPool =
@@ -323,6 +335,7 @@ public class Main {
   private static void mainRun() {
     try {
       initAuthorizer();
+      initHttpConnections();
       initPoolManager();
       if (_settings.getTracingEnable() && !GlobalTracer.isRegistered()) {
         initTracer();
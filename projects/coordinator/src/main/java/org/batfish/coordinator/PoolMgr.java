@@ -1,10 +1,13 @@
 package org.batfish.coordinator;
 
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
@@ -17,9 +20,9 @@ import javax.ws.rs.core.Response;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.batfish.common.BatfishLogger;
 import org.batfish.common.BfConsts;
-import org.batfish.common.util.CommonUtil;
 import org.batfish.coordinator.config.Settings;
 import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
 
 public class PoolMgr {
@@ -31,6 +34,99 @@ public class PoolMgr {
     }
   }
 
+  /**
+   * Returns the key identifying a snapshot in {@link WorkerStatus#getCachedSnapshots()}. With a
+   * {@code null} environment, the key identifies the testrig regardless of environment.
+   */
+  static String getSnapshotKey(
+      String containerName, String testrigName, @Nullable String environmentName) {
+    String testrigKey = containerName + "/" + testrigName;
+    return environmentName == null ? testrigKey : testrigKey + "/" + environmentName;
+  }
+
+  /**
+   * Picks the idle worker best suited to run work on the given snapshot: one that has the snapshot
+   * cached, then one that has the testrig cached in another environment, then any. Ties go to the
+   * worker with the most free task slots, and then to the one whose last assignment is oldest, so
+   * that load is spread across the pool.
+   */
+  @Nullable
+  static String selectWorker(
+      Map<String, WorkerStatus> workerPool,
+      String containerName,
+      String testrigName,
+      @Nullable String environmentName) {
+    String snapshotKey = getSnapshotKey(containerName, testrigName, environmentName);
+    String testrigKey = getSnapshotKey(containerName, testrigName, null);
+    String bestWorker = null;
+    int bestAffinity = -1;
+    int bestFreeSlots = 0;
+    Date bestLastAssigned = null;
+    for (Entry<String, WorkerStatus> workerEntry : workerPool.entrySet()) {
+      WorkerStatus status = workerEntry.getValue();
+      if (status.getStatus() != WorkerStatus.StatusCode.IDLE) {
+        continue;
+      }
+      Set<String> cached = status.getCachedSnapshots();
+      int affinity = cached.contains(snapshotKey) ? 2 : cached.contains(testrigKey) ? 1 : 0;
+      int freeSlots = status.getFreeSlots();
+      Date lastAssigned = status.getLastAssignedTime();
+      if (affinity > bestAffinity
+          || (affinity == bestAffinity && freeSlots > bestFreeSlots)
+          || (affinity == bestAffinity
+              && freeSlots == bestFreeSlots
+              && bestLastAssigned != null
+              && (lastAssigned == null || lastAssigned.before(bestLastAssigned)))) {
+        bestWorker = workerEntry.getKey();
+        bestAffinity = affinity;
+        bestFreeSlots = freeSlots;
+        bestLastAssigned = lastAssigned;
+      }
+    }
+    return bestWorker;
+  }
+
+  /**
+   * Picks the busy worker to warm with the given snapshot, so that work on the snapshot waiting for
+   * a worker finds it cached: the one whose last assignment is oldest, as it is the most likely to
+   * free a task slot first. Returns {@code null} if a reachable worker already has the snapshot
+   * cached or being prefetched, or if no worker is busy.
+   */
+  @Nullable
+  static String selectPrefetchWorker(
+      Map<String, WorkerStatus> workerPool,
+      String containerName,
+      String testrigName,
+      @Nullable String environmentName) {
+    String snapshotKey = getSnapshotKey(containerName, testrigName, environmentName);
+    String bestWorker = null;
+    Date bestLastAssigned = null;
+    for (Entry<String, WorkerStatus> workerEntry : workerPool.entrySet()) {
+      WorkerStatus status = workerEntry.getValue();
+      WorkerStatus.StatusCode statusCode = status.getStatus();
+      if (statusCode == WorkerStatus.StatusCode.UNKNOWN
+          || statusCode == WorkerStatus.StatusCode.UNREACHABLE) {
+        continue;
+      }
+      if (status.getCachedSnapshots().contains(snapshotKey)) {
+        return null;
+      }
+      if (statusCode != WorkerStatus.StatusCode.BUSY) {
+        continue;
+      }
+      Date lastAssigned = status.getLastAssignedTime();
+      if (bestWorker == null
+          || (bestLastAssigned != null
+              && (lastAssigned == null || lastAssigned.before(bestLastAssigned)))) {
+        bestWorker = workerEntry.getKey();
+        bestLastAssigned = lastAssigned;
+      }
+    }
+    return bestWorker;
+  }
+
+  private final WorkerClientPool _clientPool;
+
   private final BatfishLogger _logger;
 
   private final Settings _settings;
@@ -42,6 +138,7 @@ public class PoolMgr {
     _settings = settings;
     _logger = logger;
     _workerPool = new HashMap<>();
+    _clientPool = new WorkerClientPool(settings);
   }
 
   public synchronized void addToPool(final String worker) {
@@ -63,6 +160,7 @@ public class PoolMgr {
     if (_workerPool.containsKey(worker)) {
       _workerPool.remove(worker);
     }
+    _clientPool.invalidate(worker);
   }
 
   private synchronized List<String> getAllWorkers() {
@@ -73,6 +171,10 @@ public class PoolMgr {
     return workers;
   }
 
+  public WorkerClientPool getClientPool() {
+    return _clientPool;
+  }
+
   public synchronized int getNumWorkers() {
     return _workerPool.size();
   }
@@ -87,17 +189,38 @@ public class PoolMgr {
     return copy;
   }
 
+  /**
+   * Reserves an idle worker for work on the given snapshot, preferring workers that have it cached.
+   * Returns {@code null} if no worker is idle.
+   */
   @Nullable
-  public synchronized String getWorkerForAssignment() {
-
-    for (Entry<String, WorkerStatus> workerEntry : _workerPool.entrySet()) {
-      if (workerEntry.getValue().getStatus() == WorkerStatus.StatusCode.IDLE) {
-        updateWorkerStatus(workerEntry.getKey(), WorkerStatus.StatusCode.TRYINGTOASSIGN);
-        return workerEntry.getKey();
-      }
+  public synchronized String getWorkerForAssignment(
+      String containerName, String testrigName, @Nullable String environmentName) {
+    String worker = selectWorker(_workerPool, containerName, testrigName, environmentName);
+    if (worker != null) {
+      updateWorkerStatus(worker, WorkerStatus.StatusCode.TRYINGTOASSIGN);
     }
+    return worker;
+  }
 
-    return null;
+  /**
+   * Picks a busy worker to prefetch the given snapshot, as by {@link #selectPrefetchWorker}, and
+   * counts the snapshot as cached there from now on, so that the hint is sent only once and work on
+   * the snapshot goes to that worker. The next status refresh corrects this if the worker did not
+   * prefetch the snapshot after all. Returns {@code null} if no worker should prefetch.
+   */
+  @Nullable
+  public synchronized String getWorkerForPrefetch(
+      String containerName, String testrigName, @Nullable String environmentName) {
+    String worker = selectPrefetchWorker(_workerPool, containerName, testrigName, environmentName);
+    if (worker != null) {
+      WorkerStatus status = _workerPool.get(worker);
+      Set<String> cachedSnapshots = new HashSet<>(status.getCachedSnapshots());
+      cachedSnapshots.add(getSnapshotKey(containerName, testrigName, null));
+      cachedSnapshots.add(getSnapshotKey(containerName, testrigName, environmentName));
+      status.setCachedSnapshots(cachedSnapshots);
+    }
+    return worker;
   }
 
   @Nullable
@@ -105,9 +228,23 @@ public class PoolMgr {
     return _workerPool.get(worker);
   }
 
-  public void markAssignmentResult(String worker, boolean assignmentSuccessful) {
-    updateWorkerStatus(
-        worker, assignmentSuccessful ? WorkerStatus.StatusCode.BUSY : WorkerStatus.StatusCode.IDLE);
+  /**
+   * Records the outcome of assigning a task to a worker reserved by {@link
+   * #getWorkerForAssignment}. After a successful assignment the worker stays available for
+   * assignment as long as it has free task slots left.
+   */
+  public synchronized void markAssignmentResult(String worker, boolean assignmentSuccessful) {
+    WorkerStatus status = _workerPool.get(worker);
+    if (status == null) {
+      return;
+    }
+    if (assignmentSuccessful) {
+      status.markAssigned();
+    }
+    status.updateStatus(
+        !assignmentSuccessful || status.getFreeSlots() > 0
+            ? WorkerStatus.StatusCode.IDLE
+            : WorkerStatus.StatusCode.BUSY);
   }
 
   public void refreshWorkerStatus() {
@@ -121,18 +258,11 @@ public class PoolMgr {
   public void refreshWorkerStatus(String worker) {
     // _logger.debug("PM:RefreshWorkerStatus: refreshing status of " + worker
     // +"\n");
-    Client client = null;
+    Response response = null;
+    WorkerClientPool.ClientHandle handle = null;
     try {
-      // Client client = ClientBuilder.newClient();
-      client =
-          CommonUtil.createHttpClientBuilder(
-                  _settings.getSslPoolDisable(),
-                  _settings.getSslPoolTrustAllCerts(),
-                  _settings.getSslPoolKeystoreFile(),
-                  _settings.getSslPoolKeystorePassword(),
-                  _settings.getSslPoolTruststoreFile(),
-                  _settings.getSslPoolTruststorePassword())
-              .build();
+      handle = _clientPool.acquire(worker);
+      Client client = handle.getClient();
       String protocol = _settings.getSslPoolDisable() ? "http" : "https";
       WebTarget webTarget =
           client.target(
@@ -140,7 +270,7 @@ public class PoolMgr {
                   "%s://%s%s/%s",
                   protocol, worker, BfConsts.SVC_BASE_RSC, BfConsts.SVC_GET_STATUS_RSC));
       Invocation.Builder invocationBuilder = webTarget.request(MediaType.APPLICATION_JSON);
-      Response response = invocationBuilder.get();
+      response = invocationBuilder.get();
 
       // _logger.debug(webTarget.getUri());
 
@@ -170,24 +300,31 @@ public class PoolMgr {
         }
 
         boolean status = jObj.getBoolean("idle");
+        // workers that predate task slots do not report free slots
+        int freeSlots = jObj.optInt("freeslots", status ? 1 : 0);
 
-        // update the status, except leave the ones with TRYINGTOASSIGN
-        // alone
-        if (getWorkerStatus(worker).getStatus() != WorkerStatus.StatusCode.TRYINGTOASSIGN) {
-          updateWorkerStatus(
-              worker, status ? WorkerStatus.StatusCode.IDLE : WorkerStatus.StatusCode.BUSY);
+        // workers that predate snapshot caching do not report cached snapshots
+        if (jObj.has("cachedsnapshots")) {
+          updateCachedSnapshots(worker, jObj.getJSONArray("cachedsnapshots"));
         }
+
+        updateFreeSlots(worker, freeSlots);
       }
     } catch (ProcessingException e) {
       _logger.error(String.format("unable to connect to %s: %s\n", worker, e.getMessage()));
+      _clientPool.invalidate(worker);
       updateWorkerStatus(worker, WorkerStatus.StatusCode.UNREACHABLE);
     } catch (Exception e) {
       String stackTrace = ExceptionUtils.getFullStackTrace(e);
       _logger.error(String.format("exception: %s\n", stackTrace));
       updateWorkerStatus(worker, WorkerStatus.StatusCode.UNKNOWN);
     } finally {
-      if (client != null) {
-        client.close();
+      // closing the response releases the connection for reuse
+      if (response != null) {
+        response.close();
+      }
+      if (handle != null) {
+        _clientPool.release(handle);
       }
     }
   }
@@ -202,6 +339,34 @@ public class PoolMgr {
             TimeUnit.MILLISECONDS);
   }
 
+  private synchronized void updateCachedSnapshots(String worker, JSONArray snapshots)
+      throws JSONException {
+    if (!_workerPool.containsKey(worker)) {
+      return;
+    }
+    Set<String> cachedSnapshots = new HashSet<>();
+    for (int i = 0; i < snapshots.length(); i++) {
+      JSONObject snapshot = snapshots.getJSONObject(i);
+      String containerName = snapshot.getString("container");
+      String testrigName = snapshot.getString("testrig");
+      cachedSnapshots.add(getSnapshotKey(containerName, testrigName, null));
+      cachedSnapshots.add(
+          getSnapshotKey(containerName, testrigName, snapshot.optString("environment", null)));
+    }
+    _workerPool.get(worker).setCachedSnapshots(cachedSnapshots);
+  }
+
+  private synchronized void updateFreeSlots(String worker, int freeSlots) {
+    WorkerStatus status = _workerPool.get(worker);
+    // update the status, except leave the ones with TRYINGTOASSIGN alone
+    if (status == null || status.getStatus() == WorkerStatus.StatusCode.TRYINGTOASSIGN) {
+      return;
+    }
+    status.setFreeSlots(freeSlots);
+    status.updateStatus(
+        freeSlots > 0 ? WorkerStatus.StatusCode.IDLE : WorkerStatus.StatusCode.BUSY);
+  }
+
   private synchronized void updateWorkerStatus(String worker, WorkerStatus.StatusCode statusCode) {
     if (_workerPool.containsKey(worker)) {
       _workerPool.get(worker).updateStatus(statusCode);
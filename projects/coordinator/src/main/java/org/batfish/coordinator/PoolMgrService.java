@@ -5,9 +5,11 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
@@ -36,6 +38,21 @@ public class PoolMgrService {
                 + ". Enter ../application.wadl (relative to your URL) to see supported methods"));
   }
 
+  @GET
+  @Path(CoordConsts.SVC_RSC_POOL_GET_CONNECTION_STATS)
+  @Produces(MediaType.APPLICATION_JSON)
+  public JSONArray getConnectionStats() {
+    try {
+      _logger.info("PMS:getConnectionStats\n");
+      JSONObject stats = Main.getPoolMgr().getClientPool().getStatsJson();
+      return new JSONArray(Arrays.asList(CoordConsts.SVC_KEY_SUCCESS, stats.toString()));
+    } catch (Exception e) {
+      String stackTrace = ExceptionUtils.getFullStackTrace(e);
+      _logger.error("PMS:getConnectionStats exception: " + stackTrace);
+      return new JSONArray(Arrays.asList(CoordConsts.SVC_KEY_FAILURE, e.getMessage()));
+    }
+  }
+
   @GET
   @Path(CoordConsts.SVC_RSC_POOL_GET_QUESTION_TEMPLATES)
   @Produces(MediaType.APPLICATION_JSON)
@@ -77,6 +94,25 @@ public class PoolMgrService {
     }
   }
 
+  /** Called by a worker when the task for the given work has terminated */
+  @GET
+  @Path(CoordConsts.SVC_RSC_POOL_TASK_COMPLETED)
+  @Produces(MediaType.APPLICATION_JSON)
+  public JSONArray taskCompleted(@QueryParam(CoordConsts.SVC_KEY_WORKID) String workId) {
+    try {
+      _logger.info("PMS:taskCompleted " + workId + "\n");
+      if (workId == null || workId.isEmpty()) {
+        return new JSONArray(Arrays.asList(CoordConsts.SVC_KEY_FAILURE, "workid not supplied"));
+      }
+      Main.getWorkMgr().taskCompleted(UUID.fromString(workId));
+      return new JSONArray(Arrays.asList(CoordConsts.SVC_KEY_SUCCESS, "done"));
+    } catch (Exception e) {
+      String stackTrace = ExceptionUtils.getFullStackTrace(e);
+      _logger.error("PMS:taskCompleted exception: " + stackTrace);
+      return new JSONArray(Arrays.asList(CoordConsts.SVC_KEY_FAILURE, e.getMessage()));
+    }
+  }
+
   // functions for pool management
   @GET
   @Path(CoordConsts.SVC_RSC_POOL_UPDATE)
@@ -2,14 +2,32 @@ package org.batfish.coordinator;
 
 import java.util.Date;
 import java.util.UUID;
+import org.batfish.common.BfConsts;
 import org.batfish.common.CoordConsts.WorkStatusCode;
 import org.batfish.common.Task;
 import org.batfish.common.WorkItem;
 
 public class QueuedWork {
 
+  /**
+   * Scheduling class of a work. Interactive works, which a user is typically waiting on, are
+   * assigned before any batch work, such as running all questions of an analysis.
+   */
+  public enum Priority {
+    INTERACTIVE,
+    BATCH
+  }
+
+  static Priority priorityOf(WorkItem workItem) {
+    return workItem.getRequestParams().containsKey(BfConsts.COMMAND_ANALYZE)
+        ? Priority.BATCH
+        : Priority.INTERACTIVE;
+  }
+
   String _assignedWorker;
 
+  int _assignmentCount;
+
   Date _dateAssigned;
 
   Date _dateCreated;
@@ -19,10 +37,13 @@ public class QueuedWork {
   Task _lastTaskCheckResult;
   WorkStatusCode _status;
 
+  final Priority _priority;
+
   WorkItem _workItem;
 
   public QueuedWork(WorkItem workItem) {
     _workItem = workItem;
+    _priority = priorityOf(workItem);
     _status = WorkStatusCode.UNASSIGNED;
     _dateCreated = new Date();
   }
@@ -39,6 +60,19 @@ public class QueuedWork {
     return _assignedWorker;
   }
 
+  /** Returns the number of times this work was assigned to a worker */
+  public int getAssignmentCount() {
+    return _assignmentCount;
+  }
+
+  public String getContainerName() {
+    return _workItem.getContainerName();
+  }
+
+  public Date getDateCreated() {
+    return _dateCreated;
+  }
+
   public UUID getId() {
     return _workItem.getId();
   }
@@ -47,6 +81,10 @@ public class QueuedWork {
     return _lastTaskCheckResult;
   }
 
+  public Priority getPriority() {
+    return _priority;
+  }
+
   public WorkStatusCode getStatus() {
     return _status;
   }
@@ -64,6 +102,7 @@ public class QueuedWork {
     _status = WorkStatusCode.ASSIGNED;
     _assignedWorker = assignedWorker;
     _dateAssigned = new Date();
+    _assignmentCount++;
   }
 
   public void setStatus(WorkStatusCode status) {
@@ -73,9 +112,10 @@ public class QueuedWork {
   @Override
   public String toString() {
     return String.format(
-        "%s [%s] [%s %s %s] [%s] [%s, %s]",
+        "%s [%s %s] [%s %s %s] [%s] [%s, %s]",
         _workItem.toJsonString(),
         _status,
+        _priority,
         _dateCreated,
         _dateAssigned,
         _dateTerminated,
@@ -1,30 +1,45 @@
 package org.batfish.coordinator;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.Striped;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.opentracing.contrib.jaxrs2.client.ClientTracingFeature;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.annotation.Nullable;
 import javax.ws.rs.ProcessingException;
 import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -56,7 +71,7 @@ public class WorkMgr extends AbstractCoordinator {
     @Override
     public void run() {
       Main.getWorkMgr().checkTask();
-      Main.getWorkMgr().assignWork();
+      Main.getWorkMgr().requestAssignment();
     }
   }
 
@@ -67,10 +82,25 @@ public class WorkMgr extends AbstractCoordinator {
     }
   }
 
+  static final class ExpireUploadsTask implements Runnable {
+    @Override
+    public void run() {
+      Main.getWorkMgr().expireUploads();
+    }
+  }
+
   private static final Set<String> ENV_FILENAMES = initEnvFilenames();
 
   private static final int MAX_SHOWN_TESTRIG_INFO_SUBDIR_ENTRIES = 10;
 
+  private static final long UPLOAD_EXPIRY_CHECK_MAX_PERIOD_MS = 60 * 60 * 1000;
+
+  private static final int UPLOAD_LOCK_STRIPES = 64;
+
+  private static String toHashKey(Path relativePath) {
+    return relativePath.toString().replace(File.separatorChar, '/');
+  }
+
   private static Set<String> initEnvFilenames() {
     Set<String> envFilenames = new HashSet<>();
     envFilenames.add(BfConsts.RELPATH_NODE_BLACKLIST_FILE);
@@ -88,62 +118,103 @@ public class WorkMgr extends AbstractCoordinator {
 
   private WorkQueueMgr _workQueueMgr;
 
+  /** Runs assignment passes one at a time */
+  private final ExecutorService _assignmentExecutor;
+
+  private final AtomicBoolean _assignmentRequested;
+
+  /** Checks the status of tasks whose workers reported that they completed */
+  private final ExecutorService _taskCompletedExecutor;
+
+  private final Striped<Lock> _uploadLocks;
+
   public WorkMgr(Settings settings, BatfishLogger logger) {
+    this(settings, logger, new WorkQueueMgr());
+  }
+
+  WorkMgr(Settings settings, BatfishLogger logger, WorkQueueMgr workQueueMgr) {
     super(false);
     _settings = settings;
     _logger = logger;
-    _workQueueMgr = new WorkQueueMgr();
+    _workQueueMgr = workQueueMgr;
+    // daemon threads, so that a work manager never keeps the process alive
+    _assignmentExecutor =
+        Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("wm-assign-%d").build());
+    _assignmentRequested = new AtomicBoolean();
+    _taskCompletedExecutor =
+        Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("wm-task-completed-%d")
+                .build());
+    _uploadLocks = Striped.lock(UPLOAD_LOCK_STRIPES);
     loadPlugins();
   }
 
-  private void assignWork() {
+  /**
+   * Assigns unassigned work to idle workers until either runs out, or until an assignment fails
+   * without an error (e.g., the worker is unreachable), in which case the next pass retries.
+   */
+  void assignWork() {
 
     try {
-      QueuedWork work = _workQueueMgr.getWorkForAssignment();
+      while (true) {
+        QueuedWork work = _workQueueMgr.getWorkForAssignment();
 
-      // get out if no work was found
-      if (work == null) {
-        // _logger.info("WM:AssignWork: No unassigned work\n");
-        return;
-      }
+        // get out if no work was found
+        if (work == null) {
+          // _logger.info("WM:AssignWork: No unassigned work\n");
+          return;
+        }
 
-      String idleWorker = Main.getPoolMgr().getWorkerForAssignment();
+        WorkItem workItem = work.getWorkItem();
+        String idleWorker = getWorkerForAssignment(workItem);
 
-      // get out if no idle worker was found, but release the work first
-      if (idleWorker == null) {
-        _workQueueMgr.markAssignmentFailure(work);
+        // get out if no idle worker was found, but release the work first
+        if (idleWorker == null) {
+          _workQueueMgr.markAssignmentFailure(work);
 
-        _logger.info("WM:AssignWork: No idle worker\n");
-        return;
-      }
+          _logger.info("WM:AssignWork: No idle worker\n");
+          if (!_settings.getPrefetchDisable()) {
+            sendPrefetchHint(workItem);
+          }
+          return;
+        }
 
-      assignWork(work, idleWorker);
+        if (!assignWork(work, idleWorker)) {
+          return;
+        }
+      }
     } catch (Exception e) {
       String stackTrace = ExceptionUtils.getFullStackTrace(e);
       _logger.error("Got exception in assignWork: " + stackTrace);
     }
   }
 
-  private void assignWork(QueuedWork work, String worker) {
+  /**
+   * Tries to assign {@code work} to {@code worker}. Returns {@code false} if the attempt failed and
+   * the work was returned to the queue.
+   */
+  boolean assignWork(QueuedWork work, String worker) {
 
     _logger.info("WM:AssignWork: Trying to assign " + work + " to " + worker + " \n");
 
     boolean assignmentError = false;
     boolean assigned = false;
 
-    Client client = null;
+    Response response = null;
+    WorkerClientPool.ClientHandle handle = null;
     try {
       // get the task and add other standard stuff
-      JSONObject task = work.getWorkItem().toTask();
-      Path containerDir =
-          Main.getSettings().getContainersLocation().resolve(work.getWorkItem().getContainerName());
-      String testrigName = work.getWorkItem().getTestrigName();
+      JSONObject task = getWorkerTask(work.getWorkItem());
       Path testrigBaseDir =
-          containerDir
-              .resolve(Paths.get(BfConsts.RELPATH_TESTRIGS_DIR, testrigName))
+          Main.getSettings()
+              .getContainersLocation()
+              .resolve(work.getWorkItem().getContainerName())
+              .resolve(
+                  Paths.get(BfConsts.RELPATH_TESTRIGS_DIR, work.getWorkItem().getTestrigName()))
               .toAbsolutePath();
-      task.put(BfConsts.ARG_CONTAINER_DIR, containerDir.toAbsolutePath().toString());
-      task.put(BfConsts.ARG_TESTRIG, testrigName);
       task.put(
           BfConsts.ARG_LOG_FILE,
           testrigBaseDir.resolve(work.getId() + BfConsts.SUFFIX_LOG_FILE).toString());
@@ -151,18 +222,8 @@ public class WorkMgr extends AbstractCoordinator {
           BfConsts.ARG_ANSWER_JSON_PATH,
           testrigBaseDir.resolve(work.getId() + BfConsts.SUFFIX_ANSWER_JSON_FILE).toString());
 
-      ClientBuilder clientBuilder =
-          CommonUtil.createHttpClientBuilder(
-              _settings.getSslPoolDisable(),
-              _settings.getSslPoolTrustAllCerts(),
-              _settings.getSslPoolKeystoreFile(),
-              _settings.getSslPoolKeystorePassword(),
-              _settings.getSslPoolTruststoreFile(),
-              _settings.getSslPoolTruststorePassword());
-      if (Main.getSettings().getTracingEnable()) {
-        clientBuilder.register(ClientTracingFeature.class);
-      }
-      client = clientBuilder.build();
+      handle = Main.getPoolMgr().getClientPool().acquire(worker);
+      Client client = handle.getClient();
       String protocol = _settings.getSslPoolDisable() ? "http" : "https";
       WebTarget webTarget =
           client
@@ -178,8 +239,11 @@ public class WorkMgr extends AbstractCoordinator {
                   BfConsts.SVC_TASK_KEY,
                   UriComponent.encode(
                       task.toString(), UriComponent.Type.QUERY_PARAM_SPACE_ENCODED));
+      if (Main.getSettings().getTracingEnable()) {
+        webTarget = webTarget.register(ClientTracingFeature.class);
+      }
 
-      Response response = webTarget.request(MediaType.APPLICATION_JSON).get();
+      response = webTarget.request(MediaType.APPLICATION_JSON).get();
 
       if (response.getStatus() != Response.Status.OK.getStatusCode()) {
         _logger.error("WM:AssignWork: Got non-OK response " + response.getStatus() + "\n");
@@ -203,12 +267,17 @@ public class WorkMgr extends AbstractCoordinator {
     } catch (ProcessingException e) {
       String stackTrace = ExceptionUtils.getFullStackTrace(e);
       _logger.error(String.format("Unable to connect to worker at %s: %s\n", worker, stackTrace));
+      Main.getPoolMgr().getClientPool().invalidate(worker);
     } catch (Exception e) {
       String stackTrace = ExceptionUtils.getFullStackTrace(e);
       _logger.error(String.format("Exception assigning work: %s\n", stackTrace));
     } finally {
-      if (client != null) {
-        client.close();
+      // closing the response releases the connection for reuse
+      if (response != null) {
+        response.close();
+      }
+      if (handle != null) {
+        Main.getPoolMgr().getClientPool().release(handle);
       }
     }
 
@@ -222,44 +291,111 @@ public class WorkMgr extends AbstractCoordinator {
     }
 
     Main.getPoolMgr().markAssignmentResult(worker, assigned);
+    return assigned || assignmentError;
+  }
+
+  /** Returns the task a worker runs for {@code workItem}, without log and answer locations */
+  private static JSONObject getWorkerTask(WorkItem workItem) throws JSONException {
+    JSONObject task = workItem.toTask();
+    Path containerDir =
+        Main.getSettings().getContainersLocation().resolve(workItem.getContainerName());
+    task.put(BfConsts.ARG_CONTAINER_DIR, containerDir.toAbsolutePath().toString());
+    task.put(BfConsts.ARG_TESTRIG, workItem.getTestrigName());
+    return task;
   }
 
+  /**
+   * Asks a busy worker to load the snapshot of {@code workItem}, which is waiting for a worker, so
+   * that the snapshot is already in memory when the work is assigned there. The hint is best
+   * effort: failures are logged and otherwise ignored.
+   */
+  private void sendPrefetchHint(WorkItem workItem) {
+    String worker =
+        Main.getPoolMgr()
+            .getWorkerForPrefetch(
+                workItem.getContainerName(),
+                workItem.getTestrigName(),
+                workItem.getRequestParams().get(BfConsts.ARG_ENVIRONMENT_NAME));
+    if (worker == null) {
+      return;
+    }
+    Response response = null;
+    WorkerClientPool.ClientHandle handle = null;
+    try {
+      handle = Main.getPoolMgr().getClientPool().acquire(worker);
+      Client client = handle.getClient();
+      String protocol = _settings.getSslPoolDisable() ? "http" : "https";
+      WebTarget webTarget =
+          client
+              .target(
+                  String.format(
+                      "%s://%s%s/%s",
+                      protocol, worker, BfConsts.SVC_BASE_RSC, BfConsts.SVC_PREFETCH_RSC))
+              .queryParam(
+                  BfConsts.SVC_TASK_KEY,
+                  UriComponent.encode(
+                      getWorkerTask(workItem).toString(),
+                      UriComponent.Type.QUERY_PARAM_SPACE_ENCODED));
+      response = webTarget.request(MediaType.APPLICATION_JSON).get();
+      if (response.getStatus() != Response.Status.OK.getStatusCode()) {
+        _logger.warnf(
+            "WM:Prefetch: Got non-OK response %s from %s\n", response.getStatus(), worker);
+      } else {
+        JSONArray array = new JSONArray(response.readEntity(String.class));
+        _logger.infof("WM:Prefetch: %s for %s: %s\n", worker, workItem.getTestrigName(), array);
+      }
+    } catch (ProcessingException e) {
+      _logger.warnf("WM:Prefetch: Unable to connect to worker at %s\n", worker);
+      Main.getPoolMgr().getClientPool().invalidate(worker);
+    } catch (Exception e) {
+      _logger.warnf("WM:Prefetch: Exception sending hint to %s: %s\n", worker, e.getMessage());
+    } finally {
+      if (response != null) {
+        response.close();
+      }
+      if (handle != null) {
+        Main.getPoolMgr().getClientPool().release(handle);
+      }
+    }
+  }
+
+  /** Checks the status of every assigned work with its worker */
   private void checkTask() {
     try {
-      QueuedWork work = _workQueueMgr.getWorkForChecking();
-      if (work == null) {
-        // _logger.info("WM:checkTask: No assigned work\n");
-        return;
+      List<QueuedWork> works = new LinkedList<>();
+      QueuedWork work;
+      while ((work = _workQueueMgr.getWorkForChecking()) != null) {
+        works.add(work);
       }
-      String assignedWorker = work.getAssignedWorker();
-      if (assignedWorker == null) {
-        _logger.error("WM:CheckWork no assinged worker for " + work + "\n");
-        _workQueueMgr.makeWorkUnassigned(work);
-        return;
+      for (QueuedWork workToCheck : works) {
+        checkTask(workToCheck);
       }
-      checkTask(work, assignedWorker);
     } catch (Exception e) {
       _logger.error("Got exception in assignWork: " + e.getMessage());
     }
   }
 
+  void checkTask(QueuedWork work) {
+    String assignedWorker = work.getAssignedWorker();
+    if (assignedWorker == null) {
+      _logger.error("WM:CheckWork no assinged worker for " + work + "\n");
+      _workQueueMgr.makeWorkUnassigned(work);
+      return;
+    }
+    checkTask(work, assignedWorker);
+  }
+
   private void checkTask(QueuedWork work, String worker) {
     _logger.info("WM:CheckWork: Trying to check " + work + " on " + worker + " \n");
 
     Task task = new Task();
     task.setStatus(TaskStatus.UnreachableOrBadResponse);
 
-    Client client = null;
+    Response response = null;
+    WorkerClientPool.ClientHandle handle = null;
     try {
-      client =
-          CommonUtil.createHttpClientBuilder(
-                  _settings.getSslPoolDisable(),
-                  _settings.getSslPoolTrustAllCerts(),
-                  _settings.getSslPoolKeystoreFile(),
-                  _settings.getSslPoolKeystorePassword(),
-                  _settings.getSslPoolTruststoreFile(),
-                  _settings.getSslPoolTruststorePassword())
-              .build();
+      handle = Main.getPoolMgr().getClientPool().acquire(worker);
+      Client client = handle.getClient();
       String protocol = _settings.getSslPoolDisable() ? "http" : "https";
       WebTarget webTarget =
           client
@@ -271,7 +407,7 @@ public class WorkMgr extends AbstractCoordinator {
                   BfConsts.SVC_TASKID_KEY,
                   UriComponent.encode(
                       work.getId().toString(), UriComponent.Type.QUERY_PARAM_SPACE_ENCODED));
-      Response response = webTarget.request(MediaType.APPLICATION_JSON).get();
+      response = webTarget.request(MediaType.APPLICATION_JSON).get();
 
       if (response.getStatus() != Response.Status.OK.getStatusCode()) {
         _logger.error("WM:CheckTask: Got non-OK response " + response.getStatus() + "\n");
@@ -296,12 +432,17 @@ public class WorkMgr extends AbstractCoordinator {
     } catch (ProcessingException e) {
       String stackTrace = ExceptionUtils.getFullStackTrace(e);
       _logger.error(String.format("unable to connect to %s: %s\n", worker, stackTrace));
+      Main.getPoolMgr().getClientPool().invalidate(worker);
     } catch (Exception e) {
       String stackTrace = ExceptionUtils.getFullStackTrace(e);
       _logger.error(String.format("exception: %s\n", stackTrace));
     } finally {
-      if (client != null) {
-        client.close();
+      // closing the response releases the connection for reuse
+      if (response != null) {
+        response.close();
+      }
+      if (handle != null) {
+        Main.getPoolMgr().getClientPool().release(handle);
       }
     }
 
@@ -479,7 +620,13 @@ public class WorkMgr extends AbstractCoordinator {
     return CommonUtil.readFile(qFile);
   }
 
-  public String getAnswer(
+  /**
+   * Opens the answer to question {@code questionName} on the given snapshots. A stored answer is
+   * read from its file as the returned reader is consumed, so that it need not fit in memory at
+   * once. If there is no answer, or it is older than the question, returns a short failure answer
+   * instead.
+   */
+  public Reader getAnswer(
       String containerName,
       String baseTestrig,
       String baseEnv,
@@ -487,7 +634,7 @@ public class WorkMgr extends AbstractCoordinator {
       String deltaEnv,
       String questionName,
       boolean pretty)
-      throws JsonProcessingException {
+      throws IOException {
     Path questionDir = getdirTestrigQuestion(containerName, baseTestrig, questionName);
     Path questionFile = questionDir.resolve(BfConsts.RELPATH_QUESTION_FILE);
     if (!Files.exists(questionFile)) {
@@ -500,7 +647,7 @@ public class WorkMgr extends AbstractCoordinator {
     String answerFilename =
         pretty ? BfConsts.RELPATH_ANSWER_PRETTY_JSON : BfConsts.RELPATH_ANSWER_JSON;
     Path answerFile = answerDir.resolve(answerFilename);
-    String answer = "unknown";
+    String answer;
     if (!Files.exists(answerFile)) {
       Answer ans = Answer.failureAnswer("Not answered", null);
       ans.setStatus(AnswerStatus.NOTFOUND);
@@ -521,10 +668,10 @@ public class WorkMgr extends AbstractCoordinator {
         BatfishObjectMapper mapper = new BatfishObjectMapper();
         answer = mapper.writeValueAsString(ans);
       } else {
-        answer = CommonUtil.readFile(answerFile);
+        return Files.newBufferedReader(answerFile, StandardCharsets.UTF_8);
       }
     }
-    return answer;
+    return new StringReader(answer);
   }
 
   /**
@@ -757,6 +904,16 @@ public class WorkMgr extends AbstractCoordinator {
     return _workQueueMgr.getWork(workItemId);
   }
 
+  /** Returns the idle worker best suited to run {@code workItem}, or {@code null} if none */
+  @Nullable
+  String getWorkerForAssignment(WorkItem workItem) {
+    return Main.getPoolMgr()
+        .getWorkerForAssignment(
+            workItem.getContainerName(),
+            workItem.getTestrigName(),
+            workItem.getRequestParams().get(BfConsts.ARG_ENVIRONMENT_NAME));
+  }
+
   public String initContainer(@Nullable String containerName, @Nullable String containerPrefix) {
     if (containerName == null || containerName.equals("")) {
       containerName = containerPrefix + "_" + UUID.randomUUID();
@@ -782,6 +939,22 @@ public class WorkMgr extends AbstractCoordinator {
   @Override
   public void initTestrig(
       String containerName, String testrigName, Path srcDir, boolean autoAnalyze) {
+    initTestrig(containerName, testrigName, srcDir, null, autoAnalyze);
+  }
+
+  /**
+   * Initializes testrig {@code testrigName} from the files in {@code srcDir}. If {@code srcHashes}
+   * gives the hash of each file in {@code srcDir}, keyed by its path relative to {@code srcDir},
+   * files unchanged from the same place in the previously uploaded testrig of the container are
+   * hard-linked to it instead of copied, and the hashes of the new testrig are saved for the next
+   * upload.
+   */
+  private void initTestrig(
+      String containerName,
+      String testrigName,
+      Path srcDir,
+      @Nullable Map<String, String> srcHashes,
+      boolean autoAnalyze) {
     Path containerDir = getdirContainer(containerName);
     Path testrigDir = containerDir.resolve(Paths.get(BfConsts.RELPATH_TESTRIGS_DIR, testrigName));
     /*-
@@ -815,6 +988,15 @@ public class WorkMgr extends AbstractCoordinator {
     defaultEnvironmentLeafDir.toFile().mkdirs();
 
     // things look ok, now make the move
+    Path previousTestrigDir = null;
+    Map<String, String> previousHashes = Collections.emptyMap();
+    SortedMap<String, String> testrigHashes = new TreeMap<>();
+    if (srcHashes != null) {
+      previousTestrigDir = getPreviousTestrigWithHashes(containerDir, testrigName);
+      if (previousTestrigDir != null) {
+        previousHashes = readFileHashes(previousTestrigDir);
+      }
+    }
     for (Path subFile : subFileList) {
       Path target;
       if (isEnvFile(subFile)) {
@@ -822,7 +1004,22 @@ public class WorkMgr extends AbstractCoordinator {
       } else {
         target = srcTestrigDir.resolve(subFile.getFileName());
       }
-      CommonUtil.copy(subFile, target);
+      if (srcHashes == null) {
+        CommonUtil.copy(subFile, target);
+      } else {
+        copyReusingUnchangedFiles(
+            subFile,
+            target,
+            srcDir,
+            srcHashes,
+            testrigDir,
+            testrigHashes,
+            previousTestrigDir,
+            previousHashes);
+      }
+    }
+    if (srcHashes != null) {
+      writeFileHashes(testrigDir, testrigHashes);
     }
 
     if (autoAnalyze) {
@@ -865,6 +1062,111 @@ public class WorkMgr extends AbstractCoordinator {
     }
   }
 
+  /**
+   * Copies {@code src}, a file or directory, to {@code dst} and records the hash of each copied
+   * file in {@code dstHashes}. A file whose hash matches that of the file at the same place in
+   * {@code previousDir} is hard-linked to that file instead, when the file system allows it.
+   *
+   * <p>Since testrigs may thus share files, the files of an uploaded testrig must never be modified
+   * in place, only replaced (e.g. by {@link CommonUtil#replaceFile}) or deleted. Every file placed
+   * here is made read-only to enforce that.
+   */
+  private void copyReusingUnchangedFiles(
+      Path src,
+      Path dst,
+      Path srcRoot,
+      Map<String, String> srcHashes,
+      Path dstRoot,
+      Map<String, String> dstHashes,
+      @Nullable Path previousDir,
+      Map<String, String> previousHashes) {
+    int reused = 0;
+    int copied = 0;
+    try (Stream<Path> paths = Files.walk(src)) {
+      for (Path path : (Iterable<Path>) paths::iterator) {
+        Path target = dst.resolve(src.relativize(path).toString());
+        if (Files.isDirectory(path)) {
+          Files.createDirectories(target);
+          continue;
+        }
+        Files.createDirectories(target.getParent());
+        String hash = srcHashes.get(toHashKey(srcRoot.relativize(path)));
+        String key = toHashKey(dstRoot.relativize(target));
+        if (hash != null
+            && previousDir != null
+            && hash.equals(previousHashes.get(key))
+            && tryLink(target, previousDir.resolve(key))) {
+          reused++;
+        } else {
+          CommonUtil.copyFile(path, target);
+          copied++;
+        }
+        if (!target.toFile().setReadOnly()) {
+          _logger.warnf("WM:copyReusingUnchangedFiles: could not make %s read-only\n", target);
+        }
+        if (hash != null) {
+          dstHashes.put(key, hash);
+        }
+      }
+    } catch (IOException e) {
+      throw new BatfishException("Failed to copy: '" + src + "' to: '" + dst + "'", e);
+    }
+    if (reused > 0) {
+      _logger.infof(
+          "WM:copyReusingUnchangedFiles: reused %d unchanged files from %s, copied %d\n",
+          reused, previousDir, copied);
+    }
+  }
+
+  /**
+   * Returns the directory of the testrig other than {@code testrigName} in the container whose file
+   * hashes were saved most recently, or {@code null} if there is none.
+   */
+  @Nullable
+  private static Path getPreviousTestrigWithHashes(Path containerDir, String testrigName) {
+    Path testrigsDir = containerDir.resolve(BfConsts.RELPATH_TESTRIGS_DIR);
+    return CommonUtil.getSubdirectories(testrigsDir)
+        .stream()
+        .filter(dir -> !dir.getFileName().toString().equals(testrigName))
+        .filter(dir -> Files.exists(dir.resolve(BfConsts.RELPATH_FILE_HASHES)))
+        .max(
+            Comparator.comparing(
+                dir -> CommonUtil.getLastModifiedTime(dir.resolve(BfConsts.RELPATH_FILE_HASHES))))
+        .orElse(null);
+  }
+
+  private static SortedMap<String, String> readFileHashes(Path testrigDir) {
+    Path hashesFile = testrigDir.resolve(BfConsts.RELPATH_FILE_HASHES);
+    try {
+      return new BatfishObjectMapper()
+          .readValue(
+              CommonUtil.readFile(hashesFile), new TypeReference<SortedMap<String, String>>() {});
+    } catch (IOException e) {
+      throw new BatfishException("Failed to read file hashes: '" + hashesFile + "'", e);
+    }
+  }
+
+  private static boolean tryLink(Path link, Path existing) {
+    if (!Files.isRegularFile(existing)) {
+      return false;
+    }
+    try {
+      Files.createLink(link, existing);
+      return true;
+    } catch (IOException | UnsupportedOperationException e) {
+      return false;
+    }
+  }
+
+  private static void writeFileHashes(Path testrigDir, SortedMap<String, String> hashes) {
+    Path hashesFile = testrigDir.resolve(BfConsts.RELPATH_FILE_HASHES);
+    try {
+      CommonUtil.writeFile(hashesFile, new BatfishObjectMapper().writeValueAsString(hashes));
+    } catch (JsonProcessingException e) {
+      throw new BatfishException("Failed to write file hashes: '" + hashesFile + "'", e);
+    }
+  }
+
   private boolean isEnvFile(Path path) {
     String name = path.getFileName().toString();
     return ENV_FILENAMES.contains(name);
@@ -1011,18 +1313,43 @@ public class WorkMgr extends AbstractCoordinator {
     // as an optimization trigger AssignWork to see if we can schedule this
     // (or another) work
     if (success) {
-      Thread thread =
-          new Thread() {
-            @Override
-            public void run() {
-              assignWork();
-            }
-          };
-      thread.start();
+      requestAssignment();
     }
     return success;
   }
 
+  /**
+   * Schedules an assignment pass. Requests made while a pass is pending are coalesced into it, and
+   * passes never run concurrently.
+   */
+  void requestAssignment() {
+    if (_assignmentRequested.compareAndSet(false, true)) {
+      _assignmentExecutor.submit(
+          () -> {
+            _assignmentRequested.set(false);
+            assignWork();
+          });
+    }
+  }
+
+  /**
+   * Handles a worker's notification that the task for the work with the given id has terminated:
+   * collects its final status and hands the freed worker new work, without waiting for the next
+   * polling period
+   */
+  public void taskCompleted(UUID workId) {
+    QueuedWork work = _workQueueMgr.getWorkForChecking(workId);
+    if (work == null) {
+      // unknown, or already being checked or completed through polling
+      return;
+    }
+    _taskCompletedExecutor.submit(
+        () -> {
+          checkTask(work);
+          requestAssignment();
+        });
+  }
+
   public void startWorkManager() {
     // for some bizarre reason, this ordering of scheduling checktask before
     // assignwork, is important
@@ -1040,6 +1367,19 @@ public class WorkMgr extends AbstractCoordinator {
             0,
             Main.getSettings().getPeriodAssignWorkMs(),
             TimeUnit.MILLISECONDS);
+
+    long expiryCheckPeriodMs =
+        Math.max(1L, Math.min(_settings.getUploadExpiryMs(), UPLOAD_EXPIRY_CHECK_MAX_PERIOD_MS));
+    Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("wm-expire-uploads-%d")
+                .build())
+        .scheduleWithFixedDelay(
+            new ExpireUploadsTask(),
+            expiryCheckPeriodMs,
+            expiryCheckPeriodMs,
+            TimeUnit.MILLISECONDS);
   }
 
   public int syncTestrigsSyncNow(String containerName, String pluginId, boolean force) {
@@ -1160,6 +1500,122 @@ public class WorkMgr extends AbstractCoordinator {
 
   public void uploadTestrig(
       String containerName, String testrigName, InputStream fileStream, boolean autoAnalyze) {
+    createTestrigDir(containerName, testrigName);
+    Path zipFile = CommonUtil.createTempFile("testrig", ".zip");
+    try {
+      CommonUtil.writeStreamToFile(fileStream, zipFile);
+      initTestrigFromZip(containerName, testrigName, zipFile, autoAnalyze);
+    } finally {
+      CommonUtil.deleteIfExists(zipFile);
+    }
+  }
+
+  /**
+   * Appends {@code chunk} to the zip of testrig {@code testrigName} being uploaded in chunks, and
+   * returns the number of bytes received so far. {@code offset} must be that number before this
+   * chunk, so that a failed upload can be resumed from {@link #getTestrigUploadOffset}. Once the
+   * last chunk is received, the testrig is created by {@link #finishTestrigUpload}.
+   *
+   * @throws BatfishException if the testrig exists or {@code offset} is not the number of bytes
+   *     received so far
+   */
+  public long uploadTestrigChunk(
+      String containerName, String testrigName, long offset, InputStream chunk) {
+    Path uploadFile = getTestrigUploadFile(containerName, testrigName);
+    Lock lock = _uploadLocks.get(uploadFile);
+    lock.lock();
+    try {
+      if (Files.exists(getdirTestrigs(containerName).resolve(testrigName))) {
+        throw new BatfishException("Testrig with name: '" + testrigName + "' already exists");
+      }
+      long received = getTestrigUploadOffset(containerName, testrigName);
+      if (offset != received) {
+        throw new BatfishException(
+            String.format(
+                "Upload of testrig: '%s' is at offset %d, not %d", testrigName, received, offset));
+      }
+      uploadFile.getParent().toFile().mkdirs();
+      // bytes of a chunk cut short are kept, the client resumes after them
+      try (OutputStream out =
+          Files.newOutputStream(
+              uploadFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+        ByteStreams.copy(chunk, out);
+      } catch (IOException e) {
+        throw new BatfishException("Failed to write chunk of testrig: '" + testrigName + "'", e);
+      }
+      return uploadFile.toFile().length();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Creates testrig {@code testrigName} from the zip uploaded by {@link #uploadTestrigChunk}, and
+   * discards the upload.
+   */
+  public void finishTestrigUpload(String containerName, String testrigName, boolean autoAnalyze) {
+    Path uploadFile = getTestrigUploadFile(containerName, testrigName);
+    Lock lock = _uploadLocks.get(uploadFile);
+    lock.lock();
+    try {
+      if (!Files.exists(uploadFile)) {
+        throw new BatfishException("No upload in progress for testrig: '" + testrigName + "'");
+      }
+      createTestrigDir(containerName, testrigName);
+      initTestrigFromZip(containerName, testrigName, uploadFile, autoAnalyze);
+    } finally {
+      CommonUtil.deleteIfExists(uploadFile);
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Discards the chunked uploads that received no chunk for longer than {@link
+   * Settings#getUploadExpiryMs}, so that uploads abandoned by their clients do not accumulate.
+   * Returns the number of uploads discarded.
+   */
+  int expireUploads() {
+    long expiredBefore = System.currentTimeMillis() - _settings.getUploadExpiryMs();
+    int expired = 0;
+    for (String containerName : getContainerNames()) {
+      Path uploadsDir = getdirContainer(containerName).resolve(BfConsts.RELPATH_UPLOADS_DIR);
+      if (!Files.isDirectory(uploadsDir)) {
+        continue;
+      }
+      for (Path uploadFile : CommonUtil.getEntries(uploadsDir)) {
+        Lock lock = _uploadLocks.get(uploadFile);
+        // an upload receiving a chunk or finishing right now is not abandoned
+        if (!lock.tryLock()) {
+          continue;
+        }
+        try {
+          if (Files.exists(uploadFile) && uploadFile.toFile().lastModified() < expiredBefore) {
+            CommonUtil.deleteIfExists(uploadFile);
+            expired++;
+          }
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+    if (expired > 0) {
+      _logger.infof("WM:expireUploads: discarded %d abandoned uploads\n", expired);
+    }
+    return expired;
+  }
+
+  /** Returns the number of bytes received of testrig {@code testrigName} uploaded in chunks */
+  public long getTestrigUploadOffset(String containerName, String testrigName) {
+    Path uploadFile = getTestrigUploadFile(containerName, testrigName);
+    return Files.exists(uploadFile) ? uploadFile.toFile().length() : 0L;
+  }
+
+  private Path getTestrigUploadFile(String containerName, String testrigName) {
+    return getdirContainer(containerName)
+        .resolve(Paths.get(BfConsts.RELPATH_UPLOADS_DIR, testrigName + ".zip"));
+  }
+
+  private void createTestrigDir(String containerName, String testrigName) {
     Path containerDir = getdirContainer(containerName);
     Path testrigDir = containerDir.resolve(Paths.get(BfConsts.RELPATH_TESTRIGS_DIR, testrigName));
     if (Files.exists(testrigDir)) {
@@ -1168,18 +1624,20 @@ public class WorkMgr extends AbstractCoordinator {
     if (!testrigDir.toFile().mkdirs()) {
       throw new BatfishException("Failed to create directory: '" + testrigDir + "'");
     }
-    Path zipFile = CommonUtil.createTempFile("testrig", ".zip");
-    CommonUtil.writeStreamToFile(fileStream, zipFile);
-    Path unzipDir = CommonUtil.createTempDirectory("tr");
-    UnzipUtility.unzip(zipFile, unzipDir);
+  }
 
+  private void initTestrigFromZip(
+      String containerName, String testrigName, Path zipFile, boolean autoAnalyze) {
+    Path unzipDir = CommonUtil.createTempDirectory("tr");
     try {
-      initTestrig(containerName, testrigName, unzipDir, autoAnalyze);
-    } catch (Exception e) {
-      throw new BatfishException("Error initializing testrig", e);
+      SortedMap<String, String> hashes = UnzipUtility.unzip(zipFile, unzipDir);
+      try {
+        initTestrig(containerName, testrigName, unzipDir, hashes, autoAnalyze);
+      } catch (Exception e) {
+        throw new BatfishException("Error initializing testrig", e);
+      }
     } finally {
       CommonUtil.deleteDirectory(unzipDir);
-      CommonUtil.delete(zipFile);
     }
   }
 
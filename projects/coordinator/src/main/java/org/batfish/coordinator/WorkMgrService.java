@@ -1,10 +1,13 @@
 package org.batfish.coordinator;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.google.common.base.Strings;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
 import java.nio.file.Files;
 import java.security.AccessControlException;
 import java.util.ArrayList;
@@ -24,6 +27,7 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 import org.apache.commons.io.FileExistsException;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.batfish.common.BatfishException;
@@ -45,6 +49,27 @@ public class WorkMgrService {
   BatfishLogger _logger = Main.getLogger();
   Settings _settings = Main.getSettings();
 
+  /**
+   * Returns a response body equivalent to a {@link #successResponse} of a JSON object mapping
+   * {@code key} to the text read from {@code value}. The text is escaped and written as it is read,
+   * so the body is streamed in chunks rather than built in memory. The reader is closed once
+   * written.
+   */
+  static StreamingOutput streamingSuccessResponse(String key, Reader value) {
+    return output -> {
+      try (Reader reader = value;
+          JsonGenerator generator = new JsonFactory().createGenerator(output)) {
+        generator.writeStartArray();
+        generator.writeString(CoordConsts.SVC_KEY_SUCCESS);
+        generator.writeStartObject();
+        generator.writeFieldName(key);
+        generator.writeString(reader, -1);
+        generator.writeEndObject();
+        generator.writeEndArray();
+      }
+    };
+  }
+
   private static JSONArray successResponse(Object entity) {
     return new JSONArray(Arrays.asList(CoordConsts.SVC_KEY_SUCCESS, entity));
   }
@@ -532,7 +557,7 @@ public class WorkMgrService {
   @POST
   @Path(CoordConsts.SVC_RSC_GET_ANSWER)
   @Produces(MediaType.APPLICATION_JSON)
-  public JSONArray getAnswer(
+  public Response getAnswer(
       @FormDataParam(CoordConsts.SVC_KEY_API_KEY) String apiKey,
       @FormDataParam(CoordConsts.SVC_KEY_VERSION) String clientVersion,
       @FormDataParam(CoordConsts.SVC_KEY_CONTAINER_NAME) String containerName,
@@ -567,7 +592,7 @@ public class WorkMgrService {
       checkClientVersion(clientVersion);
       checkContainerAccessibility(apiKey, containerName);
 
-      String answer =
+      Reader answer =
           Main.getWorkMgr()
               .getAnswer(
                   containerName,
@@ -578,17 +603,17 @@ public class WorkMgrService {
                   questionName,
                   pretty);
 
-      return successResponse(new JSONObject().put(CoordConsts.SVC_KEY_ANSWER, answer));
+      return Response.ok(streamingSuccessResponse(CoordConsts.SVC_KEY_ANSWER, answer)).build();
     } catch (FileExistsException
         | FileNotFoundException
         | IllegalArgumentException
         | AccessControlException e) {
       _logger.error("WMS:getAnswer exception: " + e.getMessage() + "\n");
-      return failureResponse(e.getMessage());
+      return Response.ok(failureResponse(e.getMessage())).build();
     } catch (Exception e) {
       String stackTrace = ExceptionUtils.getFullStackTrace(e);
       _logger.error("WMS:getAnswer exception: " + stackTrace);
-      return failureResponse(e.getMessage());
+      return Response.ok(failureResponse(e.getMessage())).build();
     }
   }
 
@@ -1618,4 +1643,92 @@ public class WorkMgrService {
       return failureResponse(e.getMessage());
     }
   }
+
+  /**
+   * Uploads a new testrig in chunks, so that a large upload interrupted by a network failure can be
+   * resumed instead of restarted. Each chunk is appended at {@code uploadOffset}, which must be the
+   * number of bytes received so far; a request without a chunk or offset returns that number. The
+   * testrig is created once a request sets {@code uploadComplete}.
+   *
+   * @param apiKey The API key of the client
+   * @param clientVersion The version of the client
+   * @param containerName The name of the container under which to upload the new testrig
+   * @param testrigName The name of the new testrig to create
+   * @param uploadOffset The number of bytes of the zipped testrig sent before this chunk
+   * @param fileStream The stream from which the chunk is read
+   * @param uploadCompleteStr Whether this request completes the upload
+   * @param autoAnalyzeStr Whether to analyze the testrig once created
+   * @return TODO: document JSON response
+   */
+  @POST
+  @Path(CoordConsts.SVC_RSC_UPLOAD_TESTRIG_CHUNK)
+  @Consumes(MediaType.MULTIPART_FORM_DATA)
+  @Produces(MediaType.APPLICATION_JSON)
+  public JSONArray uploadTestrigChunk(
+      @FormDataParam(CoordConsts.SVC_KEY_API_KEY) String apiKey,
+      @FormDataParam(CoordConsts.SVC_KEY_VERSION) String clientVersion,
+      @FormDataParam(CoordConsts.SVC_KEY_CONTAINER_NAME) String containerName,
+      @FormDataParam(CoordConsts.SVC_KEY_TESTRIG_NAME) String testrigName,
+      @FormDataParam(CoordConsts.SVC_KEY_UPLOAD_OFFSET) String uploadOffset,
+      @FormDataParam(CoordConsts.SVC_KEY_ZIPFILE) InputStream fileStream,
+      @FormDataParam(CoordConsts.SVC_KEY_UPLOAD_COMPLETE) String uploadCompleteStr,
+      @FormDataParam(CoordConsts.SVC_KEY_AUTO_ANALYZE_TESTRIG) String autoAnalyzeStr) {
+    try {
+      _logger.info(
+          "WMS:uploadTestrigChunk "
+              + apiKey
+              + " "
+              + containerName
+              + " "
+              + testrigName
+              + " "
+              + uploadOffset
+              + "\n");
+
+      checkStringParam(apiKey, "API key");
+      checkStringParam(clientVersion, "Client version");
+      checkStringParam(containerName, "Container name");
+      checkStringParam(testrigName, "Testrig name");
+
+      checkApiKeyValidity(apiKey);
+      checkClientVersion(clientVersion);
+      checkContainerAccessibility(apiKey, containerName);
+
+      WorkMgr workMgr = Main.getWorkMgr();
+      long offset;
+      if (fileStream == null || Strings.isNullOrEmpty(uploadOffset)) {
+        offset = workMgr.getTestrigUploadOffset(containerName, testrigName);
+      } else {
+        try {
+          offset =
+              workMgr.uploadTestrigChunk(
+                  containerName, testrigName, Long.parseLong(uploadOffset), fileStream);
+        } catch (NumberFormatException e) {
+          throw new IllegalArgumentException("Upload offset is not a number: " + uploadOffset);
+        }
+      }
+
+      if (Strings.isNullOrEmpty(uploadCompleteStr) || !Boolean.parseBoolean(uploadCompleteStr)) {
+        return successResponse(new JSONObject().put(CoordConsts.SVC_KEY_UPLOAD_OFFSET, offset));
+      }
+      boolean autoAnalyze = false;
+      if (!Strings.isNullOrEmpty(autoAnalyzeStr)) {
+        autoAnalyze = Boolean.parseBoolean(autoAnalyzeStr);
+      }
+      workMgr.finishTestrigUpload(containerName, testrigName, autoAnalyze);
+
+      return successResponse(new JSONObject().put("result", "successfully uploaded testrig"));
+    } catch (FileExistsException
+        | FileNotFoundException
+        | IllegalArgumentException
+        | AccessControlException
+        | ZipException e) {
+      _logger.error("WMS:uploadTestrigChunk exception: " + e.getMessage() + "\n");
+      return failureResponse(e.getMessage());
+    } catch (Exception e) {
+      String stackTrace = ExceptionUtils.getFullStackTrace(e);
+      _logger.error("WMS:uploadTestrigChunk exception: " + stackTrace);
+      return failureResponse(e.getMessage());
+    }
+  }
 }
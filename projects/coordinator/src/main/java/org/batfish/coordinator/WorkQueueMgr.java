@@ -1,6 +1,14 @@
 package org.batfish.coordinator;
 
+import com.google.common.collect.Sets;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import javax.annotation.Nullable;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.batfish.common.BatfishException;
@@ -8,15 +16,26 @@ import org.batfish.common.BatfishLogger;
 import org.batfish.common.BfConsts.TaskStatus;
 import org.batfish.common.CoordConsts.WorkStatusCode;
 import org.batfish.common.Task;
+import org.batfish.coordinator.QueuedWork.Priority;
+import org.batfish.coordinator.config.Settings;
 import org.batfish.coordinator.queues.AzureQueue;
 import org.batfish.coordinator.queues.MemoryQueue;
 import org.batfish.coordinator.queues.WorkQueue;
 import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
 
-// the design of this WorkQueueMgr is such that all synchronization sits here
-// individual queues do not need to be synchronized
+// the queues are safe for concurrent use, and changes to a single work are made while holding the
+// lock of that work, so there is no global lock here
 
+/**
+ * Queues of incomplete and completed works. Unassigned works are handed out by {@link Priority}
+ * first, so that batch works do not delay interactive ones, and then by fair share: among works of
+ * the same priority, those of the container with the fewest works in flight go first, and the
+ * oldest of those breaks ties. One container's large analysis thus cannot starve other containers.
+ * So that a steady stream of interactive works cannot starve batch works either, a batch work goes
+ * next after {@link Settings#getQueueInteractiveBurst} interactive works were assigned in a row
+ * while it waited.
+ */
 public class WorkQueueMgr {
 
   public enum QueueType {
@@ -24,12 +43,46 @@ public class WorkQueueMgr {
     INCOMPLETE
   }
 
+  /** Time from creation to first assignment of the works of one priority */
+  private static final class WaitTimes {
+
+    private final LongAdder _count = new LongAdder();
+
+    private final AtomicLong _maxMs = new AtomicLong();
+
+    private final LongAdder _totalMs = new LongAdder();
+
+    private void record(long waitMs) {
+      _count.increment();
+      _totalMs.add(waitMs);
+      _maxMs.accumulateAndGet(waitMs, Math::max);
+    }
+  }
+
+  /** Statuses of works that occupy a worker, or are about to */
+  private static final Set<WorkStatusCode> IN_FLIGHT_STATUSES =
+      Sets.immutableEnumSet(
+          WorkStatusCode.TRYINGTOASSIGN, WorkStatusCode.ASSIGNED, WorkStatusCode.CHECKINGSTATUS);
+
+  /** Number of interactive works assigned in a row while batch works waited */
+  private final AtomicInteger _interactiveStreak;
+
+  private final int _interactiveBurst;
+
   BatfishLogger _logger = Main.getLogger();
   private WorkQueue _queueCompletedWork;
 
   private WorkQueue _queueIncompleteWork;
 
+  private final Map<Priority, WaitTimes> _waitTimes;
+
   public WorkQueueMgr() {
+    _interactiveBurst = Main.getSettings().getQueueInteractiveBurst();
+    _interactiveStreak = new AtomicInteger();
+    _waitTimes = new EnumMap<>(Priority.class);
+    for (Priority priority : Priority.values()) {
+      _waitTimes.put(priority, new WaitTimes());
+    }
     if (Main.getSettings().getQueueType() == WorkQueue.Type.azure) {
       String storageConnectionString =
           String.format(
@@ -51,7 +104,7 @@ public class WorkQueueMgr {
     }
   }
 
-  public synchronized long getLength(QueueType qType) {
+  public long getLength(QueueType qType) {
     switch (qType) {
       case COMPLETED:
         return _queueCompletedWork.getLength();
@@ -62,10 +115,48 @@ public class WorkQueueMgr {
     }
   }
 
-  public synchronized JSONObject getStatusJson() throws JSONException {
+  /**
+   * Returns, for each priority, the number of works waiting for and holding a worker, the current
+   * longest wait, and the count, mean, and maximum of the waits of works assigned so far
+   */
+  public JSONObject getQueueStatsJson() throws JSONException {
+    Map<Priority, Integer> unassigned = new EnumMap<>(Priority.class);
+    Map<Priority, Long> oldestCreated = new EnumMap<>(Priority.class);
+    for (QueuedWork work : _queueIncompleteWork.getWorks(WorkStatusCode.UNASSIGNED)) {
+      unassigned.merge(work.getPriority(), 1, Integer::sum);
+      oldestCreated.merge(work.getPriority(), work.getDateCreated().getTime(), Math::min);
+    }
+    Map<Priority, Integer> inFlight = new EnumMap<>(Priority.class);
+    for (WorkStatusCode status : IN_FLIGHT_STATUSES) {
+      for (QueuedWork work : _queueIncompleteWork.getWorks(status)) {
+        inFlight.merge(work.getPriority(), 1, Integer::sum);
+      }
+    }
+    long now = new Date().getTime();
+    JSONObject stats = new JSONObject();
+    for (Priority priority : Priority.values()) {
+      WaitTimes waitTimes = _waitTimes.get(priority);
+      long count = waitTimes._count.sum();
+      Long oldest = oldestCreated.get(priority);
+      stats.put(
+          priority.toString().toLowerCase(),
+          new JSONObject()
+              .put("unassigned", unassigned.getOrDefault(priority, 0))
+              .put("inflight", inFlight.getOrDefault(priority, 0))
+              .put("currentMaxWaitMs", oldest == null ? 0L : now - oldest)
+              .put("assigned", count)
+              .put("meanWaitMs", count == 0 ? 0L : waitTimes._totalMs.sum() / count)
+              .put("maxWaitMs", waitTimes._maxMs.get()));
+    }
+    return stats;
+  }
+
+  public JSONObject getStatusJson() throws JSONException {
 
     JSONObject jObject = new JSONObject();
 
+    jObject.put("queue-stats", getQueueStatsJson());
+
     jObject.put("incomplete-works", _queueIncompleteWork.getLength());
     for (QueuedWork work : _queueIncompleteWork) {
       jObject.put(work.getId().toString(), work.toString());
@@ -79,7 +170,7 @@ public class WorkQueueMgr {
     return jObject;
   }
 
-  public synchronized QueuedWork getWork(UUID workId) {
+  public QueuedWork getWork(UUID workId) {
     QueuedWork work = getWork(workId, QueueType.INCOMPLETE);
     if (work == null) {
       work = getWork(workId, QueueType.COMPLETED);
@@ -88,7 +179,7 @@ public class WorkQueueMgr {
   }
 
   @Nullable
-  private synchronized QueuedWork getWork(UUID workId, QueueType qType) {
+  private QueuedWork getWork(UUID workId, QueueType qType) {
     switch (qType) {
       case COMPLETED:
         return _queueCompletedWork.getWork(workId);
@@ -100,37 +191,90 @@ public class WorkQueueMgr {
   }
 
   @Nullable
-  public synchronized QueuedWork getWorkForAssignment() {
-
-    for (QueuedWork work : _queueIncompleteWork) {
-      if (work.getStatus() == WorkStatusCode.UNASSIGNED) {
-        work.setStatus(WorkStatusCode.TRYINGTOASSIGN);
+  public QueuedWork getWorkForAssignment() {
+    boolean batchTurn = _interactiveBurst > 0 && _interactiveStreak.get() >= _interactiveBurst;
+    Priority[] priorities =
+        batchTurn
+            ? new Priority[] {Priority.BATCH, Priority.INTERACTIVE}
+            : new Priority[] {Priority.INTERACTIVE, Priority.BATCH};
+    for (Priority priority : priorities) {
+      QueuedWork work =
+          _queueIncompleteWork.claimWork(
+              WorkStatusCode.UNASSIGNED,
+              WorkStatusCode.TRYINGTOASSIGN,
+              priority,
+              IN_FLIGHT_STATUSES);
+      if (work != null) {
+        if (priority == Priority.INTERACTIVE
+            && _queueIncompleteWork.hasWork(WorkStatusCode.UNASSIGNED, Priority.BATCH)) {
+          _interactiveStreak.incrementAndGet();
+        } else {
+          _interactiveStreak.set(0);
+        }
         return work;
       }
     }
-
     return null;
   }
 
   @Nullable
   public QueuedWork getWorkForChecking() {
-    for (QueuedWork work : _queueIncompleteWork) {
-      if (work.getStatus() == WorkStatusCode.ASSIGNED) {
-        work.setStatus(WorkStatusCode.CHECKINGSTATUS);
-        return work;
+    return _queueIncompleteWork.claimWork(WorkStatusCode.ASSIGNED, WorkStatusCode.CHECKINGSTATUS);
+  }
+
+  /**
+   * Claims the work with the given id for checking if it is currently assigned, e.g. because its
+   * worker reported that it finished. Returns {@code null} otherwise.
+   */
+  @Nullable
+  public QueuedWork getWorkForChecking(UUID workId) {
+    QueuedWork work = getWork(workId, QueueType.INCOMPLETE);
+    if (work == null) {
+      return null;
+    }
+    synchronized (work) {
+      if (work.getStatus() != WorkStatusCode.ASSIGNED) {
+        return null;
       }
+      _queueIncompleteWork.updateStatus(work, WorkStatusCode.CHECKINGSTATUS);
+      return work;
     }
-    return null;
   }
 
-  public synchronized void makeWorkUnassigned(QueuedWork work) {
-    work.setStatus(WorkStatusCode.UNASSIGNED);
+  public void makeWorkUnassigned(QueuedWork work) {
+    _queueIncompleteWork.updateStatus(work, WorkStatusCode.UNASSIGNED);
   }
 
   // when assignment attempt ends in error, we do not try to reassign
-  public synchronized void markAssignmentError(QueuedWork work) {
-    // move the work to completed queue
-    _queueIncompleteWork.delete(work);
+  public void markAssignmentError(QueuedWork work) {
+    synchronized (work) {
+      moveToCompleted(work, WorkStatusCode.ASSIGNMENTERROR);
+    }
+  }
+
+  public void markAssignmentFailure(QueuedWork work) {
+    _queueIncompleteWork.updateStatus(work, WorkStatusCode.UNASSIGNED);
+  }
+
+  public void markAssignmentSuccess(QueuedWork work, String assignedWorker) {
+    synchronized (work) {
+      work.setAssignment(assignedWorker);
+      _queueIncompleteWork.updateStatus(work, WorkStatusCode.ASSIGNED);
+      if (work.getAssignmentCount() == 1) {
+        _waitTimes
+            .get(work.getPriority())
+            .record(new Date().getTime() - work.getDateCreated().getTime());
+      }
+    }
+  }
+
+  /**
+   * Moves {@code work} from the incomplete to the completed queue with the given final status. The
+   * work is added to the completed queue before it is removed from the incomplete one, so that it
+   * can be found by id throughout. Must be called while holding the lock of {@code work}.
+   */
+  private void moveToCompleted(QueuedWork work, WorkStatusCode status) {
+    work.setStatus(status);
     try {
       _queueCompletedWork.enque(work);
     } catch (Exception e) {
@@ -138,71 +282,55 @@ public class WorkQueueMgr {
       _logger.error(
           "Could not put work on completed queue. Work = " + work + "\nException = " + stackTrace);
     }
-    work.setStatus(WorkStatusCode.ASSIGNMENTERROR);
-  }
-
-  public synchronized void markAssignmentFailure(QueuedWork work) {
-    work.setStatus(WorkStatusCode.UNASSIGNED);
-  }
-
-  public synchronized void markAssignmentSuccess(QueuedWork work, String assignedWorker) {
-    work.setAssignment(assignedWorker);
+    _queueIncompleteWork.delete(work);
   }
 
-  public synchronized void processTaskCheckResult(QueuedWork work, Task task) {
+  public void processTaskCheckResult(QueuedWork work, Task task) {
 
     // {Unscheduled, InProgress, TerminatedNormally, TerminatedAbnormally,
     // Unknown, UnreachableOrBadResponse}
 
-    switch (task.getStatus()) {
-      case Unscheduled:
-      case InProgress:
-        work.setStatus(WorkStatusCode.ASSIGNED);
-        work.recordTaskCheckResult(task);
-        break;
-      case TerminatedNormally:
-      case TerminatedAbnormally:
-        // move the work to completed queue
-        _queueIncompleteWork.delete(work);
-        try {
-          _queueCompletedWork.enque(work);
-        } catch (Exception e) {
-          String stackTrace = ExceptionUtils.getFullStackTrace(e);
-          _logger.error(
-              "Could not put work on completed queue. Work = "
-                  + work
-                  + "\nException = "
-                  + stackTrace);
-        }
-        work.setStatus(
-            (task.getStatus() == TaskStatus.TerminatedNormally)
-                ? WorkStatusCode.TERMINATEDNORMALLY
-                : WorkStatusCode.TERMINATEDABNORMALLY);
-        work.recordTaskCheckResult(task);
-        break;
-      case Unknown:
-        // we mark this unassigned, so we try to schedule it again
-        work.setStatus(WorkStatusCode.UNASSIGNED);
-        work.clearAssignment();
-        break;
-      case UnreachableOrBadResponse:
-        if (work.getLastTaskCheckResult().getStatus() == TaskStatus.UnreachableOrBadResponse) {
-          // if we saw the same thing last time around, free the task to be
-          // scheduled elsewhere
-          work.setStatus(WorkStatusCode.UNASSIGNED);
-          work.clearAssignment();
-        } else {
-          work.setStatus(WorkStatusCode.ASSIGNED);
+    synchronized (work) {
+      switch (task.getStatus()) {
+        case Unscheduled:
+        case InProgress:
+          _queueIncompleteWork.updateStatus(work, WorkStatusCode.ASSIGNED);
           work.recordTaskCheckResult(task);
-        }
-        break;
-      default:
-        throw new BatfishException(
-            "Unhandled " + TaskStatus.class.getCanonicalName() + ": " + task.getStatus());
+          break;
+        case TerminatedNormally:
+        case TerminatedAbnormally:
+          // move the work to completed queue
+          work.recordTaskCheckResult(task);
+          moveToCompleted(
+              work,
+              (task.getStatus() == TaskStatus.TerminatedNormally)
+                  ? WorkStatusCode.TERMINATEDNORMALLY
+                  : WorkStatusCode.TERMINATEDABNORMALLY);
+          break;
+        case Unknown:
+          // we mark this unassigned, so we try to schedule it again
+          work.clearAssignment();
+          _queueIncompleteWork.updateStatus(work, WorkStatusCode.UNASSIGNED);
+          break;
+        case UnreachableOrBadResponse:
+          if (work.getLastTaskCheckResult().getStatus() == TaskStatus.UnreachableOrBadResponse) {
+            // if we saw the same thing last time around, free the task to be
+            // scheduled elsewhere
+            work.clearAssignment();
+            _queueIncompleteWork.updateStatus(work, WorkStatusCode.UNASSIGNED);
+          } else {
+            _queueIncompleteWork.updateStatus(work, WorkStatusCode.ASSIGNED);
+            work.recordTaskCheckResult(task);
+          }
+          break;
+        default:
+          throw new BatfishException(
+              "Unhandled " + TaskStatus.class.getCanonicalName() + ": " + task.getStatus());
+      }
     }
   }
 
-  public synchronized boolean queueUnassignedWork(QueuedWork work) throws Exception {
+  public boolean queueUnassignedWork(QueuedWork work) throws Exception {
 
     QueuedWork previouslyQueuedWork = getWork(work.getId());
 
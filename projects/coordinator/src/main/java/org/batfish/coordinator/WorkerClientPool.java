@@ -0,0 +1,144 @@
+package org.batfish.coordinator;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.ws.rs.client.Client;
+import org.batfish.common.util.CommonUtil;
+import org.batfish.coordinator.config.Settings;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import org.glassfish.jersey.client.ClientProperties;
+
+/**
+ * Long-lived HTTP clients for talking to workers, one per worker. Reusing a client reuses its SSL
+ * context, so TLS sessions are resumed, and lets the underlying connections be kept alive between
+ * requests, as long as every response is closed or fully read. Clients are rebuilt after a
+ * connection failure and closed when their worker leaves the pool.
+ *
+ * <p>A client is shared by every thread talking to its worker, so callers {@link #acquire} its
+ * {@link ClientHandle} before each request and {@link #release} it once the response is closed. An
+ * invalidated client is dropped from the pool at once but only closed after its last in-flight
+ * request is released, so requests still in flight on other threads are not cut off.
+ */
+public class WorkerClientPool {
+
+  /**
+   * The client of one worker, shared by every request to that worker. It counts the requests in
+   * flight on the client so that an invalidated client is closed only once they have all been
+   * released.
+   */
+  public static final class ClientHandle {
+
+    private final Client _client;
+
+    /** Number of acquired but unreleased requests on {@link #_client}, guarded by this */
+    private int _inFlight;
+
+    /** Whether {@link #_client} has been dropped from the pool and should close when unused */
+    private boolean _retired;
+
+    private ClientHandle(Client client) {
+      _client = client;
+    }
+
+    public Client getClient() {
+      return _client;
+    }
+  }
+
+  /** The handle on the current client of each worker */
+  private final ConcurrentMap<String, ClientHandle> _clients;
+
+  private final LongAdder _clientsCreated;
+
+  private final LongAdder _clientsInvalidated;
+
+  private final LongAdder _requests;
+
+  private final Settings _settings;
+
+  public WorkerClientPool(Settings settings) {
+    _settings = settings;
+    _clients = new ConcurrentHashMap<>();
+    _clientsCreated = new LongAdder();
+    _clientsInvalidated = new LongAdder();
+    _requests = new LongAdder();
+  }
+
+  private Client buildClient() {
+    Client client =
+        CommonUtil.createHttpClientBuilder(
+                _settings.getSslPoolDisable(),
+                _settings.getSslPoolTrustAllCerts(),
+                _settings.getSslPoolKeystoreFile(),
+                _settings.getSslPoolKeystorePassword(),
+                _settings.getSslPoolTruststoreFile(),
+                _settings.getSslPoolTruststorePassword())
+            .build();
+    client.property(ClientProperties.CONNECT_TIMEOUT, _settings.getPoolConnectTimeoutMs());
+    client.property(ClientProperties.READ_TIMEOUT, _settings.getPoolReadTimeoutMs());
+    _clientsCreated.increment();
+    return client;
+  }
+
+  /**
+   * Returns the client handle for a request to {@code worker}, creating the client if needed, and
+   * counts the request as in flight on it. The handle must be {@link #release released} once the
+   * request's response is closed.
+   */
+  public ClientHandle acquire(String worker) {
+    _requests.increment();
+    while (true) {
+      ClientHandle handle = _clients.computeIfAbsent(worker, w -> new ClientHandle(buildClient()));
+      synchronized (handle) {
+        // a client invalidated since it was looked up is no longer in the map; look again
+        if (!handle._retired) {
+          handle._inFlight++;
+          return handle;
+        }
+      }
+    }
+  }
+
+  /** Returns counts of live clients, of requests, and of clients created and discarded */
+  public JSONObject getStatsJson() throws JSONException {
+    return new JSONObject()
+        .put("clients", _clients.size())
+        .put("requests", _requests.sum())
+        .put("clientsCreated", _clientsCreated.sum())
+        .put("clientsInvalidated", _clientsInvalidated.sum());
+  }
+
+  /**
+   * Forgets the client for {@code worker}, e.g. after a connection failure or when the worker
+   * leaves the pool. The next request builds a new client. The old client is closed once no request
+   * is in flight on it.
+   */
+  public void invalidate(String worker) {
+    ClientHandle handle = _clients.remove(worker);
+    if (handle == null) {
+      return;
+    }
+    _clientsInvalidated.increment();
+    synchronized (handle) {
+      handle._retired = true;
+      if (handle._inFlight == 0) {
+        handle._client.close();
+      }
+    }
+  }
+
+  /**
+   * Ends a request begun by {@link #acquire}, closing the client if it was invalidated meanwhile
+   * and this was its last request in flight
+   */
+  public void release(ClientHandle handle) {
+    synchronized (handle) {
+      handle._inFlight--;
+      if (handle._retired && handle._inFlight == 0) {
+        handle._client.close();
+      }
+    }
+  }
+}
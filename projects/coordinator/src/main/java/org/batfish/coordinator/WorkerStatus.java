@@ -1,6 +1,9 @@
 package org.batfish.coordinator;
 
+import java.util.Collections;
 import java.util.Date;
+import java.util.Set;
+import javax.annotation.Nullable;
 
 public class WorkerStatus {
 
@@ -12,12 +15,35 @@ public class WorkerStatus {
     UNREACHABLE
   }
 
+  private Set<String> _cachedSnapshots;
+  private int _freeSlots;
+  private Date _lastAssigned;
   private Date _lastUpdated;
   private StatusCode _statusCode;
 
   public WorkerStatus(StatusCode statusCode) {
     _statusCode = statusCode;
     _lastUpdated = new Date();
+    _cachedSnapshots = Collections.emptySet();
+    _freeSlots = 1;
+  }
+
+  /**
+   * Returns the snapshots the worker last reported as cached, as keys built by {@link
+   * PoolMgr#getSnapshotKey}
+   */
+  public Set<String> getCachedSnapshots() {
+    return _cachedSnapshots;
+  }
+
+  /** Returns the number of additional tasks the worker can run, as last known */
+  public int getFreeSlots() {
+    return _freeSlots;
+  }
+
+  @Nullable
+  public Date getLastAssignedTime() {
+    return _lastAssigned;
   }
 
   public Date getLastUpdateTime() {
@@ -28,9 +54,23 @@ public class WorkerStatus {
     return _statusCode;
   }
 
+  /** Records that a task was assigned to the worker, which takes one of its free slots */
+  public void markAssigned() {
+    _lastAssigned = new Date();
+    _freeSlots = Math.max(0, _freeSlots - 1);
+  }
+
+  public void setCachedSnapshots(Set<String> cachedSnapshots) {
+    _cachedSnapshots = cachedSnapshots;
+  }
+
+  public void setFreeSlots(int freeSlots) {
+    _freeSlots = freeSlots;
+  }
+
   @Override
   public String toString() {
-    return String.format("%s (%s)", _statusCode, _lastUpdated);
+    return String.format("%s %d free slots (%s)", _statusCode, _freeSlots, _lastUpdated);
   }
 
   public void updateStatus(StatusCode statusCode) {
@@ -33,9 +33,14 @@ public class Settings extends BaseSettings {
   private static final String ARG_PERIOD_CHECK_WORK_MS = "periodcheckworkms";
   private static final String ARG_PERIOD_WORKER_STATUS_REFRESH_MS = "periodworkerrefreshms";
   private static final String ARG_POOL_BIND_HOST = "poolbindhost";
+  private static final String ARG_POOL_CONNECT_TIMEOUT_MS = "poolconnecttimeoutms";
+  private static final String ARG_POOL_MAX_CONNECTIONS_PER_WORKER = "poolmaxconnectionsperworker";
+  private static final String ARG_POOL_READ_TIMEOUT_MS = "poolreadtimeoutms";
+  private static final String ARG_PREFETCH_DISABLE = "prefetchdisable";
   private static final String ARG_QUESTION_TEMPLATE_DIRS = "templatedirs";
   private static final String ARG_QUEUE_COMPLETED_WORK = "qcompletedwork";
   private static final String ARG_QUEUE_INCOMPLETE_WORK = "qincompletework";
+  private static final String ARG_QUEUE_INTERACTIVE_BURST = "qinteractiveburst";
   private static final String ARG_QUEUE_TYPE = "qtype";
 
   private static final String ARG_SERVICE_POOL_PORT = "poolport";
@@ -65,6 +70,8 @@ public class Settings extends BaseSettings {
   private static final String ARG_TRACING_AGENT_PORT = "tracingagentport";
   public static final String ARG_TRACING_ENABLE = "tracingenable";
 
+  private static final String ARG_UPLOAD_EXPIRY_MS = "uploadexpiryms";
+
   private static final String ARG_WORK_BIND_HOST = "workbindhost";
 
   private static final String ARGNAME_PATHS = "path..";
@@ -86,8 +93,13 @@ public class Settings extends BaseSettings {
   private long _periodCheckWorkMs;
   private long _periodWorkerStatusRefreshMs;
   private String _poolBindHost;
+  private int _poolConnectTimeoutMs;
+  private int _poolMaxConnectionsPerWorker;
+  private int _poolReadTimeoutMs;
+  private boolean _prefetchDisable;
   private List<Path> _questionTemplateDirs;
   private String _queueCompletedWork;
+  private int _queueInteractiveBurst;
   private WorkQueue.Type _queueType;
   private String _queuIncompleteWork;
   private int _servicePoolPort;
@@ -111,6 +123,7 @@ public class Settings extends BaseSettings {
   private String _tracingAgentHost;
   private Integer _tracingAgentPort;
   private boolean _tracingEnable;
+  private long _uploadExpiryMs;
   private String _workBindHost;
 
   public Settings(String[] args) throws Exception {
@@ -186,6 +199,26 @@ public class Settings extends BaseSettings {
     return _poolBindHost;
   }
 
+  /** Timeout (ms) for connecting to a worker, or 0 for no timeout */
+  public int getPoolConnectTimeoutMs() {
+    return _poolConnectTimeoutMs;
+  }
+
+  /** Maximum number of idle keep-alive connections kept open to each worker */
+  public int getPoolMaxConnectionsPerWorker() {
+    return _poolMaxConnectionsPerWorker;
+  }
+
+  /** Timeout (ms) for reading a response from a worker, or 0 for no timeout */
+  public int getPoolReadTimeoutMs() {
+    return _poolReadTimeoutMs;
+  }
+
+  /** Whether to skip sending workers hints to prefetch the snapshots of queued work */
+  public boolean getPrefetchDisable() {
+    return _prefetchDisable;
+  }
+
   public String getQueueCompletedWork() {
     return _queueCompletedWork;
   }
@@ -194,6 +227,14 @@ public class Settings extends BaseSettings {
     return _queuIncompleteWork;
   }
 
+  /**
+   * Max number of interactive works assigned in a row while batch works wait, after which a batch
+   * work goes next. 0 if interactive works always go first.
+   */
+  public int getQueueInteractiveBurst() {
+    return _queueInteractiveBurst;
+  }
+
   public WorkQueue.Type getQueueType() {
     return _queueType;
   }
@@ -286,6 +327,11 @@ public class Settings extends BaseSettings {
     return _tracingEnable;
   }
 
+  /** Time (ms) after its last chunk that an unfinished chunked upload is discarded */
+  public long getUploadExpiryMs() {
+    return _uploadExpiryMs;
+  }
+
   public String getWorkBindHost() {
     return _workBindHost;
   }
@@ -309,11 +355,16 @@ public class Settings extends BaseSettings {
     setDefaultProperty(ARG_PERIOD_ASSIGN_WORK_MS, 1000);
     setDefaultProperty(ARG_PERIOD_CHECK_WORK_MS, 1000);
     setDefaultProperty(ARG_PERIOD_WORKER_STATUS_REFRESH_MS, 10000);
+    setDefaultProperty(ARG_PREFETCH_DISABLE, false);
     setDefaultProperty(ARG_QUESTION_TEMPLATE_DIRS, Collections.<String>emptyList());
     setDefaultProperty(ARG_QUEUE_COMPLETED_WORK, "batfishcompletedwork");
     setDefaultProperty(ARG_QUEUE_INCOMPLETE_WORK, "batfishincompletework");
+    setDefaultProperty(ARG_QUEUE_INTERACTIVE_BURST, 4);
     setDefaultProperty(ARG_QUEUE_TYPE, WorkQueue.Type.memory.toString());
     setDefaultProperty(ARG_POOL_BIND_HOST, Ip.ZERO.toString());
+    setDefaultProperty(ARG_POOL_CONNECT_TIMEOUT_MS, 10 * 1000);
+    setDefaultProperty(ARG_POOL_MAX_CONNECTIONS_PER_WORKER, 5);
+    setDefaultProperty(ARG_POOL_READ_TIMEOUT_MS, 60 * 1000);
     setDefaultProperty(ARG_SERVICE_POOL_PORT, CoordConsts.SVC_CFG_POOL_PORT);
     setDefaultProperty(ARG_WORK_BIND_HOST, Ip.ZERO.toString());
     setDefaultProperty(ARG_SERVICE_WORK_PORT, CoordConsts.SVC_CFG_WORK_PORT);
@@ -333,6 +384,7 @@ public class Settings extends BaseSettings {
     setDefaultProperty(ARG_TRACING_AGENT_HOST, "localhost");
     setDefaultProperty(ARG_TRACING_AGENT_PORT, 5775);
     setDefaultProperty(ARG_TRACING_ENABLE, false);
+    setDefaultProperty(ARG_UPLOAD_EXPIRY_MS, 24 * 60 * 60 * 1000);
     // setDefaultProperty(ARG_SSL_KEYSTORE_FILE, "selfsigned.jks");
     // setDefaultProperty(ARG_SSL_KEYSTORE_PASSWORD, "batfish");
     setDefaultProperty(
@@ -379,9 +431,19 @@ public class Settings extends BaseSettings {
     addOption(
         ARG_PERIOD_CHECK_WORK_MS, "period with which to check work (ms)", "period_check_work_ms");
 
+    addBooleanOption(
+        ARG_PREFETCH_DISABLE,
+        "do not ask busy workers to prefetch the snapshots of work waiting for a worker");
+
     addListOption(
         ARG_QUESTION_TEMPLATE_DIRS, "paths to question template directories", ARGNAME_PATHS);
 
+    addOption(
+        ARG_QUEUE_INTERACTIVE_BURST,
+        "max number of interactive works assigned in a row while batch works wait "
+            + "(0 to always assign interactive works first)",
+        "num_works");
+
     addOption(ARG_QUEUE_TYPE, "queue type to use {azure, memory}", "qtype");
 
     addOption(
@@ -389,6 +451,21 @@ public class Settings extends BaseSettings {
         "hostname for pool management service",
         "base url for pool management service");
 
+    addOption(
+        ARG_POOL_CONNECT_TIMEOUT_MS,
+        "timeout for connecting to a worker (ms, 0 for none)",
+        "pool_connect_timeout_ms");
+
+    addOption(
+        ARG_POOL_MAX_CONNECTIONS_PER_WORKER,
+        "max idle keep-alive connections kept open to each worker",
+        "pool_max_connections_per_worker");
+
+    addOption(
+        ARG_POOL_READ_TIMEOUT_MS,
+        "timeout for reading a response from a worker (ms, 0 for none)",
+        "pool_read_timeout_ms");
+
     addOption(
         ARG_SERVICE_POOL_PORT, "port for pool management service", "port_number_pool_service");
 
@@ -417,6 +494,11 @@ public class Settings extends BaseSettings {
     addOption(ARG_TRACING_AGENT_PORT, "jaeger agent port", "jaeger_agent_port");
 
     addBooleanOption(ARG_TRACING_ENABLE, "enable tracing");
+
+    addOption(
+        ARG_UPLOAD_EXPIRY_MS,
+        "time after its last chunk that an unfinished chunked upload is discarded (ms)",
+        "upload_expiry_ms");
   }
 
   private void parseCommandLine(String[] args) {
@@ -438,8 +520,12 @@ public class Settings extends BaseSettings {
     _questionTemplateDirs = getPathListOptionValue(ARG_QUESTION_TEMPLATE_DIRS);
     _queuIncompleteWork = getStringOptionValue(ARG_QUEUE_INCOMPLETE_WORK);
     _queueCompletedWork = getStringOptionValue(ARG_QUEUE_COMPLETED_WORK);
+    _queueInteractiveBurst = getIntegerOptionValue(ARG_QUEUE_INTERACTIVE_BURST);
     _queueType = WorkQueue.Type.valueOf(getStringOptionValue(ARG_QUEUE_TYPE));
     _poolBindHost = getStringOptionValue(ARG_POOL_BIND_HOST);
+    _poolConnectTimeoutMs = getIntegerOptionValue(ARG_POOL_CONNECT_TIMEOUT_MS);
+    _poolMaxConnectionsPerWorker = getIntegerOptionValue(ARG_POOL_MAX_CONNECTIONS_PER_WORKER);
+    _poolReadTimeoutMs = getIntegerOptionValue(ARG_POOL_READ_TIMEOUT_MS);
     _servicePoolPort = getIntegerOptionValue(ARG_SERVICE_POOL_PORT);
     _workBindHost = getStringOptionValue(ARG_WORK_BIND_HOST);
     _serviceWorkPort = getIntegerOptionValue(ARG_SERVICE_WORK_PORT);
@@ -462,6 +548,8 @@ public class Settings extends BaseSettings {
     _tracingAgentHost = getStringOptionValue(ARG_TRACING_AGENT_HOST);
     _tracingAgentPort = getIntegerOptionValue(ARG_TRACING_AGENT_PORT);
     _tracingEnable = getBooleanOptionValue(ARG_TRACING_ENABLE);
+    _uploadExpiryMs = getLongOptionValue(ARG_UPLOAD_EXPIRY_MS);
+    _prefetchDisable = getBooleanOptionValue(ARG_PREFETCH_DISABLE);
     _containersLocation = getPathOptionValue(ARG_CONTAINERS_LOCATION);
     _periodWorkerStatusRefreshMs = getLongOptionValue(ARG_PERIOD_WORKER_STATUS_REFRESH_MS);
     _periodAssignWorkMs = getLongOptionValue(ARG_PERIOD_ASSIGN_WORK_MS);
@@ -4,8 +4,11 @@ import com.microsoft.azure.storage.CloudStorageAccount;
 import com.microsoft.azure.storage.queue.CloudQueue;
 import com.microsoft.azure.storage.queue.CloudQueueClient;
 import java.util.Iterator;
+import java.util.Set;
 import java.util.UUID;
+import org.batfish.common.CoordConsts.WorkStatusCode;
 import org.batfish.coordinator.QueuedWork;
+import org.batfish.coordinator.QueuedWork.Priority;
 
 public class AzureQueue implements WorkQueue {
 
@@ -30,6 +33,20 @@ public class AzureQueue implements WorkQueue {
     }
   }
 
+  @Override
+  public QueuedWork claimWork(WorkStatusCode status, WorkStatusCode newStatus) {
+    throw new UnsupportedOperationException("no implementation for generated method");
+  }
+
+  @Override
+  public QueuedWork claimWork(
+      WorkStatusCode status,
+      WorkStatusCode newStatus,
+      Priority priority,
+      Set<WorkStatusCode> inFlightStatuses) {
+    throw new UnsupportedOperationException("no implementation for generated method");
+  }
+
   @Override
   public boolean delete(QueuedWork qWork) {
     throw new UnsupportedOperationException("no implementation for generated method");
@@ -68,9 +85,24 @@ public class AzureQueue implements WorkQueue {
     // TODO Auto-generated method stub
   }
 
+  @Override
+  public Iterable<QueuedWork> getWorks(WorkStatusCode status) {
+    throw new UnsupportedOperationException("no implementation for generated method");
+  }
+
+  @Override
+  public boolean hasWork(WorkStatusCode status, Priority priority) {
+    throw new UnsupportedOperationException("no implementation for generated method");
+  }
+
   @Override
   public Iterator<QueuedWork> iterator() {
     throw new UnsupportedOperationException("no implementation for generated method");
     // TODO Auto-generated method stub
   }
+
+  @Override
+  public void updateStatus(QueuedWork work, WorkStatusCode status) {
+    throw new UnsupportedOperationException("no implementation for generated method");
+  }
 }
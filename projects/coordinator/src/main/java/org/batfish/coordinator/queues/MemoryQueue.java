@@ -1,51 +1,274 @@
 package org.batfish.coordinator.queues;
 
-import java.util.LinkedList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nullable;
+import org.batfish.common.CoordConsts.WorkStatusCode;
 import org.batfish.coordinator.QueuedWork;
+import org.batfish.coordinator.QueuedWork.Priority;
 
-// we don't synchronize on this queue
-// all synchronization is in inside WorkQueueMgr
+/**
+ * An in-memory {@link WorkQueue} indexed by work id and by status. Works are kept in enqueue order,
+ * both overall and within one sub-queue per {@link WorkStatusCode}, so looking up a work by id and
+ * finding the oldest work with a given status do not scan the queue. Works are also kept in one
+ * sub-queue per status, priority and container, and counted per status and container, so that
+ * claiming a work by fair share only compares the oldest work of each container. The queue is safe
+ * for concurrent use; changes to the status of a work are made while holding the lock of that work.
+ */
+public class MemoryQueue implements WorkQueue {
 
-public class MemoryQueue extends LinkedList<QueuedWork> implements WorkQueue {
+  private static final class IndexEntry {
 
-  private static final long serialVersionUID = -6556862067531610584L;
+    private final long _sequence;
+
+    private WorkStatusCode _status;
+
+    private IndexEntry(long sequence, WorkStatusCode status) {
+      _sequence = sequence;
+      _status = status;
+    }
+  }
+
+  /** Number of works of each container, by status */
+  private final Map<WorkStatusCode, ConcurrentMap<String, Integer>> _containerCounts;
+
+  private final ConcurrentMap<UUID, IndexEntry> _index;
+
+  private final AtomicLong _nextSequence;
+
+  private final ConcurrentNavigableMap<Long, QueuedWork> _works;
+
+  /**
+   * Works by status, priority and container, in enqueue order. Containers without works of a given
+   * status and priority have no entry.
+   */
+  private final Map<
+          WorkStatusCode,
+          Map<Priority, ConcurrentMap<String, ConcurrentNavigableMap<Long, QueuedWork>>>>
+      _worksByClass;
+
+  private final Map<WorkStatusCode, ConcurrentNavigableMap<Long, QueuedWork>> _worksByStatus;
+
+  public MemoryQueue() {
+    _containerCounts = new EnumMap<>(WorkStatusCode.class);
+    _index = new ConcurrentHashMap<>();
+    _nextSequence = new AtomicLong();
+    _works = new ConcurrentSkipListMap<>();
+    _worksByClass = new EnumMap<>(WorkStatusCode.class);
+    _worksByStatus = new EnumMap<>(WorkStatusCode.class);
+    for (WorkStatusCode status : WorkStatusCode.values()) {
+      _containerCounts.put(status, new ConcurrentHashMap<>());
+      Map<Priority, ConcurrentMap<String, ConcurrentNavigableMap<Long, QueuedWork>>> byPriority =
+          new EnumMap<>(Priority.class);
+      for (Priority priority : Priority.values()) {
+        byPriority.put(priority, new ConcurrentHashMap<>());
+      }
+      _worksByClass.put(status, byPriority);
+      _worksByStatus.put(status, new ConcurrentSkipListMap<>());
+    }
+  }
+
+  /** Adds {@code work} to the indexes of works with {@code status}, except the main one */
+  private void addToClass(QueuedWork work, long sequence, WorkStatusCode status) {
+    // compute is atomic per container, so a concurrent removal cannot drop the container's map
+    // while a work is being added to it
+    _worksByClass
+        .get(status)
+        .get(work.getPriority())
+        .compute(
+            work.getContainerName(),
+            (container, works) -> {
+              ConcurrentNavigableMap<Long, QueuedWork> newWorks =
+                  works != null ? works : new ConcurrentSkipListMap<>();
+              newWorks.put(sequence, work);
+              return newWorks;
+            });
+    _containerCounts.get(status).merge(work.getContainerName(), 1, Integer::sum);
+  }
+
+  /** Removes {@code work} from the indexes of works with {@code status}, except the main one */
+  private void removeFromClass(QueuedWork work, long sequence, WorkStatusCode status) {
+    _worksByClass
+        .get(status)
+        .get(work.getPriority())
+        .computeIfPresent(
+            work.getContainerName(),
+            (container, works) -> {
+              works.remove(sequence);
+              return works.isEmpty() ? null : works;
+            });
+    _containerCounts
+        .get(status)
+        .computeIfPresent(work.getContainerName(), (container, n) -> n > 1 ? n - 1 : null);
+  }
+
+  @Nullable
+  @Override
+  public QueuedWork claimWork(WorkStatusCode status, WorkStatusCode newStatus) {
+    ConcurrentNavigableMap<Long, QueuedWork> candidates = _worksByStatus.get(status);
+    for (Entry<Long, QueuedWork> candidate : candidates.entrySet()) {
+      QueuedWork work = candidate.getValue();
+      synchronized (work) {
+        // the work may have changed status or left the queue since it was seen
+        IndexEntry entry = _index.get(work.getId());
+        if (entry != null && entry._status == status) {
+          moveToStatus(work, entry, newStatus);
+          return work;
+        }
+      }
+    }
+    return null;
+  }
+
+  @Nullable
+  @Override
+  public QueuedWork claimWork(
+      WorkStatusCode status,
+      WorkStatusCode newStatus,
+      Priority priority,
+      Set<WorkStatusCode> inFlightStatuses) {
+    ConcurrentMap<String, ConcurrentNavigableMap<Long, QueuedWork>> candidates =
+        _worksByClass.get(status).get(priority);
+    while (true) {
+      // only the oldest work of each container can be the one to claim
+      QueuedWork best = null;
+      long bestSequence = 0L;
+      int bestInFlight = 0;
+      for (Entry<String, ConcurrentNavigableMap<Long, QueuedWork>> containerWorks :
+          candidates.entrySet()) {
+        Entry<Long, QueuedWork> oldest = containerWorks.getValue().firstEntry();
+        if (oldest == null) {
+          continue;
+        }
+        int inFlight = countWorks(containerWorks.getKey(), inFlightStatuses);
+        if (best == null
+            || inFlight < bestInFlight
+            || (inFlight == bestInFlight && oldest.getKey() < bestSequence)) {
+          best = oldest.getValue();
+          bestSequence = oldest.getKey();
+          bestInFlight = inFlight;
+        }
+      }
+      if (best == null) {
+        return null;
+      }
+      synchronized (best) {
+        // the work may have changed status or left the queue since it was seen
+        IndexEntry entry = _index.get(best.getId());
+        if (entry != null && entry._status == status) {
+          moveToStatus(best, entry, newStatus);
+          return best;
+        }
+      }
+    }
+  }
+
+  private int countWorks(String containerName, Set<WorkStatusCode> statuses) {
+    int count = 0;
+    for (WorkStatusCode status : statuses) {
+      count += _containerCounts.get(status).getOrDefault(containerName, 0);
+    }
+    return count;
+  }
 
   @Override
   public boolean delete(QueuedWork qWork) {
-    return remove(qWork);
+    synchronized (qWork) {
+      IndexEntry entry = _index.remove(qWork.getId());
+      if (entry == null) {
+        return false;
+      }
+      removeFromClass(qWork, entry._sequence, entry._status);
+      _worksByStatus.get(entry._status).remove(entry._sequence);
+      _works.remove(entry._sequence);
+      return true;
+    }
   }
 
   @Nullable
   @Override
   public QueuedWork deque() {
-    if (size() == 0) {
-      return null;
+    while (true) {
+      Entry<Long, QueuedWork> first = _works.firstEntry();
+      if (first == null) {
+        return null;
+      }
+      if (delete(first.getValue())) {
+        return first.getValue();
+      }
     }
-
-    return pop();
   }
 
   @Override
   public boolean enque(QueuedWork work) {
-    return add(work);
+    synchronized (work) {
+      long sequence = _nextSequence.getAndIncrement();
+      IndexEntry entry = new IndexEntry(sequence, work.getStatus());
+      if (_index.putIfAbsent(work.getId(), entry) != null) {
+        return false;
+      }
+      _works.put(sequence, work);
+      _worksByStatus.get(entry._status).put(sequence, work);
+      addToClass(work, sequence, entry._status);
+      return true;
+    }
   }
 
   @Override
   public long getLength() {
-    return size();
+    return _works.size();
   }
 
   @Nullable
   @Override
   public QueuedWork getWork(UUID workItemId) {
-    for (QueuedWork work : this) {
-      if (work.getWorkItem().getId().equals(workItemId)) {
-        return work;
+    IndexEntry entry = _index.get(workItemId);
+    return entry == null ? null : _works.get(entry._sequence);
+  }
+
+  @Override
+  public Iterable<QueuedWork> getWorks(WorkStatusCode status) {
+    return Collections.unmodifiableCollection(_worksByStatus.get(status).values());
+  }
+
+  @Override
+  public boolean hasWork(WorkStatusCode status, Priority priority) {
+    return !_worksByClass.get(status).get(priority).isEmpty();
+  }
+
+  @Override
+  public Iterator<QueuedWork> iterator() {
+    return Collections.unmodifiableCollection(_works.values()).iterator();
+  }
+
+  private void moveToStatus(QueuedWork work, IndexEntry entry, WorkStatusCode newStatus) {
+    _worksByStatus.get(entry._status).remove(entry._sequence);
+    removeFromClass(work, entry._sequence, entry._status);
+    work.setStatus(newStatus);
+    entry._status = newStatus;
+    _worksByStatus.get(newStatus).put(entry._sequence, work);
+    addToClass(work, entry._sequence, newStatus);
+  }
+
+  @Override
+  public void updateStatus(QueuedWork work, WorkStatusCode status) {
+    synchronized (work) {
+      IndexEntry entry = _index.get(work.getId());
+      if (entry == null) {
+        work.setStatus(status);
+      } else {
+        moveToStatus(work, entry, status);
       }
     }
-
-    return null;
   }
 }
@@ -1,7 +1,10 @@
 package org.batfish.coordinator.queues;
 
+import java.util.Set;
 import java.util.UUID;
+import org.batfish.common.CoordConsts.WorkStatusCode;
 import org.batfish.coordinator.QueuedWork;
+import org.batfish.coordinator.QueuedWork.Priority;
 
 public interface WorkQueue extends Iterable<QueuedWork> {
 
@@ -10,6 +13,24 @@ public interface WorkQueue extends Iterable<QueuedWork> {
     memory
   }
 
+  /**
+   * Atomically finds the oldest work with the given {@code status} and changes its status to {@code
+   * newStatus}. Returns {@code null} if there is no work with that status.
+   */
+  QueuedWork claimWork(WorkStatusCode status, WorkStatusCode newStatus);
+
+  /**
+   * Atomically finds, among the works with the given {@code status} and {@code priority}, the
+   * oldest work of the container with the fewest works whose status is in {@code
+   * inFlightStatuses}, and changes its status to {@code newStatus}. Returns {@code null} if there
+   * is no such work.
+   */
+  QueuedWork claimWork(
+      WorkStatusCode status,
+      WorkStatusCode newStatus,
+      Priority priority,
+      Set<WorkStatusCode> inFlightStatuses);
+
   boolean delete(QueuedWork qWork);
 
   QueuedWork deque();
@@ -19,4 +40,13 @@ public interface WorkQueue extends Iterable<QueuedWork> {
   long getLength();
 
   QueuedWork getWork(UUID workItemId);
+
+  /** Returns whether any work has the given {@code status} and {@code priority} */
+  boolean hasWork(WorkStatusCode status, Priority priority);
+
+  /** Returns the works with the given {@code status}, oldest first */
+  Iterable<QueuedWork> getWorks(WorkStatusCode status);
+
+  /** Changes the status of {@code work}, keeping any index of works by status up to date */
+  void updateStatus(QueuedWork work, WorkStatusCode status);
 }
@@ -0,0 +1,94 @@
+package org.batfish.coordinator;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.HashMap;
+import java.util.Map;
+import org.batfish.coordinator.WorkerStatus.StatusCode;
+import org.junit.Test;
+
+/** Tests for {@link PoolMgr}. */
+public class PoolMgrTest {
+
+  private static WorkerStatus worker(StatusCode statusCode, String... cachedSnapshots) {
+    WorkerStatus status = new WorkerStatus(statusCode);
+    status.setCachedSnapshots(ImmutableSet.copyOf(cachedSnapshots));
+    return status;
+  }
+
+  @Test
+  public void testSelectWorkerNoIdleWorker() {
+    Map<String, WorkerStatus> pool = new HashMap<>();
+    pool.put("w1", worker(StatusCode.BUSY, PoolMgr.getSnapshotKey("c", "t", "env")));
+    pool.put("w2", worker(StatusCode.UNREACHABLE));
+
+    assertThat(PoolMgr.selectWorker(pool, "c", "t", "env"), nullValue());
+  }
+
+  @Test
+  public void testSelectWorkerPrefersCachedSnapshot() {
+    Map<String, WorkerStatus> pool = new HashMap<>();
+    pool.put("w1", worker(StatusCode.IDLE));
+    pool.put("w2", worker(StatusCode.IDLE, PoolMgr.getSnapshotKey("c", "t", null)));
+    pool.put(
+        "w3",
+        worker(
+            StatusCode.IDLE,
+            PoolMgr.getSnapshotKey("c", "t", null),
+            PoolMgr.getSnapshotKey("c", "t", "env")));
+
+    assertThat(PoolMgr.selectWorker(pool, "c", "t", "env"), equalTo("w3"));
+    // same testrig in another environment beats an unrelated worker
+    assertThat(PoolMgr.selectWorker(pool, "c", "t", "env2"), equalTo("w2"));
+  }
+
+  @Test
+  public void testSelectWorkerFallsBackToLeastRecentlyAssigned() {
+    Map<String, WorkerStatus> pool = new HashMap<>();
+    WorkerStatus w1 = worker(StatusCode.IDLE);
+    WorkerStatus w2 = worker(StatusCode.IDLE);
+    pool.put("w1", w1);
+    pool.put("w2", w2);
+
+    w1.markAssigned();
+    w1.setFreeSlots(1);
+    assertThat(PoolMgr.selectWorker(pool, "c", "t", "env"), equalTo("w2"));
+  }
+
+  @Test
+  public void testSelectWorkerPrefersFreeSlots() {
+    Map<String, WorkerStatus> pool = new HashMap<>();
+    WorkerStatus w1 = worker(StatusCode.IDLE);
+    WorkerStatus w2 = worker(StatusCode.IDLE);
+    w1.setFreeSlots(3);
+    w2.setFreeSlots(4);
+    pool.put("w1", w1);
+    pool.put("w2", w2);
+
+    assertThat(PoolMgr.selectWorker(pool, "c", "t", "env"), equalTo("w2"));
+    // taking a slot on w2 leaves w1 with more free slots
+    w2.markAssigned();
+    w2.markAssigned();
+    assertThat(PoolMgr.selectWorker(pool, "c", "t", "env"), equalTo("w1"));
+  }
+
+  @Test
+  public void testSelectPrefetchWorker() {
+    Map<String, WorkerStatus> pool = new HashMap<>();
+    WorkerStatus w1 = worker(StatusCode.BUSY);
+    WorkerStatus w2 = worker(StatusCode.BUSY);
+    pool.put("w1", w1);
+    pool.put("w2", w2);
+    pool.put("w3", worker(StatusCode.UNREACHABLE, PoolMgr.getSnapshotKey("c", "t", "env")));
+    w1.markAssigned();
+
+    // w2 was last assigned before w1; a snapshot cached on an unreachable worker does not count
+    assertThat(PoolMgr.selectPrefetchWorker(pool, "c", "t", "env"), equalTo("w2"));
+
+    w1.setCachedSnapshots(ImmutableSet.of(PoolMgr.getSnapshotKey("c", "t", "env")));
+    assertThat(PoolMgr.selectPrefetchWorker(pool, "c", "t", "env"), nullValue());
+  }
+}
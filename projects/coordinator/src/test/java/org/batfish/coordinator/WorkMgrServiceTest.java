@@ -9,9 +9,13 @@ import static org.junit.Assert.fail;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.google.common.base.Objects;
+import com.google.common.base.Strings;
 import com.google.common.collect.Sets;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -64,6 +68,18 @@ public class WorkMgrServiceTest {
     _service = new WorkMgrService();
   }
 
+  @Test
+  public void streamingSuccessResponse() throws Exception {
+    String answer = Strings.repeat("{\n  \"text\" : \"a\\\\b\"\n}\n", 10000);
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    WorkMgrService.streamingSuccessResponse(CoordConsts.SVC_KEY_ANSWER, new StringReader(answer))
+        .write(output);
+
+    JSONArray response = new JSONArray(output.toString(StandardCharsets.UTF_8.name()));
+    assertThat(response.getString(0), equalTo(CoordConsts.SVC_KEY_SUCCESS));
+    assertThat(response.getJSONObject(1).getString(CoordConsts.SVC_KEY_ANSWER), equalTo(answer));
+  }
+
   @Test
   public void getEmptyContainer() throws Exception {
     initContainerEnvironment();
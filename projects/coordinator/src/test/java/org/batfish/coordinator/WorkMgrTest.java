@@ -1,7 +1,12 @@
 package org.batfish.coordinator;
 
+import static org.hamcrest.CoreMatchers.hasItem;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
@@ -10,21 +15,35 @@ import static org.junit.Assert.assertTrue;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermission;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 import org.batfish.common.BatfishException;
 import org.batfish.common.BatfishLogger;
 import org.batfish.common.BfConsts;
 import org.batfish.common.Container;
+import org.batfish.common.CoordConsts;
+import org.batfish.common.CoordConsts.WorkStatusCode;
+import org.batfish.common.WorkItem;
 import org.batfish.common.util.CommonUtil;
 import org.batfish.coordinator.config.Settings;
+import org.codehaus.jettison.json.JSONArray;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -34,12 +53,86 @@ import org.junit.rules.TemporaryFolder;
 /** Tests for {@link WorkMgr}. */
 public class WorkMgrTest {
 
+  /**
+   * A work manager with simulated workers: assignments and task checks are recorded instead of
+   * being sent to workers, and each assignment pass is reported once it completes
+   */
+  private static class TestWorkMgr extends WorkMgr {
+
+    private final BlockingQueue<QueuedWork> _assigned = new LinkedBlockingQueue<>();
+
+    private final BlockingQueue<String> _assignedWorkers = new LinkedBlockingQueue<>();
+
+    private final BlockingQueue<QueuedWork> _checked = new LinkedBlockingQueue<>();
+
+    private final BlockingQueue<String> _idleWorkers = new LinkedBlockingQueue<>();
+
+    /** Released to let the first assignment pass proceed */
+    private final CountDownLatch _firstPassReleased = new CountDownLatch(1);
+
+    private final CountDownLatch _firstPassStarted = new CountDownLatch(1);
+
+    private final BlockingQueue<Integer> _passesCompleted = new LinkedBlockingQueue<>();
+
+    private final WorkQueueMgr _queueMgr;
+
+    private int _passes;
+
+    private TestWorkMgr(Settings settings, BatfishLogger logger, WorkQueueMgr queueMgr) {
+      super(settings, logger, queueMgr);
+      _queueMgr = queueMgr;
+    }
+
+    @Override
+    void assignWork() {
+      _firstPassStarted.countDown();
+      try {
+        _firstPassReleased.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      super.assignWork();
+      _passesCompleted.add(++_passes);
+    }
+
+    @Override
+    boolean assignWork(QueuedWork work, String worker) {
+      _queueMgr.markAssignmentSuccess(work, worker);
+      _assigned.add(work);
+      _assignedWorkers.add(worker);
+      return true;
+    }
+
+    @Override
+    void checkTask(QueuedWork work) {
+      _checked.add(work);
+    }
+
+    @Override
+    String getWorkerForAssignment(WorkItem workItem) {
+      return _idleWorkers.poll();
+    }
+
+    /** Waits for the assignment pass with the given (1-based) number to complete */
+    private void awaitPass(int pass) throws InterruptedException {
+      Integer completed;
+      do {
+        completed = _passesCompleted.poll(10, TimeUnit.SECONDS);
+        assertThat(completed != null, is(true));
+      } while (completed < pass);
+    }
+  }
+
   @Rule public TemporaryFolder _folder = new TemporaryFolder();
 
   @Rule public ExpectedException _thrown = ExpectedException.none();
 
   private WorkMgr _manager;
 
+  private WorkQueueMgr _queueMgr;
+
+  private TestWorkMgr _testManager;
+
   @Before
   public void initManager() throws Exception {
     Settings settings = new Settings(new String[] {});
@@ -47,6 +140,25 @@ public class WorkMgrTest {
     Main.mainInit(new String[] {"-containerslocation", _folder.getRoot().toString()});
     Main.setLogger(logger);
     _manager = new WorkMgr(settings, logger);
+    _queueMgr = new WorkQueueMgr();
+    _testManager =
+        new TestWorkMgr(new Settings(new String[] {"-prefetchdisable"}), logger, _queueMgr);
+  }
+
+  private QueuedWork queueWork() throws Exception {
+    WorkItem workItem = new WorkItem("container", "testrig");
+    workItem.addRequestParam(BfConsts.COMMAND_ANSWER, "");
+    QueuedWork work = new QueuedWork(workItem);
+    _queueMgr.queueUnassignedWork(work);
+    return work;
+  }
+
+  /** Queues a work and marks it assigned to worker {@code w1} */
+  private QueuedWork queueAssignedWork() throws Exception {
+    QueuedWork work = queueWork();
+    assertThat(_queueMgr.getWorkForAssignment(), sameInstance(work));
+    _queueMgr.markAssignmentSuccess(work, "w1");
+    return work;
   }
 
   @Test
@@ -255,4 +367,152 @@ public class WorkMgrTest {
     _manager.configureAnalysis(
         containerName, false, "analysis", Maps.newHashMap(), questionsToDelete);
   }
+
+  private static byte[] zipTestrig(String... namesAndContents) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+      for (int i = 0; i < namesAndContents.length; i += 2) {
+        zip.putNextEntry(new ZipEntry("testrig/configs/" + namesAndContents[i]));
+        zip.write(namesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  private void uploadInChunks(String containerName, String testrigName, byte[] zip) {
+    int half = zip.length / 2;
+    assertThat(
+        _manager.uploadTestrigChunk(
+            containerName, testrigName, 0, new ByteArrayInputStream(zip, 0, half)),
+        equalTo((long) half));
+    assertThat(_manager.getTestrigUploadOffset(containerName, testrigName), equalTo((long) half));
+    assertThat(
+        _manager.uploadTestrigChunk(
+            containerName,
+            testrigName,
+            half,
+            new ByteArrayInputStream(zip, half, zip.length - half)),
+        equalTo((long) zip.length));
+    _manager.finishTestrigUpload(containerName, testrigName, false);
+  }
+
+  @Test
+  public void testUploadTestrigChunkWrongOffset() {
+    _manager.initContainer("container", null);
+    _manager.uploadTestrigChunk("container", "testrig", 0, new ByteArrayInputStream(new byte[3]));
+    _thrown.expect(BatfishException.class);
+    _thrown.expectMessage(equalTo("Upload of testrig: 'testrig' is at offset 3, not 0"));
+    _manager.uploadTestrigChunk("container", "testrig", 0, new ByteArrayInputStream(new byte[3]));
+  }
+
+  @Test
+  public void testUploadTestrigChunksReusesUnchangedFiles() throws IOException {
+    String containerName = "container";
+    _manager.initContainer(containerName, null);
+    uploadInChunks(containerName, "t1", zipTestrig("r1.cfg", "same", "r2.cfg", "old"));
+    uploadInChunks(containerName, "t2", zipTestrig("r1.cfg", "same", "r2.cfg", "new"));
+
+    Path t1Configs = _manager.getdirTestrigs(containerName).resolve("t1/testrig/configs");
+    Path t2Configs = _manager.getdirTestrigs(containerName).resolve("t2/testrig/configs");
+    assertThat(_manager.getTestrigUploadOffset(containerName, "t2"), equalTo(0L));
+    assertThat(CommonUtil.readFile(t2Configs.resolve("r1.cfg")), equalTo("same"));
+    assertThat(CommonUtil.readFile(t2Configs.resolve("r2.cfg")), equalTo("new"));
+    assertTrue(Files.isSameFile(t1Configs.resolve("r1.cfg"), t2Configs.resolve("r1.cfg")));
+    assertFalse(Files.isSameFile(t1Configs.resolve("r2.cfg"), t2Configs.resolve("r2.cfg")));
+
+    // shared files must not be modified in place
+    assertThat(
+        Files.getPosixFilePermissions(t2Configs.resolve("r1.cfg")),
+        not(hasItem(PosixFilePermission.OWNER_WRITE)));
+    assertThat(
+        Files.getPosixFilePermissions(t2Configs.resolve("r2.cfg")),
+        not(hasItem(PosixFilePermission.OWNER_WRITE)));
+  }
+
+  @Test
+  public void testExpireUploadsDiscardsOnlyAbandonedUploads() {
+    String containerName = "container";
+    _manager.initContainer(containerName, null);
+    _manager.uploadTestrigChunk(containerName, "old", 0, new ByteArrayInputStream(new byte[3]));
+    _manager.uploadTestrigChunk(containerName, "recent", 0, new ByteArrayInputStream(new byte[3]));
+    Path oldUpload =
+        _manager
+            .getdirContainer(containerName)
+            .resolve(Paths.get(BfConsts.RELPATH_UPLOADS_DIR, "old.zip"));
+    long twoDaysAgo = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2);
+    assertTrue(oldUpload.toFile().setLastModified(twoDaysAgo));
+
+    assertThat(_manager.expireUploads(), equalTo(1));
+    assertThat(_manager.getTestrigUploadOffset(containerName, "old"), equalTo(0L));
+    assertThat(_manager.getTestrigUploadOffset(containerName, "recent"), equalTo(3L));
+  }
+
+  @Test
+  public void testAssignmentPassFillsAllIdleWorkers() throws Exception {
+    QueuedWork work1 = queueWork();
+    QueuedWork work2 = queueWork();
+    QueuedWork work3 = queueWork();
+    _testManager._idleWorkers.add("w1");
+    _testManager._idleWorkers.add("w2");
+    _testManager._firstPassReleased.countDown();
+
+    _testManager.requestAssignment();
+    _testManager.awaitPass(1);
+
+    // a single pass hands work to every idle worker, and leaves the rest queued
+    assertThat(_testManager._assigned, contains(work1, work2));
+    assertThat(_testManager._assignedWorkers, contains("w1", "w2"));
+    assertThat(work1.getStatus(), equalTo(WorkStatusCode.ASSIGNED));
+    assertThat(work3.getStatus(), equalTo(WorkStatusCode.UNASSIGNED));
+  }
+
+  @Test
+  public void testRequestAssignmentCoalescesRequests() throws Exception {
+    _testManager.requestAssignment();
+    assertThat(_testManager._firstPassStarted.await(10, TimeUnit.SECONDS), is(true));
+
+    // requests made while a pass runs are coalesced into a single further pass
+    for (int i = 0; i < 5; i++) {
+      _testManager.requestAssignment();
+    }
+    _testManager._firstPassReleased.countDown();
+    _testManager.awaitPass(2);
+
+    // passes run in order, so any extra pass would complete before this one
+    _testManager.requestAssignment();
+    _testManager.awaitPass(3);
+    assertThat(_testManager._passesCompleted.poll(100, TimeUnit.MILLISECONDS), nullValue());
+  }
+
+  @Test
+  public void testTaskCompletedChecksAssignedWorkOnce() throws Exception {
+    QueuedWork work = queueAssignedWork();
+    _testManager._firstPassReleased.countDown();
+
+    _testManager.taskCompleted(work.getId());
+    assertThat(_testManager._checked.poll(10, TimeUnit.SECONDS), sameInstance(work));
+    assertThat(work.getStatus(), equalTo(WorkStatusCode.CHECKINGSTATUS));
+
+    // the work is already being checked
+    _testManager.taskCompleted(work.getId());
+    assertThat(_testManager._checked.poll(100, TimeUnit.MILLISECONDS), nullValue());
+  }
+
+  @Test
+  public void testTaskCompletedEndpoint() throws Exception {
+    QueuedWork work = queueAssignedWork();
+    _testManager._firstPassReleased.countDown();
+    Main.setWorkMgr(_testManager);
+    PoolMgrService service = new PoolMgrService();
+
+    JSONArray missing = service.taskCompleted(null);
+    assertThat(missing.getString(0), equalTo(CoordConsts.SVC_KEY_FAILURE));
+    JSONArray malformed = service.taskCompleted("not-a-uuid");
+    assertThat(malformed.getString(0), equalTo(CoordConsts.SVC_KEY_FAILURE));
+
+    JSONArray completed = service.taskCompleted(work.getId().toString());
+    assertThat(completed.getString(0), equalTo(CoordConsts.SVC_KEY_SUCCESS));
+    assertThat(_testManager._checked.poll(10, TimeUnit.SECONDS), sameInstance(work));
+  }
 }
@@ -0,0 +1,128 @@
+package org.batfish.coordinator;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.UUID;
+import org.batfish.common.BatfishLogger;
+import org.batfish.common.BfConsts;
+import org.batfish.common.CoordConsts.WorkStatusCode;
+import org.batfish.common.WorkItem;
+import org.batfish.coordinator.QueuedWork.Priority;
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Tests for {@link WorkQueueMgr}. */
+public class WorkQueueMgrTest {
+
+  @Rule public TemporaryFolder _folder = new TemporaryFolder();
+
+  private WorkQueueMgr _queueMgr;
+
+  private static QueuedWork analysisWork(String containerName) {
+    WorkItem workItem = new WorkItem(containerName, "testrig");
+    workItem.addRequestParam(BfConsts.COMMAND_ANALYZE, "");
+    return new QueuedWork(workItem);
+  }
+
+  private static QueuedWork questionWork(String containerName) {
+    WorkItem workItem = new WorkItem(containerName, "testrig");
+    workItem.addRequestParam(BfConsts.COMMAND_ANSWER, "");
+    return new QueuedWork(workItem);
+  }
+
+  @Before
+  public void initQueueMgr() throws Exception {
+    Main.mainInit(new String[] {"-containerslocation", _folder.getRoot().toString()});
+    Main.setLogger(new BatfishLogger("debug", false));
+    _queueMgr = new WorkQueueMgr();
+  }
+
+  private QueuedWork assignNext() {
+    QueuedWork work = _queueMgr.getWorkForAssignment();
+    if (work != null) {
+      _queueMgr.markAssignmentSuccess(work, "worker");
+    }
+    return work;
+  }
+
+  @Test
+  public void testInteractiveWorkBeforeBatchWork() throws Exception {
+    QueuedWork batch1 = analysisWork("c1");
+    QueuedWork batch2 = analysisWork("c1");
+    QueuedWork interactive = questionWork("c2");
+    _queueMgr.queueUnassignedWork(batch1);
+    _queueMgr.queueUnassignedWork(batch2);
+    _queueMgr.queueUnassignedWork(interactive);
+
+    assertThat(batch1.getPriority(), equalTo(Priority.BATCH));
+    assertThat(interactive.getPriority(), equalTo(Priority.INTERACTIVE));
+    assertThat(assignNext(), sameInstance(interactive));
+    assertThat(assignNext(), sameInstance(batch1));
+    assertThat(assignNext(), sameInstance(batch2));
+    assertThat(assignNext(), nullValue());
+
+    JSONObject stats = _queueMgr.getQueueStatsJson();
+    assertThat(stats.getJSONObject("batch").getLong("assigned"), equalTo(2L));
+    assertThat(stats.getJSONObject("batch").getInt("inflight"), equalTo(2));
+    assertThat(stats.getJSONObject("interactive").getLong("assigned"), equalTo(1L));
+    assertThat(stats.getJSONObject("interactive").getInt("unassigned"), equalTo(0));
+  }
+
+  @Test
+  public void testFairShareAcrossContainers() throws Exception {
+    QueuedWork c1First = analysisWork("c1");
+    QueuedWork c1Second = analysisWork("c1");
+    QueuedWork c1Third = analysisWork("c1");
+    QueuedWork c2First = analysisWork("c2");
+    _queueMgr.queueUnassignedWork(c1First);
+    _queueMgr.queueUnassignedWork(c1Second);
+    _queueMgr.queueUnassignedWork(c1Third);
+    _queueMgr.queueUnassignedWork(c2First);
+
+    // c2 has nothing in flight once c1 has one work running, so it goes next despite being newer
+    assertThat(assignNext(), sameInstance(c1First));
+    assertThat(assignNext(), sameInstance(c2First));
+    assertThat(assignNext(), sameInstance(c1Second));
+    assertThat(
+        _queueMgr.getQueueStatsJson().getJSONObject("batch").getInt("unassigned"), equalTo(1));
+  }
+
+  @Test
+  public void testGetWorkForCheckingById() throws Exception {
+    QueuedWork unassigned = analysisWork("c1");
+    QueuedWork assigned = analysisWork("c1");
+    _queueMgr.queueUnassignedWork(unassigned);
+    _queueMgr.queueUnassignedWork(assigned);
+    _queueMgr.markAssignmentSuccess(assigned, "worker");
+
+    assertThat(_queueMgr.getWorkForChecking(UUID.randomUUID()), nullValue());
+    assertThat(_queueMgr.getWorkForChecking(unassigned.getId()), nullValue());
+    assertThat(_queueMgr.getWorkForChecking(assigned.getId()), sameInstance(assigned));
+    assertThat(assigned.getStatus(), equalTo(WorkStatusCode.CHECKINGSTATUS));
+
+    // a second completion callback for the same work does not claim it again
+    assertThat(_queueMgr.getWorkForChecking(assigned.getId()), nullValue());
+  }
+
+  @Test
+  public void testBatchWorkNotStarved() throws Exception {
+    QueuedWork batch = analysisWork("c1");
+    _queueMgr.queueUnassignedWork(batch);
+    for (int i = 0; i < 6; i++) {
+      _queueMgr.queueUnassignedWork(questionWork("c" + i));
+    }
+
+    // after the default burst of 4 interactive works, the waiting batch work goes next
+    for (int i = 0; i < 4; i++) {
+      assertThat(assignNext().getPriority(), equalTo(Priority.INTERACTIVE));
+    }
+    assertThat(assignNext(), sameInstance(batch));
+    assertThat(assignNext().getPriority(), equalTo(Priority.INTERACTIVE));
+  }
+}
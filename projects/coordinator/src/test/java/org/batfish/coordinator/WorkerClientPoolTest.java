@@ -0,0 +1,59 @@
+package org.batfish.coordinator;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import javax.ws.rs.client.Client;
+import org.batfish.coordinator.WorkerClientPool.ClientHandle;
+import org.batfish.coordinator.config.Settings;
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/** Tests for {@link WorkerClientPool}. */
+public class WorkerClientPoolTest {
+
+  @Rule public ExpectedException _thrown = ExpectedException.none();
+
+  private static Client acquireAndRelease(WorkerClientPool pool, String worker) {
+    ClientHandle handle = pool.acquire(worker);
+    pool.release(handle);
+    return handle.getClient();
+  }
+
+  @Test
+  public void testClientsReusedUntilInvalidated() throws Exception {
+    WorkerClientPool pool = new WorkerClientPool(new Settings(new String[] {}));
+
+    Client client = acquireAndRelease(pool, "w1:9999");
+    assertThat(acquireAndRelease(pool, "w1:9999"), sameInstance(client));
+    assertThat(acquireAndRelease(pool, "w2:9999"), not(sameInstance(client)));
+
+    pool.invalidate("w1:9999");
+    assertThat(acquireAndRelease(pool, "w1:9999"), not(sameInstance(client)));
+
+    JSONObject stats = pool.getStatsJson();
+    assertThat(stats.getInt("clients"), equalTo(2));
+    assertThat(stats.getLong("requests"), equalTo(4L));
+    assertThat(stats.getLong("clientsCreated"), equalTo(3L));
+    assertThat(stats.getLong("clientsInvalidated"), equalTo(1L));
+  }
+
+  @Test
+  public void testInvalidatedClientClosedAfterLastRelease() throws Exception {
+    WorkerClientPool pool = new WorkerClientPool(new Settings(new String[] {}));
+    ClientHandle inFlight = pool.acquire("w1:9999");
+
+    pool.invalidate("w1:9999");
+    // another thread's request on the invalidated client can still proceed
+    inFlight.getClient().target("http://w1:9999");
+    assertThat(acquireAndRelease(pool, "w1:9999"), not(sameInstance(inFlight.getClient())));
+
+    pool.release(inFlight);
+    _thrown.expect(IllegalStateException.class);
+    inFlight.getClient().target("http://w1:9999");
+  }
+}
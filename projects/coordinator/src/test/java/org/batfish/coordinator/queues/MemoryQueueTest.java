@@ -0,0 +1,145 @@
+package org.batfish.coordinator.queues;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.Lists;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import org.batfish.common.CoordConsts.WorkStatusCode;
+import org.batfish.common.WorkItem;
+import org.batfish.coordinator.QueuedWork;
+import org.batfish.coordinator.QueuedWork.Priority;
+import org.junit.Test;
+
+/** Tests for {@link MemoryQueue}. */
+public class MemoryQueueTest {
+
+  private static QueuedWork newWork() {
+    return new QueuedWork(new WorkItem("container", "testrig"));
+  }
+
+  @Test
+  public void testClaimWorkInOrder() {
+    MemoryQueue queue = new MemoryQueue();
+    QueuedWork w1 = newWork();
+    QueuedWork w2 = newWork();
+    queue.enque(w1);
+    queue.enque(w2);
+
+    assertThat(
+        queue.claimWork(WorkStatusCode.UNASSIGNED, WorkStatusCode.TRYINGTOASSIGN),
+        sameInstance(w1));
+    assertThat(w1.getStatus(), equalTo(WorkStatusCode.TRYINGTOASSIGN));
+    assertThat(
+        queue.claimWork(WorkStatusCode.UNASSIGNED, WorkStatusCode.TRYINGTOASSIGN),
+        sameInstance(w2));
+    assertThat(
+        queue.claimWork(WorkStatusCode.UNASSIGNED, WorkStatusCode.TRYINGTOASSIGN), nullValue());
+
+    // returning a work to UNASSIGNED makes it claimable again
+    queue.updateStatus(w1, WorkStatusCode.UNASSIGNED);
+    assertThat(
+        queue.claimWork(WorkStatusCode.UNASSIGNED, WorkStatusCode.ASSIGNED), sameInstance(w1));
+    assertThat(
+        queue.claimWork(WorkStatusCode.ASSIGNED, WorkStatusCode.CHECKINGSTATUS), sameInstance(w1));
+  }
+
+  @Test
+  public void testClaimWorkByFairShare() {
+    MemoryQueue queue = new MemoryQueue();
+    QueuedWork w1 = new QueuedWork(new WorkItem("c1", "testrig"));
+    QueuedWork w2 = new QueuedWork(new WorkItem("c2", "testrig"));
+    QueuedWork w3 = new QueuedWork(new WorkItem("c2", "testrig"));
+    QueuedWork w4 = new QueuedWork(new WorkItem("c1", "testrig"));
+    queue.enque(w1);
+    queue.enque(w2);
+    queue.enque(w3);
+    queue.enque(w4);
+    Set<WorkStatusCode> inFlight = EnumSet.of(WorkStatusCode.TRYINGTOASSIGN);
+
+    assertTrue(queue.hasWork(WorkStatusCode.UNASSIGNED, Priority.INTERACTIVE));
+    assertFalse(queue.hasWork(WorkStatusCode.UNASSIGNED, Priority.BATCH));
+    assertThat(
+        queue.claimWork(
+            WorkStatusCode.UNASSIGNED, WorkStatusCode.TRYINGTOASSIGN, Priority.BATCH, inFlight),
+        nullValue());
+
+    // the container with the fewest works in flight first, and the oldest work to break ties
+    List<QueuedWork> claimed = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      claimed.add(
+          queue.claimWork(
+              WorkStatusCode.UNASSIGNED,
+              WorkStatusCode.TRYINGTOASSIGN,
+              Priority.INTERACTIVE,
+              inFlight));
+    }
+    assertThat(claimed, equalTo(Lists.newArrayList(w1, w2, w3, w4, null)));
+    assertFalse(queue.hasWork(WorkStatusCode.UNASSIGNED, Priority.INTERACTIVE));
+    assertThat(
+        Lists.newArrayList(queue.getWorks(WorkStatusCode.TRYINGTOASSIGN)),
+        equalTo(Lists.newArrayList(w1, w2, w3, w4)));
+  }
+
+  @Test
+  public void testClaimWorkPrefersContainerWithFewerInFlight() {
+    MemoryQueue queue = new MemoryQueue();
+    QueuedWork running = new QueuedWork(new WorkItem("c1", "testrig"));
+    QueuedWork c1Waiting = new QueuedWork(new WorkItem("c1", "testrig"));
+    QueuedWork c2Waiting = new QueuedWork(new WorkItem("c2", "testrig"));
+    queue.enque(running);
+    queue.enque(c1Waiting);
+    queue.enque(c2Waiting);
+    queue.updateStatus(running, WorkStatusCode.ASSIGNED);
+
+    assertThat(
+        queue.claimWork(
+            WorkStatusCode.UNASSIGNED,
+            WorkStatusCode.TRYINGTOASSIGN,
+            Priority.INTERACTIVE,
+            EnumSet.of(WorkStatusCode.ASSIGNED)),
+        sameInstance(c2Waiting));
+
+    // once the running work leaves the queue, c1 no longer has works in flight
+    queue.delete(running);
+    queue.updateStatus(c2Waiting, WorkStatusCode.ASSIGNED);
+    queue.enque(new QueuedWork(new WorkItem("c2", "testrig")));
+    assertThat(
+        queue.claimWork(
+            WorkStatusCode.UNASSIGNED,
+            WorkStatusCode.TRYINGTOASSIGN,
+            Priority.INTERACTIVE,
+            EnumSet.of(WorkStatusCode.ASSIGNED)),
+        sameInstance(c1Waiting));
+  }
+
+  @Test
+  public void testEnqueDeleteAndGetWork() {
+    MemoryQueue queue = new MemoryQueue();
+    QueuedWork w1 = newWork();
+    QueuedWork w2 = newWork();
+
+    assertTrue(queue.enque(w1));
+    assertTrue(queue.enque(w2));
+    assertFalse(queue.enque(w1));
+    assertThat(queue.getLength(), equalTo(2L));
+    assertThat(queue.getWork(w2.getId()), sameInstance(w2));
+    assertThat(Lists.newArrayList(queue), equalTo(Lists.newArrayList(w1, w2)));
+
+    assertTrue(queue.delete(w1));
+    assertFalse(queue.delete(w1));
+    assertThat(queue.getWork(w1.getId()), nullValue());
+    assertThat(
+        queue.claimWork(WorkStatusCode.UNASSIGNED, WorkStatusCode.TRYINGTOASSIGN),
+        sameInstance(w2));
+    assertThat(queue.deque(), sameInstance(w2));
+    assertThat(queue.deque(), nullValue());
+  }
+}